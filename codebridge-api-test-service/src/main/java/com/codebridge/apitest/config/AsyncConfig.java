@@ -0,0 +1,13 @@
+package com.codebridge.apitest.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Configuration for asynchronous execution.
+ * Load tests run in the background so they can be monitored and cancelled while in progress.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
@@ -0,0 +1,22 @@
+package com.codebridge.apitest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for test chain execution.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "codebridge.chains")
+public class ChainProperties {
+
+    private int maxParallelSteps = 8;
+
+    public int getMaxParallelSteps() {
+        return maxParallelSteps;
+    }
+
+    public void setMaxParallelSteps(int maxParallelSteps) {
+        this.maxParallelSteps = maxParallelSteps;
+    }
+}
@@ -0,0 +1,88 @@
+package com.codebridge.apitest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the shared HTTP client engine used to execute API tests.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "codebridge.http-client")
+public class HttpClientProperties {
+
+    private int maxTotal = 500;
+    private int maxPerRoute = 50;
+    private Map<String, Integer> maxPerHost = new HashMap<>();
+    private long idleEvictionSeconds = 30;
+    private long connectionTimeToLiveSeconds = 300;
+    private long validateAfterInactivityMs = 2000;
+    private int defaultTimeoutMs = 30000;
+    private long statsIntervalMs = 10000;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public Map<String, Integer> getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    public void setMaxPerHost(Map<String, Integer> maxPerHost) {
+        this.maxPerHost = maxPerHost;
+    }
+
+    public long getIdleEvictionSeconds() {
+        return idleEvictionSeconds;
+    }
+
+    public void setIdleEvictionSeconds(long idleEvictionSeconds) {
+        this.idleEvictionSeconds = idleEvictionSeconds;
+    }
+
+    public long getConnectionTimeToLiveSeconds() {
+        return connectionTimeToLiveSeconds;
+    }
+
+    public void setConnectionTimeToLiveSeconds(long connectionTimeToLiveSeconds) {
+        this.connectionTimeToLiveSeconds = connectionTimeToLiveSeconds;
+    }
+
+    public long getValidateAfterInactivityMs() {
+        return validateAfterInactivityMs;
+    }
+
+    public void setValidateAfterInactivityMs(long validateAfterInactivityMs) {
+        this.validateAfterInactivityMs = validateAfterInactivityMs;
+    }
+
+    public int getDefaultTimeoutMs() {
+        return defaultTimeoutMs;
+    }
+
+    public void setDefaultTimeoutMs(int defaultTimeoutMs) {
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    public long getStatsIntervalMs() {
+        return statsIntervalMs;
+    }
+
+    public void setStatsIntervalMs(long statsIntervalMs) {
+        this.statsIntervalMs = statsIntervalMs;
+    }
+}
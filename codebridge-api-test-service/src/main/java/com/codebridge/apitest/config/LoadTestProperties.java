@@ -0,0 +1,130 @@
+package com.codebridge.apitest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for load test execution.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "codebridge.load-test")
+public class LoadTestProperties {
+
+    private int maxInFlight = 10000;
+    private long drainTimeoutSeconds = 60;
+    private long liveWindowMs = 1000;
+    private int liveMaxWindows = 3600;
+    private long liveRetentionSeconds = 600;
+    private long streamTimeoutMs = 0;
+    private boolean distributedEnabled = false;
+    private String workerServiceId = "codebridge-api-test-service";
+    private long workerStartDelayMs = 2000;
+    private long workerTimeoutGraceSeconds = 120;
+    private long workerConnectTimeoutMs = 5000;
+    private String workerToken = "";
+    private long workerSignatureValidityMs = 30000;
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getDrainTimeoutSeconds() {
+        return drainTimeoutSeconds;
+    }
+
+    public void setDrainTimeoutSeconds(long drainTimeoutSeconds) {
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+    }
+
+    public long getLiveWindowMs() {
+        return liveWindowMs;
+    }
+
+    public void setLiveWindowMs(long liveWindowMs) {
+        this.liveWindowMs = liveWindowMs;
+    }
+
+    public int getLiveMaxWindows() {
+        return liveMaxWindows;
+    }
+
+    public void setLiveMaxWindows(int liveMaxWindows) {
+        this.liveMaxWindows = liveMaxWindows;
+    }
+
+    public long getLiveRetentionSeconds() {
+        return liveRetentionSeconds;
+    }
+
+    public void setLiveRetentionSeconds(long liveRetentionSeconds) {
+        this.liveRetentionSeconds = liveRetentionSeconds;
+    }
+
+    public long getStreamTimeoutMs() {
+        return streamTimeoutMs;
+    }
+
+    public void setStreamTimeoutMs(long streamTimeoutMs) {
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
+
+    public boolean isDistributedEnabled() {
+        return distributedEnabled;
+    }
+
+    public void setDistributedEnabled(boolean distributedEnabled) {
+        this.distributedEnabled = distributedEnabled;
+    }
+
+    public String getWorkerServiceId() {
+        return workerServiceId;
+    }
+
+    public void setWorkerServiceId(String workerServiceId) {
+        this.workerServiceId = workerServiceId;
+    }
+
+    public long getWorkerStartDelayMs() {
+        return workerStartDelayMs;
+    }
+
+    public void setWorkerStartDelayMs(long workerStartDelayMs) {
+        this.workerStartDelayMs = workerStartDelayMs;
+    }
+
+    public long getWorkerTimeoutGraceSeconds() {
+        return workerTimeoutGraceSeconds;
+    }
+
+    public void setWorkerTimeoutGraceSeconds(long workerTimeoutGraceSeconds) {
+        this.workerTimeoutGraceSeconds = workerTimeoutGraceSeconds;
+    }
+
+    public long getWorkerConnectTimeoutMs() {
+        return workerConnectTimeoutMs;
+    }
+
+    public void setWorkerConnectTimeoutMs(long workerConnectTimeoutMs) {
+        this.workerConnectTimeoutMs = workerConnectTimeoutMs;
+    }
+
+    public String getWorkerToken() {
+        return workerToken;
+    }
+
+    public void setWorkerToken(String workerToken) {
+        this.workerToken = workerToken;
+    }
+
+    public long getWorkerSignatureValidityMs() {
+        return workerSignatureValidityMs;
+    }
+
+    public void setWorkerSignatureValidityMs(long workerSignatureValidityMs) {
+        this.workerSignatureValidityMs = workerSignatureValidityMs;
+    }
+}
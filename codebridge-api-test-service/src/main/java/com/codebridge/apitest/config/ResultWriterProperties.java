@@ -0,0 +1,86 @@
+package com.codebridge.apitest.config;
+
+import com.codebridge.apitest.model.enums.ResultPersistenceMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the batching test result writer.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "codebridge.result-writer")
+public class ResultWriterProperties {
+
+    private int queueCapacity = 10000;
+    private int batchSize = 500;
+    private long flushIntervalMs = 200;
+    private long enqueueTimeoutMs = 50;
+    private long shutdownTimeoutSeconds = 10;
+    private ResultPersistenceMode loadTestMode = ResultPersistenceMode.SAMPLED;
+    private double bodySampleRate = 0.01;
+    private long statsIntervalMs = 10000;
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public long getEnqueueTimeoutMs() {
+        return enqueueTimeoutMs;
+    }
+
+    public void setEnqueueTimeoutMs(long enqueueTimeoutMs) {
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+    }
+
+    public long getShutdownTimeoutSeconds() {
+        return shutdownTimeoutSeconds;
+    }
+
+    public void setShutdownTimeoutSeconds(long shutdownTimeoutSeconds) {
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+
+    public ResultPersistenceMode getLoadTestMode() {
+        return loadTestMode;
+    }
+
+    public void setLoadTestMode(ResultPersistenceMode loadTestMode) {
+        this.loadTestMode = loadTestMode;
+    }
+
+    public double getBodySampleRate() {
+        return bodySampleRate;
+    }
+
+    public void setBodySampleRate(double bodySampleRate) {
+        this.bodySampleRate = bodySampleRate;
+    }
+
+    public long getStatsIntervalMs() {
+        return statsIntervalMs;
+    }
+
+    public void setStatsIntervalMs(long statsIntervalMs) {
+        this.statsIntervalMs = statsIntervalMs;
+    }
+}
@@ -0,0 +1,85 @@
+package com.codebridge.apitest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the test script runtime.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "codebridge.scripts")
+public class ScriptProperties {
+
+    private int maxActiveContexts = 256;
+    private int maxIdleContexts = 64;
+    private int maxEvaluationsPerContext = 1000;
+    private long acquireTimeoutMs = 5000;
+    private long timeoutMs = 1000;
+    private long statementLimit = 1000000;
+    private int cacheSize = 1000;
+    private long statsIntervalMs = 10000;
+
+    public int getMaxActiveContexts() {
+        return maxActiveContexts;
+    }
+
+    public void setMaxActiveContexts(int maxActiveContexts) {
+        this.maxActiveContexts = maxActiveContexts;
+    }
+
+    public int getMaxIdleContexts() {
+        return maxIdleContexts;
+    }
+
+    public void setMaxIdleContexts(int maxIdleContexts) {
+        this.maxIdleContexts = maxIdleContexts;
+    }
+
+    public int getMaxEvaluationsPerContext() {
+        return maxEvaluationsPerContext;
+    }
+
+    public void setMaxEvaluationsPerContext(int maxEvaluationsPerContext) {
+        this.maxEvaluationsPerContext = maxEvaluationsPerContext;
+    }
+
+    public long getAcquireTimeoutMs() {
+        return acquireTimeoutMs;
+    }
+
+    public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public long getStatementLimit() {
+        return statementLimit;
+    }
+
+    public void setStatementLimit(long statementLimit) {
+        this.statementLimit = statementLimit;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public long getStatsIntervalMs() {
+        return statsIntervalMs;
+    }
+
+    public void setStatsIntervalMs(long statsIntervalMs) {
+        this.statsIntervalMs = statsIntervalMs;
+    }
+}
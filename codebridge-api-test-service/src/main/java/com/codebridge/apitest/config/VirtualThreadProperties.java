@@ -0,0 +1,42 @@
+package com.codebridge.apitest.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for running virtual users and test executions on virtual threads.
+ * The number of carrier threads is not configured here: the JDK reads it once, when the first
+ * virtual thread starts, so it has to be passed to the JVM as {@code -Djdk.virtualThreadScheduler.parallelism=<n>}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "codebridge.virtual-threads")
+public class VirtualThreadProperties {
+
+    private boolean enabled = true;
+    private boolean pinningDetectionEnabled = true;
+    private long pinningThresholdMs = 20;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isPinningDetectionEnabled() {
+        return pinningDetectionEnabled;
+    }
+
+    public void setPinningDetectionEnabled(boolean pinningDetectionEnabled) {
+        this.pinningDetectionEnabled = pinningDetectionEnabled;
+    }
+
+    public long getPinningThresholdMs() {
+        return pinningThresholdMs;
+    }
+
+    public void setPinningThresholdMs(long pinningThresholdMs) {
+        this.pinningThresholdMs = pinningThresholdMs;
+    }
+}
@@ -2,14 +2,17 @@ package com.codebridge.apitest.controller;
 
 import com.codebridge.apitest.dto.LoadTestRequest;
 import com.codebridge.apitest.dto.LoadTestResponse;
+import com.codebridge.apitest.dto.LoadTestWindow;
 import com.codebridge.apitest.model.LoadTest;
 import com.codebridge.apitest.service.LoadTestService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.UUID;
@@ -88,6 +91,36 @@ public class LoadTestController {
         return ResponseEntity.accepted().body(LoadTestResponse.fromEntity(loadTest));
     }
     
+    /**
+     * Gets the live per-window metrics of a running or recently finished load test.
+     *
+     * @param id the load test ID
+     * @param since only return windows that ended after this epoch millisecond timestamp
+     * @param authentication the authentication object
+     * @return the windows, oldest first
+     */
+    @GetMapping("/{id}/windows")
+    public ResponseEntity<List<LoadTestWindow>> getLiveWindows(@PathVariable UUID id,
+                                                               @RequestParam(defaultValue = "0") long since,
+                                                               Authentication authentication) {
+        UUID userId = getUserId(authentication);
+        return ResponseEntity.ok(loadTestService.getLiveWindows(id, userId, since));
+    }
+    
+    /**
+     * Streams the live per-window metrics of a running load test as server-sent events.
+     * Each closed window is sent as a "window" event and a "finished" event ends the stream.
+     *
+     * @param id the load test ID
+     * @param authentication the authentication object
+     * @return the event stream
+     */
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLiveWindows(@PathVariable UUID id, Authentication authentication) {
+        UUID userId = getUserId(authentication);
+        return loadTestService.streamLiveWindows(id, userId);
+    }
+    
     /**
      * Cancels a running load test.
      *
@@ -0,0 +1,83 @@
+package com.codebridge.apitest.controller;
+
+import com.codebridge.apitest.config.LoadTestProperties;
+import com.codebridge.apitest.dto.LoadTestSliceRequest;
+import com.codebridge.apitest.dto.LoadTestSliceResult;
+import com.codebridge.apitest.exception.AccessDeniedException;
+import com.codebridge.apitest.service.LoadTestService;
+import com.codebridge.apitest.service.loadtest.LoadTestSliceSigner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/**
+ * Controller for the worker side of distributed load tests.
+ * Called by the coordinating api-test-service instance, not by users: every call must carry the coordinator's
+ * signature, which also vouches for the user a slice runs for. Expired requests are refused, and each slice of a
+ * distributed run is accepted only once.
+ */
+@RestController
+@RequestMapping("/api/v1/load-tests/slices")
+public class LoadTestWorkerController {
+
+    private final LoadTestService loadTestService;
+    private final LoadTestProperties properties;
+    private final LoadTestSliceSigner signer;
+
+    @Autowired
+    public LoadTestWorkerController(LoadTestService loadTestService, LoadTestProperties properties) {
+        this.loadTestService = loadTestService;
+        this.properties = properties;
+        this.signer = new LoadTestSliceSigner(properties.getWorkerToken());
+    }
+
+    /**
+     * Runs a slice of a load test and returns its results once it has finished.
+     *
+     * @param request the slice request
+     * @param signature the coordinator's signature of the request
+     * @return the slice result
+     */
+    @PostMapping
+    public ResponseEntity<LoadTestSliceResult> executeSlice(@RequestBody LoadTestSliceRequest request,
+                                                            @RequestHeader(value = LoadTestSliceSigner.SIGNATURE_HEADER, required = false) String signature) {
+        checkWorkerAccess(signer.accept(request, signature));
+        return ResponseEntity.ok(loadTestService.executeSlice(request));
+    }
+
+    /**
+     * Cancels a slice running on this node.
+     *
+     * @param id the load test ID
+     * @param signature the coordinator's signature of the cancellation
+     * @param expiresAtEpochMs the expiry of the cancellation
+     * @return a response with no content
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Void> cancelSlice(@PathVariable UUID id,
+                                            @RequestHeader(value = LoadTestSliceSigner.SIGNATURE_HEADER, required = false) String signature,
+                                            @RequestHeader(value = LoadTestSliceSigner.EXPIRES_HEADER, required = false) Long expiresAtEpochMs) {
+        checkWorkerAccess(expiresAtEpochMs != null && signer.verifyCancel(id, expiresAtEpochMs, signature));
+        loadTestService.cancelSlice(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Checks that distributed load tests are enabled and the call was signed by a coordinator.
+     *
+     * @param signed whether the coordinator's signature is valid and the request is current
+     */
+    private void checkWorkerAccess(boolean signed) {
+        if (!properties.isDistributedEnabled()) {
+            throw new AccessDeniedException("Distributed load tests are not enabled on this node");
+        }
+        if (!signer.isEnabled()) {
+            throw new AccessDeniedException("No load test worker token is configured on this node");
+        }
+        if (!signed) {
+            throw new AccessDeniedException("Invalid, expired or repeated load test slice request");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.codebridge.apitest.dto;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 
 import java.util.UUID;
 
@@ -37,6 +38,17 @@ public class LoadTestRequest {
     private Integer thinkTimeMs;
     
     private String loadPattern;
+    
+    private String loadModel;
+    
+    @Positive(message = "Target RPS must be positive")
+    private Double targetRps;
+    
+    @Positive(message = "Peak RPS must be positive")
+    private Double peakRps;
+    
+    @Min(value = 1, message = "Worker count must be at least 1")
+    private Integer workerCount;
 
     public String getName() {
         return name;
@@ -117,5 +129,36 @@ public class LoadTestRequest {
     public void setLoadPattern(String loadPattern) {
         this.loadPattern = loadPattern;
     }
-}
 
+    public String getLoadModel() {
+        return loadModel;
+    }
+
+    public void setLoadModel(String loadModel) {
+        this.loadModel = loadModel;
+    }
+
+    public Double getTargetRps() {
+        return targetRps;
+    }
+
+    public void setTargetRps(Double targetRps) {
+        this.targetRps = targetRps;
+    }
+
+    public Double getPeakRps() {
+        return peakRps;
+    }
+
+    public void setPeakRps(Double peakRps) {
+        this.peakRps = peakRps;
+    }
+
+    public Integer getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(Integer workerCount) {
+        this.workerCount = workerCount;
+    }
+}
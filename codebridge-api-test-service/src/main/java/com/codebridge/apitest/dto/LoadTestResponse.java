@@ -5,6 +5,7 @@ import com.codebridge.apitest.model.LoadTestStatus;
 import com.codebridge.apitest.model.enums.LoadPattern;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -22,17 +23,28 @@ public class LoadTestResponse {
     private Integer rampUpSeconds;
     private Integer thinkTimeMs;
     private String loadPattern;
+    private String loadModel;
+    private Double targetRps;
+    private Double peakRps;
+    private Integer workerCount;
     private String status;
     private Integer totalRequests;
     private Integer successfulRequests;
     private Integer failedRequests;
     private Double averageResponseTimeMs;
     private Long minResponseTimeMs;
+    private Long percentile50Ms;
+    private Long percentile90Ms;
     private Long maxResponseTimeMs;
     private Long percentile95Ms;
     private Long percentile99Ms;
+    private Long percentile999Ms;
     private Double requestsPerSecond;
     private Double errorRate;
+    private Integer droppedRequests;
+    private Long maxScheduleLagMs;
+    private Map<String, Long> statusCodeCounts;
+    private Map<String, Long> errorCounts;
     private String resultSummary;
     private LocalDateTime createdAt;
     private LocalDateTime startedAt;
@@ -61,6 +73,14 @@ public class LoadTestResponse {
             response.setLoadPattern(loadTest.getLoadPattern().name());
         }
         
+        if (loadTest.getLoadModel() != null) {
+            response.setLoadModel(loadTest.getLoadModel().name());
+        }
+        
+        response.setTargetRps(loadTest.getTargetRps());
+        response.setPeakRps(loadTest.getPeakRps());
+        response.setWorkerCount(loadTest.getWorkerCount());
+        
         if (loadTest.getStatus() != null) {
             response.setStatus(loadTest.getStatus().name());
         }
@@ -71,10 +91,17 @@ public class LoadTestResponse {
         response.setAverageResponseTimeMs(loadTest.getAverageResponseTimeMs());
         response.setMinResponseTimeMs(loadTest.getMinResponseTimeMs());
         response.setMaxResponseTimeMs(loadTest.getMaxResponseTimeMs());
+        response.setPercentile50Ms(loadTest.getPercentile50Ms());
+        response.setPercentile90Ms(loadTest.getPercentile90Ms());
         response.setPercentile95Ms(loadTest.getPercentile95Ms());
         response.setPercentile99Ms(loadTest.getPercentile99Ms());
+        response.setPercentile999Ms(loadTest.getPercentile999Ms());
         response.setRequestsPerSecond(loadTest.getRequestsPerSecond());
         response.setErrorRate(loadTest.getErrorRate());
+        response.setDroppedRequests(loadTest.getDroppedRequests());
+        response.setMaxScheduleLagMs(loadTest.getMaxScheduleLagMs());
+        response.setStatusCodeCounts(loadTest.getStatusCodeCounts());
+        response.setErrorCounts(loadTest.getErrorCounts());
         response.setResultSummary(loadTest.getResultSummary());
         response.setCreatedAt(loadTest.getCreatedAt());
         response.setStartedAt(loadTest.getStartedAt());
@@ -171,6 +198,38 @@ public class LoadTestResponse {
         this.loadPattern = loadPattern;
     }
 
+    public String getLoadModel() {
+        return loadModel;
+    }
+
+    public void setLoadModel(String loadModel) {
+        this.loadModel = loadModel;
+    }
+
+    public Double getTargetRps() {
+        return targetRps;
+    }
+
+    public void setTargetRps(Double targetRps) {
+        this.targetRps = targetRps;
+    }
+
+    public Double getPeakRps() {
+        return peakRps;
+    }
+
+    public void setPeakRps(Double peakRps) {
+        this.peakRps = peakRps;
+    }
+
+    public Integer getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(Integer workerCount) {
+        this.workerCount = workerCount;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -227,6 +286,22 @@ public class LoadTestResponse {
         this.maxResponseTimeMs = maxResponseTimeMs;
     }
 
+    public Long getPercentile50Ms() {
+        return percentile50Ms;
+    }
+
+    public void setPercentile50Ms(Long percentile50Ms) {
+        this.percentile50Ms = percentile50Ms;
+    }
+
+    public Long getPercentile90Ms() {
+        return percentile90Ms;
+    }
+
+    public void setPercentile90Ms(Long percentile90Ms) {
+        this.percentile90Ms = percentile90Ms;
+    }
+
     public Long getPercentile95Ms() {
         return percentile95Ms;
     }
@@ -243,6 +318,14 @@ public class LoadTestResponse {
         this.percentile99Ms = percentile99Ms;
     }
 
+    public Long getPercentile999Ms() {
+        return percentile999Ms;
+    }
+
+    public void setPercentile999Ms(Long percentile999Ms) {
+        this.percentile999Ms = percentile999Ms;
+    }
+
     public Double getRequestsPerSecond() {
         return requestsPerSecond;
     }
@@ -259,6 +342,38 @@ public class LoadTestResponse {
         this.errorRate = errorRate;
     }
 
+    public Integer getDroppedRequests() {
+        return droppedRequests;
+    }
+
+    public void setDroppedRequests(Integer droppedRequests) {
+        this.droppedRequests = droppedRequests;
+    }
+
+    public Long getMaxScheduleLagMs() {
+        return maxScheduleLagMs;
+    }
+
+    public void setMaxScheduleLagMs(Long maxScheduleLagMs) {
+        this.maxScheduleLagMs = maxScheduleLagMs;
+    }
+
+    public Map<String, Long> getStatusCodeCounts() {
+        return statusCodeCounts;
+    }
+
+    public void setStatusCodeCounts(Map<String, Long> statusCodeCounts) {
+        this.statusCodeCounts = statusCodeCounts;
+    }
+
+    public Map<String, Long> getErrorCounts() {
+        return errorCounts;
+    }
+
+    public void setErrorCounts(Map<String, Long> errorCounts) {
+        this.errorCounts = errorCounts;
+    }
+
     public String getResultSummary() {
         return resultSummary;
     }
@@ -1,5 +1,7 @@
 package com.codebridge.apitest.dto;
 
+import java.util.Map;
+
 /**
  * DTO for load test results.
  */
@@ -10,27 +12,52 @@ public class LoadTestResult {
     private final double averageResponseTimeMs;
     private final long minResponseTimeMs;
     private final long maxResponseTimeMs;
+    private final long percentile50Ms;
+    private final long percentile90Ms;
     private final long percentile95Ms;
     private final long percentile99Ms;
+    private final long percentile999Ms;
     private final double requestsPerSecond;
     private final double errorRate;
     private final String summary;
+    private final int droppedRequests;
+    private final long maxScheduleLagMs;
+    private final Map<String, Long> statusCodeCounts;
+    private final Map<String, Long> errorCounts;
 
     public LoadTestResult(int totalRequests, int successfulRequests, int failedRequests,
                          double averageResponseTimeMs, long minResponseTimeMs, long maxResponseTimeMs,
                          long percentile95Ms, long percentile99Ms, double requestsPerSecond,
                          double errorRate, String summary) {
+        this(totalRequests, successfulRequests, failedRequests, averageResponseTimeMs, minResponseTimeMs,
+                maxResponseTimeMs, 0, 0, percentile95Ms, percentile99Ms, 0, requestsPerSecond, errorRate,
+                summary, 0, 0, Map.of(), Map.of());
+    }
+
+    public LoadTestResult(int totalRequests, int successfulRequests, int failedRequests,
+                         double averageResponseTimeMs, long minResponseTimeMs, long maxResponseTimeMs,
+                         long percentile50Ms, long percentile90Ms, long percentile95Ms,
+                         long percentile99Ms, long percentile999Ms, double requestsPerSecond,
+                         double errorRate, String summary, int droppedRequests, long maxScheduleLagMs,
+                         Map<String, Long> statusCodeCounts, Map<String, Long> errorCounts) {
         this.totalRequests = totalRequests;
         this.successfulRequests = successfulRequests;
         this.failedRequests = failedRequests;
         this.averageResponseTimeMs = averageResponseTimeMs;
         this.minResponseTimeMs = minResponseTimeMs;
         this.maxResponseTimeMs = maxResponseTimeMs;
+        this.percentile50Ms = percentile50Ms;
+        this.percentile90Ms = percentile90Ms;
         this.percentile95Ms = percentile95Ms;
         this.percentile99Ms = percentile99Ms;
+        this.percentile999Ms = percentile999Ms;
         this.requestsPerSecond = requestsPerSecond;
         this.errorRate = errorRate;
         this.summary = summary;
+        this.droppedRequests = droppedRequests;
+        this.maxScheduleLagMs = maxScheduleLagMs;
+        this.statusCodeCounts = statusCodeCounts;
+        this.errorCounts = errorCounts;
     }
 
     public int getTotalRequests() {
@@ -57,6 +84,14 @@ public class LoadTestResult {
         return maxResponseTimeMs;
     }
 
+    public long getPercentile50Ms() {
+        return percentile50Ms;
+    }
+
+    public long getPercentile90Ms() {
+        return percentile90Ms;
+    }
+
     public long getPercentile95Ms() {
         return percentile95Ms;
     }
@@ -65,6 +100,10 @@ public class LoadTestResult {
         return percentile99Ms;
     }
 
+    public long getPercentile999Ms() {
+        return percentile999Ms;
+    }
+
     public double getRequestsPerSecond() {
         return requestsPerSecond;
     }
@@ -76,5 +115,20 @@ public class LoadTestResult {
     public String getSummary() {
         return summary;
     }
-}
 
+    public int getDroppedRequests() {
+        return droppedRequests;
+    }
+
+    public long getMaxScheduleLagMs() {
+        return maxScheduleLagMs;
+    }
+
+    public Map<String, Long> getStatusCodeCounts() {
+        return statusCodeCounts;
+    }
+
+    public Map<String, Long> getErrorCounts() {
+        return errorCounts;
+    }
+}
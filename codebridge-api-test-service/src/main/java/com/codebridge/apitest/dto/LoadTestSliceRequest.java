@@ -0,0 +1,245 @@
+package com.codebridge.apitest.dto;
+
+import com.codebridge.apitest.model.LoadTest;
+import com.codebridge.apitest.model.enums.LoadModel;
+import com.codebridge.apitest.model.enums.LoadPattern;
+
+import java.util.UUID;
+
+/**
+ * DTO for one slice of a load test distributed across worker nodes.
+ */
+public class LoadTestSliceRequest {
+    private UUID runId;
+    private long issuedAtEpochMs;
+    private long expiresAtEpochMs;
+    private UUID loadTestId;
+    private UUID userId;
+    private UUID testId;
+    private UUID chainId;
+    private UUID environmentId;
+    private String loadModel;
+    private String loadPattern;
+    private Integer virtualUsers;
+    private Integer durationSeconds;
+    private Integer rampUpSeconds;
+    private Integer thinkTimeMs;
+    private Double targetRps;
+    private Double peakRps;
+    private int sliceIndex;
+    private int sliceCount;
+    private long startAtEpochMs;
+
+    /**
+     * Creates the request for one slice of a distributed load test.
+     * Virtual users and arrival rates are divided evenly, with any remaining virtual users given to the first slices.
+     *
+     * @param loadTest the load test
+     * @param userId the user ID
+     * @param sliceIndex the index of the slice
+     * @param sliceCount the total number of slices
+     * @param startAtEpochMs the time at which all slices start
+     * @return the slice request
+     */
+    public static LoadTestSliceRequest forSlice(LoadTest loadTest, UUID userId, int sliceIndex, int sliceCount, long startAtEpochMs) {
+        LoadTestSliceRequest request = new LoadTestSliceRequest();
+        request.setLoadTestId(loadTest.getId());
+        request.setUserId(userId);
+        request.setTestId(loadTest.getTestId());
+        request.setChainId(loadTest.getChainId());
+        request.setEnvironmentId(loadTest.getEnvironmentId());
+        request.setLoadModel(loadTest.getLoadModel() != null ? loadTest.getLoadModel().name() : null);
+        request.setLoadPattern(loadTest.getLoadPattern() != null ? loadTest.getLoadPattern().name() : null);
+        request.setDurationSeconds(loadTest.getDurationSeconds());
+        request.setRampUpSeconds(loadTest.getRampUpSeconds());
+        request.setThinkTimeMs(loadTest.getThinkTimeMs());
+        request.setSliceIndex(sliceIndex);
+        request.setSliceCount(sliceCount);
+        request.setStartAtEpochMs(startAtEpochMs);
+
+        int virtualUsers = loadTest.getVirtualUsers();
+        request.setVirtualUsers(virtualUsers / sliceCount + (sliceIndex < virtualUsers % sliceCount ? 1 : 0));
+        if (loadTest.getTargetRps() != null) {
+            request.setTargetRps(loadTest.getTargetRps() / sliceCount);
+        }
+        if (loadTest.getPeakRps() != null) {
+            request.setPeakRps(loadTest.getPeakRps() / sliceCount);
+        }
+        return request;
+    }
+
+    /**
+     * Converts the slice to an unsaved load test that runs only this slice.
+     *
+     * @return the load test
+     */
+    public LoadTest toLoadTest() {
+        LoadTest loadTest = new LoadTest();
+        loadTest.setId(loadTestId);
+        loadTest.setUserId(userId);
+        loadTest.setTestId(testId);
+        loadTest.setChainId(chainId);
+        loadTest.setEnvironmentId(environmentId);
+        loadTest.setLoadModel(loadModel != null ? LoadModel.valueOf(loadModel) : LoadModel.CLOSED);
+        loadTest.setLoadPattern(loadPattern != null ? LoadPattern.valueOf(loadPattern) : LoadPattern.CONSTANT);
+        loadTest.setVirtualUsers(virtualUsers);
+        loadTest.setDurationSeconds(durationSeconds);
+        loadTest.setRampUpSeconds(rampUpSeconds);
+        loadTest.setThinkTimeMs(thinkTimeMs);
+        loadTest.setTargetRps(targetRps);
+        loadTest.setPeakRps(peakRps);
+        return loadTest;
+    }
+
+    public UUID getRunId() {
+        return runId;
+    }
+
+    public void setRunId(UUID runId) {
+        this.runId = runId;
+    }
+
+    public long getIssuedAtEpochMs() {
+        return issuedAtEpochMs;
+    }
+
+    public void setIssuedAtEpochMs(long issuedAtEpochMs) {
+        this.issuedAtEpochMs = issuedAtEpochMs;
+    }
+
+    public long getExpiresAtEpochMs() {
+        return expiresAtEpochMs;
+    }
+
+    public void setExpiresAtEpochMs(long expiresAtEpochMs) {
+        this.expiresAtEpochMs = expiresAtEpochMs;
+    }
+
+    public UUID getLoadTestId() {
+        return loadTestId;
+    }
+
+    public void setLoadTestId(UUID loadTestId) {
+        this.loadTestId = loadTestId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public void setUserId(UUID userId) {
+        this.userId = userId;
+    }
+
+    public UUID getTestId() {
+        return testId;
+    }
+
+    public void setTestId(UUID testId) {
+        this.testId = testId;
+    }
+
+    public UUID getChainId() {
+        return chainId;
+    }
+
+    public void setChainId(UUID chainId) {
+        this.chainId = chainId;
+    }
+
+    public UUID getEnvironmentId() {
+        return environmentId;
+    }
+
+    public void setEnvironmentId(UUID environmentId) {
+        this.environmentId = environmentId;
+    }
+
+    public String getLoadModel() {
+        return loadModel;
+    }
+
+    public void setLoadModel(String loadModel) {
+        this.loadModel = loadModel;
+    }
+
+    public String getLoadPattern() {
+        return loadPattern;
+    }
+
+    public void setLoadPattern(String loadPattern) {
+        this.loadPattern = loadPattern;
+    }
+
+    public Integer getVirtualUsers() {
+        return virtualUsers;
+    }
+
+    public void setVirtualUsers(Integer virtualUsers) {
+        this.virtualUsers = virtualUsers;
+    }
+
+    public Integer getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(Integer durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public Integer getRampUpSeconds() {
+        return rampUpSeconds;
+    }
+
+    public void setRampUpSeconds(Integer rampUpSeconds) {
+        this.rampUpSeconds = rampUpSeconds;
+    }
+
+    public Integer getThinkTimeMs() {
+        return thinkTimeMs;
+    }
+
+    public void setThinkTimeMs(Integer thinkTimeMs) {
+        this.thinkTimeMs = thinkTimeMs;
+    }
+
+    public Double getTargetRps() {
+        return targetRps;
+    }
+
+    public void setTargetRps(Double targetRps) {
+        this.targetRps = targetRps;
+    }
+
+    public Double getPeakRps() {
+        return peakRps;
+    }
+
+    public void setPeakRps(Double peakRps) {
+        this.peakRps = peakRps;
+    }
+
+    public int getSliceIndex() {
+        return sliceIndex;
+    }
+
+    public void setSliceIndex(int sliceIndex) {
+        this.sliceIndex = sliceIndex;
+    }
+
+    public int getSliceCount() {
+        return sliceCount;
+    }
+
+    public void setSliceCount(int sliceCount) {
+        this.sliceCount = sliceCount;
+    }
+
+    public long getStartAtEpochMs() {
+        return startAtEpochMs;
+    }
+
+    public void setStartAtEpochMs(long startAtEpochMs) {
+        this.startAtEpochMs = startAtEpochMs;
+    }
+}
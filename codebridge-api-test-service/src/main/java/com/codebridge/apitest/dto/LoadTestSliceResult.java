@@ -0,0 +1,93 @@
+package com.codebridge.apitest.dto;
+
+import com.codebridge.common.metrics.LatencyHistogramSnapshot;
+
+import java.util.Map;
+
+/**
+ * DTO for the result of one slice of a distributed load test.
+ * Latencies are carried as a histogram snapshot so the coordinator can merge them without losing percentile accuracy.
+ */
+public class LoadTestSliceResult {
+    private int sliceIndex;
+    private long successfulRequests;
+    private long failedRequests;
+    private long droppedRequests;
+    private long maxScheduleLagMs;
+    private long durationMs;
+    private Map<String, Long> statusCodeCounts;
+    private Map<String, Long> errorCounts;
+    private LatencyHistogramSnapshot latencyHistogram;
+
+    public int getSliceIndex() {
+        return sliceIndex;
+    }
+
+    public void setSliceIndex(int sliceIndex) {
+        this.sliceIndex = sliceIndex;
+    }
+
+    public long getSuccessfulRequests() {
+        return successfulRequests;
+    }
+
+    public void setSuccessfulRequests(long successfulRequests) {
+        this.successfulRequests = successfulRequests;
+    }
+
+    public long getFailedRequests() {
+        return failedRequests;
+    }
+
+    public void setFailedRequests(long failedRequests) {
+        this.failedRequests = failedRequests;
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests;
+    }
+
+    public void setDroppedRequests(long droppedRequests) {
+        this.droppedRequests = droppedRequests;
+    }
+
+    public long getMaxScheduleLagMs() {
+        return maxScheduleLagMs;
+    }
+
+    public void setMaxScheduleLagMs(long maxScheduleLagMs) {
+        this.maxScheduleLagMs = maxScheduleLagMs;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public Map<String, Long> getStatusCodeCounts() {
+        return statusCodeCounts;
+    }
+
+    public void setStatusCodeCounts(Map<String, Long> statusCodeCounts) {
+        this.statusCodeCounts = statusCodeCounts;
+    }
+
+    public Map<String, Long> getErrorCounts() {
+        return errorCounts;
+    }
+
+    public void setErrorCounts(Map<String, Long> errorCounts) {
+        this.errorCounts = errorCounts;
+    }
+
+    public LatencyHistogramSnapshot getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    public void setLatencyHistogram(LatencyHistogramSnapshot latencyHistogram) {
+        this.latencyHistogram = latencyHistogram;
+    }
+}
@@ -0,0 +1,92 @@
+package com.codebridge.apitest.dto;
+
+/**
+ * DTO for one window of a running load test's time series.
+ */
+public class LoadTestWindow {
+    private final long windowStartEpochMs;
+    private final long windowEndEpochMs;
+    private final long totalRequests;
+    private final long successfulRequests;
+    private final long failedRequests;
+    private final long droppedRequests;
+    private final double requestsPerSecond;
+    private final double errorRate;
+    private final long percentile50Ms;
+    private final long percentile90Ms;
+    private final long percentile95Ms;
+    private final long percentile99Ms;
+    private final long maxResponseTimeMs;
+
+    public LoadTestWindow(long windowStartEpochMs, long windowEndEpochMs, long totalRequests,
+                          long successfulRequests, long failedRequests, long droppedRequests,
+                          double requestsPerSecond, double errorRate, long percentile50Ms,
+                          long percentile90Ms, long percentile95Ms, long percentile99Ms,
+                          long maxResponseTimeMs) {
+        this.windowStartEpochMs = windowStartEpochMs;
+        this.windowEndEpochMs = windowEndEpochMs;
+        this.totalRequests = totalRequests;
+        this.successfulRequests = successfulRequests;
+        this.failedRequests = failedRequests;
+        this.droppedRequests = droppedRequests;
+        this.requestsPerSecond = requestsPerSecond;
+        this.errorRate = errorRate;
+        this.percentile50Ms = percentile50Ms;
+        this.percentile90Ms = percentile90Ms;
+        this.percentile95Ms = percentile95Ms;
+        this.percentile99Ms = percentile99Ms;
+        this.maxResponseTimeMs = maxResponseTimeMs;
+    }
+
+    public long getWindowStartEpochMs() {
+        return windowStartEpochMs;
+    }
+
+    public long getWindowEndEpochMs() {
+        return windowEndEpochMs;
+    }
+
+    public long getTotalRequests() {
+        return totalRequests;
+    }
+
+    public long getSuccessfulRequests() {
+        return successfulRequests;
+    }
+
+    public long getFailedRequests() {
+        return failedRequests;
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public long getPercentile50Ms() {
+        return percentile50Ms;
+    }
+
+    public long getPercentile90Ms() {
+        return percentile90Ms;
+    }
+
+    public long getPercentile95Ms() {
+        return percentile95Ms;
+    }
+
+    public long getPercentile99Ms() {
+        return percentile99Ms;
+    }
+
+    public long getMaxResponseTimeMs() {
+        return maxResponseTimeMs;
+    }
+}
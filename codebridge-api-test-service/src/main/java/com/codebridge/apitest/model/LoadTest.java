@@ -1,16 +1,23 @@
 package com.codebridge.apitest.model;
 
+import com.codebridge.apitest.model.enums.LoadModel;
 import com.codebridge.apitest.model.enums.LoadPattern;
+import com.codebridge.apitest.util.CountMapConverter;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Entity for load tests.
+ * Updates only write changed columns, so cancelling a running test cannot overwrite the results
+ * saved concurrently by the executing thread.
  */
 @Entity
+@DynamicUpdate
 @Table(name = "load_tests")
 public class LoadTest {
 
@@ -52,6 +59,19 @@ public class LoadTest {
     @Enumerated(EnumType.STRING)
     private LoadPattern loadPattern;
 
+    @Column
+    @Enumerated(EnumType.STRING)
+    private LoadModel loadModel;
+
+    @Column
+    private Double targetRps;
+
+    @Column
+    private Double peakRps;
+
+    @Column
+    private Integer workerCount;
+
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private LoadTestStatus status;
@@ -71,6 +91,12 @@ public class LoadTest {
     @Column
     private Long minResponseTimeMs;
 
+    @Column
+    private Long percentile50Ms;
+
+    @Column
+    private Long percentile90Ms;
+
     @Column
     private Long maxResponseTimeMs;
 
@@ -80,12 +106,31 @@ public class LoadTest {
     @Column
     private Long percentile99Ms;
 
+    @Column
+    private Long percentile999Ms;
+
     @Column
     private Double requestsPerSecond;
 
     @Column
     private Double errorRate;
 
+    @Column
+    private Integer droppedRequests;
+
+    @Column
+    private Long maxScheduleLagMs;
+
+    @Column
+    @Lob
+    @Convert(converter = CountMapConverter.class)
+    private Map<String, Long> statusCodeCounts;
+
+    @Column
+    @Lob
+    @Convert(converter = CountMapConverter.class)
+    private Map<String, Long> errorCounts;
+
     @Column
     @Lob
     private String resultSummary;
@@ -197,6 +242,38 @@ public class LoadTest {
         this.loadPattern = loadPattern;
     }
 
+    public LoadModel getLoadModel() {
+        return loadModel;
+    }
+
+    public void setLoadModel(LoadModel loadModel) {
+        this.loadModel = loadModel;
+    }
+
+    public Double getTargetRps() {
+        return targetRps;
+    }
+
+    public void setTargetRps(Double targetRps) {
+        this.targetRps = targetRps;
+    }
+
+    public Double getPeakRps() {
+        return peakRps;
+    }
+
+    public void setPeakRps(Double peakRps) {
+        this.peakRps = peakRps;
+    }
+
+    public Integer getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(Integer workerCount) {
+        this.workerCount = workerCount;
+    }
+
     public LoadTestStatus getStatus() {
         return status;
     }
@@ -253,6 +330,22 @@ public class LoadTest {
         this.maxResponseTimeMs = maxResponseTimeMs;
     }
 
+    public Long getPercentile50Ms() {
+        return percentile50Ms;
+    }
+
+    public void setPercentile50Ms(Long percentile50Ms) {
+        this.percentile50Ms = percentile50Ms;
+    }
+
+    public Long getPercentile90Ms() {
+        return percentile90Ms;
+    }
+
+    public void setPercentile90Ms(Long percentile90Ms) {
+        this.percentile90Ms = percentile90Ms;
+    }
+
     public Long getPercentile95Ms() {
         return percentile95Ms;
     }
@@ -269,6 +362,14 @@ public class LoadTest {
         this.percentile99Ms = percentile99Ms;
     }
 
+    public Long getPercentile999Ms() {
+        return percentile999Ms;
+    }
+
+    public void setPercentile999Ms(Long percentile999Ms) {
+        this.percentile999Ms = percentile999Ms;
+    }
+
     public Double getRequestsPerSecond() {
         return requestsPerSecond;
     }
@@ -285,6 +386,38 @@ public class LoadTest {
         this.errorRate = errorRate;
     }
 
+    public Integer getDroppedRequests() {
+        return droppedRequests;
+    }
+
+    public void setDroppedRequests(Integer droppedRequests) {
+        this.droppedRequests = droppedRequests;
+    }
+
+    public Long getMaxScheduleLagMs() {
+        return maxScheduleLagMs;
+    }
+
+    public void setMaxScheduleLagMs(Long maxScheduleLagMs) {
+        this.maxScheduleLagMs = maxScheduleLagMs;
+    }
+
+    public Map<String, Long> getStatusCodeCounts() {
+        return statusCodeCounts;
+    }
+
+    public void setStatusCodeCounts(Map<String, Long> statusCodeCounts) {
+        this.statusCodeCounts = statusCodeCounts;
+    }
+
+    public Map<String, Long> getErrorCounts() {
+        return errorCounts;
+    }
+
+    public void setErrorCounts(Map<String, Long> errorCounts) {
+        this.errorCounts = errorCounts;
+    }
+
     public String getResultSummary() {
         return resultSummary;
     }
@@ -39,6 +39,9 @@ public class TestChain {
     @Column
     private boolean active;
 
+    @Column
+    private Integer maxParallelSteps; // null or 1 runs steps in sequence
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -104,6 +107,14 @@ public class TestChain {
         this.active = active;
     }
 
+    public Integer getMaxParallelSteps() {
+        return maxParallelSteps;
+    }
+
+    public void setMaxParallelSteps(Integer maxParallelSteps) {
+        this.maxParallelSteps = maxParallelSteps;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,18 @@
+package com.codebridge.apitest.model.enums;
+
+/**
+ * Enum for load test workload models.
+ */
+public enum LoadModel {
+    /**
+     * Closed model: a fixed number of virtual users each loop over requests,
+     * so the achieved rate depends on response latency.
+     */
+    CLOSED,
+    
+    /**
+     * Open model: requests are started at a target arrival rate,
+     * independent of how long earlier requests take to complete.
+     */
+    OPEN
+}
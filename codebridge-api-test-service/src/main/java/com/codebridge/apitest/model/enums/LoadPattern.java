@@ -17,6 +17,11 @@ public enum LoadPattern {
     /**
      * Step-wise increasing load with users added in batches.
      */
-    STEP
+    STEP,
+    
+    /**
+     * Baseline load with a short burst at the peak rate in the middle of the test.
+     */
+    SPIKE
 }
 
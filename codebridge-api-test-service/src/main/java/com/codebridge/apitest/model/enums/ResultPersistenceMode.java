@@ -0,0 +1,26 @@
+package com.codebridge.apitest.model.enums;
+
+/**
+ * Enum for how test results are persisted.
+ */
+public enum ResultPersistenceMode {
+    /**
+     * Saved before the execution returns, so the result can be read back immediately.
+     */
+    SYNC,
+    
+    /**
+     * Saved in the background by the batching result writer.
+     */
+    ASYNC,
+    
+    /**
+     * Saved in the background, keeping response bodies and headers only for a sample of results.
+     */
+    SAMPLED,
+    
+    /**
+     * Not saved; only the aggregates of the load test are persisted.
+     */
+    AGGREGATES_ONLY
+}
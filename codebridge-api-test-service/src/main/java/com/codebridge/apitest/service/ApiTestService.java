@@ -1,5 +1,6 @@
 package com.codebridge.apitest.service;
 
+import com.codebridge.apitest.config.VirtualThreadProperties;
 import com.codebridge.apitest.dto.ApiTestRequest;
 import com.codebridge.apitest.dto.ApiTestResponse;
 import com.codebridge.apitest.dto.CachedResponse;
@@ -13,8 +14,10 @@ import com.codebridge.apitest.model.ProjectToken;
 import com.codebridge.apitest.model.ProtocolType;
 import com.codebridge.apitest.model.TestResult;
 import com.codebridge.apitest.model.TestStatus;
+import com.codebridge.apitest.model.enums.ResultPersistenceMode;
 import com.codebridge.apitest.repository.ApiTestRepository;
 import com.codebridge.apitest.repository.TestResultRepository;
+import com.codebridge.apitest.service.chain.ChainPlanCache;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,17 +28,9 @@ import org.apache.hc.client5.http.classic.methods.HttpOptions;
 import org.apache.hc.client5.http.classic.methods.HttpPatch;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
-import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
-import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.Header;
-import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
@@ -60,14 +55,13 @@ import org.springframework.web.client.RestTemplate;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -92,6 +86,10 @@ public class ApiTestService {
     private final ObjectMapper objectMapper;
     private final ResponseCacheService cacheService;
     private final PerformanceMetricsService metricsService;
+    private final HttpClientEngine httpClientEngine;
+    private final TestResultWriter testResultWriter;
+    private final ScriptRuntime scriptRuntime;
+    private final ChainPlanCache chainPlanCache;
     private final ExecutorService executorService;
 
     @Autowired
@@ -101,7 +99,12 @@ public class ApiTestService {
                          ProjectTokenService projectTokenService,
                          ObjectMapper objectMapper,
                          ResponseCacheService cacheService,
-                         PerformanceMetricsService metricsService) {
+                         PerformanceMetricsService metricsService,
+                         HttpClientEngine httpClientEngine,
+                         TestResultWriter testResultWriter,
+                         ScriptRuntime scriptRuntime,
+                         ChainPlanCache chainPlanCache,
+                         VirtualThreadProperties virtualThreadProperties) {
         this.apiTestRepository = apiTestRepository;
         this.testResultRepository = testResultRepository;
         this.environmentService = environmentService;
@@ -109,7 +112,14 @@ public class ApiTestService {
         this.objectMapper = objectMapper;
         this.cacheService = cacheService;
         this.metricsService = metricsService;
-        this.executorService = Executors.newFixedThreadPool(10); // Thread pool for parallel operations
+        this.httpClientEngine = httpClientEngine;
+        this.testResultWriter = testResultWriter;
+        this.scriptRuntime = scriptRuntime;
+        this.chainPlanCache = chainPlanCache;
+        // Scripts run on a virtual thread per task so concurrent executions are not capped by a pool size
+        this.executorService = virtualThreadProperties.isEnabled()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(10); // Thread pool for parallel operations
     }
 
     /**
@@ -235,6 +245,7 @@ public class ApiTestService {
         test.setTimeoutMs(request.getTimeoutMs());
         
         ApiTest updatedTest = apiTestRepository.save(test);
+        chainPlanCache.invalidateTest(id);
         return mapToApiTestResponse(updatedTest);
     }
 
@@ -250,6 +261,7 @@ public class ApiTestService {
                 .orElseThrow(() -> new ResourceNotFoundException("ApiTest", "id", id));
         
         apiTestRepository.delete(test);
+        chainPlanCache.invalidateTest(id);
     }
 
     /**
@@ -259,13 +271,40 @@ public class ApiTestService {
      * @param userId the user ID
      * @return the test result
      */
-    @Transactional
     public TestResultResponse executeTest(UUID id, UUID userId) {
-        long startTime = System.currentTimeMillis();
-        
+        return executeTest(id, userId, ResultPersistenceMode.SYNC);
+    }
+
+    /**
+     * Executes an API test, persisting the result according to the given mode.
+     *
+     * @param id the API test ID
+     * @param userId the user ID
+     * @param persistenceMode how the result is persisted
+     * @return the test result
+     */
+    public TestResultResponse executeTest(UUID id, UUID userId, ResultPersistenceMode persistenceMode) {
         ApiTest test = apiTestRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("ApiTest", "id", id));
         
+        return executeTest(test, persistenceMode);
+    }
+
+    /**
+     * Executes an already resolved API test, persisting the result according to the given mode.
+     * The test is not reloaded, so callers such as test chains can pass a detached copy
+     * with their variables already applied to the request.
+     * Executions do not run in a transaction: the outbound call can take seconds, and holding a pooled
+     * connection for that long would cap concurrent executions, such as load test users, at the pool size.
+     * The result is saved in a transaction of its own, or handed to the result writer.
+     *
+     * @param test the API test
+     * @param persistenceMode how the result is persisted
+     * @return the test result
+     */
+    public TestResultResponse executeTest(ApiTest test, ResultPersistenceMode persistenceMode) {
+        long startTime = System.currentTimeMillis();
+        
         TestResult testResult = new TestResult();
         testResult.setId(UUID.randomUUID());
         testResult.setTestId(test.getId());
@@ -275,7 +314,7 @@ public class ApiTestService {
             if (test.getPreRequestScript() != null && !test.getPreRequestScript().isEmpty()) {
                 CompletableFuture<Void> scriptFuture = CompletableFuture.runAsync(() -> {
                     try {
-                        executeScript(test.getPreRequestScript(), null, null, null);
+                        executeScript(test, test.getPreRequestScript(), null, null, null);
                     } catch (Exception e) {
                         throw new TestExecutionException("Error executing pre-request script: " + e.getMessage(), e);
                     }
@@ -316,7 +355,7 @@ public class ApiTestService {
                     }
                     
                     testResult.setExecutionTimeMs(System.currentTimeMillis() - startTime);
-                    testResult = testResultRepository.save(testResult);
+                    testResult = persistResult(testResult, persistenceMode);
                     
                     metricsService.recordTestExecution(testResult.getExecutionTimeMs(), true);
                     return mapToTestResultResponse(testResult);
@@ -363,7 +402,7 @@ public class ApiTestService {
                 
                 CompletableFuture<Void> scriptFuture = CompletableFuture.runAsync(() -> {
                     try {
-                        executeScript(test.getPostRequestScript(), finalStatusCode, finalResponseBody, finalResponseHeaders);
+                        executeScript(test, test.getPostRequestScript(), finalStatusCode, finalResponseBody, finalResponseHeaders);
                     } catch (Exception e) {
                         throw new TestExecutionException("Error executing post-request script: " + e.getMessage(), e);
                     }
@@ -397,7 +436,7 @@ public class ApiTestService {
         }
         
         testResult.setExecutionTimeMs(System.currentTimeMillis() - startTime);
-        testResult = testResultRepository.save(testResult);
+        testResult = persistResult(testResult, persistenceMode);
         
         // Record metrics
         metricsService.recordTestExecution(
@@ -407,6 +446,41 @@ public class ApiTestService {
         return mapToTestResultResponse(testResult);
     }
 
+    /**
+     * Persists a test result, either immediately or through the batching result writer.
+     *
+     * @param testResult the test result
+     * @param persistenceMode how the result is persisted
+     * @return the test result, as saved when persisted synchronously
+     */
+    private TestResult persistResult(TestResult testResult, ResultPersistenceMode persistenceMode) {
+        if (persistenceMode == ResultPersistenceMode.SYNC) {
+            return testResultRepository.save(testResult);
+        }
+        
+        // The writer bypasses JPA, so set what @PrePersist would have set
+        testResult.setCreatedAt(LocalDateTime.now());
+        
+        // Queue a copy, so dropping the body of a sampled result does not change the returned result
+        TestResult queued = copyOf(testResult);
+        testResultWriter.submit(queued, persistenceMode);
+        return testResult;
+    }
+
+    private TestResult copyOf(TestResult testResult) {
+        TestResult copy = new TestResult();
+        copy.setId(testResult.getId());
+        copy.setTestId(testResult.getTestId());
+        copy.setStatus(testResult.getStatus());
+        copy.setResponseStatusCode(testResult.getResponseStatusCode());
+        copy.setResponseHeaders(testResult.getResponseHeaders());
+        copy.setResponseBody(testResult.getResponseBody());
+        copy.setErrorMessage(testResult.getErrorMessage());
+        copy.setExecutionTimeMs(testResult.getExecutionTimeMs());
+        copy.setCreatedAt(testResult.getCreatedAt());
+        return copy;
+    }
+
     /**
      * Executes an HTTP API test.
      *
@@ -418,63 +492,40 @@ public class ApiTestService {
     private HttpResult executeHttpTest(ApiTest test, Map<String, String> headers) throws Exception {
         long startTime = System.currentTimeMillis();
         
-        // Create HTTP client with optimized configuration
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectTimeout(test.getTimeoutMs() != null ? test.getTimeoutMs() : 30000, TimeUnit.MILLISECONDS)
-                .setResponseTimeout(test.getTimeoutMs() != null ? test.getTimeoutMs() : 30000, TimeUnit.MILLISECONDS)
-                .build();
+        // Create HTTP request based on method
+        HttpUriRequestBase request = createHttpRequest(test.getMethod(), test.getUrl());
         
-        try (CloseableHttpClient httpClient = HttpClients.custom()
-                .setDefaultRequestConfig(requestConfig)
-                .build()) {
-            
-            // Create HTTP request based on method
-            HttpUriRequestBase request = createHttpRequest(test.getMethod(), test.getUrl());
-            
-            // Set headers
-            for (Map.Entry<String, String> header : headers.entrySet()) {
-                request.setHeader(header.getKey(), header.getValue());
-            }
-            
-            // Set request body if present
-            if (test.getRequestBody() != null && !test.getRequestBody().isEmpty() &&
-                    (test.getMethod() == HttpMethod.POST || test.getMethod() == HttpMethod.PUT || 
-                     test.getMethod() == HttpMethod.PATCH)) {
-                StringEntity entity = new StringEntity(test.getRequestBody(), ContentType.APPLICATION_JSON);
-                request.setEntity(entity);
-            }
-            
-            // Inject project tokens if environment is set
-            if (test.getEnvironmentId() != null) {
-                try {
-                    injectProjectTokens(request, test.getEnvironmentId());
-                } catch (URISyntaxException e) {
-                    throw new TestExecutionException("Error injecting project tokens: " + e.getMessage(), e);
-                }
-            }
-            
-            // Execute the request
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                int statusCode = response.getCode();
-                
-                // Extract response headers
-                Map<String, String> responseHeaders = new HashMap<>();
-                for (Header header : response.getHeaders()) {
-                    responseHeaders.put(header.getName(), header.getValue());
-                }
-                
-                // Extract response body
-                HttpEntity entity = response.getEntity();
-                String responseBody = entity != null ? EntityUtils.toString(entity) : "";
-                
-                // Record metrics
-                metricsService.recordHttpRequest(
-                        test.getMethod().name(), 
-                        System.currentTimeMillis() - startTime);
-                
-                return new HttpResult(statusCode, responseBody, responseHeaders);
+        // Set headers
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            request.setHeader(header.getKey(), header.getValue());
+        }
+        
+        // Set request body if present
+        if (test.getRequestBody() != null && !test.getRequestBody().isEmpty() &&
+                (test.getMethod() == HttpMethod.POST || test.getMethod() == HttpMethod.PUT || 
+                 test.getMethod() == HttpMethod.PATCH)) {
+            StringEntity entity = new StringEntity(test.getRequestBody(), ContentType.APPLICATION_JSON);
+            request.setEntity(entity);
+        }
+        
+        // Inject project tokens if environment is set
+        if (test.getEnvironmentId() != null) {
+            try {
+                injectProjectTokens(request, test.getEnvironmentId());
+            } catch (URISyntaxException e) {
+                throw new TestExecutionException("Error injecting project tokens: " + e.getMessage(), e);
             }
         }
+        
+        // Execute the request on the shared pooled client
+        HttpClientEngine.BufferedResponse response = httpClientEngine.execute(request, test.getTimeoutMs());
+        
+        // Record metrics
+        metricsService.recordHttpRequest(
+                test.getMethod().name(), 
+                System.currentTimeMillis() - startTime);
+        
+        return new HttpResult(response.statusCode(), response.responseBody(), response.responseHeaders());
     }
 
     /**
@@ -530,46 +581,11 @@ public class ApiTestService {
         String processedUrl = processEnvironmentVariables(test.getUrl(), environmentVariables);
         
         // Create HTTP request
-        HttpUriRequest request = createHttpRequest(test, processedUrl, environmentVariables);
-        
-        // Set timeout
-        if (request instanceof HttpUriRequestBase) {
-            RequestConfig requestConfig = RequestConfig.custom()
-                    .setConnectTimeout(test.getTimeoutMs(), TimeUnit.MILLISECONDS)
-                    .setResponseTimeout(test.getTimeoutMs(), TimeUnit.MILLISECONDS)
-                    .build();
-            ((HttpUriRequestBase) request).setConfig(requestConfig);
-        }
+        HttpUriRequestBase request = createHttpRequest(test, processedUrl, environmentVariables);
         
-        // Execute request
-        try (CloseableHttpClient httpClient = HttpClients.createDefault();
-             CloseableHttpResponse response = httpClient.execute(request)) {
-            
-            // Get response status code
-            int statusCode = response.getCode();
-            result.setResponseStatusCode(statusCode);
-            
-            // Get response headers
-            Map<String, String> responseHeaders = new HashMap<>();
-            for (Header header : response.getHeaders()) {
-                responseHeaders.put(header.getName(), header.getValue());
-            }
-            result.setResponseHeaders(objectMapper.writeValueAsString(responseHeaders));
-            
-            // Get response body
-            HttpEntity responseEntity = response.getEntity();
-            String responseBody = responseEntity != null ? EntityUtils.toString(responseEntity) : "";
-            result.setResponseBody(responseBody);
-            
-            // Execute post-request script if present
-            if (test.getPostRequestScript() != null && !test.getPostRequestScript().isEmpty()) {
-                executeScript(test.getPostRequestScript(), statusCode, responseBody, responseHeaders);
-            }
-            
-            // Validate response
-            boolean isValid = validateResponse(test, statusCode, responseBody);
-            result.setStatus(isValid ? TestStatus.SUCCESS : TestStatus.FAILURE);
-        }
+        // Execute request on the shared pooled client with the test's timeout
+        HttpClientEngine.BufferedResponse response = httpClientEngine.execute(request, test.getTimeoutMs());
+        applyResponse(test, result, response);
     }
 
     /**
@@ -613,42 +629,36 @@ public class ApiTestService {
             }
         }
         
-        // Set timeout
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectTimeout(test.getTimeoutMs(), TimeUnit.MILLISECONDS)
-                .setResponseTimeout(test.getTimeoutMs(), TimeUnit.MILLISECONDS)
-                .build();
-        request.setConfig(requestConfig);
+        // Execute request on the shared pooled client with the test's timeout
+        HttpClientEngine.BufferedResponse response = httpClientEngine.execute(request, test.getTimeoutMs());
+        applyResponse(test, result, response);
+    }
+
+    /**
+     * Applies a buffered HTTP response to a test result, running the post-request script and validation.
+     *
+     * @param test the API test
+     * @param result the test result
+     * @param response the buffered response
+     * @throws Exception if an error occurs
+     */
+    private void applyResponse(ApiTest test, TestResult result, HttpClientEngine.BufferedResponse response) throws Exception {
+        int statusCode = response.statusCode();
+        String responseBody = response.responseBody();
+        Map<String, String> responseHeaders = response.responseHeaders();
         
-        // Execute request
-        try (CloseableHttpClient httpClient = HttpClients.createDefault();
-             CloseableHttpResponse response = httpClient.execute(request)) {
-            
-            // Get response status code
-            int statusCode = response.getCode();
-            result.setResponseStatusCode(statusCode);
-            
-            // Get response headers
-            Map<String, String> responseHeaders = new HashMap<>();
-            for (Header header : response.getHeaders()) {
-                responseHeaders.put(header.getName(), header.getValue());
-            }
-            result.setResponseHeaders(objectMapper.writeValueAsString(responseHeaders));
-            
-            // Get response body
-            HttpEntity responseEntity = response.getEntity();
-            String responseBody = responseEntity != null ? EntityUtils.toString(responseEntity) : "";
-            result.setResponseBody(responseBody);
-            
-            // Execute post-request script if present
-            if (test.getPostRequestScript() != null && !test.getPostRequestScript().isEmpty()) {
-                executeScript(test.getPostRequestScript(), statusCode, responseBody, responseHeaders);
-            }
-            
-            // Validate response
-            boolean isValid = validateResponse(test, statusCode, responseBody);
-            result.setStatus(isValid ? TestStatus.SUCCESS : TestStatus.FAILURE);
+        result.setResponseStatusCode(statusCode);
+        result.setResponseHeaders(objectMapper.writeValueAsString(responseHeaders));
+        result.setResponseBody(responseBody);
+        
+        // Execute post-request script if present
+        if (test.getPostRequestScript() != null && !test.getPostRequestScript().isEmpty()) {
+            executeScript(test, test.getPostRequestScript(), statusCode, responseBody, responseHeaders);
         }
+        
+        // Validate response
+        boolean isValid = validateResponse(test, statusCode, responseBody);
+        result.setStatus(isValid ? TestStatus.SUCCESS : TestStatus.FAILURE);
     }
 
     /**
@@ -810,7 +820,7 @@ public class ApiTestService {
      * @throws IOException if an error occurs
      * @throws URISyntaxException if an error occurs with the URI
      */
-    private HttpUriRequest createHttpRequest(ApiTest test, String processedUrl, Map<String, String> environmentVariables) throws IOException, URISyntaxException {
+    private HttpUriRequestBase createHttpRequest(ApiTest test, String processedUrl, Map<String, String> environmentVariables) throws IOException, URISyntaxException {
         HttpUriRequestBase request;
 
         switch (test.getMethod()) {
@@ -867,7 +877,7 @@ public class ApiTestService {
             injectProjectTokens(request, test.getProjectId());
         }
         
-        // Timeout is set in executeHttpTest/executeGraphQLTest using RequestConfig
+        // Timeout is applied per request by HttpClientEngine
         return request;
     }
 
@@ -918,35 +928,30 @@ public class ApiTestService {
     /**
      * Executes a script (pre-request or post-request).
      *
+     * @param test the API test the script belongs to
      * @param script the script to execute
      * @param statusCode the response status code (for post-request scripts)
      * @param responseBody the response body (for post-request scripts)
      * @param responseHeaders the response headers (for post-request scripts)
      * @throws Exception if an error occurs during script execution
      */
-    private void executeScript(String script, Integer statusCode, String responseBody, Map<String, String> responseHeaders) throws Exception {
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName("JavaScript");
-        
+    private void executeScript(ApiTest test, String script, Integer statusCode, String responseBody, Map<String, String> responseHeaders) throws Exception {
         // Set variables for the script
+        Map<String, Object> bindings = new HashMap<>();
         if (statusCode != null) {
-            engine.put("statusCode", statusCode);
+            bindings.put("statusCode", statusCode);
         }
         
         if (responseBody != null) {
-            engine.put("responseBody", responseBody);
+            bindings.put("responseBody", responseBody);
         }
         
         if (responseHeaders != null) {
-            engine.put("responseHeaders", responseHeaders);
+            bindings.put("responseHeaders", responseHeaders);
         }
         
         try {
-            // Add utility functions
-            engine.eval("function isJson(str) { try { JSON.parse(str); return true; } catch (e) { return false; } }");
-            
-            // Execute the script
-            engine.eval(script);
+            scriptRuntime.evaluate(test.getId(), script, bindings);
         } catch (Exception e) {
             throw new Exception("Error executing script: " + e.getMessage(), e);
         }
@@ -975,7 +980,7 @@ public class ApiTestService {
         // Execute validation script if present
         if (test.getValidationScript() != null && !test.getValidationScript().isEmpty()) {
             try {
-                return executeValidationScript(test.getValidationScript(), statusCode, responseBody);
+                return executeValidationScript(test, test.getValidationScript(), statusCode, responseBody);
             } catch (Exception e) {
                 // Log the error and return false
                 System.err.println("Error executing validation script: " + e.getMessage());
@@ -989,26 +994,21 @@ public class ApiTestService {
     /**
      * Executes a validation script and returns the result.
      *
+     * @param test the API test the script belongs to
      * @param script the script to execute
      * @param statusCode the response status code
      * @param responseBody the response body
      * @return the result of the script execution (true if valid, false otherwise)
      * @throws Exception if an error occurs during script execution
      */
-    private boolean executeValidationScript(String script, int statusCode, String responseBody) throws Exception {
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName("JavaScript");
-        
+    private boolean executeValidationScript(ApiTest test, String script, int statusCode, String responseBody) throws Exception {
         // Set variables for the script
-        engine.put("statusCode", statusCode);
-        engine.put("responseBody", responseBody);
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put("statusCode", statusCode);
+        bindings.put("responseBody", responseBody);
         
         try {
-            // Add utility functions
-            engine.eval("function isJson(str) { try { JSON.parse(str); return true; } catch (e) { return false; } }");
-            
-            // Execute the script
-            Object result = engine.eval(script);
+            Object result = scriptRuntime.evaluate(test.getId(), script, bindings);
             
             // Convert result to boolean
             if (result instanceof Boolean) {
@@ -0,0 +1,142 @@
+package com.codebridge.apitest.service;
+
+import com.codebridge.apitest.config.HttpClientProperties;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared, pooled HTTP client used by all HTTP-based test executions.
+ * Connections are kept alive and reused per target host; timeouts are applied per request.
+ */
+@Service
+public class HttpClientEngine implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientEngine.class);
+
+    private final HttpClientProperties properties;
+    private final PerformanceMetricsService metricsService;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    @Autowired
+    public HttpClientEngine(HttpClientProperties properties, PerformanceMetricsService metricsService) {
+        this.properties = properties;
+        this.metricsService = metricsService;
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxTotal())
+                .setMaxConnPerRoute(properties.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(properties.getValidateAfterInactivityMs()))
+                        .setTimeToLive(TimeValue.ofSeconds(properties.getConnectionTimeToLiveSeconds()))
+                        .build())
+                .build();
+
+        for (Map.Entry<String, Integer> entry : properties.getMaxPerHost().entrySet()) {
+            try {
+                connectionManager.setMaxPerRoute(new HttpRoute(HttpHost.create(entry.getKey())), entry.getValue());
+            } catch (URISyntaxException e) {
+                logger.warn("Ignoring invalid max-per-host entry {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(properties.getIdleEvictionSeconds()))
+                .build();
+    }
+
+    /**
+     * Executes a request on the shared client and buffers the response.
+     * The connection is released back to the pool before this method returns.
+     *
+     * @param request the HTTP request
+     * @param timeoutMs the per-request timeout in milliseconds, or null for the default
+     * @return the buffered response
+     * @throws IOException if the request fails
+     */
+    public BufferedResponse execute(HttpUriRequestBase request, Integer timeoutMs) throws IOException {
+        int timeout = timeoutMs != null ? timeoutMs : properties.getDefaultTimeoutMs();
+        request.setConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout, TimeUnit.MILLISECONDS)
+                .setConnectTimeout(timeout, TimeUnit.MILLISECONDS)
+                .setResponseTimeout(timeout, TimeUnit.MILLISECONDS)
+                .build());
+
+        return httpClient.execute(request, response -> {
+            Map<String, String> responseHeaders = new HashMap<>();
+            for (Header header : response.getHeaders()) {
+                responseHeaders.put(header.getName(), header.getValue());
+            }
+
+            HttpEntity entity = response.getEntity();
+            String responseBody = entity != null ? EntityUtils.toString(entity) : "";
+            return new BufferedResponse(response.getCode(), responseBody, responseHeaders);
+        });
+    }
+
+    /**
+     * Gets the current connection pool statistics.
+     *
+     * @return a map of pool statistics, including per-route leased connections
+     */
+    public Map<String, Object> getPoolStats() {
+        PoolStats totals = connectionManager.getTotalStats();
+
+        Map<String, Integer> leasedByRoute = new HashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            leasedByRoute.put(route.getTargetHost().toHostString(), connectionManager.getStats(route).getLeased());
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("leased", totals.getLeased());
+        stats.put("pending", totals.getPending());
+        stats.put("available", totals.getAvailable());
+        stats.put("max", totals.getMax());
+        stats.put("leasedByRoute", leasedByRoute);
+        return stats;
+    }
+
+    /**
+     * Publishes connection pool statistics to the metrics service.
+     */
+    @Scheduled(fixedDelayString = "${codebridge.http-client.stats-interval-ms:10000}")
+    public void publishPoolStats() {
+        metricsService.recordConnectionPoolStats(getPoolStats());
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * A fully buffered HTTP response.
+     */
+    public record BufferedResponse(int statusCode, String responseBody, Map<String, String> responseHeaders) {}
+}
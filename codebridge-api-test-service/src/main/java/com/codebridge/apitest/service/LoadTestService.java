@@ -1,7 +1,13 @@
 package com.codebridge.apitest.service;
 
+import com.codebridge.apitest.config.LoadTestProperties;
+import com.codebridge.apitest.config.ResultWriterProperties;
+import com.codebridge.apitest.config.VirtualThreadProperties;
 import com.codebridge.apitest.dto.LoadTestRequest;
 import com.codebridge.apitest.dto.LoadTestResult;
+import com.codebridge.apitest.dto.LoadTestSliceRequest;
+import com.codebridge.apitest.dto.LoadTestSliceResult;
+import com.codebridge.apitest.dto.LoadTestWindow;
 import com.codebridge.apitest.dto.TestResultResponse;
 import com.codebridge.apitest.exception.ResourceNotFoundException;
 import com.codebridge.apitest.exception.TestExecutionException;
@@ -9,22 +15,30 @@ import com.codebridge.apitest.model.ApiTest;
 import com.codebridge.apitest.model.LoadTest;
 import com.codebridge.apitest.model.LoadTestStatus;
 import com.codebridge.apitest.model.TestChain;
+import com.codebridge.apitest.model.enums.LoadModel;
 import com.codebridge.apitest.model.enums.LoadPattern;
+import com.codebridge.apitest.model.enums.ResultPersistenceMode;
 import com.codebridge.apitest.repository.ApiTestRepository;
 import com.codebridge.apitest.repository.LoadTestRepository;
 import com.codebridge.apitest.repository.TestChainRepository;
+import com.codebridge.apitest.service.loadtest.ArrivalRateProfile;
+import com.codebridge.apitest.service.loadtest.DistributedLoadTestCoordinator;
+import com.codebridge.apitest.service.loadtest.LoadTestMetricsAggregator;
+import com.codebridge.apitest.service.loadtest.LoadTestRun;
+import com.codebridge.apitest.service.loadtest.LoadTestRunRegistry;
+import com.codebridge.common.loadtest.OpenModelLoadGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -42,6 +56,11 @@ public class LoadTestService {
     private final ApiTestService apiTestService;
     private final TestChainService testChainService;
     private final PerformanceMetricsService metricsService;
+    private final LoadTestProperties properties;
+    private final ResultWriterProperties resultWriterProperties;
+    private final VirtualThreadProperties virtualThreadProperties;
+    private final LoadTestRunRegistry runRegistry;
+    private final DistributedLoadTestCoordinator coordinator;
     private final ExecutorService executorService;
     
     @Autowired
@@ -50,15 +69,25 @@ public class LoadTestService {
                           TestChainRepository testChainRepository,
                           ApiTestService apiTestService,
                           TestChainService testChainService,
-                          PerformanceMetricsService metricsService) {
+                          PerformanceMetricsService metricsService,
+                          LoadTestProperties properties,
+                          ResultWriterProperties resultWriterProperties,
+                          VirtualThreadProperties virtualThreadProperties,
+                          LoadTestRunRegistry runRegistry,
+                          DistributedLoadTestCoordinator coordinator) {
         this.loadTestRepository = loadTestRepository;
         this.apiTestRepository = apiTestRepository;
         this.testChainRepository = testChainRepository;
         this.apiTestService = apiTestService;
         this.testChainService = testChainService;
         this.metricsService = metricsService;
+        this.properties = properties;
+        this.resultWriterProperties = resultWriterProperties;
+        this.virtualThreadProperties = virtualThreadProperties;
+        this.runRegistry = runRegistry;
+        this.coordinator = coordinator;
         
-        // Create a thread pool for concurrent test execution
+        // Create a thread pool for concurrent test execution when virtual threads are disabled
         this.executorService = Executors.newFixedThreadPool(50);
     }
     
@@ -102,6 +131,19 @@ public class LoadTestService {
             loadTest.setLoadPattern(LoadPattern.CONSTANT); // Default to constant load
         }
         
+        if (request.getLoadModel() != null) {
+            loadTest.setLoadModel(LoadModel.valueOf(request.getLoadModel()));
+        } else {
+            loadTest.setLoadModel(LoadModel.CLOSED); // Default to fixed virtual users
+        }
+        
+        if (loadTest.getLoadModel() == LoadModel.OPEN && request.getTargetRps() == null) {
+            throw new IllegalArgumentException("targetRps is required for the OPEN load model");
+        }
+        
+        loadTest.setTargetRps(request.getTargetRps());
+        loadTest.setPeakRps(request.getPeakRps());
+        loadTest.setWorkerCount(request.getWorkerCount());
         loadTest.setStatus(LoadTestStatus.CREATED);
         loadTest.setCreatedAt(LocalDateTime.now());
         
@@ -134,16 +176,18 @@ public class LoadTestService {
     
     /**
      * Executes a load test asynchronously.
+     * Not transactional, so the running status is visible and the test can be cancelled while it runs.
      *
      * @param id the load test ID
      * @param userId the user ID
      */
     @Async
-    @Transactional
     public void executeLoadTest(UUID id, UUID userId) {
         LoadTest loadTest = loadTestRepository.findByIdAndUserId(id, userId)
             .orElseThrow(() -> new ResourceNotFoundException("LoadTest", "id", id.toString()));
         
+        LoadTestRun run = runRegistry.start(id);
+        
         try {
             // Update status to running
             loadTest.setStatus(LoadTestStatus.RUNNING);
@@ -151,10 +195,10 @@ public class LoadTestService {
             loadTestRepository.save(loadTest);
             
             // Execute load test
-            LoadTestResult result = executeLoadTestInternal(loadTest, userId);
+            LoadTestResult result = executeLoadTestInternal(loadTest, userId, run);
             
-            // Update load test with results
-            loadTest.setStatus(LoadTestStatus.COMPLETED);
+            // Update load test with results, keeping partial results of a cancelled run
+            loadTest.setStatus(run.isCancelled() ? LoadTestStatus.CANCELLED : LoadTestStatus.COMPLETED);
             loadTest.setCompletedAt(LocalDateTime.now());
             loadTest.setTotalRequests(result.getTotalRequests());
             loadTest.setSuccessfulRequests(result.getSuccessfulRequests());
@@ -162,15 +206,22 @@ public class LoadTestService {
             loadTest.setAverageResponseTimeMs(result.getAverageResponseTimeMs());
             loadTest.setMinResponseTimeMs(result.getMinResponseTimeMs());
             loadTest.setMaxResponseTimeMs(result.getMaxResponseTimeMs());
+            loadTest.setPercentile50Ms(result.getPercentile50Ms());
+            loadTest.setPercentile90Ms(result.getPercentile90Ms());
             loadTest.setPercentile95Ms(result.getPercentile95Ms());
             loadTest.setPercentile99Ms(result.getPercentile99Ms());
+            loadTest.setPercentile999Ms(result.getPercentile999Ms());
             loadTest.setRequestsPerSecond(result.getRequestsPerSecond());
             loadTest.setErrorRate(result.getErrorRate());
-            loadTest.setResultSummary(result.getSummary());
+            loadTest.setDroppedRequests(result.getDroppedRequests());
+            loadTest.setMaxScheduleLagMs(result.getMaxScheduleLagMs());
+            loadTest.setStatusCodeCounts(result.getStatusCodeCounts());
+            loadTest.setErrorCounts(result.getErrorCounts());
+            loadTest.setResultSummary(run.isCancelled() ? "Cancelled by user. " + result.getSummary() : result.getSummary());
             
             loadTestRepository.save(loadTest);
             
-            logger.info("Load test {} completed successfully", id);
+            logger.info("Load test {} {}", id, run.isCancelled() ? "was cancelled" : "completed successfully");
         } catch (Exception e) {
             // Update status to failed
             loadTest.setStatus(LoadTestStatus.FAILED);
@@ -179,17 +230,73 @@ public class LoadTestService {
             loadTestRepository.save(loadTest);
             
             logger.error("Load test {} failed: {}", id, e.getMessage(), e);
+        } finally {
+            run.finish();
         }
     }
     
+    /**
+     * Executes one slice of a distributed load test on this node, on behalf of a coordinator.
+     * The slice starts at the time chosen by the coordinator and its results are returned for merging.
+     *
+     * @param request the slice request
+     * @return the slice result
+     */
+    public LoadTestSliceResult executeSlice(LoadTestSliceRequest request) {
+        LoadTest slice = request.toLoadTest();
+        LoadTestRun run = runRegistry.start(request.getLoadTestId());
+        
+        logger.info("Running slice {}/{} of load test {}", request.getSliceIndex() + 1, request.getSliceCount(), request.getLoadTestId());
+        
+        try {
+            long delayMs = request.getStartAtEpochMs() - System.currentTimeMillis();
+            if (delayMs > 0 && run.awaitCancellation(delayMs)) {
+                return run.getAggregator().toSliceResult(request.getSliceIndex(), 0, 0, 0);
+            }
+            
+            long startTimeMs = System.currentTimeMillis();
+            LoadTestResult result = executeLoadTestInternal(slice, request.getUserId(), run);
+            return run.getAggregator().toSliceResult(
+                request.getSliceIndex(),
+                System.currentTimeMillis() - startTimeMs,
+                result.getDroppedRequests(),
+                result.getMaxScheduleLagMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestExecutionException("Interrupted while waiting to start load test slice", e);
+        } finally {
+            run.finish();
+        }
+    }
+    
+    /**
+     * Cancels a slice of a distributed load test running on this node.
+     *
+     * @param loadTestId the load test ID
+     * @return true if a running slice was cancelled
+     */
+    public boolean cancelSlice(UUID loadTestId) {
+        return runRegistry.cancel(loadTestId);
+    }
+    
     /**
      * Executes a load test internally.
      *
      * @param loadTest the load test
      * @param userId the user ID
+     * @param run the run tracking metrics and cancellation
      * @return the load test result
      */
-    private LoadTestResult executeLoadTestInternal(LoadTest loadTest, UUID userId) {
+    private LoadTestResult executeLoadTestInternal(LoadTest loadTest, UUID userId, LoadTestRun run) {
+        if (coordinator.isDistributed(loadTest)) {
+            // Slices have no worker count, so the local slice runs on this node only
+            return coordinator.execute(loadTest, userId, run, slice -> executeLoadTestInternal(slice, userId, run));
+        }
+        
+        if (loadTest.getLoadModel() == LoadModel.OPEN) {
+            return executeOpenModelLoadTest(loadTest, userId, run);
+        }
+        
         int virtualUsers = loadTest.getVirtualUsers();
         int durationSeconds = loadTest.getDurationSeconds();
         int rampUpSeconds = loadTest.getRampUpSeconds() != null ? loadTest.getRampUpSeconds() : 0;
@@ -199,8 +306,8 @@ public class LoadTestService {
         logger.info("Starting load test with {} virtual users, {} seconds duration, {} seconds ramp-up, {} ms think time, {} load pattern",
             virtualUsers, durationSeconds, rampUpSeconds, thinkTimeMs, loadPattern);
         
-        // Create a list to hold all test results
-        List<TestResultResponse> allResults = Collections.synchronizedList(new ArrayList<>());
+        // Stream results into histograms instead of retaining them
+        LoadTestMetricsAggregator aggregator = run.getAggregator();
         
         // Create a countdown latch to wait for all virtual users to complete
         CountDownLatch latch = new CountDownLatch(virtualUsers);
@@ -208,6 +315,9 @@ public class LoadTestService {
         // Create a list to hold all futures
         List<Future<?>> futures = new ArrayList<>();
         
+        // One virtual thread per virtual user, or the shared platform pool
+        ExecutorService userExecutor = newVirtualUserExecutor();
+        
         // Start time for the load test
         long startTimeMs = System.currentTimeMillis();
         
@@ -219,44 +329,47 @@ public class LoadTestService {
             long delayMs = calculateStartDelay(userIndex, virtualUsers, rampUpSeconds, loadPattern);
             
             // Submit task with delay
-            Future<?> future = executorService.submit(() -> {
+            Future<?> future = userExecutor.submit(() -> {
                 try {
-                    // Wait for the calculated delay
-                    if (delayMs > 0) {
-                        Thread.sleep(delayMs);
+                    // Wait for the calculated delay, unless the test is cancelled first
+                    if (delayMs > 0 && run.awaitCancellation(delayMs)) {
+                        return;
                     }
                     
                     // Calculate end time for this user
                     long userEndTimeMs = startTimeMs + (durationSeconds * 1000L);
                     
-                    // Execute tests until the duration is reached
-                    while (System.currentTimeMillis() < userEndTimeMs) {
+                    // Execute tests until the duration is reached or the test is cancelled
+                    while (!run.isCancelled() && System.currentTimeMillis() < userEndTimeMs) {
                         try {
                             // Execute test or chain
-                            List<TestResultResponse> results;
-                            if (loadTest.getTestId() != null) {
-                                TestResultResponse result = apiTestService.executeTest(loadTest.getTestId(), userId);
-                                results = List.of(result);
-                            } else if (loadTest.getChainId() != null) {
-                                results = testChainService.executeTestChain(loadTest.getChainId(), loadTest.getEnvironmentId(), userId);
-                            } else {
-                                throw new IllegalStateException("Neither testId nor chainId is set");
-                            }
+                            List<TestResultResponse> results = executeIteration(loadTest, userId);
                             
-                            // Add results to the list
-                            allResults.addAll(results);
+                            // Record results
+                            for (TestResultResponse result : results) {
+                                aggregator.record(result);
+                            }
                             
                             // Think time between requests
-                            if (thinkTimeMs > 0) {
-                                Thread.sleep(thinkTimeMs);
+                            if (thinkTimeMs > 0 && run.awaitCancellation(thinkTimeMs)) {
+                                break;
                             }
+                        } catch (InterruptedException e) {
+                            throw e;
                         } catch (Exception e) {
+                            if (run.isCancelled()) {
+                                // Interrupted by cancellation; not a failure of the target
+                                break;
+                            }
+                            aggregator.recordError(e);
                             logger.error("Error executing test for virtual user {}: {}", userIndex, e.getMessage());
                         }
                     }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
-                    logger.warn("Virtual user {} was interrupted", userIndex);
+                    if (!run.isCancelled()) {
+                        logger.warn("Virtual user {} was interrupted", userIndex);
+                    }
                 } finally {
                     latch.countDown();
                 }
@@ -265,6 +378,9 @@ public class LoadTestService {
             futures.add(future);
         }
         
+        // Interrupt virtual users blocked in a request when the test is cancelled
+        run.onCancel(() -> futures.forEach(future -> future.cancel(true)));
+        
         try {
             // Wait for all virtual users to complete or timeout
             boolean completed = latch.await(durationSeconds + rampUpSeconds + 60, TimeUnit.SECONDS);
@@ -281,6 +397,10 @@ public class LoadTestService {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             logger.warn("Load test was interrupted while waiting for completion");
+        } finally {
+            if (userExecutor != executorService) {
+                userExecutor.shutdownNow();
+            }
         }
         
         // Calculate end time
@@ -288,7 +408,109 @@ public class LoadTestService {
         long totalDurationMs = endTimeMs - startTimeMs;
         
         // Calculate metrics
-        return calculateLoadTestMetrics(allResults, totalDurationMs);
+        return aggregator.toResult(totalDurationMs, 0, 0, null);
+    }
+    
+    /**
+     * Executes an open-model load test, starting requests at the target arrival rate.
+     *
+     * @param loadTest the load test
+     * @param userId the user ID
+     * @param run the run tracking metrics and cancellation
+     * @return the load test result
+     */
+    private LoadTestResult executeOpenModelLoadTest(LoadTest loadTest, UUID userId, LoadTestRun run) {
+        int durationSeconds = loadTest.getDurationSeconds();
+        
+        logger.info("Starting open-model load test at {} RPS (peak {}), {} seconds duration, {} load pattern",
+            loadTest.getTargetRps(), loadTest.getPeakRps(), durationSeconds, loadTest.getLoadPattern());
+        
+        LoadTestMetricsAggregator aggregator = run.getAggregator();
+        ExecutorService requestExecutor = virtualThreadProperties.isEnabled()
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("load-request-", 0).factory())
+            : Executors.newCachedThreadPool();
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(requestExecutor, properties.getMaxInFlight());
+        
+        // Stop scheduling and interrupt in-flight requests when the test is cancelled
+        run.setDroppedCounter(generator::getDroppedCount);
+        run.onCancel(() -> {
+            generator.stop();
+            requestExecutor.shutdownNow();
+        });
+        
+        long startTimeMs = System.currentTimeMillis();
+        
+        try {
+            generator.run(ArrivalRateProfile.of(loadTest).arrivals(), (offsetNanos, intendedStartNanos, actualStartNanos) -> {
+                List<TestResultResponse> results;
+                try {
+                    results = executeIteration(loadTest, userId);
+                } catch (Exception e) {
+                    if (!run.isCancelled()) {
+                        aggregator.recordError(e);
+                    }
+                    throw e;
+                }
+                
+                // Charge the time spent waiting to start to the first request,
+                // so latency is measured from when the request should have been sent
+                long startLagMs = TimeUnit.NANOSECONDS.toMillis(actualStartNanos - intendedStartNanos);
+                for (int i = 0; i < results.size(); i++) {
+                    TestResultResponse result = results.get(i);
+                    long executionTimeMs = result.getExecutionTimeMs() != null ? result.getExecutionTimeMs() : 0;
+                    aggregator.record(result, i == 0 ? executionTimeMs + startLagMs : executionTimeMs);
+                }
+            }, Duration.ofSeconds(properties.getDrainTimeoutSeconds()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Open-model load test was interrupted");
+        } finally {
+            requestExecutor.shutdownNow();
+        }
+        
+        long totalDurationMs = System.currentTimeMillis() - startTimeMs;
+        
+        String scheduleSummary = String.format("Dropped: %d, Avg Start Lag: %.2f ms, Max Start Lag: %d ms",
+            generator.getDroppedCount(), generator.getAverageStartLagMs(), generator.getMaxStartLagMs());
+        
+        return aggregator.toResult(
+            totalDurationMs,
+            (int) generator.getDroppedCount(),
+            generator.getMaxStartLagMs(),
+            scheduleSummary);
+    }
+    
+    /**
+     * Creates the executor that runs virtual users for a closed-model load test.
+     * With virtual threads enabled each virtual user gets its own virtual thread, so concurrency
+     * is not capped by a pool size and think time does not hold a platform thread.
+     *
+     * @return the executor for virtual users
+     */
+    private ExecutorService newVirtualUserExecutor() {
+        if (virtualThreadProperties.isEnabled()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("load-vu-", 0).factory());
+        }
+        return executorService;
+    }
+    
+    /**
+     * Executes one iteration of the load test's test or chain.
+     * Results are persisted in the background by the result writer, so the database does not
+     * become the bottleneck of the run; aggregates are saved on the load test itself.
+     *
+     * @param loadTest the load test
+     * @param userId the user ID
+     * @return the results of the iteration
+     */
+    private List<TestResultResponse> executeIteration(LoadTest loadTest, UUID userId) {
+        ResultPersistenceMode persistenceMode = resultWriterProperties.getLoadTestMode();
+        if (loadTest.getTestId() != null) {
+            return List.of(apiTestService.executeTest(loadTest.getTestId(), userId, persistenceMode));
+        } else if (loadTest.getChainId() != null) {
+            return testChainService.executeTestChain(loadTest.getChainId(), loadTest.getEnvironmentId(), userId, persistenceMode);
+        }
+        throw new IllegalStateException("Neither testId nor chainId is set");
     }
     
     /**
@@ -325,110 +547,6 @@ public class LoadTestService {
         }
     }
     
-    /**
-     * Calculates load test metrics from test results.
-     *
-     * @param results the test results
-     * @param totalDurationMs the total duration in milliseconds
-     * @return the load test result
-     */
-    private LoadTestResult calculateLoadTestMetrics(List<TestResultResponse> results, long totalDurationMs) {
-        if (results.isEmpty()) {
-            return new LoadTestResult(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, "No results collected");
-        }
-        
-        int totalRequests = results.size();
-        
-        // Count successful and failed requests
-        AtomicInteger successfulRequests = new AtomicInteger(0);
-        AtomicInteger failedRequests = new AtomicInteger(0);
-        
-        // Collect response times
-        List<Long> responseTimes = new ArrayList<>(totalRequests);
-        
-        for (TestResultResponse result : results) {
-            if (result.getStatus().equals("SUCCESS")) {
-                successfulRequests.incrementAndGet();
-            } else {
-                failedRequests.incrementAndGet();
-            }
-            
-            if (result.getExecutionTimeMs() != null) {
-                responseTimes.add(result.getExecutionTimeMs());
-            }
-        }
-        
-        // Calculate statistics
-        double averageResponseTimeMs = responseTimes.stream()
-            .mapToLong(Long::longValue)
-            .average()
-            .orElse(0);
-        
-        long minResponseTimeMs = responseTimes.stream()
-            .mapToLong(Long::longValue)
-            .min()
-            .orElse(0);
-        
-        long maxResponseTimeMs = responseTimes.stream()
-            .mapToLong(Long::longValue)
-            .max()
-            .orElse(0);
-        
-        // Sort response times for percentile calculations
-        Collections.sort(responseTimes);
-        
-        // Calculate 95th percentile
-        long percentile95Ms = calculatePercentile(responseTimes, 95);
-        
-        // Calculate 99th percentile
-        long percentile99Ms = calculatePercentile(responseTimes, 99);
-        
-        // Calculate requests per second
-        double requestsPerSecond = totalRequests / (totalDurationMs / 1000.0);
-        
-        // Calculate error rate
-        double errorRate = (double) failedRequests.get() / totalRequests * 100;
-        
-        // Create summary
-        String summary = String.format(
-            "Total: %d, Success: %d, Failed: %d, Avg: %.2f ms, Min: %d ms, Max: %d ms, 95%%: %d ms, 99%%: %d ms, RPS: %.2f, Error Rate: %.2f%%",
-            totalRequests, successfulRequests.get(), failedRequests.get(),
-            averageResponseTimeMs, minResponseTimeMs, maxResponseTimeMs,
-            percentile95Ms, percentile99Ms, requestsPerSecond, errorRate
-        );
-        
-        return new LoadTestResult(
-            totalRequests,
-            successfulRequests.get(),
-            failedRequests.get(),
-            averageResponseTimeMs,
-            minResponseTimeMs,
-            maxResponseTimeMs,
-            percentile95Ms,
-            percentile99Ms,
-            requestsPerSecond,
-            errorRate,
-            summary
-        );
-    }
-    
-    /**
-     * Calculates a percentile value from a sorted list.
-     *
-     * @param sortedList the sorted list
-     * @param percentile the percentile to calculate (0-100)
-     * @return the percentile value
-     */
-    private long calculatePercentile(List<Long> sortedList, int percentile) {
-        if (sortedList.isEmpty()) {
-            return 0;
-        }
-        
-        int index = (int) Math.ceil(percentile / 100.0 * sortedList.size()) - 1;
-        index = Math.max(0, Math.min(index, sortedList.size() - 1));
-        return sortedList.get(index);
-    }
-    
     /**
      * Cancels a running load test.
      *
@@ -441,10 +559,17 @@ public class LoadTestService {
         LoadTest loadTest = loadTestRepository.findByIdAndUserId(id, userId)
             .orElseThrow(() -> new ResourceNotFoundException("LoadTest", "id", id.toString()));
         
+        if (runRegistry.cancel(id)) {
+            // The executing thread records the completion time and partial results once the workers have stopped
+            loadTest.setStatus(LoadTestStatus.CANCELLED);
+            return loadTestRepository.save(loadTest);
+        }
+        
         if (loadTest.getStatus() != LoadTestStatus.RUNNING) {
             throw new IllegalStateException("Load test is not running");
         }
         
+        // Not running on this node, e.g. left over from a restart
         loadTest.setStatus(LoadTestStatus.CANCELLED);
         loadTest.setCompletedAt(LocalDateTime.now());
         loadTest.setResultSummary("Cancelled by user");
@@ -452,6 +577,31 @@ public class LoadTestService {
         return loadTestRepository.save(loadTest);
     }
     
+    /**
+     * Gets the live time series of a load test that is running or recently finished on this node.
+     *
+     * @param id the load test ID
+     * @param userId the user ID
+     * @param sinceEpochMs only return windows that ended after this time
+     * @return the windows, oldest first
+     */
+    public List<LoadTestWindow> getLiveWindows(UUID id, UUID userId, long sinceEpochMs) {
+        getLoadTestById(id, userId);
+        return runRegistry.getWindows(id, sinceEpochMs);
+    }
+    
+    /**
+     * Streams the live time series of a load test as server-sent events.
+     *
+     * @param id the load test ID
+     * @param userId the user ID
+     * @return the emitter
+     */
+    public SseEmitter streamLiveWindows(UUID id, UUID userId) {
+        getLoadTestById(id, userId);
+        return runRegistry.subscribe(id);
+    }
+    
     /**
      * Deletes a load test.
      *
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -31,6 +32,18 @@ public class PerformanceMetricsService {
     private final AtomicInteger cacheHits = new AtomicInteger(0);
     private final AtomicInteger cacheMisses = new AtomicInteger(0);
     
+    // Metrics for the shared HTTP connection pool
+    private volatile Map<String, Object> connectionPoolStats = Map.of();
+    
+    // Metrics for the batching test result writer
+    private volatile Map<String, Object> resultWriterStats = Map.of();
+    private volatile Map<String, Object> scriptStats = Map.of();
+    
+    // Metrics for virtual threads pinning their carrier
+    private final AtomicLong carrierPinningEvents = new AtomicLong(0);
+    private final AtomicLong carrierPinnedTimeMs = new AtomicLong(0);
+    private final ConcurrentHashMap<String, AtomicLong> carrierPinningBySite = new ConcurrentHashMap<>();
+    
     /**
      * Records metrics for an API test execution.
      * 
@@ -87,6 +100,45 @@ public class PerformanceMetricsService {
         cacheMisses.incrementAndGet();
     }
     
+    /**
+     * Records the latest connection pool statistics.
+     * 
+     * @param stats The pool statistics snapshot
+     */
+    public void recordConnectionPoolStats(Map<String, Object> stats) {
+        connectionPoolStats = stats;
+    }
+    
+    /**
+     * Records the latest test result writer statistics.
+     * 
+     * @param stats The writer statistics snapshot, including queue depth and rejected results
+     */
+    public void recordResultWriterStats(Map<String, Object> stats) {
+        resultWriterStats = stats;
+    }
+    
+    /**
+     * Records the latest script runtime statistics.
+     * 
+     * @param stats The runtime statistics snapshot, including compile and evaluation timings
+     */
+    public void recordScriptStats(Map<String, Object> stats) {
+        scriptStats = stats;
+    }
+    
+    /**
+     * Records a virtual thread pinning its carrier thread.
+     * 
+     * @param site The call site where the thread was pinned
+     * @param durationMs How long the carrier was pinned in milliseconds
+     */
+    public void recordCarrierPinning(String site, long durationMs) {
+        carrierPinningEvents.incrementAndGet();
+        carrierPinnedTimeMs.addAndGet(durationMs);
+        carrierPinningBySite.computeIfAbsent(site, k -> new AtomicLong(0)).incrementAndGet();
+    }
+    
     /**
      * Gets the current performance metrics.
      * 
@@ -96,19 +148,25 @@ public class PerformanceMetricsService {
         int total = totalTestsExecuted.get();
         long totalTime = totalExecutionTimeMs.get();
         
-        return Map.of(
-                "totalTestsExecuted", total,
-                "successfulTests", successfulTests.get(),
-                "failedTests", failedTests.get(),
-                "successRate", total > 0 ? (double) successfulTests.get() / total * 100 : 0,
-                "averageExecutionTimeMs", total > 0 ? (double) totalTime / total : 0,
-                "maxExecutionTimeMs", maxExecutionTimeMs.get(),
-                "requestsByMethod", requestsByMethod,
-                "cacheHits", cacheHits.get(),
-                "cacheMisses", cacheMisses.get(),
-                "cacheHitRate", (cacheHits.get() + cacheMisses.get() > 0) ? 
-                        (double) cacheHits.get() / (cacheHits.get() + cacheMisses.get()) * 100 : 0
-        );
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalTestsExecuted", total);
+        metrics.put("successfulTests", successfulTests.get());
+        metrics.put("failedTests", failedTests.get());
+        metrics.put("successRate", total > 0 ? (double) successfulTests.get() / total * 100 : 0);
+        metrics.put("averageExecutionTimeMs", total > 0 ? (double) totalTime / total : 0);
+        metrics.put("maxExecutionTimeMs", maxExecutionTimeMs.get());
+        metrics.put("requestsByMethod", requestsByMethod);
+        metrics.put("cacheHits", cacheHits.get());
+        metrics.put("cacheMisses", cacheMisses.get());
+        metrics.put("cacheHitRate", (cacheHits.get() + cacheMisses.get() > 0) ? 
+                (double) cacheHits.get() / (cacheHits.get() + cacheMisses.get()) * 100 : 0);
+        metrics.put("connectionPool", connectionPoolStats);
+        metrics.put("resultWriter", resultWriterStats);
+        metrics.put("scripts", scriptStats);
+        metrics.put("carrierPinningEvents", carrierPinningEvents.get());
+        metrics.put("carrierPinnedTimeMs", carrierPinnedTimeMs.get());
+        metrics.put("carrierPinningBySite", carrierPinningBySite);
+        return metrics;
     }
     
     /**
@@ -124,6 +182,9 @@ public class PerformanceMetricsService {
         executionTimeByMethod.clear();
         cacheHits.set(0);
         cacheMisses.set(0);
+        carrierPinningEvents.set(0);
+        carrierPinnedTimeMs.set(0);
+        carrierPinningBySite.clear();
         
         logger.info("Performance metrics have been reset");
     }
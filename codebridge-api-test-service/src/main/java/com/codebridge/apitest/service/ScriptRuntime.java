@@ -0,0 +1,379 @@
+package com.codebridge.apitest.service;
+
+import com.codebridge.apitest.config.ScriptProperties;
+import com.codebridge.apitest.exception.TestExecutionException;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.ResourceLimits;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JavaScript runtime for pre-request, post-request and validation scripts.
+ * Scripts are parsed once per test and script content and the parsed code is shared through a single
+ * engine. Evaluations borrow a context from a pool, so the helper functions are set up once per context
+ * rather than once per call. Idle contexts are pooled per test, so globals a script leaves behind are only
+ * ever seen by later scripts of the same test. The bindings of an evaluation are removed once it ends, and a
+ * context whose evaluation failed is discarded. Each evaluation is bounded by a statement limit and a time
+ * limit; a context that hits either limit is cancelled and discarded.
+ */
+@Service
+public class ScriptRuntime implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScriptRuntime.class);
+
+    private static final String LANGUAGE = "js";
+    private static final String PRELUDE = "function isJson(str) { try { JSON.parse(str); return true; } catch (e) { return false; } }";
+
+    private final ScriptProperties properties;
+    private final PerformanceMetricsService metricsService;
+    private final Engine engine;
+    private final ResourceLimits resourceLimits;
+    private final Source prelude;
+    private final Map<String, Source> sourceCache;
+    // Idle contexts by the test they ran, least recently used test first; guarded by itself
+    private final LinkedHashMap<UUID, ArrayDeque<PooledContext>> idleContexts = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleCount;
+    private final Semaphore activeContexts;
+    private final ScheduledThreadPoolExecutor watchdog;
+
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder compileTimeNanos = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder evaluationTimeNanos = new LongAdder();
+    private final LongAdder contextsCreated = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder limitsExceeded = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    @Autowired
+    public ScriptRuntime(ScriptProperties properties, PerformanceMetricsService metricsService) {
+        this.properties = properties;
+        this.metricsService = metricsService;
+        this.engine = Engine.newBuilder(LANGUAGE)
+                .option("engine.WarnInterpreterOnly", "false")
+                .build();
+        this.resourceLimits = ResourceLimits.newBuilder()
+                .statementLimit(properties.getStatementLimit(), null)
+                .build();
+        this.prelude = Source.newBuilder(LANGUAGE, PRELUDE, "prelude.js").buildLiteral();
+        this.sourceCache = lruMap(properties.getCacheSize());
+        this.activeContexts = new Semaphore(properties.getMaxActiveContexts());
+        this.watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "script-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Evaluates a test script.
+     *
+     * @param testId the ID of the test the script belongs to, used to key the compiled script
+     * @param script the script source
+     * @param bindings the variables to expose to the script; maps are exposed as objects
+     * @return the script's completion value as a Boolean, a String, or null
+     * @throws TestExecutionException if the script fails or exceeds its limits
+     */
+    public Object evaluate(UUID testId, String script, Map<String, Object> bindings) {
+        String key = testId + ":" + sha256(script);
+        Source source = getSource(key, script);
+
+        PooledContext pooled = acquire(testId);
+        boolean reusable = false;
+        AtomicBoolean finished = new AtomicBoolean();
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+            if (finished.compareAndSet(false, true)) {
+                pooled.context.close(true);
+            }
+        }, properties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+
+        try {
+            Value compiled = pooled.parsed.get(key);
+            if (compiled == null) {
+                long compileStart = System.nanoTime();
+                compiled = pooled.context.parse(source);
+                pooled.parsed.put(key, compiled);
+                compilations.increment();
+                compileTimeNanos.add(System.nanoTime() - compileStart);
+            }
+
+            Value jsBindings = pooled.context.getBindings(LANGUAGE);
+            for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+                jsBindings.putMember(binding.getKey(), toGuestValue(binding.getValue()));
+            }
+            pooled.bindings = bindings.keySet();
+
+            pooled.context.resetLimits();
+            long evalStart = System.nanoTime();
+            Value result = compiled.execute();
+            Object converted = toHostValue(result);
+            evaluations.increment();
+            evaluationTimeNanos.add(System.nanoTime() - evalStart);
+            reusable = true;
+            return converted;
+        } catch (PolyglotException e) {
+            if (e.isCancelled()) {
+                timeouts.increment();
+                throw new TestExecutionException("Script exceeded the time limit of " + properties.getTimeoutMs() + " ms");
+            }
+            if (e.isResourceExhausted()) {
+                limitsExceeded.increment();
+                throw new TestExecutionException("Script exceeded the limit of " + properties.getStatementLimit() + " statements");
+            }
+            errors.increment();
+            throw new TestExecutionException(e.getMessage(), e);
+        } finally {
+            timeout.cancel(false);
+            // If the watchdog fired, the context is being cancelled and cannot be reused
+            boolean cancelled = !finished.compareAndSet(false, true);
+            release(pooled, reusable && !cancelled && removeBindings(pooled));
+        }
+    }
+
+    /**
+     * Gets the runtime statistics.
+     *
+     * @return a map of statistics, including compile and evaluation timings
+     */
+    public Map<String, Object> getStats() {
+        long compileCount = compilations.sum();
+        long evalCount = evaluations.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("compilations", compileCount);
+        stats.put("averageCompileTimeMs", compileCount > 0 ? compileTimeNanos.sum() / 1_000_000.0 / compileCount : 0);
+        stats.put("evaluations", evalCount);
+        stats.put("averageEvaluationTimeMs", evalCount > 0 ? evaluationTimeNanos.sum() / 1_000_000.0 / evalCount : 0);
+        stats.put("contextsCreated", contextsCreated.sum());
+        synchronized (idleContexts) {
+            stats.put("idleContexts", idleCount);
+        }
+        stats.put("activeContexts", properties.getMaxActiveContexts() - activeContexts.availablePermits());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("limitsExceeded", limitsExceeded.sum());
+        stats.put("errors", errors.sum());
+        return stats;
+    }
+
+    /**
+     * Publishes runtime statistics to the metrics service.
+     */
+    @Scheduled(fixedDelayString = "${codebridge.scripts.stats-interval-ms:10000}")
+    public void publishStats() {
+        metricsService.recordScriptStats(getStats());
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+        synchronized (idleContexts) {
+            for (ArrayDeque<PooledContext> contexts : idleContexts.values()) {
+                contexts.forEach(pooled -> pooled.context.close());
+            }
+            idleContexts.clear();
+            idleCount = 0;
+        }
+        engine.close();
+    }
+
+    private Source getSource(String key, String script) {
+        synchronized (sourceCache) {
+            Source source = sourceCache.get(key);
+            if (source == null) {
+                source = Source.newBuilder(LANGUAGE, script, key + ".js").cached(true).buildLiteral();
+                sourceCache.put(key, source);
+            }
+            return source;
+        }
+    }
+
+    private PooledContext acquire(UUID testId) {
+        try {
+            if (!activeContexts.tryAcquire(properties.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                throw new TestExecutionException("Timed out waiting for a script context");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestExecutionException("Interrupted while waiting for a script context", e);
+        }
+
+        synchronized (idleContexts) {
+            ArrayDeque<PooledContext> contexts = idleContexts.get(testId);
+            if (contexts != null) {
+                PooledContext pooled = contexts.poll();
+                if (contexts.isEmpty()) {
+                    idleContexts.remove(testId);
+                }
+                idleCount--;
+                return pooled;
+            }
+        }
+        try {
+            return createContext(testId);
+        } catch (RuntimeException e) {
+            activeContexts.release();
+            throw e;
+        }
+    }
+
+    private PooledContext createContext(UUID testId) {
+        Context context = Context.newBuilder(LANGUAGE)
+                .engine(engine)
+                .allowAllAccess(false)
+                .resourceLimits(resourceLimits)
+                .build();
+        context.eval(prelude);
+        contextsCreated.increment();
+        return new PooledContext(testId, context, lruMap(properties.getCacheSize()));
+    }
+
+    /**
+     * Removes the bindings of the last evaluation from a context.
+     *
+     * @return true if they were removed and the context can be reused
+     */
+    private boolean removeBindings(PooledContext pooled) {
+        try {
+            Value jsBindings = pooled.context.getBindings(LANGUAGE);
+            for (String name : pooled.bindings) {
+                jsBindings.removeMember(name);
+            }
+            pooled.bindings = Set.of();
+            return true;
+        } catch (RuntimeException e) {
+            logger.debug("Error removing script bindings: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void release(PooledContext pooled, boolean reusable) {
+        try {
+            pooled.evaluations++;
+            // Recycle contexts periodically so globals left behind by scripts do not accumulate
+            if (!reusable || pooled.evaluations >= properties.getMaxEvaluationsPerContext() || !offerIdle(pooled)) {
+                closeQuietly(pooled.context);
+            }
+        } finally {
+            activeContexts.release();
+        }
+    }
+
+    /**
+     * Returns a context to the pool of its test. When the pool is full, an idle context of the least
+     * recently used test is closed to make room.
+     *
+     * @return false if the pool cannot hold any context
+     */
+    private boolean offerIdle(PooledContext pooled) {
+        PooledContext evicted = null;
+        synchronized (idleContexts) {
+            if (properties.getMaxIdleContexts() <= 0) {
+                return false;
+            }
+            if (idleCount >= properties.getMaxIdleContexts()) {
+                Iterator<ArrayDeque<PooledContext>> eldest = idleContexts.values().iterator();
+                ArrayDeque<PooledContext> contexts = eldest.next();
+                evicted = contexts.poll();
+                if (contexts.isEmpty()) {
+                    eldest.remove();
+                }
+                idleCount--;
+            }
+            idleContexts.computeIfAbsent(pooled.owner, id -> new ArrayDeque<>()).push(pooled);
+            idleCount++;
+        }
+        if (evicted != null) {
+            closeQuietly(evicted.context);
+        }
+        return true;
+    }
+
+    private void closeQuietly(Context context) {
+        try {
+            context.close(true);
+        } catch (RuntimeException e) {
+            logger.debug("Error closing script context: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object toGuestValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return ProxyObject.fromMap(new HashMap<>((Map<String, Object>) map));
+        }
+        return value;
+    }
+
+    private static Object toHostValue(Value value) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        return value.toString();
+    }
+
+    private static String sha256(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static <V> Map<String, V> lruMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * A context together with the test it belongs to and the scripts already parsed in it.
+     * Only used by one thread at a time.
+     */
+    private static final class PooledContext {
+        private final UUID owner;
+        private final Context context;
+        private final Map<String, Value> parsed;
+        private Set<String> bindings = Set.of();
+        private int evaluations;
+
+        private PooledContext(UUID owner, Context context, Map<String, Value> parsed) {
+            this.owner = owner;
+            this.context = context;
+            this.parsed = parsed;
+        }
+    }
+}
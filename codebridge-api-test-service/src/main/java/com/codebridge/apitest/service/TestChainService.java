@@ -1,5 +1,7 @@
 package com.codebridge.apitest.service;
 
+import com.codebridge.apitest.config.ChainProperties;
+import com.codebridge.apitest.config.VirtualThreadProperties;
 import com.codebridge.apitest.dto.TestResultResponse;
 import com.codebridge.apitest.exception.AccessDeniedException;
 import com.codebridge.apitest.exception.ResourceNotFoundException;
@@ -7,27 +9,28 @@ import com.codebridge.apitest.exception.TestExecutionException;
 import com.codebridge.apitest.model.ApiTest;
 import com.codebridge.apitest.model.TestChain;
 import com.codebridge.apitest.model.TestResult;
-import com.codebridge.apitest.model.TestStatus;
+import com.codebridge.apitest.model.enums.ResultPersistenceMode;
 import com.codebridge.apitest.model.enums.SharePermissionLevel;
-import com.codebridge.apitest.repository.ApiTestRepository;
 import com.codebridge.apitest.repository.TestChainRepository;
+import com.codebridge.apitest.service.chain.ChainExtractor;
+import com.codebridge.apitest.service.chain.ChainPlan;
+import com.codebridge.apitest.service.chain.ChainPlanCache;
+import com.codebridge.apitest.service.chain.ChainStepScheduler;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.PathNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,28 +41,37 @@ import java.util.regex.Pattern;
 public class TestChainService {
     
     private static final Logger logger = LoggerFactory.getLogger(TestChainService.class);
+    private static final Pattern SUBSTRING_PATTERN = Pattern.compile("substring\\((\\d+),(\\d+)\\)");
+    private static final Pattern REPLACE_PATTERN = Pattern.compile("replace\\(([^,]+),([^)]+)\\)");
     private final TestChainRepository testChainRepository;
-    private final ApiTestRepository apiTestRepository;
     private final ApiTestService apiTestService;
     private final ProjectSharingService projectSharingService;
     private final AuditLogService auditLogService;
     private final ObjectMapper objectMapper;
-    private final ExpressionParser expressionParser;
+    private final ChainPlanCache chainPlanCache;
+    private final ChainProperties chainProperties;
+    private final ExecutorService stepExecutor;
     
     @Autowired
     public TestChainService(TestChainRepository testChainRepository,
-                           ApiTestRepository apiTestRepository,
                            ApiTestService apiTestService,
                            ProjectSharingService projectSharingService,
                            AuditLogService auditLogService,
-                           ObjectMapper objectMapper) {
+                           ObjectMapper objectMapper,
+                           ChainPlanCache chainPlanCache,
+                           ChainProperties chainProperties,
+                           VirtualThreadProperties virtualThreadProperties) {
         this.testChainRepository = testChainRepository;
-        this.apiTestRepository = apiTestRepository;
         this.apiTestService = apiTestService;
         this.projectSharingService = projectSharingService;
         this.auditLogService = auditLogService;
         this.objectMapper = objectMapper;
-        this.expressionParser = new SpelExpressionParser();
+        this.chainPlanCache = chainPlanCache;
+        this.chainProperties = chainProperties;
+        // Parallelism is bounded per chain by the scheduler, not by the executor
+        this.stepExecutor = virtualThreadProperties.isEnabled()
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newCachedThreadPool();
     }
     
     /**
@@ -69,11 +81,13 @@ public class TestChainService {
      * @param name the chain name
      * @param description the chain description
      * @param testSequence the test sequence
+     * @param maxParallelSteps the maximum number of steps to run at once, or null to run steps in sequence
      * @param userId the user ID
      * @return the created test chain
      */
     @Transactional
-    public TestChain createTestChain(UUID projectId, String name, String description, String testSequence, UUID userId) {
+    public TestChain createTestChain(UUID projectId, String name, String description, String testSequence,
+                                     Integer maxParallelSteps, UUID userId) {
         // Check permissions
         SharePermissionLevel permission = projectSharingService.getEffectivePermission(projectId, userId);
         if (permission == null || permission.ordinal() < SharePermissionLevel.CAN_EDIT.ordinal()) {
@@ -87,6 +101,7 @@ public class TestChainService {
         testChain.setDescription(description);
         testChain.setProjectId(projectId);
         testChain.setTestSequence(testSequence);
+        testChain.setMaxParallelSteps(maxParallelSteps);
         testChain.setActive(true);
         testChain.setCreatedBy(userId);
         
@@ -151,11 +166,13 @@ public class TestChainService {
      * @param description the chain description
      * @param testSequence the test sequence
      * @param active the active status
+     * @param maxParallelSteps the maximum number of steps to run at once
      * @param userId the user ID
      * @return the updated test chain
      */
     @Transactional
-    public TestChain updateTestChain(UUID chainId, String name, String description, String testSequence, Boolean active, UUID userId) {
+    public TestChain updateTestChain(UUID chainId, String name, String description, String testSequence, Boolean active,
+                                     Integer maxParallelSteps, UUID userId) {
         TestChain testChain = testChainRepository.findById(chainId)
             .orElseThrow(() -> new ResourceNotFoundException("TestChain", "id", chainId.toString()));
         
@@ -182,9 +199,14 @@ public class TestChainService {
             testChain.setActive(active);
         }
         
+        if (maxParallelSteps != null) {
+            testChain.setMaxParallelSteps(maxParallelSteps);
+        }
+        
         testChain.setUpdatedAt(LocalDateTime.now());
         
         TestChain savedTestChain = testChainRepository.save(testChain);
+        chainPlanCache.invalidate(chainId);
         
         // Log action
         auditLogService.logAction(
@@ -226,6 +248,7 @@ public class TestChainService {
         
         // Delete test chain
         testChainRepository.delete(testChain);
+        chainPlanCache.invalidate(chainId);
     }
     
     /**
@@ -236,8 +259,23 @@ public class TestChainService {
      * @param userId the user ID
      * @return the list of test results
      */
-    @Transactional
     public List<TestResultResponse> executeTestChain(UUID chainId, UUID environmentId, UUID userId) {
+        return executeTestChain(chainId, environmentId, userId, ResultPersistenceMode.SYNC);
+    }
+    
+    /**
+     * Execute a test chain, persisting step results according to the given mode.
+     * Like single test executions, chains do not run in a transaction, so that no connection is held
+     * while the steps make their outbound calls.
+     *
+     * @param chainId the chain ID
+     * @param environmentId the environment ID
+     * @param userId the user ID
+     * @param persistenceMode how step results are persisted
+     * @return the list of test results
+     */
+    public List<TestResultResponse> executeTestChain(UUID chainId, UUID environmentId, UUID userId,
+                                                     ResultPersistenceMode persistenceMode) {
         TestChain testChain = testChainRepository.findById(chainId)
             .orElseThrow(() -> new ResourceNotFoundException("TestChain", "id", chainId.toString()));
         
@@ -247,67 +285,33 @@ public class TestChainService {
             throw new AccessDeniedException("User does not have permission to execute test chain " + chainId);
         }
         
-        // Parse test sequence
-        List<ChainStep> steps;
-        try {
-            steps = objectMapper.readValue(testChain.getTestSequence(), new TypeReference<List<ChainStep>>() {});
-        } catch (JsonProcessingException e) {
-            throw new TestExecutionException("Failed to parse test sequence: " + e.getMessage());
-        }
+        ChainPlan plan = chainPlanCache.getPlan(testChain);
         
-        // Execute tests in sequence
-        List<TestResultResponse> results = new ArrayList<>();
+        List<TestResultResponse> results;
         Map<String, Object> chainContext = new HashMap<>();
-        
-        for (ChainStep step : steps) {
-            // Check if this step should be executed based on conditions
-            if (!evaluateStepCondition(step, chainContext)) {
-                logger.info("Skipping step with test ID {} due to condition evaluation", step.getTestId());
-                continue;
-            }
-            
-            // Get test
-            ApiTest test = apiTestRepository.findById(step.getTestId())
-                .orElseThrow(() -> new ResourceNotFoundException("ApiTest", "id", step.getTestId().toString()));
-            
-            // Apply variable mappings and templates to test request
-            String processedUrl = applyVariableMappings(test.getUrl(), chainContext);
-            test.setUrl(processedUrl);
-            
-            if (test.getRequestBody() != null) {
-                String processedBody = applyVariableMappings(test.getRequestBody(), chainContext);
-                test.setRequestBody(processedBody);
-            }
-            
-            if (test.getHeaders() != null) {
-                String processedHeaders = applyVariableMappings(test.getHeaders(), chainContext);
-                test.setHeaders(processedHeaders);
-            }
-            
-            // Execute test
-            TestResultResponse result = apiTestService.executeTest(test.getId(), userId);
-            results.add(result);
-            
-            // Store the result in the context for potential use in conditions
-            chainContext.put("lastResult", result);
-            chainContext.put("lastStatusCode", result.getResponseStatusCode());
-            
-            // Stop chain execution if test failed and failFast is enabled
-            if ((TestStatus.ERROR.name().equals(result.getStatus()) || 
-                 TestStatus.FAILURE.name().equals(result.getStatus())) && 
-                (step.isFailFast() != null && step.isFailFast())) {
-                logger.info("Stopping chain execution due to test failure and failFast=true");
-                break;
-            }
-            
-            // Extract variables from response
-            if (step.getVariableMappings() != null && !step.getVariableMappings().isEmpty()) {
-                extractVariables(result, step.getVariableMappings(), chainContext);
-            }
-            
-            // Execute post-step actions
-            if (step.getPostStepActions() != null && !step.getPostStepActions().isEmpty()) {
-                executePostStepActions(step.getPostStepActions(), chainContext, result);
+        int parallelism = Math.min(
+            testChain.getMaxParallelSteps() != null ? testChain.getMaxParallelSteps() : 1,
+            chainProperties.getMaxParallelSteps());
+        
+        if (parallelism > 1 && plan.getSteps().size() > 1) {
+            // Execute independent steps concurrently
+            results = new ChainStepScheduler(stepExecutor, parallelism).run(plan, chainContext,
+                (step, stepContext) -> executeStep(step, stepContext, userId, persistenceMode));
+        } else {
+            // Execute tests in sequence
+            results = new ArrayList<>();
+            for (ChainPlan.Step step : plan.getSteps()) {
+                TestResultResponse result = executeStep(step, chainContext, userId, persistenceMode);
+                if (result == null) {
+                    continue;
+                }
+                results.add(result);
+                
+                // Stop chain execution if test failed and failFast is enabled
+                if (step.stopsChain(result)) {
+                    logger.info("Stopping chain execution due to test failure and failFast=true");
+                    break;
+                }
             }
         }
         
@@ -329,32 +333,51 @@ public class TestChainService {
     }
     
     /**
-     * Evaluates whether a step should be executed based on its condition.
+     * Executes a single chain step.
      *
-     * @param step the chain step
-     * @param context the chain context
-     * @return true if the step should be executed, false otherwise
+     * @param step the compiled step
+     * @param chainContext the chain context, updated with the variables the step sets
+     * @param userId the user ID
+     * @param persistenceMode how the step result is persisted
+     * @return the test result, or null if the step was skipped
      */
-    private boolean evaluateStepCondition(ChainStep step, Map<String, Object> context) {
-        if (step.getCondition() == null || step.getCondition().isEmpty()) {
-            return true; // No condition means always execute
+    private TestResultResponse executeStep(ChainPlan.Step step, Map<String, Object> chainContext, UUID userId,
+                                           ResultPersistenceMode persistenceMode) {
+        // Check if this step should be executed based on conditions
+        if (!step.shouldExecute(chainContext)) {
+            logger.info("Skipping step with test ID {} due to condition evaluation", step.getTestId());
+            return null;
         }
         
-        try {
-            // Create evaluation context with variables from chain context
-            StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
-            for (Map.Entry<String, Object> entry : context.entrySet()) {
-                evaluationContext.setVariable(entry.getKey(), entry.getValue());
-            }
-            
-            // Parse and evaluate the condition
-            Expression expression = expressionParser.parseExpression(step.getCondition());
-            Boolean result = expression.getValue(evaluationContext, Boolean.class);
-            return result != null && result;
-        } catch (Exception e) {
-            logger.warn("Error evaluating condition '{}': {}", step.getCondition(), e.getMessage());
-            return false; // If condition evaluation fails, don't execute the step
+        // Apply variable mappings and templates to a copy of the test request
+        ApiTest test = step.instantiate(chainContext);
+        if (!test.getUserId().equals(userId)) {
+            throw new ResourceNotFoundException("ApiTest", "id", test.getId());
+        }
+        
+        // Execute test
+        TestResultResponse result = apiTestService.executeTest(test, persistenceMode);
+        
+        // Store the result in the context for potential use in conditions
+        chainContext.put("lastResult", result);
+        chainContext.put("lastStatusCode", result.getResponseStatusCode());
+        
+        // A failed fail-fast step stops the chain before its variables are extracted
+        if (step.stopsChain(result)) {
+            return result;
         }
+        
+        // Extract variables from response
+        if (!step.getExtractors().isEmpty()) {
+            extractVariables(result, step.getExtractors(), chainContext);
+        }
+        
+        // Execute post-step actions
+        if (!step.getPostStepActions().isEmpty()) {
+            executePostStepActions(step.getPostStepActions(), chainContext, result);
+        }
+        
+        return result;
     }
     
     /**
@@ -364,17 +387,16 @@ public class TestChainService {
      * @param context the chain context
      * @param result the test result
      */
-    private void executePostStepActions(List<PostStepAction> actions, Map<String, Object> context, TestResultResponse result) {
-        for (PostStepAction action : actions) {
+    private void executePostStepActions(List<ChainPlan.Action> actions, Map<String, Object> context, TestResultResponse result) {
+        for (ChainPlan.Action action : actions) {
             try {
                 switch (action.getType()) {
                     case "SET_VARIABLE":
                         if (action.getParameters() != null && action.getParameters().containsKey("name") && 
                             action.getParameters().containsKey("value")) {
                             String name = action.getParameters().get("name");
-                            String value = action.getParameters().get("value");
                             // Apply variable mappings to the value
-                            String processedValue = applyVariableMappings(value, context);
+                            String processedValue = action.getValue().render(context);
                             context.put(name, processedValue);
                             logger.debug("Set variable '{}' to '{}'", name, processedValue);
                         }
@@ -395,7 +417,7 @@ public class TestChainService {
                     case "ASSERT":
                         if (action.getParameters() != null && action.getParameters().containsKey("condition")) {
                             String condition = action.getParameters().get("condition");
-                            boolean assertResult = evaluateAssertion(condition, context);
+                            boolean assertResult = action.evaluateCondition(context);
                             logger.debug("Assertion '{}' result: {}", condition, assertResult);
                             if (!assertResult && action.getParameters().containsKey("failOnError") && 
                                 Boolean.parseBoolean(action.getParameters().get("failOnError"))) {
@@ -438,8 +460,7 @@ public class TestChainService {
             return stringValue.trim();
         } else if (transformation.startsWith("substring")) {
             // Parse parameters: substring(start,end)
-            Pattern pattern = Pattern.compile("substring\\((\\d+),(\\d+)\\)");
-            Matcher matcher = pattern.matcher(transformation);
+            Matcher matcher = SUBSTRING_PATTERN.matcher(transformation);
             if (matcher.matches()) {
                 int start = Integer.parseInt(matcher.group(1));
                 int end = Integer.parseInt(matcher.group(2));
@@ -451,8 +472,7 @@ public class TestChainService {
             return stringValue;
         } else if (transformation.startsWith("replace")) {
             // Parse parameters: replace(target,replacement)
-            Pattern pattern = Pattern.compile("replace\\(([^,]+),([^)]+)\\)");
-            Matcher matcher = pattern.matcher(transformation);
+            Matcher matcher = REPLACE_PATTERN.matcher(transformation);
             if (matcher.matches()) {
                 String target = matcher.group(1);
                 String replacement = matcher.group(2);
@@ -481,134 +501,14 @@ public class TestChainService {
         return value;
     }
     
-    /**
-     * Evaluates an assertion.
-     *
-     * @param assertion the assertion to evaluate
-     * @param context the chain context
-     * @return true if the assertion is true, false otherwise
-     */
-    private boolean evaluateAssertion(String assertion, Map<String, Object> context) {
-        try {
-            // Create evaluation context with variables from chain context
-            StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
-            for (Map.Entry<String, Object> entry : context.entrySet()) {
-                evaluationContext.setVariable(entry.getKey(), entry.getValue());
-            }
-            
-            // Parse and evaluate the assertion
-            Expression expression = expressionParser.parseExpression(assertion);
-            Boolean result = expression.getValue(evaluationContext, Boolean.class);
-            return result != null && result;
-        } catch (Exception e) {
-            logger.warn("Error evaluating assertion '{}': {}", assertion, e.getMessage());
-            return false;
-        }
-    }
-    
-    /**
-     * Apply variable mappings to a string.
-     *
-     * @param input the input string
-     * @param context the chain context
-     * @return the processed string
-     */
-    private String applyVariableMappings(String input, Map<String, Object> context) {
-        if (input == null || context.isEmpty()) {
-            return input;
-        }
-        
-        String result = input;
-        
-        // Handle Mustache-style variable references: {{variableName}}
-        Pattern pattern = Pattern.compile("\\{\\{([^}]+)\\}\\}");
-        Matcher matcher = pattern.matcher(input);
-        
-        while (matcher.find()) {
-            String variableName = matcher.group(1);
-            Object variableValue = resolveVariableReference(variableName, context);
-            
-            if (variableValue != null) {
-                result = result.replace("{{" + variableName + "}}", variableValue.toString());
-            }
-        }
-        
-        // Handle expression language references: ${expression}
-        pattern = Pattern.compile("\\$\\{([^}]+)\\}");
-        matcher = pattern.matcher(result);
-        
-        while (matcher.find()) {
-            String expression = matcher.group(1);
-            try {
-                StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
-                for (Map.Entry<String, Object> entry : context.entrySet()) {
-                    evaluationContext.setVariable(entry.getKey(), entry.getValue());
-                }
-                
-                Expression parsedExpression = expressionParser.parseExpression(expression);
-                Object expressionValue = parsedExpression.getValue(evaluationContext);
-                
-                if (expressionValue != null) {
-                    result = result.replace("${" + expression + "}", expressionValue.toString());
-                }
-            } catch (Exception e) {
-                logger.warn("Error evaluating expression '{}': {}", expression, e.getMessage());
-            }
-        }
-        
-        return result;
-    }
-    
-    /**
-     * Resolves a variable reference, which may include nested properties.
-     *
-     * @param reference the variable reference
-     * @param context the chain context
-     * @return the resolved value
-     */
-    private Object resolveVariableReference(String reference, Map<String, Object> context) {
-        if (reference.contains(".")) {
-            String[] parts = reference.split("\\.", 2);
-            String variableName = parts[0];
-            String propertyPath = parts[1];
-            
-            Object variable = context.get(variableName);
-            if (variable == null) {
-                return null;
-            }
-            
-            try {
-                // Try to resolve using JsonPath for JSON objects
-                if (variable instanceof String && ((String) variable).trim().startsWith("{")) {
-                    try {
-                        return JsonPath.read((String) variable, "$." + propertyPath);
-                    } catch (PathNotFoundException e) {
-                        logger.debug("Path not found in JSON: {}", propertyPath);
-                        return null;
-                    }
-                }
-                
-                // For other objects, use SpEL
-                StandardEvaluationContext evaluationContext = new StandardEvaluationContext(variable);
-                Expression expression = expressionParser.parseExpression(propertyPath);
-                return expression.getValue(evaluationContext);
-            } catch (Exception e) {
-                logger.warn("Error resolving property '{}' of variable '{}': {}", propertyPath, variableName, e.getMessage());
-                return null;
-            }
-        } else {
-            return context.get(reference);
-        }
-    }
-    
     /**
      * Extract variables from a test result.
      *
      * @param result the test result
-     * @param variableMappings the variable mappings
+     * @param extractors the compiled variable mappings
      * @param context the chain context
      */
-    private void extractVariables(TestResultResponse result, Map<String, String> variableMappings, Map<String, Object> context) {
+    private void extractVariables(TestResultResponse result, List<ChainExtractor> extractors, Map<String, Object> context) {
         String responseBody = result.getResponseBody();
         
         if (responseBody == null || responseBody.isEmpty()) {
@@ -626,83 +526,18 @@ public class TestChainService {
         // Store response status code in the context
         context.put("statusCode", result.getResponseStatusCode());
         
-        // Try to parse response body as JSON
-        boolean isJson = false;
+        // Try to parse response body as JSON, once for all JSONPath extractors
+        DocumentContext json = null;
         try {
             Map<String, Object> responseJson = objectMapper.readValue(responseBody, new TypeReference<Map<String, Object>>() {});
             context.put("responseJson", responseJson);
-            isJson = true;
-            
-            // Extract variables using JSONPath expressions
-            for (Map.Entry<String, String> mapping : variableMappings.entrySet()) {
-                String variableName = mapping.getKey();
-                String extractorExpression = mapping.getValue();
-                
-                if (extractorExpression.startsWith("jsonpath:")) {
-                    String jsonPath = extractorExpression.substring(9);
-                    try {
-                        Object value = JsonPath.read(responseBody, jsonPath);
-                        context.put(variableName, value);
-                        logger.debug("Extracted variable '{}' using JSONPath '{}': {}", variableName, jsonPath, value);
-                    } catch (PathNotFoundException e) {
-                        logger.debug("JSONPath '{}' not found in response", jsonPath);
-                    }
-                } else if (extractorExpression.startsWith("header:")) {
-                    String headerName = extractorExpression.substring(7);
-                    if (result.getResponseHeaders() != null && result.getResponseHeaders().containsKey(headerName)) {
-                        String headerValue = result.getResponseHeaders().get(headerName);
-                        context.put(variableName, headerValue);
-                        logger.debug("Extracted variable '{}' from header '{}': {}", variableName, headerName, headerValue);
-                    }
-                } else if (extractorExpression.startsWith("xpath:")) {
-                    // XPath extraction would be implemented here for XML responses
-                    logger.warn("XPath extraction not yet implemented");
-                } else if (extractorExpression.startsWith("regex:")) {
-                    String regex = extractorExpression.substring(6);
-                    Pattern pattern = Pattern.compile(regex);
-                    Matcher matcher = pattern.matcher(responseBody);
-                    
-                    if (matcher.find() && matcher.groupCount() > 0) {
-                        context.put(variableName, matcher.group(1));
-                        logger.debug("Extracted variable '{}' using regex '{}': {}", variableName, regex, matcher.group(1));
-                    }
-                } else {
-                    // Default to JSONPath if the response is JSON
-                    if (isJson) {
-                        try {
-                            Object value = JsonPath.read(responseBody, extractorExpression);
-                            context.put(variableName, value);
-                            logger.debug("Extracted variable '{}' using default JSONPath '{}': {}", variableName, extractorExpression, value);
-                        } catch (PathNotFoundException e) {
-                            logger.debug("Default JSONPath '{}' not found in response", extractorExpression);
-                        }
-                    }
-                }
-            }
+            json = JsonPath.parse(responseJson);
         } catch (JsonProcessingException e) {
-            // If response is not JSON, try to extract using regex
-            for (Map.Entry<String, String> mapping : variableMappings.entrySet()) {
-                String variableName = mapping.getKey();
-                String extractorExpression = mapping.getValue();
-                
-                if (extractorExpression.startsWith("regex:")) {
-                    String regex = extractorExpression.substring(6);
-                    Pattern pattern = Pattern.compile(regex);
-                    Matcher matcher = pattern.matcher(responseBody);
-                    
-                    if (matcher.find() && matcher.groupCount() > 0) {
-                        context.put(variableName, matcher.group(1));
-                        logger.debug("Extracted variable '{}' using regex '{}': {}", variableName, regex, matcher.group(1));
-                    }
-                } else if (extractorExpression.startsWith("header:")) {
-                    String headerName = extractorExpression.substring(7);
-                    if (result.getResponseHeaders() != null && result.getResponseHeaders().containsKey(headerName)) {
-                        String headerValue = result.getResponseHeaders().get(headerName);
-                        context.put(variableName, headerValue);
-                        logger.debug("Extracted variable '{}' from header '{}': {}", variableName, headerName, headerValue);
-                    }
-                }
-            }
+            // If response is not JSON, only regex and header extractors apply
+        }
+        
+        for (ChainExtractor extractor : extractors) {
+            extractor.extract(result, json, context);
         }
     }
     
@@ -727,79 +562,4 @@ public class TestChainService {
         
         return current;
     }
-    
-    /**
-     * Chain step.
-     */
-    private static class ChainStep {
-        private UUID testId;
-        private Map<String, String> variableMappings;
-        private String condition;
-        private Boolean failFast;
-        private List<PostStepAction> postStepActions;
-        
-        public UUID getTestId() {
-            return testId;
-        }
-        
-        public void setTestId(UUID testId) {
-            this.testId = testId;
-        }
-        
-        public Map<String, String> getVariableMappings() {
-            return variableMappings;
-        }
-        
-        public void setVariableMappings(Map<String, String> variableMappings) {
-            this.variableMappings = variableMappings;
-        }
-        
-        public String getCondition() {
-            return condition;
-        }
-        
-        public void setCondition(String condition) {
-            this.condition = condition;
-        }
-        
-        public Boolean isFailFast() {
-            return failFast;
-        }
-        
-        public void setFailFast(Boolean failFast) {
-            this.failFast = failFast;
-        }
-        
-        public List<PostStepAction> getPostStepActions() {
-            return postStepActions;
-        }
-        
-        public void setPostStepActions(List<PostStepAction> postStepActions) {
-            this.postStepActions = postStepActions;
-        }
-    }
-    
-    /**
-     * Post-step action.
-     */
-    private static class PostStepAction {
-        private String type;
-        private Map<String, String> parameters;
-        
-        public String getType() {
-            return type;
-        }
-        
-        public void setType(String type) {
-            this.type = type;
-        }
-        
-        public Map<String, String> getParameters() {
-            return parameters;
-        }
-        
-        public void setParameters(Map<String, String> parameters) {
-            this.parameters = parameters;
-        }
-    }
 }
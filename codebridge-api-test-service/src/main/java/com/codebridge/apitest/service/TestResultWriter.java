@@ -0,0 +1,210 @@
+package com.codebridge.apitest.service;
+
+import com.codebridge.apitest.config.ResultWriterProperties;
+import com.codebridge.apitest.model.TestResult;
+import com.codebridge.apitest.model.enums.ResultPersistenceMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous, bounded writer that persists test results in JDBC batches.
+ * Used for high-volume executions such as load tests, so result persistence does not turn into
+ * one insert per request against the database. When the queue is full, results are dropped and
+ * counted rather than slowing down the caller.
+ */
+@Service
+public class TestResultWriter implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestResultWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO test_results "
+            + "(id, test_id, status, response_status_code, response_headers, response_body, error_message, execution_time_ms, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ResultWriterProperties properties;
+    private final PerformanceMetricsService metricsService;
+    private final BlockingQueue<TestResult> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder bodiesDropped = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicLong lastFlushMs = new AtomicLong();
+
+    @Autowired
+    public TestResultWriter(JdbcTemplate jdbcTemplate, ResultWriterProperties properties, PerformanceMetricsService metricsService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.metricsService = metricsService;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.writerThread = new Thread(this::runWriter, "test-result-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Submits a result for persistence according to the given mode.
+     *
+     * @param result the result; its creation time must already be set
+     * @param mode the persistence mode, other than SYNC
+     * @return true if the result was queued for writing
+     */
+    public boolean submit(TestResult result, ResultPersistenceMode mode) {
+        if (mode == ResultPersistenceMode.AGGREGATES_ONLY) {
+            skipped.increment();
+            return false;
+        }
+
+        if (mode == ResultPersistenceMode.SAMPLED && ThreadLocalRandom.current().nextDouble() >= properties.getBodySampleRate()) {
+            result.setResponseBody(null);
+            result.setResponseHeaders(null);
+            bodiesDropped.increment();
+        }
+
+        try {
+            if (!queue.offer(result, properties.getEnqueueTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            return false;
+        }
+        enqueued.increment();
+        return true;
+    }
+
+    /**
+     * Gets the writer statistics.
+     *
+     * @return a map of statistics, including queue depth and rejected results
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", properties.getQueueCapacity());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("written", written.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("failed", failed.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("bodiesDropped", bodiesDropped.sum());
+        stats.put("batches", batches.sum());
+        stats.put("lastFlushMs", lastFlushMs.get());
+        return stats;
+    }
+
+    /**
+     * Publishes writer statistics to the metrics service.
+     */
+    @Scheduled(fixedDelayString = "${codebridge.result-writer.stats-interval-ms:10000}")
+    public void publishStats() {
+        metricsService.recordResultWriterStats(getStats());
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(properties.getShutdownTimeoutSeconds()));
+        if (!queue.isEmpty()) {
+            logger.warn("Discarding {} unwritten test results on shutdown", queue.size());
+        }
+    }
+
+    private void runWriter() {
+        List<TestResult> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutting down; write whatever is left without waiting
+                queue.drainTo(batch, properties.getBatchSize() - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                // A fresh list per batch, as the JDBC template and its callers may keep a reference to the old one
+                batch = new ArrayList<>(properties.getBatchSize());
+            }
+        }
+    }
+
+    /**
+     * Collects results until the batch is full or the flush interval has passed since the first one arrived.
+     */
+    private void fillBatch(List<TestResult> batch) throws InterruptedException {
+        TestResult first = queue.poll(properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        while (batch.size() < properties.getBatchSize()) {
+            queue.drainTo(batch, properties.getBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= properties.getBatchSize() || remaining <= 0) {
+                break;
+            }
+            TestResult next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<TestResult> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, result) -> {
+                ps.setObject(1, result.getId());
+                ps.setObject(2, result.getTestId());
+                ps.setString(3, result.getStatus().name());
+                if (result.getResponseStatusCode() != null) {
+                    ps.setInt(4, result.getResponseStatusCode());
+                } else {
+                    ps.setNull(4, Types.INTEGER);
+                }
+                ps.setString(5, result.getResponseHeaders());
+                ps.setString(6, result.getResponseBody());
+                ps.setString(7, result.getErrorMessage());
+                ps.setLong(8, result.getExecutionTimeMs());
+                ps.setTimestamp(9, Timestamp.valueOf(result.getCreatedAt() != null ? result.getCreatedAt() : LocalDateTime.now()));
+            });
+            written.add(batch.size());
+        } catch (DataAccessException e) {
+            failed.add(batch.size());
+            logger.error("Failed to write batch of {} test results: {}", batch.size(), e.getMessage());
+        }
+        batches.increment();
+        lastFlushMs.set(System.currentTimeMillis() - start);
+    }
+}
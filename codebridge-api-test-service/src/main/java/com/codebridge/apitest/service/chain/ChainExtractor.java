@@ -0,0 +1,131 @@
+package com.codebridge.apitest.service.chain;
+
+import com.codebridge.apitest.dto.TestResultResponse;
+import com.codebridge.apitest.exception.TestExecutionException;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled variable mapping of a chain step, extracting one variable from a step's response.
+ * Mappings are prefixed with {@code jsonpath:}, {@code header:}, {@code xpath:} or {@code regex:};
+ * unprefixed mappings are treated as JSONPath expressions.
+ */
+public final class ChainExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainExtractor.class);
+
+    /**
+     * Extractor type.
+     */
+    public enum Type {
+        JSONPATH,
+        HEADER,
+        XPATH,
+        REGEX,
+        DEFAULT
+    }
+
+    private final String variableName;
+    private final String expression;
+    private final Type type;
+    private final JsonPath jsonPath;
+    private final Pattern pattern;
+
+    private ChainExtractor(String variableName, String expression, Type type, JsonPath jsonPath, Pattern pattern) {
+        this.variableName = variableName;
+        this.expression = expression;
+        this.type = type;
+        this.jsonPath = jsonPath;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compiles a variable mapping.
+     *
+     * @param variableName the variable to extract into
+     * @param extractorExpression the mapping, with its type prefix
+     * @return the compiled extractor
+     * @throws TestExecutionException if the JSONPath or regular expression is invalid
+     */
+    public static ChainExtractor compile(String variableName, String extractorExpression) {
+        try {
+            if (extractorExpression.startsWith("jsonpath:")) {
+                String path = extractorExpression.substring(9);
+                return new ChainExtractor(variableName, path, Type.JSONPATH, JsonPath.compile(path), null);
+            } else if (extractorExpression.startsWith("header:")) {
+                return new ChainExtractor(variableName, extractorExpression.substring(7), Type.HEADER, null, null);
+            } else if (extractorExpression.startsWith("xpath:")) {
+                return new ChainExtractor(variableName, extractorExpression.substring(6), Type.XPATH, null, null);
+            } else if (extractorExpression.startsWith("regex:")) {
+                String regex = extractorExpression.substring(6);
+                return new ChainExtractor(variableName, regex, Type.REGEX, null, Pattern.compile(regex));
+            }
+            return new ChainExtractor(variableName, extractorExpression, Type.DEFAULT, JsonPath.compile(extractorExpression), null);
+        } catch (InvalidPathException | PatternSyntaxException e) {
+            throw new TestExecutionException("Invalid variable mapping for '" + variableName + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Extracts the variable from a step's response into the chain context.
+     *
+     * @param result the step result
+     * @param json the parsed response body, or null if the body is not a JSON object
+     * @param context the chain context
+     */
+    public void extract(TestResultResponse result, DocumentContext json, Map<String, Object> context) {
+        switch (type) {
+            case JSONPATH:
+            case DEFAULT:
+                if (json != null) {
+                    try {
+                        Object value = json.read(jsonPath);
+                        context.put(variableName, value);
+                        logger.debug("Extracted variable '{}' using JSONPath '{}': {}", variableName, expression, value);
+                    } catch (PathNotFoundException e) {
+                        logger.debug("JSONPath '{}' not found in response", expression);
+                    }
+                }
+                break;
+            case HEADER:
+                if (result.getResponseHeaders() != null && result.getResponseHeaders().containsKey(expression)) {
+                    String headerValue = result.getResponseHeaders().get(expression);
+                    context.put(variableName, headerValue);
+                    logger.debug("Extracted variable '{}' from header '{}': {}", variableName, expression, headerValue);
+                }
+                break;
+            case XPATH:
+                if (json != null) {
+                    // XPath extraction would be implemented here for XML responses
+                    logger.warn("XPath extraction not yet implemented");
+                }
+                break;
+            case REGEX:
+                Matcher matcher = pattern.matcher(result.getResponseBody());
+                if (matcher.find() && matcher.groupCount() > 0) {
+                    context.put(variableName, matcher.group(1));
+                    logger.debug("Extracted variable '{}' using regex '{}': {}", variableName, expression, matcher.group(1));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    public String getVariableName() {
+        return variableName;
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
@@ -0,0 +1,275 @@
+package com.codebridge.apitest.service.chain;
+
+import com.codebridge.apitest.dto.TestResultResponse;
+import com.codebridge.apitest.exception.ResourceNotFoundException;
+import com.codebridge.apitest.model.ApiTest;
+import com.codebridge.apitest.model.TestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.Expression;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compiled execution plan for a version of a test chain.
+ * Holds the resolved tests and the parsed templates, conditions and extractors of every step,
+ * so running the chain does not re-parse its test sequence or reload its tests.
+ * Plans are immutable and shared between concurrent executions of the chain.
+ */
+public final class ChainPlan {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainPlan.class);
+
+    private final UUID chainId;
+    private final String testSequence;
+    private final List<Step> steps;
+
+    public ChainPlan(UUID chainId, String testSequence, List<Step> steps) {
+        this.chainId = chainId;
+        this.testSequence = testSequence;
+        this.steps = List.copyOf(steps);
+    }
+
+    public UUID getChainId() {
+        return chainId;
+    }
+
+    /**
+     * Gets the test sequence the plan was compiled from, identifying the chain version.
+     *
+     * @return the test sequence JSON
+     */
+    public String getTestSequence() {
+        return testSequence;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Checks whether any step of the plan runs the given test.
+     *
+     * @param testId the test ID
+     * @return true if the plan references the test
+     */
+    public boolean references(UUID testId) {
+        return steps.stream().anyMatch(step -> step.getTestId().equals(testId));
+    }
+
+    /**
+     * Evaluates a boolean expression against the chain context.
+     *
+     * @param expression the parsed expression, or null if it could not be parsed
+     * @param source the expression source, for logging
+     * @param context the chain context
+     * @return the result, or false if the expression is invalid or fails
+     */
+    static boolean evaluate(Expression expression, String source, Map<String, Object> context) {
+        if (expression == null) {
+            logger.warn("Error evaluating '{}': expression could not be parsed", source);
+            return false;
+        }
+        try {
+            Boolean result = expression.getValue(ChainTemplate.newEvaluationContext(context), Boolean.class);
+            return result != null && result;
+        } catch (Exception e) {
+            logger.warn("Error evaluating '{}': {}", source, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Compiled chain step.
+     */
+    public static final class Step {
+        private final UUID testId;
+        private final ApiTest test;
+        private final ChainTemplate url;
+        private final ChainTemplate requestBody;
+        private final ChainTemplate headers;
+        private final String conditionSource;
+        private final Expression condition;
+        private final boolean failFast;
+        private final List<ChainExtractor> extractors;
+        private final List<Action> postStepActions;
+        private final List<Integer> dependencies;
+
+        public Step(UUID testId, ApiTest test, ChainTemplate url, ChainTemplate requestBody, ChainTemplate headers,
+                    String conditionSource, Expression condition, boolean failFast,
+                    List<ChainExtractor> extractors, List<Action> postStepActions, List<Integer> dependencies) {
+            this.testId = testId;
+            this.test = test;
+            this.url = url;
+            this.requestBody = requestBody;
+            this.headers = headers;
+            this.conditionSource = conditionSource;
+            this.condition = condition;
+            this.failFast = failFast;
+            this.extractors = List.copyOf(extractors);
+            this.postStepActions = List.copyOf(postStepActions);
+            this.dependencies = List.copyOf(dependencies);
+        }
+
+        public UUID getTestId() {
+            return testId;
+        }
+
+        /**
+         * Gets the test as resolved when the plan was compiled.
+         *
+         * @return the test, or null if it no longer exists
+         */
+        public ApiTest getTest() {
+            return test;
+        }
+
+        public boolean isFailFast() {
+            return failFast;
+        }
+
+        public List<ChainExtractor> getExtractors() {
+            return extractors;
+        }
+
+        public List<Action> getPostStepActions() {
+            return postStepActions;
+        }
+
+        /**
+         * Gets the steps that must finish before this one can start when the chain runs in parallel.
+         *
+         * @return the indexes of earlier steps
+         */
+        public List<Integer> getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * Checks whether a result of this step stops the chain, which is when it failed and the step is fail-fast.
+         *
+         * @param result the step result
+         * @return true if no further steps should run
+         */
+        public boolean stopsChain(TestResultResponse result) {
+            return failFast && (TestStatus.ERROR.name().equals(result.getStatus())
+                || TestStatus.FAILURE.name().equals(result.getStatus()));
+        }
+
+        /**
+         * Evaluates whether the step should be executed based on its condition.
+         *
+         * @param context the chain context
+         * @return true if the step has no condition or its condition holds
+         */
+        public boolean shouldExecute(Map<String, Object> context) {
+            if (conditionSource == null || conditionSource.isEmpty()) {
+                return true; // No condition means always execute
+            }
+            return evaluate(condition, conditionSource, context);
+        }
+
+        /**
+         * Creates the test to run for this step, with chain variables applied to its request.
+         * The returned test is a detached copy, so the stored test is never modified.
+         *
+         * @param context the chain context
+         * @return the test to run
+         * @throws ResourceNotFoundException if the test no longer exists
+         */
+        public ApiTest instantiate(Map<String, Object> context) {
+            if (test == null) {
+                throw new ResourceNotFoundException("ApiTest", "id", testId.toString());
+            }
+            ApiTest instance = copyOf(test);
+            instance.setUrl(url.render(context));
+            instance.setRequestBody(requestBody.render(context));
+            instance.setHeaders(headers.render(context));
+            return instance;
+        }
+    }
+
+    /**
+     * Compiled post-step action.
+     */
+    public static final class Action {
+        private final String type;
+        private final Map<String, String> parameters;
+        private final ChainTemplate value;
+        private final Expression condition;
+
+        public Action(String type, Map<String, String> parameters, ChainTemplate value, Expression condition) {
+            this.type = type;
+            this.parameters = parameters;
+            this.value = value;
+            this.condition = condition;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Gets the compiled value of a SET_VARIABLE action.
+         *
+         * @return the value template, or null for other actions
+         */
+        public ChainTemplate getValue() {
+            return value;
+        }
+
+        /**
+         * Evaluates the condition of an ASSERT action.
+         *
+         * @param context the chain context
+         * @return true if the assertion holds
+         */
+        public boolean evaluateCondition(Map<String, Object> context) {
+            return evaluate(condition, parameters.get("condition"), context);
+        }
+    }
+
+    /**
+     * Copies a test so it can be kept outside the persistence context and modified per execution.
+     *
+     * @param test the test to copy
+     * @return the copy
+     */
+    static ApiTest copyOf(ApiTest test) {
+        ApiTest copy = new ApiTest();
+        copy.setId(test.getId());
+        copy.setName(test.getName());
+        copy.setDescription(test.getDescription());
+        copy.setUserId(test.getUserId());
+        copy.setTeamId(test.getTeamId());
+        copy.setProjectId(test.getProjectId());
+        copy.setUrl(test.getUrl());
+        copy.setMethod(test.getMethod());
+        copy.setProtocolType(test.getProtocolType());
+        copy.setEnvironmentId(test.getEnvironmentId());
+        copy.setHeaders(test.getHeaders());
+        copy.setRequestBody(test.getRequestBody());
+        copy.setGraphqlQuery(test.getGraphqlQuery());
+        copy.setGraphqlVariables(test.getGraphqlVariables());
+        copy.setGrpcRequest(test.getGrpcRequest());
+        copy.setGrpcServiceDefinition(test.getGrpcServiceDefinition());
+        copy.setGrpcServiceName(test.getGrpcServiceName());
+        copy.setGrpcMethodName(test.getGrpcMethodName());
+        copy.setExpectedStatusCode(test.getExpectedStatusCode());
+        copy.setExpectedResponseBody(test.getExpectedResponseBody());
+        copy.setPreRequestScript(test.getPreRequestScript());
+        copy.setPostRequestScript(test.getPostRequestScript());
+        copy.setValidationScript(test.getValidationScript());
+        copy.setTimeoutMs(test.getTimeoutMs());
+        copy.setActive(test.isActive());
+        copy.setCreatedAt(test.getCreatedAt());
+        copy.setUpdatedAt(test.getUpdatedAt());
+        return copy;
+    }
+}
@@ -0,0 +1,303 @@
+package com.codebridge.apitest.service.chain;
+
+import com.codebridge.apitest.exception.TestExecutionException;
+import com.codebridge.apitest.model.ApiTest;
+import com.codebridge.apitest.model.TestChain;
+import com.codebridge.apitest.repository.ApiTestRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of compiled chain plans, keyed by chain ID.
+ * A cached plan is only used while the chain's test sequence matches the one it was compiled from, and
+ * plans are dropped when their chain, or a test they run, is updated or deleted on this instance.
+ * Inside a transaction, plans are only dropped once it commits, so that a chain run in between cannot
+ * compile and cache a plan from the rows the transaction is about to replace.
+ * Every invalidation also records a generation for the chain or test it names. A plan remembers the
+ * generation at which its compilation started, and is only cached, and only used from the cache, while
+ * neither its chain nor any of its tests was invalidated since; so a plan compiled from rows that an
+ * invalidation replaced while it was compiling is never cached.
+ */
+@Component
+public class ChainPlanCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainPlanCache.class);
+
+    // Variables every executed step writes, and those written by steps that extract variables
+    private static final Set<String> RESULT_VARIABLES = Set.of("lastResult", "lastStatusCode");
+    private static final Set<String> RESPONSE_VARIABLES = Set.of("responseBody", "responseHeaders", "statusCode", "responseJson");
+
+    private final ApiTestRepository apiTestRepository;
+    private final ObjectMapper objectMapper;
+    private final ExpressionParser expressionParser = new SpelExpressionParser();
+    private final Map<UUID, CachedPlan> plans = new ConcurrentHashMap<>();
+    // Generation of the last invalidation of each chain and test, drawn from a single counter
+    private final Map<UUID, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ChainPlanCache(ApiTestRepository apiTestRepository, ObjectMapper objectMapper) {
+        this.apiTestRepository = apiTestRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Gets the plan for the current version of a chain, compiling it if needed.
+     *
+     * @param testChain the test chain
+     * @return the plan
+     * @throws TestExecutionException if the test sequence cannot be parsed or compiled
+     */
+    public ChainPlan getPlan(TestChain testChain) {
+        CachedPlan cached = plans.get(testChain.getId());
+        if (cached != null && Objects.equals(cached.plan().getTestSequence(), testChain.getTestSequence())
+                && isCurrent(cached)) {
+            return cached.plan();
+        }
+
+        // Taken before anything is read, so an invalidation committed during the compilation is noticed
+        long compiledFrom = generation.get();
+        CachedPlan compiled = new CachedPlan(compile(testChain), compiledFrom);
+        plans.compute(testChain.getId(), (chainId, existing) -> isCurrent(compiled) ? compiled : existing);
+        return compiled.plan();
+    }
+
+    /**
+     * Drops the cached plan of a chain, after the current transaction commits if there is one.
+     *
+     * @param chainId the chain ID
+     */
+    public void invalidate(UUID chainId) {
+        afterCommit(() -> {
+            invalidatedAt.put(chainId, generation.incrementAndGet());
+            plans.remove(chainId);
+        });
+    }
+
+    /**
+     * Drops the cached plans of all chains that run a test, after the current transaction commits if there is one.
+     *
+     * @param testId the test ID
+     */
+    public void invalidateTest(UUID testId) {
+        afterCommit(() -> {
+            invalidatedAt.put(testId, generation.incrementAndGet());
+            plans.values().removeIf(cached -> cached.plan().references(testId));
+        });
+    }
+
+    /**
+     * Checks that neither the chain of a plan nor any of its tests was invalidated since the plan's
+     * compilation started.
+     */
+    private boolean isCurrent(CachedPlan cached) {
+        ChainPlan plan = cached.plan();
+        if (invalidatedAt.getOrDefault(plan.getChainId(), 0L) > cached.generation()) {
+            return false;
+        }
+        for (ChainPlan.Step step : plan.getSteps()) {
+            if (invalidatedAt.getOrDefault(step.getTestId(), 0L) > cached.generation()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private ChainPlan compile(TestChain testChain) {
+        // Parse test sequence
+        List<ChainStep> chainSteps;
+        try {
+            chainSteps = objectMapper.readValue(testChain.getTestSequence(), new TypeReference<List<ChainStep>>() {});
+        } catch (JsonProcessingException e) {
+            throw new TestExecutionException("Failed to parse test sequence: " + e.getMessage());
+        }
+
+        Map<UUID, ApiTest> tests = new HashMap<>();
+        Map<String, Integer> stepIds = new HashMap<>();
+        List<Set<String>> reads = new ArrayList<>(chainSteps.size());
+        List<Set<String>> writes = new ArrayList<>(chainSteps.size());
+        List<ChainPlan.Step> steps = new ArrayList<>(chainSteps.size());
+        for (int i = 0; i < chainSteps.size(); i++) {
+            ChainStep chainStep = chainSteps.get(i);
+            // A missing test only fails the chain if its step actually runs
+            ApiTest test = tests.computeIfAbsent(chainStep.getTestId(),
+                testId -> apiTestRepository.findById(testId).map(ChainPlan::copyOf).orElse(null));
+            ChainPlan.Step step = compileStep(chainStep, test, i, steps, stepIds, reads, writes);
+            steps.add(step);
+
+            if (chainStep.getId() != null && stepIds.putIfAbsent(chainStep.getId(), i) != null) {
+                throw new TestExecutionException("Duplicate step ID '" + chainStep.getId() + "' in test sequence");
+            }
+        }
+
+        logger.debug("Compiled plan for test chain {} with {} steps", testChain.getId(), steps.size());
+        return new ChainPlan(testChain.getId(), testChain.getTestSequence(), steps);
+    }
+
+    private ChainPlan.Step compileStep(ChainStep chainStep, ApiTest test, int index, List<ChainPlan.Step> previousSteps,
+                                       Map<String, Integer> stepIds, List<Set<String>> reads, List<Set<String>> writes) {
+        ChainTemplate url = ChainTemplate.compile(test != null ? test.getUrl() : null, expressionParser);
+        ChainTemplate requestBody = ChainTemplate.compile(test != null ? test.getRequestBody() : null, expressionParser);
+        ChainTemplate headers = ChainTemplate.compile(test != null ? test.getHeaders() : null, expressionParser);
+        
+        List<ChainExtractor> extractors = new ArrayList<>();
+        if (chainStep.getVariableMappings() != null) {
+            for (Map.Entry<String, String> mapping : chainStep.getVariableMappings().entrySet()) {
+                extractors.add(ChainExtractor.compile(mapping.getKey(), mapping.getValue()));
+            }
+        }
+
+        List<ChainPlan.Action> actions = new ArrayList<>();
+        if (chainStep.getPostStepActions() != null) {
+            for (PostStepAction action : chainStep.getPostStepActions()) {
+                actions.add(compileAction(action));
+            }
+        }
+
+        // Work out which chain variables the step reads and writes
+        Set<String> stepReads = new HashSet<>();
+        stepReads.addAll(url.getVariables());
+        stepReads.addAll(requestBody.getVariables());
+        stepReads.addAll(headers.getVariables());
+        stepReads.addAll(ChainTemplate.expressionVariables(chainStep.getCondition()));
+        
+        Set<String> stepWrites = new HashSet<>(RESULT_VARIABLES);
+        if (!extractors.isEmpty()) {
+            stepWrites.addAll(RESPONSE_VARIABLES);
+            extractors.forEach(extractor -> stepWrites.add(extractor.getVariableName()));
+        }
+        for (ChainPlan.Action action : actions) {
+            Map<String, String> parameters = action.getParameters() != null ? action.getParameters() : Map.of();
+            if (action.getValue() != null) {
+                stepReads.addAll(action.getValue().getVariables());
+            }
+            if ("TRANSFORM_VARIABLE".equals(action.getType()) && parameters.get("name") != null) {
+                stepReads.add(parameters.get("name"));
+            }
+            if ("ASSERT".equals(action.getType())) {
+                stepReads.addAll(ChainTemplate.expressionVariables(parameters.get("condition")));
+            }
+            if (parameters.get("name") != null) {
+                stepWrites.add(parameters.get("name"));
+            }
+        }
+        reads.add(stepReads);
+        writes.add(stepWrites);
+        
+        return new ChainPlan.Step(
+            chainStep.getTestId(),
+            test,
+            url,
+            requestBody,
+            headers,
+            chainStep.getCondition(),
+            parseExpression(chainStep.getCondition()),
+            chainStep.isFailFast() != null && chainStep.isFailFast(),
+            extractors,
+            actions,
+            dependencies(chainStep, index, previousSteps, stepIds, reads, writes)
+        );
+    }
+
+    /**
+     * Works out the earlier steps a step has to wait for when the chain runs in parallel.
+     * Declared dependencies are used as given; otherwise a step waits for every earlier step that writes
+     * a variable it reads, or reads a variable it writes. Steps always wait for earlier fail-fast steps,
+     * so a fail-fast failure stops the same steps it would stop in a sequential run.
+     */
+    private List<Integer> dependencies(ChainStep chainStep, int index, List<ChainPlan.Step> previousSteps,
+                                       Map<String, Integer> stepIds, List<Set<String>> reads, List<Set<String>> writes) {
+        Set<Integer> dependencies = new TreeSet<>();
+        for (int i = 0; i < index; i++) {
+            if (previousSteps.get(i).isFailFast()) {
+                dependencies.add(i);
+            }
+        }
+
+        if (chainStep.getDependsOn() != null) {
+            for (String stepId : chainStep.getDependsOn()) {
+                Integer dependency = stepIds.get(stepId);
+                if (dependency == null) {
+                    throw new TestExecutionException("Step " + index + " depends on unknown or later step '" + stepId + "'");
+                }
+                dependencies.add(dependency);
+            }
+            return new ArrayList<>(dependencies);
+        }
+
+        for (int i = 0; i < index; i++) {
+            if (!Collections.disjoint(writes.get(i), reads.get(index))
+                    || !Collections.disjoint(reads.get(i), writes.get(index))) {
+                dependencies.add(i);
+            }
+        }
+        return new ArrayList<>(dependencies);
+    }
+
+    /**
+     * A cached plan with the generation at which its compilation started.
+     */
+    private record CachedPlan(ChainPlan plan, long generation) {
+    }
+
+    private ChainPlan.Action compileAction(PostStepAction action) {
+        Map<String, String> parameters = action.getParameters() != null ? action.getParameters() : Map.of();
+        ChainTemplate value = "SET_VARIABLE".equals(action.getType())
+            ? ChainTemplate.compile(parameters.get("value"), expressionParser)
+            : null;
+        Expression condition = "ASSERT".equals(action.getType())
+            ? parseExpression(parameters.get("condition"))
+            : null;
+        return new ChainPlan.Action(action.getType(), action.getParameters(), value, condition);
+    }
+
+    private Expression parseExpression(String source) {
+        if (source == null || source.isEmpty()) {
+            return null;
+        }
+        try {
+            return expressionParser.parseExpression(source);
+        } catch (ParseException e) {
+            // Evaluating the expression will fail, which skips the step or fails the assertion
+            logger.warn("Error parsing expression '{}': {}", source, e.getMessage());
+            return null;
+        }
+    }
+}
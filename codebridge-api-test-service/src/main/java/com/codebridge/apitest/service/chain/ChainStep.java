@@ -0,0 +1,74 @@
+package com.codebridge.apitest.service.chain;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Chain step, as stored in a chain's test sequence.
+ */
+public class ChainStep {
+    private String id;
+    private UUID testId;
+    private Map<String, String> variableMappings;
+    private String condition;
+    private Boolean failFast;
+    private List<PostStepAction> postStepActions;
+    private List<String> dependsOn;
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public UUID getTestId() {
+        return testId;
+    }
+    
+    public void setTestId(UUID testId) {
+        this.testId = testId;
+    }
+    
+    public Map<String, String> getVariableMappings() {
+        return variableMappings;
+    }
+    
+    public void setVariableMappings(Map<String, String> variableMappings) {
+        this.variableMappings = variableMappings;
+    }
+    
+    public String getCondition() {
+        return condition;
+    }
+    
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+    
+    public Boolean isFailFast() {
+        return failFast;
+    }
+    
+    public void setFailFast(Boolean failFast) {
+        this.failFast = failFast;
+    }
+    
+    public List<PostStepAction> getPostStepActions() {
+        return postStepActions;
+    }
+    
+    public void setPostStepActions(List<PostStepAction> postStepActions) {
+        this.postStepActions = postStepActions;
+    }
+    
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+    
+    public void setDependsOn(List<String> dependsOn) {
+        this.dependsOn = dependsOn;
+    }
+}
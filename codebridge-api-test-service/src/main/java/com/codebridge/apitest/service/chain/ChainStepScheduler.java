@@ -0,0 +1,162 @@
+package com.codebridge.apitest.service.chain;
+
+import com.codebridge.apitest.dto.TestResultResponse;
+import com.codebridge.apitest.exception.TestExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the steps of a chain plan concurrently, following the dependencies between steps.
+ * Each step runs against a snapshot of the chain context and its changes are merged back when it
+ * finishes. When two steps write the same variable, the later step in the sequence wins, so the
+ * context seen by a step matches what a sequential run would have given it. Results are returned
+ * in sequence order.
+ */
+public class ChainStepScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainStepScheduler.class);
+
+    /**
+     * Runs a single step against a chain context.
+     */
+    @FunctionalInterface
+    public interface StepRunner {
+        /**
+         * Runs a step.
+         *
+         * @param step the step
+         * @param context the chain context for the step, which the step may modify
+         * @return the step result, or null if the step was skipped
+         */
+        TestResultResponse run(ChainPlan.Step step, Map<String, Object> context);
+    }
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param executor the executor steps run on
+     * @param parallelism the maximum number of steps running at once
+     */
+    public ChainStepScheduler(ExecutorService executor, int parallelism) {
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Runs the steps of a plan.
+     *
+     * @param plan the chain plan
+     * @param context the chain context, updated with the variables set by the steps
+     * @param runner runs each step
+     * @return the results of the steps that ran, in sequence order
+     * @throws RuntimeException the first exception thrown by a step, after the running steps are cancelled
+     */
+    public List<TestResultResponse> run(ChainPlan plan, Map<String, Object> context, StepRunner runner) {
+        List<ChainPlan.Step> steps = plan.getSteps();
+        int[] pendingDependencies = new int[steps.size()];
+        List<List<Integer>> dependents = new ArrayList<>(steps.size());
+        Queue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < steps.size(); i++) {
+            dependents.add(new ArrayList<>());
+            pendingDependencies[i] = steps.get(i).getDependencies().size();
+            for (int dependency : steps.get(i).getDependencies()) {
+                dependents.get(dependency).add(i);
+            }
+            if (pendingDependencies[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        TestResultResponse[] results = new TestResultResponse[steps.size()];
+        Map<String, Integer> writers = new HashMap<>();
+        CompletionService<StepOutcome> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<StepOutcome>> running = new ArrayList<>();
+
+        try {
+            while (!ready.isEmpty() || !running.isEmpty()) {
+                // Start ready steps, earliest in the sequence first
+                while (running.size() < parallelism && !ready.isEmpty()) {
+                    int index = ready.poll();
+                    Map<String, Object> snapshot = new HashMap<>(context);
+                    running.add(completionService.submit(() -> runStep(index, steps.get(index), snapshot, runner)));
+                }
+
+                Future<StepOutcome> completed = completionService.take();
+                running.remove(completed);
+                StepOutcome outcome = completed.get();
+                results[outcome.index()] = outcome.result();
+                merge(outcome, context, writers);
+
+                // Steps after a failed fail-fast step all depend on it, so they are never started
+                if (outcome.result() != null && steps.get(outcome.index()).stopsChain(outcome.result())) {
+                    logger.info("Stopping chain execution due to test failure and failFast=true");
+                    continue;
+                }
+                for (int dependent : dependents.get(outcome.index())) {
+                    if (--pendingDependencies[dependent] == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            running.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new TestExecutionException("Chain step failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            running.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new TestExecutionException("Interrupted while executing test chain " + plan.getChainId(), e);
+        }
+
+        List<TestResultResponse> orderedResults = new ArrayList<>();
+        for (TestResultResponse result : results) {
+            if (result != null) {
+                orderedResults.add(result);
+            }
+        }
+        return orderedResults;
+    }
+
+    private StepOutcome runStep(int index, ChainPlan.Step step, Map<String, Object> snapshot, StepRunner runner) {
+        Map<String, Object> stepContext = new HashMap<>(snapshot);
+        TestResultResponse result = runner.run(step, stepContext);
+
+        // Keep only what the step changed
+        Map<String, Object> changes = new HashMap<>();
+        for (Map.Entry<String, Object> entry : stepContext.entrySet()) {
+            if (!snapshot.containsKey(entry.getKey()) || snapshot.get(entry.getKey()) != entry.getValue()) {
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new StepOutcome(index, result, changes);
+    }
+
+    private void merge(StepOutcome outcome, Map<String, Object> context, Map<String, Integer> writers) {
+        for (Map.Entry<String, Object> change : outcome.changes().entrySet()) {
+            Integer writer = writers.get(change.getKey());
+            if (writer == null || writer < outcome.index()) {
+                context.put(change.getKey(), change.getValue());
+                writers.put(change.getKey(), outcome.index());
+            }
+        }
+    }
+
+    private record StepOutcome(int index, TestResultResponse result, Map<String, Object> changes) {}
+}
@@ -0,0 +1,254 @@
+package com.codebridge.apitest.service.chain;
+
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A string with chain variable references, split into segments once so it can be rendered repeatedly.
+ * Supports Mustache-style references ({@code {{name}}} or {@code {{name.path}}}) and
+ * expression language references ({@code ${expression}}).
+ */
+public final class ChainTemplate {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainTemplate.class);
+
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("\\{\\{([^}]+)\\}\\}|\\$\\{([^}]+)\\}");
+    private static final Pattern EXPRESSION_VARIABLE_PATTERN = Pattern.compile("#([A-Za-z_][A-Za-z0-9_]*)");
+
+    private final String source;
+    private final List<Segment> segments;
+    private final boolean literal;
+    private final boolean hasExpressions;
+
+    private ChainTemplate(String source, List<Segment> segments) {
+        this.source = source;
+        this.segments = segments;
+        this.literal = segments.stream().allMatch(segment -> segment instanceof LiteralSegment);
+        this.hasExpressions = segments.stream().anyMatch(segment -> segment instanceof ExpressionSegment);
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param source the template text, may be null
+     * @param parser the parser for expression language references
+     * @return the compiled template
+     */
+    public static ChainTemplate compile(String source, ExpressionParser parser) {
+        List<Segment> segments = new ArrayList<>();
+        if (source == null) {
+            return new ChainTemplate(null, segments);
+        }
+
+        Matcher matcher = REFERENCE_PATTERN.matcher(source);
+        int last = 0;
+        while (matcher.find()) {
+            if (matcher.start() > last) {
+                segments.add(new LiteralSegment(source.substring(last, matcher.start())));
+            }
+            if (matcher.group(1) != null) {
+                segments.add(VariableSegment.compile(matcher.group(), matcher.group(1), parser));
+            } else {
+                segments.add(ExpressionSegment.compile(matcher.group(), matcher.group(2), parser));
+            }
+            last = matcher.end();
+        }
+        if (last < source.length()) {
+            segments.add(new LiteralSegment(source.substring(last)));
+        }
+        return new ChainTemplate(source, segments);
+    }
+
+    /**
+     * Renders the template against the chain context.
+     * References that cannot be resolved are left as they are.
+     *
+     * @param context the chain context
+     * @return the rendered string, or null if the template is null
+     */
+    public String render(Map<String, Object> context) {
+        if (source == null || literal || context.isEmpty()) {
+            return source;
+        }
+
+        StringBuilder result = new StringBuilder(source.length() + 32);
+        EvaluationContext evaluationContext = hasExpressions ? newEvaluationContext(context) : null;
+        for (Segment segment : segments) {
+            segment.appendTo(result, context, evaluationContext);
+        }
+        return result.toString();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the chain variables the template reads.
+     *
+     * @return the variable names
+     */
+    public Set<String> getVariables() {
+        Set<String> variables = new HashSet<>();
+        for (Segment segment : segments) {
+            if (segment instanceof VariableSegment variable) {
+                variables.add(variable.variableName());
+            } else if (segment instanceof ExpressionSegment expression) {
+                variables.addAll(expressionVariables(expression.source()));
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Finds the chain variables an expression reads, referenced as {@code #name}.
+     *
+     * @param expression the expression source, may be null
+     * @return the variable names
+     */
+    public static Set<String> expressionVariables(String expression) {
+        Set<String> variables = new HashSet<>();
+        if (expression != null) {
+            Matcher matcher = EXPRESSION_VARIABLE_PATTERN.matcher(expression);
+            while (matcher.find()) {
+                variables.add(matcher.group(1));
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Creates an expression evaluation context exposing the chain context as variables.
+     *
+     * @param context the chain context
+     * @return the evaluation context
+     */
+    static StandardEvaluationContext newEvaluationContext(Map<String, Object> context) {
+        StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            evaluationContext.setVariable(entry.getKey(), entry.getValue());
+        }
+        return evaluationContext;
+    }
+
+    private interface Segment {
+        void appendTo(StringBuilder result, Map<String, Object> context, EvaluationContext evaluationContext);
+    }
+
+    private record LiteralSegment(String text) implements Segment {
+        @Override
+        public void appendTo(StringBuilder result, Map<String, Object> context, EvaluationContext evaluationContext) {
+            result.append(text);
+        }
+    }
+
+    /**
+     * A {@code {{name}}} reference. Nested properties are read with JsonPath from JSON strings,
+     * and with expression language from other objects.
+     */
+    private record VariableSegment(String raw, String variableName, String propertyPath,
+                                   JsonPath jsonPath, Expression propertyExpression) implements Segment {
+
+        static VariableSegment compile(String raw, String reference, ExpressionParser parser) {
+            if (!reference.contains(".")) {
+                return new VariableSegment(raw, reference, null, null, null);
+            }
+
+            String[] parts = reference.split("\\.", 2);
+            JsonPath jsonPath = null;
+            Expression propertyExpression = null;
+            try {
+                jsonPath = JsonPath.compile("$." + parts[1]);
+            } catch (InvalidPathException e) {
+                logger.debug("Property path '{}' is not a valid JSONPath: {}", parts[1], e.getMessage());
+            }
+            try {
+                propertyExpression = parser.parseExpression(parts[1]);
+            } catch (ParseException e) {
+                logger.debug("Property path '{}' is not a valid expression: {}", parts[1], e.getMessage());
+            }
+            return new VariableSegment(raw, parts[0], parts[1], jsonPath, propertyExpression);
+        }
+
+        @Override
+        public void appendTo(StringBuilder result, Map<String, Object> context, EvaluationContext evaluationContext) {
+            Object value = resolve(context);
+            result.append(value != null ? value.toString() : raw);
+        }
+
+        private Object resolve(Map<String, Object> context) {
+            Object variable = context.get(variableName);
+            if (propertyPath == null || variable == null) {
+                return variable;
+            }
+
+            try {
+                // Try to resolve using JsonPath for JSON objects
+                if (variable instanceof String json && json.trim().startsWith("{")) {
+                    if (jsonPath == null) {
+                        return null;
+                    }
+                    try {
+                        return jsonPath.read(json);
+                    } catch (PathNotFoundException e) {
+                        logger.debug("Path not found in JSON: {}", propertyPath);
+                        return null;
+                    }
+                }
+
+                // For other objects, use SpEL
+                if (propertyExpression == null) {
+                    return null;
+                }
+                return propertyExpression.getValue(new StandardEvaluationContext(variable));
+            } catch (Exception e) {
+                logger.warn("Error resolving property '{}' of variable '{}': {}", propertyPath, variableName, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A {@code ${expression}} reference, evaluated with the chain context as variables.
+     */
+    private record ExpressionSegment(String raw, String source, Expression expression) implements Segment {
+
+        static ExpressionSegment compile(String raw, String source, ExpressionParser parser) {
+            try {
+                return new ExpressionSegment(raw, source, parser.parseExpression(source));
+            } catch (ParseException e) {
+                logger.warn("Error parsing expression '{}': {}", source, e.getMessage());
+                return new ExpressionSegment(raw, source, null);
+            }
+        }
+
+        @Override
+        public void appendTo(StringBuilder result, Map<String, Object> context, EvaluationContext evaluationContext) {
+            Object value = null;
+            if (expression != null) {
+                try {
+                    value = expression.getValue(evaluationContext);
+                } catch (Exception e) {
+                    logger.warn("Error evaluating expression '{}': {}", source, e.getMessage());
+                }
+            }
+            result.append(value != null ? value.toString() : raw);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.codebridge.apitest.service.chain;
+
+import java.util.Map;
+
+/**
+ * Post-step action, as stored in a chain's test sequence.
+ */
+public class PostStepAction {
+    private String type;
+    private Map<String, String> parameters;
+    
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+    
+    public void setParameters(Map<String, String> parameters) {
+        this.parameters = parameters;
+    }
+}
@@ -0,0 +1,118 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.model.LoadTest;
+import com.codebridge.apitest.model.enums.LoadPattern;
+import com.codebridge.common.loadtest.OpenModelLoadGenerator.ArrivalSchedule;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Target arrival rate over the course of an open-model load test.
+ */
+public final class ArrivalRateProfile {
+
+    private static final int STEP_COUNT = 4;
+    private static final double SPIKE_START_FRACTION = 0.45;
+    private static final double SPIKE_END_FRACTION = 0.55;
+    private static final double DEFAULT_PEAK_MULTIPLIER = 3.0;
+
+    /**
+     * Longest gap between schedule evaluations; low rates accumulate fractional arrivals per step.
+     */
+    private static final long MAX_STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final LoadPattern pattern;
+    private final double targetRps;
+    private final double peakRps;
+    private final long rampNanos;
+    private final long durationNanos;
+
+    public ArrivalRateProfile(LoadPattern pattern, double targetRps, double peakRps, long rampNanos, long durationNanos) {
+        this.pattern = pattern != null ? pattern : LoadPattern.CONSTANT;
+        this.targetRps = targetRps;
+        this.peakRps = peakRps;
+        this.rampNanos = rampNanos > 0 ? rampNanos : durationNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Creates the arrival rate profile described by a load test.
+     *
+     * @param loadTest the load test
+     * @return the arrival rate profile
+     */
+    public static ArrivalRateProfile of(LoadTest loadTest) {
+        double target = loadTest.getTargetRps();
+        double peak = loadTest.getPeakRps() != null ? loadTest.getPeakRps() : target * DEFAULT_PEAK_MULTIPLIER;
+        int rampUpSeconds = loadTest.getRampUpSeconds() != null ? loadTest.getRampUpSeconds() : 0;
+        return new ArrivalRateProfile(
+                loadTest.getLoadPattern(),
+                target,
+                peak,
+                TimeUnit.SECONDS.toNanos(rampUpSeconds),
+                TimeUnit.SECONDS.toNanos(loadTest.getDurationSeconds()));
+    }
+
+    /**
+     * Gets the target arrival rate at a point in the test.
+     *
+     * @param elapsedNanos the time since the start of the test
+     * @return the target rate in requests per second
+     */
+    public double rateAt(long elapsedNanos) {
+        switch (pattern) {
+            case RAMP_UP:
+                // Linear ramp from zero to the target rate, then hold
+                return targetRps * Math.min(1.0, (double) elapsedNanos / rampNanos);
+                
+            case STEP:
+                // Target rate reached in equal steps over the ramp-up period
+                long stepNanos = Math.max(1, rampNanos / STEP_COUNT);
+                long step = Math.min(STEP_COUNT, elapsedNanos / stepNanos + 1);
+                return targetRps * step / STEP_COUNT;
+                
+            case SPIKE:
+                // Baseline rate with a burst at the peak rate in the middle of the test
+                double fraction = (double) elapsedNanos / durationNanos;
+                return fraction >= SPIKE_START_FRACTION && fraction < SPIKE_END_FRACTION ? peakRps : targetRps;
+                
+            case CONSTANT:
+            default:
+                return targetRps;
+        }
+    }
+
+    /**
+     * Creates the arrival schedule of one run of the test, which ends with the test duration.
+     *
+     * @return a new schedule
+     */
+    public ArrivalSchedule arrivals() {
+        return new ArrivalSchedule() {
+            private long nextNanos;
+            private double credit;
+
+            @Override
+            public long nextArrivalNanos() {
+                while (nextNanos < durationNanos) {
+                    double rate = rateAt(nextNanos);
+                    double intervalNanos = rate > 0 ? 1_000_000_000.0 / rate : Double.POSITIVE_INFINITY;
+
+                    if (intervalNanos > MAX_STEP_NANOS) {
+                        // Low rate: advance by a fixed step and accumulate fractional arrivals
+                        credit += rate * MAX_STEP_NANOS / 1_000_000_000.0;
+                        nextNanos += MAX_STEP_NANOS;
+                        if (credit < 1.0) {
+                            continue;
+                        }
+                        credit -= 1.0;
+                    } else {
+                        nextNanos += (long) intervalNanos;
+                    }
+                    return nextNanos < durationNanos ? nextNanos : -1;
+                }
+                return -1;
+            }
+        };
+    }
+}
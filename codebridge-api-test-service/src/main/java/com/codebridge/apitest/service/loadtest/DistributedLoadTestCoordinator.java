@@ -0,0 +1,240 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.config.LoadTestProperties;
+import com.codebridge.apitest.dto.LoadTestResult;
+import com.codebridge.apitest.dto.LoadTestSliceRequest;
+import com.codebridge.apitest.dto.LoadTestSliceResult;
+import com.codebridge.apitest.model.LoadTest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Coordinates a load test split across several api-test-service instances.
+ * The coordinator runs one slice itself and sends the others to workers found through service discovery.
+ * All slices start at the same time, and worker histograms are merged into the coordinator's metrics
+ * so percentiles cover the whole run. Slice requests are signed with the shared worker token, since they name
+ * the user the workers run them for; without a token, load tests run on this node only.
+ */
+@Component
+public class DistributedLoadTestCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedLoadTestCoordinator.class);
+
+    static final String SLICES_PATH = "/api/v1/load-tests/slices";
+
+    private final LoadTestProperties properties;
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final RestTemplate cancelClient;
+    private final ObjectProvider<Registration> registration;
+    private final Environment environment;
+    private final LoadTestSliceSigner signer;
+
+    @Autowired
+    public DistributedLoadTestCoordinator(LoadTestProperties properties,
+                                          DiscoveryClient discoveryClient,
+                                          RestTemplateBuilder restTemplateBuilder,
+                                          ObjectProvider<Registration> registration,
+                                          Environment environment) {
+        this.properties = properties;
+        this.discoveryClient = discoveryClient;
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.cancelClient = workerClient(properties.getWorkerConnectTimeoutMs());
+        this.registration = registration;
+        this.environment = environment;
+        this.signer = new LoadTestSliceSigner(properties.getWorkerToken());
+    }
+
+    /**
+     * Checks whether a load test should be distributed.
+     *
+     * @param loadTest the load test
+     * @return true if distributed mode is enabled with a worker token and the test asks for more than one worker
+     */
+    public boolean isDistributed(LoadTest loadTest) {
+        if (!properties.isDistributedEnabled() || loadTest.getWorkerCount() == null || loadTest.getWorkerCount() <= 1) {
+            return false;
+        }
+        if (!signer.isEnabled()) {
+            logger.warn("Load test {} asked for {} workers, but no worker token is configured to sign its slices; "
+                + "running it on this node only", loadTest.getId(), loadTest.getWorkerCount());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs a load test across this node and the available workers.
+     *
+     * @param loadTest the load test
+     * @param userId the user ID
+     * @param run the run tracking metrics and cancellation on this node
+     * @param localExecutor runs the local slice, recording into the run's metrics
+     * @return the merged load test result
+     */
+    public LoadTestResult execute(LoadTest loadTest, UUID userId, LoadTestRun run,
+                                  Function<LoadTest, LoadTestResult> localExecutor) {
+        List<ServiceInstance> workers = discoverWorkers(loadTest.getWorkerCount() - 1);
+        if (workers.size() < loadTest.getWorkerCount() - 1) {
+            logger.warn("Load test {} asked for {} workers but only {} are available",
+                loadTest.getId(), loadTest.getWorkerCount(), workers.size() + 1);
+        }
+
+        int sliceCount = workers.size() + 1;
+        long issuedAtEpochMs = System.currentTimeMillis();
+        long startAtEpochMs = issuedAtEpochMs + properties.getWorkerStartDelayMs();
+        UUID runId = UUID.randomUUID();
+        long timeoutMs = TimeUnit.SECONDS.toMillis(loadTest.getDurationSeconds()
+            + (loadTest.getRampUpSeconds() != null ? loadTest.getRampUpSeconds() : 0)
+            + properties.getDrainTimeoutSeconds()
+            + properties.getWorkerTimeoutGraceSeconds()) + properties.getWorkerStartDelayMs();
+
+        logger.info("Distributing load test {} across {} nodes", loadTest.getId(), sliceCount);
+
+        // A worker answers once its slice has finished, so the read timeout covers the whole slice
+        RestTemplate sliceClient = workerClient(timeoutMs);
+
+        ExecutorService workerCalls = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("load-worker-call-", 0).factory());
+        List<Future<LoadTestSliceResult>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                ServiceInstance worker = workers.get(i);
+                LoadTestSliceRequest slice = LoadTestSliceRequest.forSlice(loadTest, userId, i + 1, sliceCount, startAtEpochMs);
+                slice.setRunId(runId);
+                slice.setIssuedAtEpochMs(issuedAtEpochMs);
+                slice.setExpiresAtEpochMs(issuedAtEpochMs + properties.getWorkerSignatureValidityMs());
+                HttpHeaders headers = new HttpHeaders();
+                headers.set(LoadTestSliceSigner.SIGNATURE_HEADER, signer.sign(slice));
+                futures.add(workerCalls.submit(() -> sliceClient.postForObject(
+                    worker.getUri().resolve(SLICES_PATH), new HttpEntity<>(slice, headers), LoadTestSliceResult.class)));
+            }
+            run.onCancel(() -> workers.forEach(worker -> cancelWorker(worker, loadTest.getId())));
+
+            // Run the local slice in step with the workers
+            LoadTest localSlice = LoadTestSliceRequest.forSlice(loadTest, userId, 0, sliceCount, startAtEpochMs).toLoadTest();
+            long delayMs = startAtEpochMs - System.currentTimeMillis();
+            LoadTestResult localResult = null;
+            if (delayMs <= 0 || !run.awaitCancellation(delayMs)) {
+                localResult = localExecutor.apply(localSlice);
+            }
+
+            long droppedRequests = localResult != null ? localResult.getDroppedRequests() : 0;
+            long maxScheduleLagMs = localResult != null ? localResult.getMaxScheduleLagMs() : 0;
+            long durationMs = System.currentTimeMillis() - startAtEpochMs;
+            int failedWorkers = 0;
+            long deadline = System.currentTimeMillis() + timeoutMs;
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    LoadTestSliceResult sliceResult = futures.get(i).get(
+                        Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    if (sliceResult == null) {
+                        throw new ExecutionException(new IllegalStateException("Empty slice result"));
+                    }
+                    run.getAggregator().merge(sliceResult);
+                    droppedRequests += sliceResult.getDroppedRequests();
+                    maxScheduleLagMs = Math.max(maxScheduleLagMs, sliceResult.getMaxScheduleLagMs());
+                    durationMs = Math.max(durationMs, sliceResult.getDurationMs());
+                } catch (ExecutionException | TimeoutException e) {
+                    failedWorkers++;
+                    futures.get(i).cancel(true);
+                    logger.error("Worker {} failed for load test {}: {}", workers.get(i).getUri(), loadTest.getId(),
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                }
+            }
+
+            String summarySuffix = String.format("Nodes: %d, Failed Workers: %d, Dropped: %d, Max Start Lag: %d ms",
+                sliceCount, failedWorkers, droppedRequests, maxScheduleLagMs);
+            return run.getAggregator().toResult(durationMs, (int) droppedRequests, maxScheduleLagMs, summarySuffix);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.cancel();
+            throw new IllegalStateException("Interrupted while coordinating load test " + loadTest.getId(), e);
+        } finally {
+            workerCalls.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds up to the requested number of workers, excluding this instance.
+     *
+     * @param count the number of workers wanted
+     * @return the workers
+     */
+    private List<ServiceInstance> discoverWorkers(int count) {
+        List<ServiceInstance> workers = new ArrayList<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(properties.getWorkerServiceId())) {
+            if (workers.size() >= count) {
+                break;
+            }
+            if (!isSelf(instance)) {
+                workers.add(instance);
+            }
+        }
+        return workers;
+    }
+
+    private boolean isSelf(ServiceInstance instance) {
+        Registration self = registration.getIfAvailable();
+        if (self != null && self.getInstanceId() != null) {
+            return self.getInstanceId().equals(instance.getInstanceId());
+        }
+
+        String localPort = environment.getProperty("local.server.port", environment.getProperty("server.port"));
+        if (localPort == null || !localPort.equals(String.valueOf(instance.getPort()))) {
+            return false;
+        }
+        try {
+            InetAddress address = InetAddress.getByName(instance.getHost());
+            return address.isLoopbackAddress() || address.equals(InetAddress.getLocalHost());
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private void cancelWorker(ServiceInstance worker, UUID loadTestId) {
+        long expiresAtEpochMs = System.currentTimeMillis() + properties.getWorkerSignatureValidityMs();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(LoadTestSliceSigner.SIGNATURE_HEADER, signer.signCancel(loadTestId, expiresAtEpochMs));
+        headers.set(LoadTestSliceSigner.EXPIRES_HEADER, String.valueOf(expiresAtEpochMs));
+        try {
+            cancelClient.postForLocation(worker.getUri().resolve(SLICES_PATH + "/" + loadTestId + "/cancel"),
+                new HttpEntity<>(null, headers));
+        } catch (RestClientException e) {
+            logger.warn("Failed to cancel load test {} on worker {}: {}", loadTestId, worker.getUri(), e.getMessage());
+        }
+    }
+
+    private RestTemplate workerClient(long readTimeoutMs) {
+        return restTemplateBuilder
+            .setConnectTimeout(Duration.ofMillis(properties.getWorkerConnectTimeoutMs()))
+            .setReadTimeout(Duration.ofMillis(readTimeoutMs))
+            .build();
+    }
+}
@@ -0,0 +1,333 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.dto.LoadTestResult;
+import com.codebridge.apitest.dto.LoadTestSliceResult;
+import com.codebridge.apitest.dto.LoadTestWindow;
+import com.codebridge.apitest.dto.TestResultResponse;
+import com.codebridge.apitest.model.TestStatus;
+import com.codebridge.common.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming aggregator for load test results.
+ * Latencies are recorded into striped histograms that are merged when results are read,
+ * so memory use is constant in the length of the run and no individual results are retained.
+ * Results are also recorded into a short-lived window that is closed periodically to build a live time series.
+ */
+public class LoadTestMetricsAggregator {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final int MAX_DISTINCT_ERRORS = 100;
+    private static final int MAX_ERROR_KEY_LENGTH = 200;
+    private static final String OTHER_ERRORS = "other";
+
+    private final LatencyHistogram[] stripes;
+    private final int stripeMask;
+    private final LongAdder successfulRequests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> statusCodeCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final AtomicReference<WindowCounters> currentWindow;
+    private WindowCounters spareWindow;
+
+    public LoadTestMetricsAggregator() {
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+        this.stripes = new LatencyHistogram[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_MS, SIGNIFICANT_DIGITS);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.currentWindow = new AtomicReference<>(new WindowCounters());
+        this.spareWindow = new WindowCounters();
+    }
+
+    /**
+     * Records a test result.
+     *
+     * @param result the test result
+     * @param latencyMs the latency to record for the result
+     */
+    public void record(TestResultResponse result, long latencyMs) {
+        stripes[(int) Thread.currentThread().threadId() & stripeMask].recordValue(latencyMs);
+        boolean success = TestStatus.SUCCESS.name().equals(result.getStatus());
+        WindowCounters window = enterWindow();
+        try {
+            window.histogram.recordValue(latencyMs);
+            (success ? window.successful : window.failed).increment();
+        } finally {
+            window.writers.decrementAndGet();
+        }
+
+        if (success) {
+            successfulRequests.increment();
+        } else {
+            failedRequests.increment();
+            if (result.getErrorMessage() != null) {
+                addError(result.getErrorMessage(), 1);
+            }
+        }
+
+        String statusCode = result.getResponseStatusCode() != null ? String.valueOf(result.getResponseStatusCode()) : "none";
+        statusCodeCounts.computeIfAbsent(statusCode, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Records a test result using its execution time as the latency.
+     *
+     * @param result the test result
+     */
+    public void record(TestResultResponse result) {
+        record(result, result.getExecutionTimeMs() != null ? result.getExecutionTimeMs() : 0);
+    }
+
+    /**
+     * Records an iteration that failed before producing a result.
+     *
+     * @param error the error
+     */
+    public void recordError(Exception error) {
+        failedRequests.increment();
+        WindowCounters window = enterWindow();
+        try {
+            window.failed.increment();
+        } finally {
+            window.writers.decrementAndGet();
+        }
+        addError(error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName(), 1);
+    }
+
+    /**
+     * Merges the result of a slice run on another node.
+     *
+     * @param slice the slice result
+     */
+    public void merge(LoadTestSliceResult slice) {
+        if (slice.getLatencyHistogram() != null) {
+            stripes[0].add(slice.getLatencyHistogram());
+        }
+        successfulRequests.add(slice.getSuccessfulRequests());
+        failedRequests.add(slice.getFailedRequests());
+        if (slice.getStatusCodeCounts() != null) {
+            slice.getStatusCodeCounts().forEach((statusCode, count) ->
+                statusCodeCounts.computeIfAbsent(statusCode, k -> new LongAdder()).add(count));
+        }
+        if (slice.getErrorCounts() != null) {
+            slice.getErrorCounts().forEach(this::addError);
+        }
+    }
+
+    /**
+     * Builds the result of a slice run on this node, for merging on the coordinator.
+     *
+     * @param sliceIndex the index of the slice
+     * @param durationMs the duration of the slice in milliseconds
+     * @param droppedRequests the number of requests that were never started
+     * @param maxScheduleLagMs the maximum lag between intended and actual request start
+     * @return the slice result
+     */
+    public LoadTestSliceResult toSliceResult(int sliceIndex, long durationMs, long droppedRequests, long maxScheduleLagMs) {
+        LoadTestSliceResult result = new LoadTestSliceResult();
+        result.setSliceIndex(sliceIndex);
+        result.setSuccessfulRequests(getSuccessfulRequests());
+        result.setFailedRequests(getFailedRequests());
+        result.setDroppedRequests(droppedRequests);
+        result.setMaxScheduleLagMs(maxScheduleLagMs);
+        result.setDurationMs(durationMs);
+        result.setStatusCodeCounts(getStatusCodeCounts());
+        result.setErrorCounts(getErrorCounts());
+        result.setLatencyHistogram(getLatencyHistogram().snapshot());
+        return result;
+    }
+
+    /**
+     * Registers the calling thread as a writer of the current window. The window is read again
+     * after registering, so closing it either sees the writer or the writer sees the new window.
+     */
+    private WindowCounters enterWindow() {
+        while (true) {
+            WindowCounters window = currentWindow.get();
+            window.writers.incrementAndGet();
+            if (currentWindow.get() == window) {
+                return window;
+            }
+            window.writers.decrementAndGet();
+        }
+    }
+
+    private void addError(String message, long count) {
+        String key = message.length() > MAX_ERROR_KEY_LENGTH ? message.substring(0, MAX_ERROR_KEY_LENGTH) : message;
+        LongAdder counter = errorCounts.get(key);
+        if (counter == null) {
+            // Bound the number of distinct error keys so a noisy target cannot grow memory
+            counter = errorCounts.size() < MAX_DISTINCT_ERRORS
+                ? errorCounts.computeIfAbsent(key, k -> new LongAdder())
+                : errorCounts.computeIfAbsent(OTHER_ERRORS, k -> new LongAdder());
+        }
+        counter.add(count);
+    }
+
+    /**
+     * Merges the striped histograms into a single histogram.
+     *
+     * @return the merged latency histogram
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        LatencyHistogram merged = stripes[0].newEmptyCopy();
+        for (LatencyHistogram stripe : stripes) {
+            merged.add(stripe);
+        }
+        return merged;
+    }
+
+    public long getSuccessfulRequests() {
+        return successfulRequests.sum();
+    }
+
+    public long getFailedRequests() {
+        return failedRequests.sum();
+    }
+
+    public Map<String, Long> getStatusCodeCounts() {
+        return snapshot(statusCodeCounts);
+    }
+
+    public Map<String, Long> getErrorCounts() {
+        return snapshot(errorCounts);
+    }
+
+    /**
+     * Builds the load test result from everything recorded so far.
+     *
+     * @param totalDurationMs the total duration in milliseconds
+     * @param droppedRequests the number of requests that were never started
+     * @param maxScheduleLagMs the maximum lag between intended and actual request start
+     * @param summarySuffix extra text appended to the summary, or null
+     * @return the load test result
+     */
+    public LoadTestResult toResult(long totalDurationMs, int droppedRequests, long maxScheduleLagMs, String summarySuffix) {
+        LatencyHistogram histogram = getLatencyHistogram();
+        int successful = (int) getSuccessfulRequests();
+        int failed = (int) getFailedRequests();
+        int totalRequests = successful + failed;
+
+        if (totalRequests == 0) {
+            return new LoadTestResult(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, "No results collected",
+                droppedRequests, maxScheduleLagMs, Map.of(), Map.of());
+        }
+
+        double requestsPerSecond = totalDurationMs > 0 ? totalRequests / (totalDurationMs / 1000.0) : 0;
+        double errorRate = (double) failed / totalRequests * 100;
+
+        String summary = String.format(
+            "Total: %d, Success: %d, Failed: %d, Avg: %.2f ms, Min: %d ms, Max: %d ms, 50%%: %d ms, 90%%: %d ms, 95%%: %d ms, 99%%: %d ms, 99.9%%: %d ms, RPS: %.2f, Error Rate: %.2f%%",
+            totalRequests, successful, failed,
+            histogram.getMean(), histogram.getMin(), histogram.getMax(),
+            histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+            histogram.getValueAtPercentile(95), histogram.getValueAtPercentile(99),
+            histogram.getValueAtPercentile(99.9), requestsPerSecond, errorRate
+        );
+        if (summarySuffix != null) {
+            summary = summary + ", " + summarySuffix;
+        }
+
+        return new LoadTestResult(
+            totalRequests,
+            successful,
+            failed,
+            histogram.getMean(),
+            histogram.getMin(),
+            histogram.getMax(),
+            histogram.getValueAtPercentile(50),
+            histogram.getValueAtPercentile(90),
+            histogram.getValueAtPercentile(95),
+            histogram.getValueAtPercentile(99),
+            histogram.getValueAtPercentile(99.9),
+            requestsPerSecond,
+            errorRate,
+            summary,
+            droppedRequests,
+            maxScheduleLagMs,
+            getStatusCodeCounts(),
+            getErrorCounts()
+        );
+    }
+
+    /**
+     * Closes the current window and starts a new one.
+     * Waits for the results already being recorded into the closed window before reading it, so every
+     * result is counted in exactly one window; one recorded concurrently with the switch may be counted
+     * in the following window.
+     *
+     * @param windowStartEpochMs the start of the window being closed
+     * @param windowEndEpochMs the end of the window being closed
+     * @param droppedRequests the number of requests dropped during the window
+     * @return the closed window
+     */
+    public synchronized LoadTestWindow closeWindow(long windowStartEpochMs, long windowEndEpochMs, long droppedRequests) {
+        WindowCounters closed = currentWindow.getAndSet(spareWindow);
+        spareWindow = closed;
+        closed.awaitWriters();
+
+        long successful = closed.successful.sum();
+        long failed = closed.failed.sum();
+        long total = successful + failed;
+        long windowMs = Math.max(1, windowEndEpochMs - windowStartEpochMs);
+        LatencyHistogram histogram = closed.histogram;
+
+        LoadTestWindow window = new LoadTestWindow(
+            windowStartEpochMs,
+            windowEndEpochMs,
+            total,
+            successful,
+            failed,
+            droppedRequests,
+            total * 1000.0 / windowMs,
+            total > 0 ? (double) failed / total * 100 : 0,
+            histogram.getValueAtPercentile(50),
+            histogram.getValueAtPercentile(90),
+            histogram.getValueAtPercentile(95),
+            histogram.getValueAtPercentile(99),
+            histogram.getMax()
+        );
+
+        closed.reset();
+        return window;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((key, counter) -> snapshot.put(key, counter.sum()));
+        return snapshot;
+    }
+
+    /**
+     * Counters for a single window of the live time series.
+     */
+    private static final class WindowCounters {
+        private final LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_MS, SIGNIFICANT_DIGITS);
+        private final LongAdder successful = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicLong writers = new AtomicLong();
+
+        private void awaitWriters() {
+            // Writers only update counters, so they leave the window quickly
+            while (writers.get() != 0) {
+                Thread.yield();
+            }
+        }
+
+        private void reset() {
+            histogram.reset();
+            successful.reset();
+            failed.reset();
+        }
+    }
+}
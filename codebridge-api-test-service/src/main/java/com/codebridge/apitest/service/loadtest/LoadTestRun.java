@@ -0,0 +1,220 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.dto.LoadTestWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * State of a load test while it runs on this node: its metrics, the live time series built from them,
+ * the clients streaming that series, and the cancellation signal observed by the workers.
+ */
+public class LoadTestRun {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestRun.class);
+
+    private final UUID loadTestId;
+    private final int maxWindows;
+    private final LoadTestMetricsAggregator aggregator = new LoadTestMetricsAggregator();
+    private final Deque<LoadTestWindow> windows = new ArrayDeque<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    private volatile LongSupplier droppedCounter = () -> 0;
+    private long lastDroppedCount;
+    private long windowStartEpochMs;
+    private volatile long finishedAtEpochMs;
+
+    public LoadTestRun(UUID loadTestId, int maxWindows) {
+        this.loadTestId = loadTestId;
+        this.maxWindows = maxWindows;
+        this.windowStartEpochMs = System.currentTimeMillis();
+    }
+
+    public UUID getLoadTestId() {
+        return loadTestId;
+    }
+
+    public LoadTestMetricsAggregator getAggregator() {
+        return aggregator;
+    }
+
+    /**
+     * Sets the source of the cumulative dropped request count, for runs that can drop arrivals.
+     *
+     * @param droppedCounter the dropped request counter
+     */
+    public void setDroppedCounter(LongSupplier droppedCounter) {
+        this.droppedCounter = droppedCounter;
+    }
+
+    /**
+     * Requests cancellation. Workers stop starting new requests and cancel hooks are run.
+     */
+    public void cancel() {
+        if (cancelled.getCount() == 0) {
+            return;
+        }
+        cancelled.countDown();
+        for (Runnable hook : cancelHooks) {
+            runCancelHook(hook);
+        }
+    }
+
+    /**
+     * Registers an action to run on cancellation. Runs immediately if the run is already cancelled.
+     *
+     * @param hook the action to run
+     */
+    public void onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (isCancelled()) {
+            runCancelHook(hook);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.getCount() == 0;
+    }
+
+    /**
+     * Sleeps for the given time, returning early if the run is cancelled.
+     *
+     * @param millis the time to sleep in milliseconds
+     * @return true if the run was cancelled
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public boolean awaitCancellation(long millis) throws InterruptedException {
+        return cancelled.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes the current window, appends it to the time series and publishes it to subscribers.
+     * Does nothing once the run has finished.
+     *
+     * @param nowEpochMs the end of the window
+     */
+    public synchronized void closeWindow(long nowEpochMs) {
+        if (isFinished()) {
+            return;
+        }
+        long droppedCount = droppedCounter.getAsLong();
+        LoadTestWindow window = aggregator.closeWindow(windowStartEpochMs, nowEpochMs, droppedCount - lastDroppedCount);
+        lastDroppedCount = droppedCount;
+        windowStartEpochMs = nowEpochMs;
+
+        windows.addLast(window);
+        while (windows.size() > maxWindows) {
+            windows.removeFirst();
+        }
+
+        for (SseEmitter subscriber : subscribers) {
+            send(subscriber, window);
+        }
+    }
+
+    /**
+     * Gets the windows that ended after the given time.
+     *
+     * @param sinceEpochMs the time to return windows after, or 0 for all retained windows
+     * @return the windows, oldest first
+     */
+    public synchronized List<LoadTestWindow> getWindows(long sinceEpochMs) {
+        List<LoadTestWindow> result = new ArrayList<>();
+        for (LoadTestWindow window : windows) {
+            if (window.getWindowEndEpochMs() > sinceEpochMs) {
+                result.add(window);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Streams the time series to an SSE client, starting with the windows retained so far.
+     *
+     * @param emitter the emitter to stream to
+     */
+    public synchronized void subscribe(SseEmitter emitter) {
+        for (LoadTestWindow window : windows) {
+            if (!send(emitter, window)) {
+                return;
+            }
+        }
+
+        if (isFinished()) {
+            complete(emitter);
+            return;
+        }
+
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+    }
+
+    /**
+     * Marks the run as finished, publishing the final partial window and completing all streams.
+     */
+    public synchronized void finish() {
+        if (isFinished()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        closeWindow(now);
+        finishedAtEpochMs = now;
+
+        for (SseEmitter subscriber : subscribers) {
+            complete(subscriber);
+        }
+        subscribers.clear();
+    }
+
+    public boolean isFinished() {
+        return finishedAtEpochMs != 0;
+    }
+
+    public long getFinishedAtEpochMs() {
+        return finishedAtEpochMs;
+    }
+
+    private boolean send(SseEmitter emitter, LoadTestWindow window) {
+        try {
+            emitter.send(SseEmitter.event().name("window").data(window));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; stop streaming to it
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void complete(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().name("finished").data(loadTestId.toString()));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void runCancelHook(Runnable hook) {
+        try {
+            hook.run();
+        } catch (RuntimeException e) {
+            logger.warn("Cancel hook for load test {} failed: {}", loadTestId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.config.LoadTestProperties;
+import com.codebridge.apitest.dto.LoadTestWindow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of load tests running on this node.
+ * Closes a time series window for every running test on a fixed schedule and keeps finished runs
+ * for a retention period so their series can still be read.
+ */
+@Component
+public class LoadTestRunRegistry {
+
+    private final LoadTestProperties properties;
+    private final ConcurrentHashMap<UUID, LoadTestRun> runs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LoadTestRunRegistry(LoadTestProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Registers a new run for a load test.
+     *
+     * @param loadTestId the load test ID
+     * @return the new run
+     * @throws IllegalStateException if the load test is already running on this node
+     */
+    public LoadTestRun start(UUID loadTestId) {
+        return runs.compute(loadTestId, (id, existing) -> {
+            if (existing != null && !existing.isFinished()) {
+                throw new IllegalStateException("Load test is already running");
+            }
+            return new LoadTestRun(id, properties.getLiveMaxWindows());
+        });
+    }
+
+    /**
+     * Gets the current or most recent run of a load test.
+     *
+     * @param loadTestId the load test ID
+     * @return the run, if one is retained
+     */
+    public Optional<LoadTestRun> get(UUID loadTestId) {
+        return Optional.ofNullable(runs.get(loadTestId));
+    }
+
+    /**
+     * Cancels a load test running on this node.
+     *
+     * @param loadTestId the load test ID
+     * @return true if a running load test was cancelled
+     */
+    public boolean cancel(UUID loadTestId) {
+        LoadTestRun run = runs.get(loadTestId);
+        if (run == null || run.isFinished()) {
+            return false;
+        }
+        run.cancel();
+        return true;
+    }
+
+    /**
+     * Gets the live time series of a load test.
+     *
+     * @param loadTestId the load test ID
+     * @param sinceEpochMs only return windows that ended after this time
+     * @return the windows, oldest first, or an empty list if no run is retained
+     */
+    public List<LoadTestWindow> getWindows(UUID loadTestId, long sinceEpochMs) {
+        LoadTestRun run = runs.get(loadTestId);
+        return run != null ? run.getWindows(sinceEpochMs) : List.of();
+    }
+
+    /**
+     * Opens an SSE stream of a load test's time series.
+     * The stream completes when the run finishes, or immediately if no run is in progress.
+     *
+     * @param loadTestId the load test ID
+     * @return the emitter
+     */
+    public SseEmitter subscribe(UUID loadTestId) {
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeoutMs());
+        LoadTestRun run = runs.get(loadTestId);
+        if (run != null) {
+            run.subscribe(emitter);
+        } else {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Closes the current window of every running load test and evicts expired finished runs.
+     */
+    @Scheduled(fixedRateString = "${codebridge.load-test.live-window-ms:1000}")
+    public void closeWindows() {
+        long now = System.currentTimeMillis();
+        long retentionMs = TimeUnit.SECONDS.toMillis(properties.getLiveRetentionSeconds());
+
+        for (LoadTestRun run : runs.values()) {
+            if (!run.isFinished()) {
+                run.closeWindow(now);
+            } else if (now - run.getFinishedAtEpochMs() > retentionMs) {
+                runs.remove(run.getLoadTestId(), run);
+            }
+        }
+    }
+}
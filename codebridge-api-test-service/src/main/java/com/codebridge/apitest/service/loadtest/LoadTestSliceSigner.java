@@ -0,0 +1,181 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.dto.LoadTestSliceRequest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Signs the requests a coordinator sends to its workers with an HMAC keyed by the shared worker token.
+ * A slice names the user it runs for, so a worker only accepts slices signed by a coordinator,
+ * which took the user from the authenticated request that started the load test.
+ * Signed requests carry the time they were issued and an expiry, and a slice also carries the ID of the distributed
+ * run it belongs to: a worker refuses expired requests and accepts each slice of a run only once, so a captured
+ * request cannot be replayed to start the load again.
+ */
+public class LoadTestSliceSigner {
+
+    public static final String SIGNATURE_HEADER = "X-Load-Test-Signature";
+    public static final String EXPIRES_HEADER = "X-Load-Test-Expires";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /** How far the coordinator's clock may run ahead of the worker's */
+    private static final long MAX_CLOCK_SKEW_MS = 30_000;
+
+    private final SecretKeySpec key;
+    private final LongSupplier currentTimeMillis;
+    // Slices accepted by this worker, by run and slice index, until they expire
+    private final Map<String, Long> acceptedSlices = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a signer.
+     *
+     * @param workerToken the shared worker token, or empty if none is configured
+     */
+    public LoadTestSliceSigner(String workerToken) {
+        this(workerToken, System::currentTimeMillis);
+    }
+
+    LoadTestSliceSigner(String workerToken, LongSupplier currentTimeMillis) {
+        this.key = workerToken == null || workerToken.isEmpty()
+            ? null
+            : new SecretKeySpec(workerToken.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * Checks whether a worker token is configured, without which nothing can be signed or verified.
+     *
+     * @return true if requests can be signed
+     */
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * Signs a slice request, covering every field including the user ID, run ID and expiry.
+     *
+     * @param request the slice request
+     * @return the signature
+     */
+    public String sign(LoadTestSliceRequest request) {
+        return sign(payload(request));
+    }
+
+    /**
+     * Signs the cancellation of a slice.
+     *
+     * @param loadTestId the load test ID
+     * @param expiresAtEpochMs the time after which the cancellation is refused
+     * @return the signature
+     */
+    public String signCancel(UUID loadTestId, long expiresAtEpochMs) {
+        return sign("cancel\n" + loadTestId + "\n" + expiresAtEpochMs);
+    }
+
+    /**
+     * Verifies the signature of a slice request and that it has not expired.
+     *
+     * @param request the slice request
+     * @param signature the signature sent with it
+     * @return true if a coordinator sharing the worker token signed the request and it is still valid
+     */
+    public boolean verify(LoadTestSliceRequest request, String signature) {
+        return isEnabled()
+            && request.getRunId() != null
+            && isCurrent(request.getIssuedAtEpochMs(), request.getExpiresAtEpochMs())
+            && matches(sign(request), signature);
+    }
+
+    /**
+     * Verifies a slice request like {@link #verify} and accepts it if no slice with the same run ID and
+     * slice index was accepted before. Used by workers, which must run each slice at most once.
+     *
+     * @param request the slice request
+     * @param signature the signature sent with it
+     * @return true if the request is valid and was not accepted before
+     */
+    public boolean accept(LoadTestSliceRequest request, String signature) {
+        if (!verify(request, signature)) {
+            return false;
+        }
+        // Expired slices are refused by verify, so they need not be remembered
+        long now = currentTimeMillis.getAsLong();
+        acceptedSlices.values().removeIf(expiresAtEpochMs -> expiresAtEpochMs < now);
+        String slice = request.getRunId() + "/" + request.getSliceIndex();
+        return acceptedSlices.putIfAbsent(slice, request.getExpiresAtEpochMs()) == null;
+    }
+
+    /**
+     * Verifies the signature of a slice cancellation and that it has not expired.
+     *
+     * @param loadTestId the load test ID
+     * @param expiresAtEpochMs the expiry sent with it
+     * @param signature the signature sent with it
+     * @return true if a coordinator sharing the worker token signed the cancellation and it is still valid
+     */
+    public boolean verifyCancel(UUID loadTestId, long expiresAtEpochMs, String signature) {
+        return isEnabled()
+            && currentTimeMillis.getAsLong() <= expiresAtEpochMs
+            && matches(signCancel(loadTestId, expiresAtEpochMs), signature);
+    }
+
+    private boolean isCurrent(long issuedAtEpochMs, long expiresAtEpochMs) {
+        long now = currentTimeMillis.getAsLong();
+        return issuedAtEpochMs <= now + MAX_CLOCK_SKEW_MS && now <= expiresAtEpochMs;
+    }
+
+    private String sign(String payload) {
+        if (key == null) {
+            throw new IllegalStateException("No load test worker token is configured");
+        }
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign load test slice", e);
+        }
+    }
+
+    private static boolean matches(String expected, String signature) {
+        return signature != null && MessageDigest.isEqual(
+            expected.getBytes(StandardCharsets.UTF_8), signature.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String payload(LoadTestSliceRequest request) {
+        StringJoiner payload = new StringJoiner("\n");
+        payload.add("slice");
+        payload.add(String.valueOf(request.getRunId()));
+        payload.add(String.valueOf(request.getIssuedAtEpochMs()));
+        payload.add(String.valueOf(request.getExpiresAtEpochMs()));
+        payload.add(String.valueOf(request.getLoadTestId()));
+        payload.add(String.valueOf(request.getUserId()));
+        payload.add(String.valueOf(request.getTestId()));
+        payload.add(String.valueOf(request.getChainId()));
+        payload.add(String.valueOf(request.getEnvironmentId()));
+        payload.add(String.valueOf(request.getLoadModel()));
+        payload.add(String.valueOf(request.getLoadPattern()));
+        payload.add(String.valueOf(request.getVirtualUsers()));
+        payload.add(String.valueOf(request.getDurationSeconds()));
+        payload.add(String.valueOf(request.getRampUpSeconds()));
+        payload.add(String.valueOf(request.getThinkTimeMs()));
+        payload.add(String.valueOf(request.getTargetRps()));
+        payload.add(String.valueOf(request.getPeakRps()));
+        payload.add(String.valueOf(request.getSliceIndex()));
+        payload.add(String.valueOf(request.getSliceCount()));
+        payload.add(String.valueOf(request.getStartAtEpochMs()));
+        return payload.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.config.VirtualThreadProperties;
+import com.codebridge.apitest.service.PerformanceMetricsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects virtual threads that pin their carrier thread, e.g. by blocking inside a
+ * synchronized block or a JDBC driver call, using the JDK's flight recorder events.
+ * Pinned time is reported to {@link PerformanceMetricsService} per call site.
+ */
+@Component
+public class VirtualThreadPinningDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningDetector.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final VirtualThreadProperties properties;
+    private final PerformanceMetricsService metricsService;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningDetector(VirtualThreadProperties properties, PerformanceMetricsService metricsService) {
+        this.properties = properties;
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Starts listening for pinning events.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled() || !properties.isPinningDetectionEnabled()) {
+            return;
+        }
+        
+        try {
+            recordingStream = new RecordingStream();
+            recordingStream.enable(PINNED_EVENT)
+                    .withThreshold(Duration.ofMillis(properties.getPinningThresholdMs()))
+                    .withStackTrace();
+            recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+            recordingStream.startAsync();
+            logger.info("Virtual thread pinning detection started (threshold {} ms)", properties.getPinningThresholdMs());
+        } catch (Exception e) {
+            logger.warn("Virtual thread pinning detection is unavailable: {}", e.getMessage());
+            recordingStream = null;
+        }
+    }
+
+    /**
+     * Stops listening for pinning events.
+     */
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = describeSite(event.getStackTrace());
+        long durationMs = event.getDuration().toMillis();
+        metricsService.recordCarrierPinning(site, durationMs);
+        
+        // Log each call site once; repeat occurrences are only counted
+        if (reportedSites.add(site)) {
+            logger.warn("Virtual thread pinned its carrier for {} ms at {}", durationMs, site);
+        }
+    }
+
+    /**
+     * Describes the first application frame of a stack trace, skipping JDK frames.
+     *
+     * @param stackTrace the stack trace
+     * @return the call site
+     */
+    private String describeSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        
+        RecordedFrame top = stackTrace.getFrames().get(0);
+        return top.getMethod().getType().getName() + "." + top.getMethod().getName() + ":" + top.getLineNumber();
+    }
+}
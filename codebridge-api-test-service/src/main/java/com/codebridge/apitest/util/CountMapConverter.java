@@ -0,0 +1,44 @@
+package com.codebridge.apitest.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JPA converter that stores a map of counters as a JSON object.
+ */
+@Converter
+public class CountMapConverter implements AttributeConverter<Map<String, Long>, String> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<TreeMap<String, Long>> MAP_TYPE = new TypeReference<>() {};
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, Long> attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(attribute);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializing counts", e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> convertToEntityAttribute(String dbData) {
+        if (dbData == null || dbData.isEmpty()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(dbData, MAP_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error deserializing counts", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.codebridge.apitest.service;
+
+import com.codebridge.apitest.config.HttpClientProperties;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class HttpClientEngineTests {
+
+    @Mock private PerformanceMetricsService metricsService;
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private HttpClientEngine engine;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hello", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Location", "/greeting");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+                exchange.sendResponseHeaders(204, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        engine = new HttpClientEngine(new HttpClientProperties(), metricsService);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void execute_buffersTheResponseAndReusesTheConnection() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            HttpClientEngine.BufferedResponse response = engine.execute(new HttpGet(baseUrl + "/hello"), null);
+
+            assertEquals(200, response.statusCode());
+            assertEquals("hello", response.responseBody());
+            assertEquals("/greeting", response.responseHeaders().get("Location"));
+        }
+
+        // Each response is released to the pool before execute returns, so one kept-alive connection serves all
+        assertEquals(1, clientPorts.size());
+        Map<String, Object> stats = engine.getPoolStats();
+        assertEquals(0, stats.get("leased"));
+        assertEquals(1, stats.get("available"));
+    }
+
+    @Test
+    void execute_appliesThePerRequestTimeout() {
+        long start = System.nanoTime();
+
+        assertThrows(IOException.class, () -> engine.execute(new HttpGet(baseUrl + "/slow"), 200));
+
+        assertTrue(System.nanoTime() - start < 1_500_000_000L);
+        assertEquals(0, engine.getPoolStats().get("leased"));
+    }
+
+    @Test
+    void getPoolStats_reportsTheConfiguredLimits() throws IOException {
+        engine.execute(new HttpGet(baseUrl + "/hello"), null);
+
+        Map<String, Object> stats = engine.getPoolStats();
+
+        assertEquals(new HttpClientProperties().getMaxTotal(), stats.get("max"));
+        assertEquals(Map.of("localhost:" + server.getAddress().getPort(), 0), stats.get("leasedByRoute"));
+    }
+
+    @Test
+    void publishPoolStats_reportsToTheMetricsService() {
+        engine.publishPoolStats();
+
+        verify(metricsService).recordConnectionPoolStats(anyMap());
+    }
+}
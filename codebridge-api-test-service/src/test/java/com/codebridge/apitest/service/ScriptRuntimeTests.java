@@ -0,0 +1,90 @@
+package com.codebridge.apitest.service;
+
+import com.codebridge.apitest.config.ScriptProperties;
+import com.codebridge.apitest.exception.TestExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScriptRuntimeTests {
+
+    @Mock private PerformanceMetricsService metricsService;
+
+    private ScriptRuntime runtime;
+
+    @BeforeEach
+    void setUp() {
+        ScriptProperties properties = new ScriptProperties();
+        // A single context, so every evaluation would reuse it if the pool allowed
+        properties.setMaxActiveContexts(1);
+        properties.setMaxIdleContexts(1);
+        properties.setTimeoutMs(5000);
+        runtime = new ScriptRuntime(properties, metricsService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runtime.destroy();
+    }
+
+    @Test
+    void evaluate_doesNotShareGlobalsBetweenTests() {
+        UUID owner = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+
+        runtime.evaluate(owner, "leaked = 'secret'; true", Map.of());
+
+        assertEquals(true, runtime.evaluate(other, "typeof leaked === 'undefined'", Map.of()));
+    }
+
+    @Test
+    void evaluate_reusesTheContextOfTheSameTest() {
+        UUID owner = UUID.randomUUID();
+        String script = "counter = (typeof counter === 'undefined' ? 0 : counter) + 1; String(counter)";
+
+        assertEquals("1", runtime.evaluate(owner, script, Map.of()));
+        assertEquals("2", runtime.evaluate(owner, script, Map.of()));
+        assertEquals(1L, runtime.getStats().get("contextsCreated"));
+    }
+
+    @Test
+    void evaluate_removesBindingsAfterSuccess() {
+        UUID owner = UUID.randomUUID();
+
+        assertEquals("token-1", runtime.evaluate(owner, "token", Map.of("token", "token-1")));
+
+        assertEquals(true, runtime.evaluate(owner, "typeof token === 'undefined'", Map.of()));
+    }
+
+    @Test
+    void evaluate_discardsTheContextAfterAGuestException() {
+        UUID owner = UUID.randomUUID();
+
+        runtime.evaluate(owner, "kept = 'value'; true", Map.of());
+        assertThrows(TestExecutionException.class,
+                () -> runtime.evaluate(owner, "throw new Error('boom')", Map.of("token", "token-1")));
+
+        assertEquals(true, runtime.evaluate(owner,
+                "typeof token === 'undefined' && typeof kept === 'undefined'", Map.of()));
+        assertEquals(2L, runtime.getStats().get("contextsCreated"));
+    }
+
+    @Test
+    void evaluate_discardsTheContextAfterTheStatementLimit() {
+        UUID owner = UUID.randomUUID();
+
+        assertThrows(TestExecutionException.class,
+                () -> runtime.evaluate(owner, "secret = 1; while (true) {}", Map.of()));
+
+        assertEquals(true, runtime.evaluate(owner, "typeof secret === 'undefined'", Map.of()));
+    }
+}
@@ -0,0 +1,108 @@
+package com.codebridge.apitest.service;
+
+import com.codebridge.apitest.config.ResultWriterProperties;
+import com.codebridge.apitest.model.TestResult;
+import com.codebridge.apitest.model.TestStatus;
+import com.codebridge.apitest.model.enums.ResultPersistenceMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestResultWriterTests {
+
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PerformanceMetricsService metricsService;
+
+    private ResultWriterProperties properties;
+    private TestResultWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ResultWriterProperties();
+        properties.setBatchSize(10);
+        properties.setFlushIntervalMs(20);
+        properties.setBodySampleRate(0.0);
+        writer = new TestResultWriter(jdbcTemplate, properties, metricsService);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.destroy();
+    }
+
+    private TestResult result() {
+        TestResult result = new TestResult();
+        result.setId(UUID.randomUUID());
+        result.setTestId(UUID.randomUUID());
+        result.setStatus(TestStatus.SUCCESS);
+        result.setResponseStatusCode(200);
+        result.setResponseBody("{\"ok\":true}");
+        result.setResponseHeaders("{}");
+        result.setExecutionTimeMs(5L);
+        result.setCreatedAt(LocalDateTime.now());
+        return result;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_writesQueuedResultsInBatches() throws InterruptedException {
+        // Sizes are taken when each batch is written, not from the captured list afterwards
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(((Collection<TestResult>) invocation.getArgument(1)).size());
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        for (int i = 0; i < 25; i++) {
+            assertTrue(writer.submit(result(), ResultPersistenceMode.ASYNC));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (written(batchSizes) < 25 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(25, written(batchSizes));
+        assertTrue(batchSizes.size() >= 3);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+    }
+
+    private static int written(List<Integer> batchSizes) {
+        return batchSizes.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Test
+    void submit_sampledModeDropsBodiesOutsideTheSample() {
+        TestResult result = result();
+
+        writer.submit(result, ResultPersistenceMode.SAMPLED);
+
+        assertNull(result.getResponseBody());
+        assertNull(result.getResponseHeaders());
+        assertEquals(1L, writer.getStats().get("bodiesDropped"));
+    }
+
+    @Test
+    void submit_aggregatesOnlyModeSkipsPersistence() {
+        assertFalse(writer.submit(result(), ResultPersistenceMode.AGGREGATES_ONLY));
+
+        assertEquals(1L, writer.getStats().get("skipped"));
+        assertEquals(0L, writer.getStats().get("enqueued"));
+    }
+}
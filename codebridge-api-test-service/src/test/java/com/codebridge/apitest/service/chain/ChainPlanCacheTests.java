@@ -0,0 +1,95 @@
+package com.codebridge.apitest.service.chain;
+
+import com.codebridge.apitest.model.ApiTest;
+import com.codebridge.apitest.model.TestChain;
+import com.codebridge.apitest.repository.ApiTestRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChainPlanCacheTests {
+
+    @Mock private ApiTestRepository apiTestRepository;
+
+    private ChainPlanCache cache;
+    private UUID testId;
+    private TestChain chain;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ChainPlanCache(apiTestRepository, new ObjectMapper());
+        testId = UUID.randomUUID();
+        chain = new TestChain();
+        chain.setId(UUID.randomUUID());
+        chain.setTestSequence("[{\"testId\":\"" + testId + "\"}]");
+    }
+
+    private ApiTest test(String url) {
+        ApiTest test = new ApiTest();
+        test.setId(testId);
+        test.setUrl(url);
+        return test;
+    }
+
+    @Test
+    void getPlan_reusesThePlanOfTheSameChainVersion() {
+        when(apiTestRepository.findById(testId)).thenReturn(Optional.of(test("http://localhost/a")));
+
+        ChainPlan plan = cache.getPlan(chain);
+
+        assertSame(plan, cache.getPlan(chain));
+        verify(apiTestRepository, times(1)).findById(testId);
+    }
+
+    @Test
+    void getPlan_recompilesAfterAMemberTestIsInvalidated() {
+        when(apiTestRepository.findById(testId))
+                .thenReturn(Optional.of(test("http://localhost/a")), Optional.of(test("http://localhost/b")));
+        ChainPlan plan = cache.getPlan(chain);
+
+        cache.invalidateTest(testId);
+        ChainPlan recompiled = cache.getPlan(chain);
+
+        assertNotSame(plan, recompiled);
+        assertEquals("http://localhost/b", recompiled.getSteps().get(0).getTest().getUrl());
+    }
+
+    @Test
+    void getPlan_doesNotCacheAPlanInvalidatedWhileCompiling() {
+        // The test is updated and its invalidation committed after the compilation read the old row
+        when(apiTestRepository.findById(testId)).thenAnswer(invocation -> {
+            cache.invalidateTest(testId);
+            return Optional.of(test("http://localhost/a"));
+        }).thenReturn(Optional.of(test("http://localhost/b")));
+
+        ChainPlan stale = cache.getPlan(chain);
+        ChainPlan current = cache.getPlan(chain);
+
+        assertEquals("http://localhost/a", stale.getSteps().get(0).getTest().getUrl());
+        assertEquals("http://localhost/b", current.getSteps().get(0).getTest().getUrl());
+        assertSame(current, cache.getPlan(chain));
+    }
+
+    @Test
+    void getPlan_doesNotCacheAPlanWhoseChainWasInvalidatedWhileCompiling() {
+        when(apiTestRepository.findById(testId)).thenAnswer(invocation -> {
+            cache.invalidate(chain.getId());
+            return Optional.of(test("http://localhost/a"));
+        }).thenReturn(Optional.of(test("http://localhost/a")));
+
+        ChainPlan first = cache.getPlan(chain);
+
+        assertNotSame(first, cache.getPlan(chain));
+        verify(apiTestRepository, times(2)).findById(testId);
+    }
+}
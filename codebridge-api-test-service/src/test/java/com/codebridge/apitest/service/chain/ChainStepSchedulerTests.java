@@ -0,0 +1,107 @@
+package com.codebridge.apitest.service.chain;
+
+import com.codebridge.apitest.dto.TestResultResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainStepSchedulerTests {
+
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ChainPlan.Step step(boolean failFast, Integer... dependencies) {
+        ChainTemplate empty = ChainTemplate.compile(null, parser);
+        return new ChainPlan.Step(UUID.randomUUID(), null, empty, empty, empty, null, null, failFast,
+            List.of(), List.of(), List.of(dependencies));
+    }
+
+    private TestResultResponse result(String status, String body) {
+        TestResultResponse result = new TestResultResponse();
+        result.setStatus(status);
+        result.setResponseBody(body);
+        return result;
+    }
+
+    @Test
+    void run_executesIndependentStepsConcurrentlyAndKeepsSequenceOrder() {
+        List<ChainPlan.Step> steps = List.of(step(false), step(false), step(false));
+        ChainPlan plan = new ChainPlan(UUID.randomUUID(), "[]", steps);
+        CountDownLatch allStarted = new CountDownLatch(3);
+
+        List<TestResultResponse> results = new ChainStepScheduler(executor, 3).run(plan, new HashMap<>(), (step, context) -> {
+            allStarted.countDown();
+            try {
+                // Only completes if all three steps run at the same time
+                assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return result("SUCCESS", String.valueOf(steps.indexOf(step)));
+        });
+
+        assertEquals(List.of("0", "1", "2"), results.stream().map(TestResultResponse::getResponseBody).toList());
+    }
+
+    @Test
+    void run_passesVariablesToDependentSteps() {
+        List<ChainPlan.Step> steps = List.of(step(false), step(false, 0));
+        ChainPlan plan = new ChainPlan(UUID.randomUUID(), "[]", steps);
+        Map<String, Object> context = new HashMap<>();
+
+        List<TestResultResponse> results = new ChainStepScheduler(executor, 2).run(plan, context, (step, stepContext) -> {
+            if (steps.indexOf(step) == 0) {
+                stepContext.put("token", "abc");
+                return result("SUCCESS", "login");
+            }
+            return result("SUCCESS", "token=" + stepContext.get("token"));
+        });
+
+        assertEquals("token=abc", results.get(1).getResponseBody());
+        assertEquals("abc", context.get("token"));
+    }
+
+    @Test
+    void run_doesNotStartStepsAfterFailedFailFastStep() {
+        List<ChainPlan.Step> steps = List.of(step(true), step(false, 0), step(false, 0));
+        ChainPlan plan = new ChainPlan(UUID.randomUUID(), "[]", steps);
+        List<Integer> executed = new ArrayList<>();
+
+        List<TestResultResponse> results = new ChainStepScheduler(executor, 2).run(plan, new HashMap<>(), (step, context) -> {
+            synchronized (executed) {
+                executed.add(steps.indexOf(step));
+            }
+            return result("FAILURE", null);
+        });
+
+        assertEquals(1, results.size());
+        assertEquals(List.of(0), executed);
+    }
+
+    @Test
+    void run_rethrowsStepFailures() {
+        ChainPlan plan = new ChainPlan(UUID.randomUUID(), "[]", List.of(step(false), step(false)));
+
+        assertThrows(IllegalArgumentException.class, () -> new ChainStepScheduler(executor, 2).run(plan, new HashMap<>(),
+            (step, context) -> {
+                throw new IllegalArgumentException("boom");
+            }));
+    }
+}
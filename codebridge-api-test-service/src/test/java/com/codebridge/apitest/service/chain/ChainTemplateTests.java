@@ -0,0 +1,54 @@
+package com.codebridge.apitest.service.chain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainTemplateTests {
+
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+
+    @Test
+    void render_substitutesVariablesAndExpressions() {
+        ChainTemplate template = ChainTemplate.compile("/users/{{userId}}/orders?limit=${#limit * 2}", parser);
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("userId", "42");
+        context.put("limit", 5);
+
+        assertEquals("/users/42/orders?limit=10", template.render(context));
+    }
+
+    @Test
+    void render_readsNestedPropertiesFromJsonVariables() {
+        ChainTemplate template = ChainTemplate.compile("Bearer {{login.token}}", parser);
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("login", "{\"token\": \"abc\"}");
+
+        assertEquals("Bearer abc", template.render(context));
+    }
+
+    @Test
+    void render_leavesUnresolvedReferencesUnchanged() {
+        ChainTemplate template = ChainTemplate.compile("{{missing}}-${#missing.length()}", parser);
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("other", "value");
+
+        assertEquals("{{missing}}-${#missing.length()}", template.render(context));
+    }
+
+    @Test
+    void render_isReusableAcrossContexts() {
+        ChainTemplate template = ChainTemplate.compile("{{id}}", parser);
+
+        assertEquals("1", template.render(Map.of("id", 1)));
+        assertEquals("2", template.render(Map.of("id", 2)));
+        assertNull(ChainTemplate.compile(null, parser).render(Map.of("id", 1)));
+    }
+}
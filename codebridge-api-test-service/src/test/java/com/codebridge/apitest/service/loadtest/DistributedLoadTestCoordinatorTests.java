@@ -0,0 +1,285 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.config.LoadTestProperties;
+import com.codebridge.apitest.dto.LoadTestResult;
+import com.codebridge.apitest.dto.LoadTestSliceRequest;
+import com.codebridge.apitest.dto.TestResultResponse;
+import com.codebridge.apitest.model.LoadTest;
+import com.codebridge.apitest.model.enums.LoadModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DistributedLoadTestCoordinatorTests {
+
+    private static final String WORKER_TOKEN = "test-worker-token";
+
+    @Mock private DiscoveryClient discoveryClient;
+    @Mock private ObjectProvider<Registration> registration;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<HttpServer> workers = new ArrayList<>();
+    private LoadTestProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LoadTestProperties();
+        properties.setDistributedEnabled(true);
+        properties.setWorkerStartDelayMs(0);
+        properties.setWorkerToken(WORKER_TOKEN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.forEach(worker -> worker.stop(0));
+    }
+
+    private DistributedLoadTestCoordinator coordinator() {
+        return new DistributedLoadTestCoordinator(properties, discoveryClient, new RestTemplateBuilder(),
+            registration, new MockEnvironment());
+    }
+
+    private LoadTest loadTest(int virtualUsers, int workerCount) {
+        LoadTest loadTest = new LoadTest();
+        loadTest.setId(UUID.randomUUID());
+        loadTest.setTestId(UUID.randomUUID());
+        loadTest.setLoadModel(LoadModel.CLOSED);
+        loadTest.setVirtualUsers(virtualUsers);
+        loadTest.setDurationSeconds(1);
+        loadTest.setWorkerCount(workerCount);
+        return loadTest;
+    }
+
+    private TestResultResponse result(long executionTimeMs) {
+        TestResultResponse result = new TestResultResponse();
+        result.setStatus("SUCCESS");
+        result.setResponseStatusCode(200);
+        result.setExecutionTimeMs(executionTimeMs);
+        return result;
+    }
+
+    /**
+     * Starts a worker that accepts slices signed with the given token and answers each
+     * with latencies from {@code from} to {@code to} milliseconds.
+     */
+    private ServiceInstance startWorker(String token, List<LoadTestSliceRequest> received, int from, int to)
+            throws IOException {
+        LoadTestSliceSigner signer = new LoadTestSliceSigner(token);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(DistributedLoadTestCoordinator.SLICES_PATH, exchange -> {
+            LoadTestSliceRequest slice = objectMapper.readValue(exchange.getRequestBody(), LoadTestSliceRequest.class);
+            if (!signer.accept(slice, exchange.getRequestHeaders().getFirst(LoadTestSliceSigner.SIGNATURE_HEADER))) {
+                respond(exchange, 403, new byte[0]);
+                return;
+            }
+            received.add(slice);
+            LoadTestMetricsAggregator aggregator = new LoadTestMetricsAggregator();
+            for (int i = from; i <= to; i++) {
+                aggregator.record(result(i));
+            }
+            respond(exchange, 200, objectMapper.writeValueAsBytes(
+                aggregator.toSliceResult(slice.getSliceIndex(), 1000, 2, 7)));
+        });
+        server.start();
+        workers.add(server);
+        return new DefaultServiceInstance("worker-" + workers.size(), properties.getWorkerServiceId(),
+            "localhost", server.getAddress().getPort(), false);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void forSlice_splitsVirtualUsersAndRatesEvenly() {
+        LoadTest loadTest = loadTest(10, 3);
+        loadTest.setTargetRps(300.0);
+        UUID userId = UUID.randomUUID();
+
+        int virtualUsers = 0;
+        for (int i = 0; i < 3; i++) {
+            LoadTestSliceRequest slice = LoadTestSliceRequest.forSlice(loadTest, userId, i, 3, 0);
+            virtualUsers += slice.getVirtualUsers();
+            assertEquals(100.0, slice.getTargetRps(), 0.001);
+            assertEquals(userId, slice.toLoadTest().getUserId());
+        }
+
+        assertEquals(10, virtualUsers);
+        assertEquals(4, LoadTestSliceRequest.forSlice(loadTest, userId, 0, 3, 0).getVirtualUsers());
+        assertEquals(3, LoadTestSliceRequest.forSlice(loadTest, userId, 2, 3, 0).getVirtualUsers());
+    }
+
+    @Test
+    void execute_mergesWorkerSlicesIntoTheResult() throws IOException {
+        UUID userId = UUID.randomUUID();
+        List<LoadTestSliceRequest> received = new CopyOnWriteArrayList<>();
+        ServiceInstance worker = startWorker(WORKER_TOKEN, received, 501, 1000);
+        when(discoveryClient.getInstances(properties.getWorkerServiceId())).thenReturn(List.of(worker));
+        LoadTest loadTest = loadTest(4, 2);
+        LoadTestRun run = new LoadTestRun(loadTest.getId(), 10);
+
+        LoadTestResult result = coordinator().execute(loadTest, userId, run, slice -> {
+            assertEquals(2, slice.getVirtualUsers());
+            for (int i = 1; i <= 500; i++) {
+                run.getAggregator().record(result(i));
+            }
+            return run.getAggregator().toResult(1000, 1, 3, null);
+        });
+
+        assertEquals(1, received.size());
+        assertEquals(userId, received.get(0).getUserId());
+        assertEquals(1, received.get(0).getSliceIndex());
+        assertEquals(2, received.get(0).getVirtualUsers());
+        assertNotNull(received.get(0).getRunId());
+        assertEquals(properties.getWorkerSignatureValidityMs(),
+            received.get(0).getExpiresAtEpochMs() - received.get(0).getIssuedAtEpochMs());
+        assertEquals(1000, result.getTotalRequests());
+        assertEquals(1, result.getMinResponseTimeMs());
+        assertEquals(1000, result.getMaxResponseTimeMs());
+        assertEquals(500, result.getPercentile50Ms());
+        assertEquals(3, result.getDroppedRequests());
+        assertEquals(7, result.getMaxScheduleLagMs());
+        assertTrue(result.getSummary().contains("Failed Workers: 0"));
+    }
+
+    @Test
+    void execute_countsWorkerRejectingTheSignatureAsFailed() throws IOException {
+        List<LoadTestSliceRequest> received = new CopyOnWriteArrayList<>();
+        ServiceInstance worker = startWorker("another-token", received, 501, 1000);
+        when(discoveryClient.getInstances(properties.getWorkerServiceId())).thenReturn(List.of(worker));
+        LoadTest loadTest = loadTest(4, 2);
+        LoadTestRun run = new LoadTestRun(loadTest.getId(), 10);
+
+        LoadTestResult result = coordinator().execute(loadTest, UUID.randomUUID(), run, slice -> {
+            for (int i = 1; i <= 500; i++) {
+                run.getAggregator().record(result(i));
+            }
+            return run.getAggregator().toResult(1000, 0, 0, null);
+        });
+
+        assertTrue(received.isEmpty());
+        assertEquals(500, result.getTotalRequests());
+        assertTrue(result.getSummary().contains("Failed Workers: 1"));
+    }
+
+    @Test
+    void isDistributed_requiresWorkerToken() {
+        LoadTest loadTest = loadTest(4, 2);
+        assertTrue(coordinator().isDistributed(loadTest));
+
+        properties.setWorkerToken("");
+        assertFalse(coordinator().isDistributed(loadTest));
+    }
+
+    private LoadTestSliceRequest signedSlice(UUID runId, int sliceIndex, long issuedAtEpochMs) {
+        LoadTestSliceRequest slice = LoadTestSliceRequest.forSlice(loadTest(4, 2), UUID.randomUUID(), sliceIndex, 2, 0);
+        slice.setRunId(runId);
+        slice.setIssuedAtEpochMs(issuedAtEpochMs);
+        slice.setExpiresAtEpochMs(issuedAtEpochMs + 30_000);
+        return slice;
+    }
+
+    @Test
+    void signer_rejectsTamperedUser() {
+        LoadTestSliceSigner signer = new LoadTestSliceSigner(WORKER_TOKEN);
+        LoadTestSliceRequest slice = signedSlice(UUID.randomUUID(), 1, System.currentTimeMillis());
+        String signature = signer.sign(slice);
+        assertTrue(signer.verify(slice, signature));
+
+        slice.setUserId(UUID.randomUUID());
+        assertFalse(signer.verify(slice, signature));
+        assertFalse(new LoadTestSliceSigner("").verify(slice, signature));
+        verifyNoInteractions(discoveryClient);
+    }
+
+    @Test
+    void signer_rejectsExpiredAndExtendedSlices() {
+        long[] now = {1_000_000};
+        LoadTestSliceSigner signer = new LoadTestSliceSigner(WORKER_TOKEN, () -> now[0]);
+        LoadTestSliceRequest slice = signedSlice(UUID.randomUUID(), 1, now[0]);
+        String signature = signer.sign(slice);
+
+        now[0] += 30_000;
+        assertTrue(signer.verify(slice, signature));
+        now[0]++;
+        assertFalse(signer.verify(slice, signature));
+
+        // The expiry is signed, so it cannot be pushed back
+        slice.setExpiresAtEpochMs(now[0] + 30_000);
+        assertFalse(signer.verify(slice, signature));
+    }
+
+    @Test
+    void signer_rejectsSlicesIssuedTooFarInTheFuture() {
+        long now = 1_000_000;
+        LoadTestSliceSigner signer = new LoadTestSliceSigner(WORKER_TOKEN, () -> now);
+
+        LoadTestSliceRequest skewed = signedSlice(UUID.randomUUID(), 1, now + 10_000);
+        assertTrue(signer.verify(skewed, signer.sign(skewed)));
+        LoadTestSliceRequest early = signedSlice(UUID.randomUUID(), 1, now + 60_000);
+        assertFalse(signer.verify(early, signer.sign(early)));
+    }
+
+    @Test
+    void signer_acceptsEachSliceOfARunOnce() {
+        long[] now = {1_000_000};
+        LoadTestSliceSigner signer = new LoadTestSliceSigner(WORKER_TOKEN, () -> now[0]);
+        UUID runId = UUID.randomUUID();
+        LoadTestSliceRequest first = signedSlice(runId, 1, now[0]);
+        LoadTestSliceRequest second = signedSlice(runId, 2, now[0]);
+        LoadTestSliceRequest unsigned = signedSlice(UUID.randomUUID(), 1, now[0]);
+
+        assertTrue(signer.accept(first, signer.sign(first)));
+        assertFalse(signer.accept(first, signer.sign(first)));
+        assertTrue(signer.accept(second, signer.sign(second)));
+        assertFalse(signer.accept(unsigned, "forged"));
+
+        // A replay after the expiry is refused as expired rather than remembered forever
+        now[0] += 30_001;
+        assertFalse(signer.accept(first, signer.sign(first)));
+    }
+
+    @Test
+    void signer_rejectsExpiredCancellation() {
+        long[] now = {1_000_000};
+        LoadTestSliceSigner signer = new LoadTestSliceSigner(WORKER_TOKEN, () -> now[0]);
+        UUID loadTestId = UUID.randomUUID();
+        long expiresAtEpochMs = now[0] + 30_000;
+        String signature = signer.signCancel(loadTestId, expiresAtEpochMs);
+
+        assertTrue(signer.verifyCancel(loadTestId, expiresAtEpochMs, signature));
+        assertFalse(signer.verifyCancel(loadTestId, expiresAtEpochMs + 1, signature));
+        assertFalse(signer.verifyCancel(UUID.randomUUID(), expiresAtEpochMs, signature));
+        now[0] = expiresAtEpochMs + 1;
+        assertFalse(signer.verifyCancel(loadTestId, expiresAtEpochMs, signature));
+    }
+}
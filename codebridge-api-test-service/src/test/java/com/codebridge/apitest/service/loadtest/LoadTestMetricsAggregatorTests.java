@@ -0,0 +1,148 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.dto.LoadTestResult;
+import com.codebridge.apitest.dto.LoadTestSliceResult;
+import com.codebridge.apitest.dto.TestResultResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestMetricsAggregatorTests {
+
+    private TestResultResponse result(String status, Integer statusCode, long executionTimeMs, String error) {
+        TestResultResponse result = new TestResultResponse();
+        result.setStatus(status);
+        result.setResponseStatusCode(statusCode);
+        result.setExecutionTimeMs(executionTimeMs);
+        result.setErrorMessage(error);
+        return result;
+    }
+
+    /**
+     * Asserts a percentile within the relative error of a histogram with three significant digits.
+     */
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.001, "percentile");
+    }
+
+    @Test
+    void toResult_computesPercentilesWithoutRetainingResults() {
+        LoadTestMetricsAggregator aggregator = new LoadTestMetricsAggregator();
+        for (int i = 1; i <= 1000; i++) {
+            aggregator.record(result("SUCCESS", 200, i, null));
+        }
+
+        LoadTestResult result = aggregator.toResult(10_000, 0, 0, null);
+
+        assertEquals(1000, result.getTotalRequests());
+        assertEquals(1000, result.getSuccessfulRequests());
+        assertEquals(1, result.getMinResponseTimeMs());
+        assertEquals(1000, result.getMaxResponseTimeMs());
+        assertWithinPrecision(500, result.getPercentile50Ms());
+        assertWithinPrecision(990, result.getPercentile99Ms());
+        assertWithinPrecision(999, result.getPercentile999Ms());
+        assertEquals(500.5, result.getAverageResponseTimeMs(), 0.001);
+        assertEquals(100.0, result.getRequestsPerSecond(), 0.001);
+    }
+
+    @Test
+    void record_countsStatusCodesAndErrors() {
+        LoadTestMetricsAggregator aggregator = new LoadTestMetricsAggregator();
+        aggregator.record(result("SUCCESS", 200, 10, null));
+        aggregator.record(result("FAILURE", 500, 20, "Response validation failed"));
+        aggregator.record(result("FAILURE", 500, 30, "Response validation failed"));
+        aggregator.recordError(new IllegalStateException("boom"));
+
+        LoadTestResult result = aggregator.toResult(1000, 2, 5, "extra");
+
+        assertEquals(4, result.getTotalRequests());
+        assertEquals(3, result.getFailedRequests());
+        assertEquals(75.0, result.getErrorRate(), 0.001);
+        assertEquals(1L, result.getStatusCodeCounts().get("200"));
+        assertEquals(2L, result.getStatusCodeCounts().get("500"));
+        assertEquals(2L, result.getErrorCounts().get("Response validation failed"));
+        assertEquals(1L, result.getErrorCounts().get("boom"));
+        assertEquals(2, result.getDroppedRequests());
+        assertTrue(result.getSummary().endsWith(", extra"));
+    }
+
+    @Test
+    void record_isSafeFromConcurrentThreads() throws InterruptedException {
+        LoadTestMetricsAggregator aggregator = new LoadTestMetricsAggregator();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    aggregator.record(result("SUCCESS", 200, i % 100, null));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(80_000, aggregator.getLatencyHistogram().getTotalCount());
+        assertEquals(80_000, aggregator.getSuccessfulRequests());
+    }
+
+    @Test
+    void closeWindow_countsEveryResultRecordedConcurrently() throws InterruptedException {
+        LoadTestMetricsAggregator aggregator = new LoadTestMetricsAggregator();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    aggregator.record(result("SUCCESS", 200, i % 100, null));
+                }
+            });
+        }
+        executor.shutdown();
+
+        long windowed = 0;
+        long windowStart = 0;
+        while (!executor.isTerminated()) {
+            windowed += aggregator.closeWindow(windowStart, windowStart + 10, 0).getTotalRequests();
+            windowStart += 10;
+        }
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        windowed += aggregator.closeWindow(windowStart, windowStart + 10, 0).getTotalRequests();
+
+        assertEquals(80_000, windowed);
+    }
+
+    @Test
+    void toResult_withNoResults_reportsDroppedRequests() {
+        LoadTestResult result = new LoadTestMetricsAggregator().toResult(1000, 7, 3, null);
+
+        assertEquals(0, result.getTotalRequests());
+        assertEquals(7, result.getDroppedRequests());
+    }
+
+    @Test
+    void merge_combinesSliceResultsFromOtherNodes() {
+        LoadTestMetricsAggregator worker = new LoadTestMetricsAggregator();
+        for (int i = 501; i <= 1000; i++) {
+            worker.record(result("SUCCESS", 200, i, null));
+        }
+        worker.record(result("FAILURE", 503, 5, "Service unavailable"));
+        LoadTestSliceResult slice = worker.toSliceResult(1, 10_000, 3, 12);
+
+        LoadTestMetricsAggregator coordinator = new LoadTestMetricsAggregator();
+        for (int i = 1; i <= 500; i++) {
+            coordinator.record(result("SUCCESS", 200, i, null));
+        }
+        coordinator.merge(slice);
+
+        LoadTestResult result = coordinator.toResult(10_000, 3, 12, null);
+        assertEquals(1001, result.getTotalRequests());
+        assertEquals(1, result.getFailedRequests());
+        assertEquals(1000, result.getMaxResponseTimeMs());
+        assertEquals(500, result.getPercentile50Ms());
+        assertEquals(1000L, result.getStatusCodeCounts().get("200"));
+        assertEquals(1L, result.getStatusCodeCounts().get("503"));
+        assertEquals(1L, result.getErrorCounts().get("Service unavailable"));
+    }
+}
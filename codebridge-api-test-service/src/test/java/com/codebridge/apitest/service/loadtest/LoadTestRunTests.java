@@ -0,0 +1,92 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.dto.LoadTestWindow;
+import com.codebridge.apitest.dto.TestResultResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestRunTests {
+
+    private TestResultResponse result(String status, long executionTimeMs) {
+        TestResultResponse result = new TestResultResponse();
+        result.setStatus(status);
+        result.setResponseStatusCode(200);
+        result.setExecutionTimeMs(executionTimeMs);
+        return result;
+    }
+
+    @Test
+    void closeWindow_publishesOnlyResultsRecordedSinceLastWindow() {
+        LoadTestRun run = new LoadTestRun(UUID.randomUUID(), 10);
+        long start = System.currentTimeMillis();
+
+        run.getAggregator().record(result("SUCCESS", 10));
+        run.getAggregator().record(result("FAILURE", 20));
+        run.closeWindow(start + 1000);
+        run.getAggregator().record(result("SUCCESS", 30));
+        run.closeWindow(start + 2000);
+
+        List<LoadTestWindow> windows = run.getWindows(0);
+        assertEquals(2, windows.size());
+        assertEquals(2, windows.get(0).getTotalRequests());
+        assertEquals(50.0, windows.get(0).getErrorRate(), 0.001);
+        assertEquals(1, windows.get(1).getTotalRequests());
+        assertEquals(30, windows.get(1).getMaxResponseTimeMs());
+        assertEquals(1.0, windows.get(1).getRequestsPerSecond(), 0.001);
+
+        assertEquals(1, run.getWindows(start + 1000).size());
+        assertEquals(3, run.getAggregator().toResult(2000, 0, 0, null).getTotalRequests());
+    }
+
+    @Test
+    void closeWindow_retainsAtMostMaxWindows() {
+        LoadTestRun run = new LoadTestRun(UUID.randomUUID(), 3);
+        long start = System.currentTimeMillis();
+        for (int i = 1; i <= 5; i++) {
+            run.closeWindow(start + i * 1000L);
+        }
+
+        List<LoadTestWindow> windows = run.getWindows(0);
+        // The five windows end at +1000 to +5000; the oldest two are dropped
+        assertEquals(3, windows.size());
+        assertEquals(start + 2000, windows.get(0).getWindowStartEpochMs());
+        assertEquals(start + 5000, windows.get(2).getWindowEndEpochMs());
+    }
+
+    @Test
+    void cancel_runsHooksAndWakesWaiters() throws InterruptedException {
+        LoadTestRun run = new LoadTestRun(UUID.randomUUID(), 10);
+        AtomicInteger hookCalls = new AtomicInteger();
+        run.onCancel(hookCalls::incrementAndGet);
+
+        assertFalse(run.awaitCancellation(1));
+
+        run.cancel();
+        run.cancel();
+
+        assertTrue(run.isCancelled());
+        assertTrue(run.awaitCancellation(60_000));
+        assertEquals(1, hookCalls.get());
+
+        // Hooks registered after cancellation run immediately
+        run.onCancel(hookCalls::incrementAndGet);
+        assertEquals(2, hookCalls.get());
+    }
+
+    @Test
+    void finish_stopsFurtherWindows() {
+        LoadTestRun run = new LoadTestRun(UUID.randomUUID(), 10);
+        run.finish();
+        int windowCount = run.getWindows(0).size();
+
+        run.closeWindow(System.currentTimeMillis() + 1000);
+
+        assertTrue(run.isFinished());
+        assertEquals(windowCount, run.getWindows(0).size());
+    }
+}
@@ -0,0 +1,144 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.model.enums.LoadPattern;
+import com.codebridge.common.loadtest.OpenModelLoadGenerator;
+import com.codebridge.common.loadtest.OpenModelLoadGenerator.ArrivalSchedule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenModelLoadGeneratorTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<Long> arrivals(ArrivalRateProfile profile) {
+        ArrivalSchedule schedule = profile.arrivals();
+        List<Long> arrivals = new ArrayList<>();
+        for (long offset = schedule.nextArrivalNanos(); offset >= 0; offset = schedule.nextArrivalNanos()) {
+            arrivals.add(offset);
+        }
+        return arrivals;
+    }
+
+    @Test
+    void rateAt_followsTheLoadPattern() {
+        ArrivalRateProfile rampUp = new ArrivalRateProfile(LoadPattern.RAMP_UP, 100, 300, 10 * SECOND, 20 * SECOND);
+        assertEquals(50, rampUp.rateAt(5 * SECOND), 0.001);
+        assertEquals(100, rampUp.rateAt(15 * SECOND), 0.001);
+
+        ArrivalRateProfile step = new ArrivalRateProfile(LoadPattern.STEP, 100, 300, 8 * SECOND, 20 * SECOND);
+        assertEquals(25, step.rateAt(SECOND), 0.001);
+        assertEquals(75, step.rateAt(5 * SECOND), 0.001);
+        assertEquals(100, step.rateAt(15 * SECOND), 0.001);
+
+        ArrivalRateProfile spike = new ArrivalRateProfile(LoadPattern.SPIKE, 100, 300, 0, 20 * SECOND);
+        assertEquals(100, spike.rateAt(5 * SECOND), 0.001);
+        assertEquals(300, spike.rateAt(10 * SECOND), 0.001);
+        assertEquals(100, spike.rateAt(12 * SECOND), 0.001);
+    }
+
+    @Test
+    void arrivals_spaceRequestsAtTheTargetRate() {
+        List<Long> arrivals = arrivals(new ArrivalRateProfile(LoadPattern.CONSTANT, 200, 0, 0, 2 * SECOND));
+
+        // One arrival every 5 ms, the last before the end of the test
+        assertEquals(399, arrivals.size());
+        assertEquals(5_000_000L, arrivals.get(0));
+        assertEquals(5_000_000L, arrivals.get(1) - arrivals.get(0));
+        assertTrue(arrivals.get(arrivals.size() - 1) < 2 * SECOND);
+    }
+
+    @Test
+    void arrivals_accumulateFractionalArrivalsAtLowRates() {
+        List<Long> arrivals = arrivals(new ArrivalRateProfile(LoadPattern.CONSTANT, 5, 0, 0, 10 * SECOND));
+
+        assertEquals(50, arrivals.size(), 1);
+        for (int i = 1; i < arrivals.size(); i++) {
+            assertEquals(200_000_000L, arrivals.get(i) - arrivals.get(i - 1), 10_000_000L);
+        }
+    }
+
+    @Test
+    void run_startsEveryArrivalWithoutWaitingForEarlierRequests() throws InterruptedException {
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(executor, 100);
+        AtomicInteger started = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // Each request takes ten times the arrival interval, so a closed loop would fall far behind
+        boolean drained = generator.run(
+                new ArrivalRateProfile(LoadPattern.CONSTANT, 100, 0, 0, SECOND / 2).arrivals(),
+                (offsetNanos, intendedStartNanos, actualStartNanos) -> {
+                    started.incrementAndGet();
+                    Thread.sleep(100);
+                },
+                Duration.ofSeconds(5));
+
+        assertTrue(drained);
+        assertEquals(49, started.get());
+        assertEquals(49, generator.getDispatchedCount());
+        assertEquals(0, generator.getDroppedCount());
+        assertTrue(System.nanoTime() - start < SECOND);
+    }
+
+    @Test
+    void run_dropsArrivalsBeyondTheInFlightLimit() throws InterruptedException {
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(executor, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger dropped = new AtomicInteger();
+
+        boolean drained = generator.run(
+                new ArrivalRateProfile(LoadPattern.CONSTANT, 100, 0, 0, SECOND / 10).arrivals(),
+                new OpenModelLoadGenerator.ScheduledRequest() {
+                    @Override
+                    public void execute(long offsetNanos, long intendedStartNanos, long actualStartNanos)
+                            throws InterruptedException {
+                        release.await();
+                    }
+
+                    @Override
+                    public void dropped(long offsetNanos) {
+                        dropped.incrementAndGet();
+                    }
+                },
+                Duration.ofMillis(50));
+
+        assertFalse(drained);
+        assertEquals(2, generator.getDispatchedCount());
+        assertEquals(7, generator.getDroppedCount());
+        assertEquals(7, dropped.get());
+        release.countDown();
+    }
+
+    @Test
+    void stop_endsTheSchedule() throws InterruptedException {
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(executor, 10);
+        AtomicInteger started = new AtomicInteger();
+
+        generator.run(new ArrivalRateProfile(LoadPattern.CONSTANT, 100, 0, 0, 10 * SECOND).arrivals(),
+                (offsetNanos, intendedStartNanos, actualStartNanos) -> {
+                    if (started.incrementAndGet() == 5) {
+                        generator.stop();
+                    }
+                },
+                Duration.ofSeconds(1));
+
+        assertTrue(generator.getDispatchedCount() < 10);
+    }
+}
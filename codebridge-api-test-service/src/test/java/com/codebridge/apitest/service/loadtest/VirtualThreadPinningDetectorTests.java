@@ -0,0 +1,66 @@
+package com.codebridge.apitest.service.loadtest;
+
+import com.codebridge.apitest.config.VirtualThreadProperties;
+import com.codebridge.apitest.service.PerformanceMetricsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VirtualThreadPinningDetectorTests {
+
+    @Mock private PerformanceMetricsService metricsService;
+
+    private final Object monitor = new Object();
+    private VirtualThreadPinningDetector detector;
+
+    @AfterEach
+    void tearDown() {
+        if (detector != null) {
+            detector.stop();
+        }
+    }
+
+    private void sleepWhileHoldingMonitor() {
+        synchronized (monitor) {
+            try {
+                // Blocking inside synchronized pins the virtual thread to its carrier
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    void start_reportsPinningAtTheApplicationCallSite() throws InterruptedException {
+        VirtualThreadProperties properties = new VirtualThreadProperties();
+        properties.setPinningThresholdMs(20);
+        detector = new VirtualThreadPinningDetector(properties, metricsService);
+        detector.start();
+
+        Thread.ofVirtual().start(this::sleepWhileHoldingMonitor).join();
+
+        verify(metricsService, timeout(10_000)).recordCarrierPinning(
+                startsWith(VirtualThreadPinningDetectorTests.class.getName() + ".sleepWhileHoldingMonitor:"), anyLong());
+    }
+
+    @Test
+    void start_doesNothingWhenDisabled() throws InterruptedException {
+        VirtualThreadProperties properties = new VirtualThreadProperties();
+        properties.setPinningDetectionEnabled(false);
+        detector = new VirtualThreadPinningDetector(properties, metricsService);
+        detector.start();
+
+        Thread.ofVirtual().start(this::sleepWhileHoldingMonitor).join();
+
+        verify(metricsService, after(1500).never()).recordCarrierPinning(anyString(), anyLong());
+    }
+}
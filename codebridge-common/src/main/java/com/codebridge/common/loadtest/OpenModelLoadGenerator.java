@@ -0,0 +1,188 @@
+package com.codebridge.common.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator that starts requests at the times given by an arrival schedule.
+ * Requests are dispatched at their intended start time regardless of how long earlier requests take,
+ * and the lag between intended and actual start is recorded so latencies are not understated.
+ * Arrivals that would exceed the in-flight limit are dropped instead of delaying the schedule.
+ */
+public class OpenModelLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenModelLoadGenerator.class);
+
+    private final Executor executor;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder totalStartLagNanos = new LongAdder();
+    private final AtomicLong maxStartLagNanos = new AtomicLong();
+    private volatile boolean stopped;
+
+    /**
+     * Creates a generator.
+     *
+     * @param executor the executor running the requests, one task per request
+     * @param maxInFlight the maximum number of requests running at a time
+     */
+    public OpenModelLoadGenerator(Executor executor, int maxInFlight) {
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Runs the schedule to completion on the calling thread, then waits for in-flight requests to drain.
+     *
+     * @param schedule the arrival schedule
+     * @param request the request to start at each arrival
+     * @param drainTimeout how long to wait for in-flight requests after the schedule ends
+     * @return true if every request completed, false if some were still in flight after the drain timeout
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public boolean run(ArrivalSchedule schedule, ScheduledRequest request, Duration drainTimeout)
+            throws InterruptedException {
+        long startNanos = System.nanoTime();
+
+        while (!stopped) {
+            long offsetNanos = schedule.nextArrivalNanos();
+            if (offsetNanos < 0) {
+                break;
+            }
+            long intendedStartNanos = startNanos + offsetNanos;
+            awaitIntendedStart(intendedStartNanos);
+            dispatch(request, offsetNanos, intendedStartNanos);
+        }
+
+        // Wait for in-flight requests to complete
+        if (inFlight.tryAcquire(maxInFlight, drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            inFlight.release(maxInFlight);
+            return true;
+        }
+        logger.warn("Timed out waiting for {} in-flight requests to complete", maxInFlight - inFlight.availablePermits());
+        return false;
+    }
+
+    /**
+     * Stops scheduling new requests. Requests already in flight are allowed to finish.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private void awaitIntendedStart(long intendedStartNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = intendedStartNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private void dispatch(ScheduledRequest request, long offsetNanos, long intendedStartNanos) {
+        if (!inFlight.tryAcquire()) {
+            // All request slots are busy; count the arrival as dropped instead of delaying the schedule
+            dropped.increment();
+            request.dropped(offsetNanos);
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                long actualStartNanos = System.nanoTime();
+                recordStartLag(actualStartNanos - intendedStartNanos);
+                try {
+                    request.execute(offsetNanos, intendedStartNanos, actualStartNanos);
+                } catch (Exception e) {
+                    logger.debug("Scheduled request failed: {}", e.getMessage());
+                } finally {
+                    inFlight.release();
+                }
+            });
+            dispatched.increment();
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            dropped.increment();
+            request.dropped(offsetNanos);
+        }
+    }
+
+    private void recordStartLag(long lagNanos) {
+        totalStartLagNanos.add(lagNanos);
+        long currentMax = maxStartLagNanos.get();
+        while (lagNanos > currentMax && !maxStartLagNanos.compareAndSet(currentMax, lagNanos)) {
+            currentMax = maxStartLagNanos.get();
+        }
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public double getAverageStartLagMs() {
+        long count = dispatched.sum();
+        return count > 0 ? totalStartLagNanos.sum() / (double) count / 1_000_000.0 : 0;
+    }
+
+    public long getMaxStartLagMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxStartLagNanos.get());
+    }
+
+    /**
+     * The times at which a generator starts requests. A schedule is read once, by a single thread.
+     */
+    @FunctionalInterface
+    public interface ArrivalSchedule {
+
+        /**
+         * Gets the start time of the next request.
+         *
+         * @return the offset from the start of the run in nanoseconds, not before the previous one,
+         *         or a negative value when the schedule has ended
+         */
+        long nextArrivalNanos();
+    }
+
+    /**
+     * A request started by the generator.
+     */
+    @FunctionalInterface
+    public interface ScheduledRequest {
+
+        /**
+         * Executes the request.
+         *
+         * @param offsetNanos the scheduled offset of the request from the start of the run
+         * @param intendedStartNanos the {@link System#nanoTime()} at which the request was scheduled to start
+         * @param actualStartNanos the {@link System#nanoTime()} at which the request actually started
+         * @throws Exception if the request fails
+         */
+        void execute(long offsetNanos, long intendedStartNanos, long actualStartNanos) throws Exception;
+
+        /**
+         * Called on the scheduling thread for an arrival that was dropped because too many requests were in flight.
+         *
+         * @param offsetNanos the scheduled offset of the request from the start of the run
+         */
+        default void dropped(long offsetNanos) {
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.codebridge.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Values are recorded with a bounded relative error determined by the number of significant
+ * digits, so arbitrary percentiles can be read without retaining individual samples.
+ * Recording is lock-free and safe from any thread; histograms with the same configuration
+ * can be merged with {@link #add(LatencyHistogram)}, or across nodes through {@link #snapshot()}.
+ */
+public class LatencyHistogram {
+
+    private final long highestTrackableValue;
+    private final int significantDigits;
+
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final int subBucketCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Creates a new histogram.
+     *
+     * @param highestTrackableValue The highest value to track; larger values are clamped to it
+     * @param significantDigits The number of significant decimal digits to preserve (1-5)
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("highestTrackableValue must be at least 2");
+        }
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("significantDigits must be between 1 and 5");
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantDigits = significantDigits;
+
+        long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = (int) Math.ceil(Math.log(largestValueWithSingleUnitResolution) / Math.log(2));
+        this.subBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+        this.subBucketCount = 1 << (subBucketHalfCountMagnitude + 1);
+        this.subBucketHalfCount = subBucketCount / 2;
+        this.subBucketMask = (long) subBucketCount - 1;
+        this.leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+        int bucketCount = bucketsNeeded(highestTrackableValue);
+        this.counts = new AtomicLongArray((bucketCount + 1) * subBucketHalfCount);
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value The value to record; negative values are recorded as zero
+     */
+    public void recordValue(long value) {
+        long clamped = Math.max(0, Math.min(value, highestTrackableValue));
+        counts.incrementAndGet(countsIndex(clamped));
+        totalCount.increment();
+        sum.add(clamped);
+        updateMin(clamped);
+        updateMax(clamped);
+    }
+
+    /**
+     * Adds all values recorded in another histogram to this one.
+     *
+     * @param other The histogram to add; must have the same configuration
+     */
+    public void add(LatencyHistogram other) {
+        if (other.highestTrackableValue != highestTrackableValue || other.significantDigits != significantDigits) {
+            throw new IllegalArgumentException("Cannot add histograms with different configurations");
+        }
+        for (int i = 0; i < other.counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        sum.add(other.sum.sum());
+        if (other.getTotalCount() > 0) {
+            updateMin(other.min.get());
+            updateMax(other.max.get());
+        }
+    }
+
+    /**
+     * Adds all values from a snapshot of another histogram to this one.
+     *
+     * @param snapshot The snapshot to add; must come from a histogram with the same configuration
+     */
+    public void add(LatencyHistogramSnapshot snapshot) {
+        if (snapshot.getHighestTrackableValue() != highestTrackableValue || snapshot.getSignificantDigits() != significantDigits) {
+            throw new IllegalArgumentException("Cannot add histograms with different configurations");
+        }
+        int[] indexes = snapshot.getBucketIndexes();
+        long[] bucketCounts = snapshot.getBucketCounts();
+        if (indexes.length != bucketCounts.length) {
+            throw new IllegalArgumentException("Snapshot bucket indexes and counts differ in length");
+        }
+        for (int i = 0; i < indexes.length; i++) {
+            counts.addAndGet(indexes[i], bucketCounts[i]);
+        }
+        totalCount.add(snapshot.getTotalCount());
+        sum.add(snapshot.getSum());
+        if (snapshot.getTotalCount() > 0) {
+            updateMin(snapshot.getMin());
+            updateMax(snapshot.getMax());
+        }
+    }
+
+    /**
+     * Takes a snapshot of the non-zero buckets and totals, for sending to another node.
+     * Values recorded concurrently may or may not be included.
+     *
+     * @return The snapshot
+     */
+    public LatencyHistogramSnapshot snapshot() {
+        int nonZero = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) != 0) {
+                nonZero++;
+            }
+        }
+
+        int[] indexes = new int[nonZero];
+        long[] bucketCounts = new long[nonZero];
+        long snapshotTotal = 0;
+        int next = 0;
+        for (int i = 0; i < counts.length() && next < nonZero; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                indexes[next] = i;
+                bucketCounts[next] = count;
+                snapshotTotal += count;
+                next++;
+            }
+        }
+
+        LatencyHistogramSnapshot snapshot = new LatencyHistogramSnapshot();
+        snapshot.setHighestTrackableValue(highestTrackableValue);
+        snapshot.setSignificantDigits(significantDigits);
+        snapshot.setTotalCount(snapshotTotal);
+        snapshot.setSum(sum.sum());
+        snapshot.setMin(getMin());
+        snapshot.setMax(getMax());
+        snapshot.setBucketIndexes(indexes);
+        snapshot.setBucketCounts(bucketCounts);
+        return snapshot;
+    }
+
+    /**
+     * Visits every bucket with a non-zero count.
+     *
+     * @param visitor The visitor, called with the bucket index, lowest value in the bucket and count
+     */
+    public void forEachNonZeroBucket(BucketVisitor visitor) {
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                visitor.visit(i, valueFromIndex(i), count);
+            }
+        }
+    }
+
+    /**
+     * Gets the total number of recorded values.
+     *
+     * @return The total count
+     */
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return The minimum, or 0 if nothing was recorded
+     */
+    public long getMin() {
+        return getTotalCount() > 0 ? min.get() : 0;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The maximum, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return The mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long count = getTotalCount();
+        return count > 0 ? (double) sum.sum() / count : 0;
+    }
+
+    /**
+     * Gets the value at a percentile.
+     *
+     * @param percentile The percentile (0-100)
+     * @return The highest value equivalent to the value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getTotalCount();
+        if (count == 0) {
+            return 0;
+        }
+        double requested = Math.min(Math.max(percentile, 0.0), 100.0);
+        // Step below the requested percentile first, so that a rank such as 99.9% of 1000 is not pushed
+        // past 999 by the rounding of 99.9 / 100
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.nextDown(requested) / 100.0 * count));
+
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= countAtPercentile) {
+                long value = valueFromIndex(i);
+                return Math.min(percentile == 0.0 ? value : highestEquivalentValue(value), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Creates an empty histogram with the same configuration.
+     *
+     * @return The new histogram
+     */
+    public LatencyHistogram newEmptyCopy() {
+        return new LatencyHistogram(highestTrackableValue, significantDigits);
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        sum.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    private int bucketsNeeded(long value) {
+        long smallestUntrackableValue = subBucketCount;
+        int bucketsNeeded = 1;
+        while (smallestUntrackableValue <= value) {
+            if (smallestUntrackableValue > (Long.MAX_VALUE / 2)) {
+                return bucketsNeeded + 1;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketsNeeded++;
+        }
+        return bucketsNeeded;
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        int bucketBaseIndex = (bucketIndex + 1) << subBucketHalfCountMagnitude;
+        return bucketBaseIndex + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex) << bucketIndex;
+    }
+
+    private long highestEquivalentValue(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        long lowest = ((long) subBucketIndex) << bucketIndex;
+        long rangeSize = 1L << (subBucketIndex >= subBucketCount ? bucketIndex + 1 : bucketIndex);
+        return lowest + rangeSize - 1;
+    }
+
+    private void updateMin(long value) {
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+
+    private void updateMax(long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Visitor for non-zero histogram buckets.
+     */
+    @FunctionalInterface
+    public interface BucketVisitor {
+        void visit(int index, long lowestValue, long count);
+    }
+}
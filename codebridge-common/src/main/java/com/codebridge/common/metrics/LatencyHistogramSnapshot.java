@@ -0,0 +1,81 @@
+package com.codebridge.common.metrics;
+
+/**
+ * Serializable copy of a {@link LatencyHistogram}, holding only its non-zero buckets.
+ * Used to ship histograms between nodes so they can be merged without losing percentile accuracy.
+ */
+public class LatencyHistogramSnapshot {
+
+    private long highestTrackableValue;
+    private int significantDigits;
+    private long totalCount;
+    private long sum;
+    private long min;
+    private long max;
+    private int[] bucketIndexes = new int[0];
+    private long[] bucketCounts = new long[0];
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    public void setHighestTrackableValue(long highestTrackableValue) {
+        this.highestTrackableValue = highestTrackableValue;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    public void setSignificantDigits(int significantDigits) {
+        this.significantDigits = significantDigits;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public void setSum(long sum) {
+        this.sum = sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public void setMin(long min) {
+        this.min = min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public void setMax(long max) {
+        this.max = max;
+    }
+
+    public int[] getBucketIndexes() {
+        return bucketIndexes;
+    }
+
+    public void setBucketIndexes(int[] bucketIndexes) {
+        this.bucketIndexes = bucketIndexes;
+    }
+
+    public long[] getBucketCounts() {
+        return bucketCounts;
+    }
+
+    public void setBucketCounts(long[] bucketCounts) {
+        this.bucketCounts = bucketCounts;
+    }
+}
@@ -0,0 +1,134 @@
+package com.codebridge.core.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps Keycloak's JSON Web Key Set in memory so that token signatures can be verified locally.
+ * Keys are served from memory and refreshed in the background once they are older than the refresh
+ * interval. A token signed with an unknown key triggers an immediate refresh, so key rotation is picked up
+ * without waiting; refreshes are never attempted more often than the minimum refresh interval, and
+ * concurrent refreshes share a single request.
+ */
+@Component
+@Slf4j
+public class JwksKeyCache {
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final long refreshIntervalNanos;
+    private final long minRefreshIntervalNanos;
+    private final Counter refreshCounter;
+    private final Counter refreshFailureCounter;
+
+    private final AtomicReference<JWKSet> keys = new AtomicReference<>();
+    private final AtomicLong fetchedAt = new AtomicLong();
+    private final AtomicLong lastAttemptAt = new AtomicLong();
+    private final AtomicReference<Mono<JWKSet>> refreshing = new AtomicReference<>();
+
+    public JwksKeyCache(
+            WebClient.Builder webClientBuilder,
+            MeterRegistry meterRegistry,
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${codebridge.security.token-validation.jwks-refresh-seconds:300}") long refreshSeconds,
+            @Value("${codebridge.security.token-validation.jwks-min-refresh-seconds:30}") long minRefreshSeconds) {
+        this.webClient = webClientBuilder.build();
+        this.jwkSetUri = jwkSetUri;
+        this.refreshIntervalNanos = TimeUnit.SECONDS.toNanos(refreshSeconds);
+        this.minRefreshIntervalNanos = TimeUnit.SECONDS.toNanos(minRefreshSeconds);
+        this.refreshCounter = Counter.builder("codebridge.gateway.jwks.refresh")
+                .description("JWKS fetches from Keycloak")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.refreshFailureCounter = Counter.builder("codebridge.gateway.jwks.refresh")
+                .description("JWKS fetches from Keycloak")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Selects the keys that may have signed a token.
+     *
+     * @param jwt the token
+     * @return the matching keys, or no keys if none is known even after a refresh
+     */
+    public Flux<JWK> keysFor(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        JWKSet current = keys.get();
+        long now = System.nanoTime();
+
+        if (current != null) {
+            List<JWK> matches = selector.select(current);
+            if (!matches.isEmpty()) {
+                if (now - fetchedAt.get() > refreshIntervalNanos && refreshAllowed(now)) {
+                    // Serve the keys we have and refresh in the background
+                    refresh().subscribe(set -> { }, e -> log.warn("Background JWKS refresh failed: {}", e.getMessage()));
+                }
+                return Flux.fromIterable(matches);
+            }
+            if (!refreshAllowed(now)) {
+                log.debug("No JWKS key matches kid {} and the key set was refreshed recently", jwt.getHeader().getKeyID());
+                return Flux.empty();
+            }
+        }
+
+        return refresh().flatMapIterable(selector::select);
+    }
+
+    private boolean refreshAllowed(long now) {
+        return refreshing.get() != null || now - lastAttemptAt.get() > minRefreshIntervalNanos;
+    }
+
+    /**
+     * Fetches the key set, or joins a fetch that is already running.
+     */
+    private Mono<JWKSet> refresh() {
+        Mono<JWKSet> running = refreshing.get();
+        if (running != null) {
+            return running;
+        }
+        Mono<JWKSet> fetch = Mono.defer(() -> {
+                    lastAttemptAt.set(System.nanoTime());
+                    return webClient.get()
+                            .uri(jwkSetUri)
+                            .retrieve()
+                            .bodyToMono(String.class);
+                })
+                .map(JwksKeyCache::parse)
+                .doOnNext(set -> {
+                    keys.set(set);
+                    fetchedAt.set(System.nanoTime());
+                    refreshCounter.increment();
+                    log.debug("Fetched {} keys from {}", set.getKeys().size(), jwkSetUri);
+                })
+                .doOnError(e -> refreshFailureCounter.increment())
+                .doFinally(signal -> refreshing.set(null))
+                .cache();
+        return refreshing.compareAndSet(null, fetch) ? fetch : refresh();
+    }
+
+    private static JWKSet parse(String body) {
+        try {
+            return JWKSet.parse(body);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid JWKS document: " + e.getMessage(), e);
+        }
+    }
+}
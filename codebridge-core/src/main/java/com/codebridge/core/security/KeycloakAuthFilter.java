@@ -11,6 +11,7 @@ import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -53,13 +54,18 @@ public class KeycloakAuthFilter implements GlobalFilter, Ordered {
         String token = authHeaders.get(0).substring(7);
         
         // Validate the token
+        // The validator completes empty for an invalid token; the chain itself also completes empty,
+        // so the result is wrapped to tell the two apart
         return tokenValidator.validateToken(token)
-                .flatMap(userInfo -> {
-                    if (userInfo == null) {
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(validated -> {
+                    if (validated.isEmpty()) {
                         log.warn("Invalid token");
                         exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
                         return exchange.getResponse().setComplete();
                     }
+                    UserInfo userInfo = validated.get();
 
                     // Add user information to headers for downstream services
                     ServerHttpRequest modifiedRequest = request.mutate()
@@ -1,87 +1,295 @@
 package com.codebridge.core.security;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service to validate JWT tokens against Keycloak's token introspection endpoint.
+ * Service to validate access tokens issued by Keycloak.
+ * Depending on the validation mode, signed JWTs are verified locally against the cached JWKS, or tokens are
+ * checked with Keycloak's token introspection endpoint, or both (local verification first, then introspection
+ * to catch revoked tokens). Opaque tokens are always introspected. Introspection results are cached until the
+ * token expires, invalid tokens for a short while, and concurrent requests for the same token share one
+ * introspection call. Either way a token is only accepted if it was issued for this client: its audience must
+ * contain {@code keycloak.resource} or it must have been requested by that client ({@code azp}), so that tokens
+ * issued to other clients of the realm are refused.
  */
 @Component
 @Slf4j
 public class TokenValidator {
 
+    /**
+     * How tokens are validated.
+     */
+    public enum Mode {
+        /** Verify JWTs locally; introspect opaque tokens only. */
+        LOCAL,
+        /** Introspect every token with Keycloak. */
+        INTROSPECTION,
+        /** Verify JWTs locally, then introspect them to detect revocation. */
+        HYBRID
+    }
+
     private final WebClient webClient;
     private final String keycloakIntrospectionUrl;
     private final String clientId;
     private final String clientSecret;
+    private final Mode mode;
+    private final ReactiveJwtDecoder jwtDecoder;
+    private final AsyncCache<String, IntrospectionResult> introspectionCache;
+
+    private final Counter cacheHitCounter;
+    private final Counter cacheMissCounter;
+    private final Timer validTimer;
+    private final Timer invalidTimer;
+    private final Timer errorTimer;
 
     public TokenValidator(
             WebClient.Builder webClientBuilder,
+            JwksKeyCache jwksKeyCache,
+            MeterRegistry meterRegistry,
             @Value("${keycloak.auth-server-url}/realms/${keycloak.realm}/protocol/openid-connect/token/introspect") String keycloakIntrospectionUrl,
             @Value("${keycloak.resource}") String clientId,
-            @Value("${keycloak.credentials.secret}") String clientSecret) {
+            @Value("${keycloak.credentials.secret}") String clientSecret,
+            @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+            @Value("${codebridge.security.token-validation.mode:INTROSPECTION}") Mode mode,
+            @Value("${codebridge.security.token-validation.cache.max-size:10000}") long cacheMaxSize,
+            @Value("${codebridge.security.token-validation.cache.max-ttl-seconds:300}") long cacheMaxTtlSeconds,
+            @Value("${codebridge.security.token-validation.cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
         this.webClient = webClientBuilder.build();
         this.keycloakIntrospectionUrl = keycloakIntrospectionUrl;
         this.clientId = clientId;
         this.clientSecret = clientSecret;
+        this.mode = mode;
+
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSource(jwksKeyCache::keysFor).build();
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(issuerUri),
+                // Keycloak also signs ID tokens with the realm key; only access tokens are accepted
+                new JwtClaimValidator<String>("typ", typ -> typ == null || "Bearer".equalsIgnoreCase(typ)),
+                jwt -> isIssuedForClient(jwt.getClaims())
+                        ? OAuth2TokenValidatorResult.success()
+                        : OAuth2TokenValidatorResult.failure(new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN,
+                                "The token was not issued for " + clientId, null))));
+        this.jwtDecoder = decoder;
+
+        this.introspectionCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new IntrospectionExpiry(Duration.ofSeconds(cacheMaxTtlSeconds), Duration.ofSeconds(negativeTtlSeconds)))
+                .buildAsync();
+
+        this.cacheHitCounter = Counter.builder("codebridge.gateway.token.cache")
+                .description("Token introspection cache lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.cacheMissCounter = Counter.builder("codebridge.gateway.token.cache")
+                .description("Token introspection cache lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("codebridge.gateway.token.cache.size", introspectionCache, cache -> cache.synchronous().estimatedSize())
+                .description("Token introspection results held in the cache")
+                .register(meterRegistry);
+        this.validTimer = validationTimer(meterRegistry, "valid");
+        this.invalidTimer = validationTimer(meterRegistry, "invalid");
+        this.errorTimer = validationTimer(meterRegistry, "error");
+    }
+
+    private Timer validationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("codebridge.gateway.token.validation")
+                .description("Time taken to validate an access token")
+                .tags("mode", mode.name().toLowerCase(), "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     /**
-     * Validates a token against Keycloak and extracts user information.
+     * Validates a token and extracts user information.
      *
      * @param token The JWT token to validate
      * @return A Mono containing user information if valid, or empty if invalid
      */
     public Mono<UserInfo> validateToken(String token) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            boolean jwt = isJwt(token);
+            Mono<UserInfo> userInfo = switch (mode) {
+                case LOCAL -> jwt ? verifyLocally(token) : introspectCached(token);
+                case INTROSPECTION -> introspectCached(token);
+                case HYBRID -> jwt
+                        ? verifyLocally(token).filterWhen(verified -> introspectCached(token).hasElement())
+                        : introspectCached(token);
+            };
+            return userInfo
+                    .doOnSuccess(info -> (info != null ? validTimer : invalidTimer)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .onErrorResume(e -> {
+                        if (e instanceof BadJwtException) {
+                            log.debug("Rejected token: {}", e.getMessage());
+                            invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        } else {
+                            log.error("Error validating token", e);
+                            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private static boolean isJwt(String token) {
+        // A signed JWT has three dot-separated parts; anything else is treated as an opaque token
+        int first = token.indexOf('.');
+        int last = token.lastIndexOf('.');
+        return first > 0 && last > first + 1 && token.indexOf('.', first + 1) == last;
+    }
+
+    private Mono<UserInfo> verifyLocally(String token) {
+        return jwtDecoder.decode(token).map(jwt -> toUserInfo(jwt.getClaims()));
+    }
+
+    private Mono<UserInfo> introspectCached(String token) {
+        CompletableFuture<IntrospectionResult> result = introspectionCache.getIfPresent(token);
+        if (result != null) {
+            cacheHitCounter.increment();
+        } else {
+            cacheMissCounter.increment();
+            // Concurrent misses for the same token join the introspection started by the first one
+            result = introspectionCache.get(token, (key, executor) -> introspect(key).toFuture());
+        }
+        // Cancelling one request must not cancel the introspection shared with the others
+        return Mono.fromFuture(result, true).mapNotNull(IntrospectionResult::userInfo);
+    }
+
+    private Mono<IntrospectionResult> introspect(String token) {
         return webClient.post()
                 .uri(keycloakIntrospectionUrl)
                 .headers(headers -> headers.setBasicAuth(clientId, clientSecret))
-                .bodyValue("token=" + token + "&token_type_hint=access_token")
+                .body(BodyInserters.fromFormData("token", token).with("token_type_hint", "access_token"))
                 .retrieve()
                 .onStatus(status -> status.isError(), response -> {
                     log.error("Error validating token: {}", response.statusCode());
                     return Mono.error(new RuntimeException("Token validation failed"));
                 })
                 .bodyToMono(Map.class)
-                .flatMap(response -> {
+                .map(response -> {
                     Boolean active = (Boolean) response.get("active");
+                    if (active != null && active && !isIssuedForClient(response)) {
+                        log.debug("Rejected token issued for another client: {}", response.get("azp"));
+                        return IntrospectionResult.INACTIVE;
+                    }
                     if (active != null && active) {
-                        String userId = (String) response.get("sub");
-                        String username = (String) response.get("preferred_username");
-                        String email = (String) response.get("email");
-                        
-                        // Extract roles from resource_access.{client-id}.roles
-                        Map<String, Object> resourceAccess = (Map<String, Object>) response.get("resource_access");
-                        List<String> roles = Collections.emptyList();
-                        if (resourceAccess != null && resourceAccess.containsKey(clientId)) {
-                            Map<String, Object> clientAccess = (Map<String, Object>) resourceAccess.get(clientId);
-                            if (clientAccess != null && clientAccess.containsKey("roles")) {
-                                roles = (List<String>) clientAccess.get("roles");
-                            }
-                        }
-                        
-                        // Extract active team ID from custom claim if present
-                        String activeTeamId = null;
-                        if (response.containsKey("active_team_id")) {
-                            activeTeamId = (String) response.get("active_team_id");
-                        }
-                        
-                        return Mono.just(new UserInfo(userId, username, email, roles, activeTeamId));
+                        Number exp = (Number) response.get("exp");
+                        Instant expiresAt = exp != null ? Instant.ofEpochSecond(exp.longValue()) : null;
+                        return new IntrospectionResult(toUserInfo(response), expiresAt);
                     } else {
-                        return Mono.empty();
+                        return IntrospectionResult.INACTIVE;
                     }
-                })
-                .onErrorResume(e -> {
-                    log.error("Error processing token validation response", e);
-                    return Mono.empty();
                 });
     }
+
+    /**
+     * Checks that a token was issued for this client, either as its audience or as the authorized party.
+     * The audience claim may be a single string or a list.
+     */
+    private boolean isIssuedForClient(Map<String, Object> claims) {
+        Object audience = claims.get("aud");
+        boolean inAudience = audience instanceof Collection<?> audiences
+                ? audiences.contains(clientId)
+                : clientId.equals(audience);
+        return inAudience || clientId.equals(claims.get("azp"));
+    }
+
+    private UserInfo toUserInfo(Map<String, Object> claims) {
+        String userId = (String) claims.get("sub");
+        String username = (String) claims.get("preferred_username");
+        String email = (String) claims.get("email");
+
+        // Extract roles from resource_access.{client-id}.roles
+        Map<String, Object> resourceAccess = (Map<String, Object>) claims.get("resource_access");
+        List<String> roles = Collections.emptyList();
+        if (resourceAccess != null && resourceAccess.containsKey(clientId)) {
+            Map<String, Object> clientAccess = (Map<String, Object>) resourceAccess.get(clientId);
+            if (clientAccess != null && clientAccess.containsKey("roles")) {
+                roles = (List<String>) clientAccess.get("roles");
+            }
+        }
+
+        // Extract active team ID from custom claim if present
+        String activeTeamId = null;
+        if (claims.containsKey("active_team_id")) {
+            activeTeamId = (String) claims.get("active_team_id");
+        }
+
+        return new UserInfo(userId, username, email, roles, activeTeamId);
+    }
+
+    /**
+     * Outcome of an introspection; an inactive token has no user information.
+     */
+    private record IntrospectionResult(UserInfo userInfo, Instant expiresAt) {
+        static final IntrospectionResult INACTIVE = new IntrospectionResult(null, null);
+    }
+
+    /**
+     * Keeps active tokens until they expire, capped at the maximum TTL, and inactive tokens for the negative TTL.
+     */
+    private static final class IntrospectionExpiry implements Expiry<String, IntrospectionResult> {
+
+        private final Duration maxTtl;
+        private final Duration negativeTtl;
+
+        IntrospectionExpiry(Duration maxTtl, Duration negativeTtl) {
+            this.maxTtl = maxTtl;
+            this.negativeTtl = negativeTtl;
+        }
+
+        @Override
+        public long expireAfterCreate(String token, IntrospectionResult result, long currentTime) {
+            if (result.userInfo() == null) {
+                return negativeTtl.toNanos();
+            }
+            if (result.expiresAt() == null) {
+                return maxTtl.toNanos();
+            }
+            Duration remaining = Duration.between(Instant.now(), result.expiresAt());
+            return Math.max(0, Math.min(remaining.toNanos(), maxTtl.toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, IntrospectionResult result, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, result, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, IntrospectionResult result, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
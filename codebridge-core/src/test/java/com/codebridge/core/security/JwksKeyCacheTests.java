@@ -0,0 +1,132 @@
+package com.codebridge.core.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwksKeyCacheTests {
+
+    private static final String JWKS_URI = "http://keycloak/realms/codebridge/protocol/openid-connect/certs";
+
+    private RSAKey first;
+    private RSAKey second;
+    private final AtomicReference<JWKSet> published = new AtomicReference<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        first = new RSAKeyGenerator(2048).keyID("first").generate();
+        second = new RSAKeyGenerator(2048).keyID("second").generate();
+        published.set(new JWKSet(first.toPublicJWK()));
+    }
+
+    private WebClient.Builder keycloak(Mono<Void> responseGate) {
+        return WebClient.builder().exchangeFunction(request -> {
+            fetches.incrementAndGet();
+            ClientResponse response = ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(published.get().toString())
+                    .build();
+            return responseGate.then(Mono.just(response));
+        });
+    }
+
+    private JwksKeyCache cache(long refreshSeconds, long minRefreshSeconds) {
+        return new JwksKeyCache(keycloak(Mono.empty()), meterRegistry, JWKS_URI, refreshSeconds, minRefreshSeconds);
+    }
+
+    private static SignedJWT token(RSAKey key) {
+        return new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder().subject("user").build());
+    }
+
+    private static List<String> keyIds(List<JWK> keys) {
+        return keys.stream().map(JWK::getKeyID).toList();
+    }
+
+    @Test
+    void keysFor_servesKnownKeysFromMemory() {
+        JwksKeyCache cache = cache(300, 30);
+
+        assertEquals(List.of("first"), keyIds(cache.keysFor(token(first)).collectList().block()));
+        assertEquals(List.of("first"), keyIds(cache.keysFor(token(first)).collectList().block()));
+
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void keysFor_refreshesForAnUnknownKeyId() {
+        JwksKeyCache cache = cache(300, 0);
+        cache.keysFor(token(first)).collectList().block();
+
+        // Keycloak rotated its key after the key set was fetched
+        published.set(new JWKSet(List.of(first.toPublicJWK(), second.toPublicJWK())));
+
+        assertEquals(List.of("second"), keyIds(cache.keysFor(token(second)).collectList().block()));
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void keysFor_limitsRefreshesToTheMinimumInterval() {
+        JwksKeyCache cache = cache(300, 30);
+        cache.keysFor(token(first)).collectList().block();
+        published.set(new JWKSet(List.of(first.toPublicJWK(), second.toPublicJWK())));
+
+        // Tokens with made-up key IDs must not make every request fetch the key set
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.keysFor(token(second)).collectList().block().isEmpty());
+        }
+        assertEquals(1, fetches.get());
+        assertEquals(1.0, meterRegistry.get("codebridge.gateway.jwks.refresh").tag("outcome", "success").counter().count());
+    }
+
+    @Test
+    void keysFor_sharesAConcurrentRefresh() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        JwksKeyCache cache = new JwksKeyCache(keycloak(gate.asMono()), meterRegistry, JWKS_URI, 300, 30);
+
+        Mono<List<JWK>> a = cache.keysFor(token(first)).collectList().cache();
+        Mono<List<JWK>> b = cache.keysFor(token(first)).collectList().cache();
+        a.subscribe();
+        b.subscribe();
+        gate.tryEmitEmpty();
+
+        assertEquals(List.of("first"), keyIds(a.block(Duration.ofSeconds(5))));
+        assertEquals(List.of("first"), keyIds(b.block(Duration.ofSeconds(5))));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void keysFor_refreshesStaleKeysInTheBackground() {
+        JwksKeyCache cache = cache(0, 0);
+        cache.keysFor(token(first)).collectList().block();
+
+        // The stale key set still answers, while a refresh is started
+        assertEquals(List.of("first"), keyIds(cache.keysFor(token(first)).collectList().block()));
+        assertEquals(2, fetches.get());
+    }
+}
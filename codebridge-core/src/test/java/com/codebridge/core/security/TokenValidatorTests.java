@@ -0,0 +1,182 @@
+package com.codebridge.core.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenValidatorTests {
+
+    private static final String ISSUER = "http://keycloak/realms/codebridge";
+    private static final String JWKS_URI = ISSUER + "/protocol/openid-connect/certs";
+    private static final String INTROSPECTION_URI = ISSUER + "/protocol/openid-connect/token/introspect";
+    private static final String CLIENT_ID = "codebridge-gateway";
+
+    private RSAKey key;
+    private final AtomicReference<String> introspectionResponse = new AtomicReference<>();
+    private final AtomicReference<Mono<Void>> introspectionGate = new AtomicReference<>(Mono.empty());
+    private final AtomicInteger introspections = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        key = new RSAKeyGenerator(2048).keyID("realm-key").generate();
+    }
+
+    private WebClient.Builder keycloak() {
+        return WebClient.builder().exchangeFunction(request -> {
+            String body;
+            Mono<Void> gate = Mono.empty();
+            if (request.url().toString().equals(JWKS_URI)) {
+                body = new JWKSet(key.toPublicJWK()).toString();
+            } else {
+                introspections.incrementAndGet();
+                body = introspectionResponse.get();
+                gate = introspectionGate.get();
+            }
+            return gate.then(Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build()));
+        });
+    }
+
+    private TokenValidator validator(TokenValidator.Mode mode, long negativeTtlSeconds) {
+        JwksKeyCache jwksKeyCache = new JwksKeyCache(keycloak(), meterRegistry, JWKS_URI, 300, 30);
+        return new TokenValidator(keycloak(), jwksKeyCache, meterRegistry, INTROSPECTION_URI, CLIENT_ID, "secret",
+                ISSUER, mode, 100, 300, negativeTtlSeconds);
+    }
+
+    private String jwt(String authorizedParty, Object audience) throws JOSEException {
+        JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .subject("user-1")
+                .claim("preferred_username", "alice")
+                .claim("typ", "Bearer")
+                .claim("azp", authorizedParty)
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)));
+        if (audience instanceof String single) {
+            claims.audience(single);
+        } else if (audience instanceof List<?> list) {
+            claims.audience(list.stream().map(String::valueOf).toList());
+        }
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                claims.build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static String active(String authorizedParty) {
+        return "{\"active\":true,\"sub\":\"user-1\",\"preferred_username\":\"alice\",\"azp\":\"" + authorizedParty
+                + "\",\"exp\":" + Instant.now().plusSeconds(300).getEpochSecond() + "}";
+    }
+
+    @Test
+    void validateToken_acceptsJwtIssuedForTheClient() throws JOSEException {
+        TokenValidator validator = validator(TokenValidator.Mode.LOCAL, 30);
+
+        UserInfo byAuthorizedParty = validator.validateToken(jwt(CLIENT_ID, null)).block();
+        UserInfo byAudience = validator.validateToken(jwt("other-client", List.of("account", CLIENT_ID))).block();
+
+        assertNotNull(byAuthorizedParty);
+        assertEquals("user-1", byAuthorizedParty.getUserId());
+        assertNotNull(byAudience);
+        assertEquals(0, introspections.get());
+    }
+
+    @Test
+    void validateToken_rejectsJwtIssuedForAnotherClient() throws JOSEException {
+        TokenValidator validator = validator(TokenValidator.Mode.LOCAL, 30);
+
+        assertNull(validator.validateToken(jwt("other-client", "account")).block());
+        assertNull(validator.validateToken(jwt("other-client", null)).block());
+    }
+
+    @Test
+    void validateToken_rejectsIntrospectedTokenIssuedForAnotherClient() {
+        TokenValidator validator = validator(TokenValidator.Mode.INTROSPECTION, 30);
+        introspectionResponse.set(active("other-client"));
+
+        assertNull(validator.validateToken("opaque-token").block());
+    }
+
+    @Test
+    void validateToken_cachesIntrospectionResults() {
+        TokenValidator validator = validator(TokenValidator.Mode.INTROSPECTION, 30);
+        introspectionResponse.set(active(CLIENT_ID));
+
+        assertNotNull(validator.validateToken("opaque-token").block());
+        assertNotNull(validator.validateToken("opaque-token").block());
+
+        assertEquals(1, introspections.get());
+        assertEquals(1.0, meterRegistry.get("codebridge.gateway.token.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void validateToken_sharesAConcurrentIntrospection() {
+        TokenValidator validator = validator(TokenValidator.Mode.INTROSPECTION, 30);
+        introspectionResponse.set(active(CLIENT_ID));
+        Sinks.Empty<Void> gate = Sinks.empty();
+        introspectionGate.set(gate.asMono());
+
+        Mono<UserInfo> a = validator.validateToken("opaque-token").cache();
+        Mono<UserInfo> b = validator.validateToken("opaque-token").cache();
+        a.subscribe();
+        b.subscribe();
+        gate.tryEmitEmpty();
+
+        assertNotNull(a.block(Duration.ofSeconds(5)));
+        assertNotNull(b.block(Duration.ofSeconds(5)));
+        assertEquals(1, introspections.get());
+    }
+
+    @Test
+    void validateToken_cachesInactiveTokensForTheNegativeTtl() {
+        introspectionResponse.set("{\"active\":false}");
+
+        TokenValidator cached = validator(TokenValidator.Mode.INTROSPECTION, 30);
+        assertNull(cached.validateToken("revoked-token").block());
+        assertNull(cached.validateToken("revoked-token").block());
+        assertEquals(1, introspections.get());
+
+        TokenValidator uncached = validator(TokenValidator.Mode.INTROSPECTION, 0);
+        assertNull(uncached.validateToken("revoked-token").block());
+        assertNull(uncached.validateToken("revoked-token").block());
+        assertEquals(3, introspections.get());
+    }
+
+    @Test
+    void validateToken_introspectsLocallyVerifiedJwtInHybridMode() throws JOSEException {
+        TokenValidator validator = validator(TokenValidator.Mode.HYBRID, 30);
+        String token = jwt(CLIENT_ID, null);
+
+        // Verified locally, but revoked in Keycloak
+        introspectionResponse.set("{\"active\":false}");
+        assertNull(validator.validateToken(token).block());
+        assertEquals(1, introspections.get());
+    }
+}
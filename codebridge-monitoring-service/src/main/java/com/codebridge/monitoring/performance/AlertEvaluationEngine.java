@@ -0,0 +1,200 @@
+package com.codebridge.monitoring.performance.alerting;
+
+import com.codebridge.monitoring.performance.model.AlertRule;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Evaluates alert rules in batches.
+ * Rules watching the same window of a series (same service, metric, evaluation period and aggregation)
+ * form a group whose window is queried once per cycle; the thresholds of the group are then checked
+ * against that single value in one pass over primitive arrays. Groups are spread over a number of
+ * tasks that run in parallel, and all windows of a cycle end at the same instant.
+ */
+@Slf4j
+public class AlertEvaluationEngine {
+
+    private final WindowQuery windowQuery;
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Creates an engine.
+     *
+     * @param windowQuery computes the aggregated value of a series window
+     * @param executor the executor running the evaluation tasks
+     * @param parallelism the maximum number of evaluation tasks of a cycle
+     */
+    public AlertEvaluationEngine(WindowQuery windowQuery, Executor executor, int parallelism) {
+        this.windowQuery = windowQuery;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Evaluates rules against the windows ending at the given instant.
+     * Rules of a group whose window cannot be queried or holds no data are left out of the result,
+     * so their open alerts are neither raised nor resolved in this cycle.
+     *
+     * @param rules the rules to evaluate
+     * @param now the end of the evaluation windows
+     * @return the outcome of each evaluated rule
+     */
+    public List<RuleEvaluation> evaluate(List<AlertRule> rules, Instant now) {
+        List<RuleGroup> groups = group(rules);
+        int tasks = Math.min(parallelism, groups.size());
+        if (tasks <= 1) {
+            return evaluateGroups(groups, 0, 1, now);
+        }
+
+        // Interleave the groups so that every task gets a similar share of large and small groups
+        List<CompletableFuture<List<RuleEvaluation>>> futures = new ArrayList<>(tasks);
+        for (int task = 0; task < tasks; task++) {
+            int offset = task;
+            futures.add(CompletableFuture.supplyAsync(() -> evaluateGroups(groups, offset, tasks, now), executor));
+        }
+        List<RuleEvaluation> evaluations = new ArrayList<>(rules.size());
+        for (CompletableFuture<List<RuleEvaluation>> future : futures) {
+            evaluations.addAll(future.join());
+        }
+        return evaluations;
+    }
+
+    /**
+     * Groups rules by the series window they watch.
+     *
+     * @param rules the rules
+     * @return one group per distinct window
+     */
+    static List<RuleGroup> group(List<AlertRule> rules) {
+        Map<WindowKey, List<AlertRule>> byWindow = new LinkedHashMap<>();
+        for (AlertRule rule : rules) {
+            WindowKey key = new WindowKey(rule.getServiceName(), rule.getMetricName(),
+                    rule.getEvaluationPeriod(), rule.getAggregation());
+            byWindow.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+        }
+        List<RuleGroup> groups = new ArrayList<>(byWindow.size());
+        byWindow.forEach((key, members) -> groups.add(new RuleGroup(key, members)));
+        return groups;
+    }
+
+    /**
+     * Checks whether a value violates a threshold.
+     *
+     * @param operator the comparison operator
+     * @param value the current value
+     * @param threshold the threshold
+     * @return true if the threshold is violated, false otherwise
+     */
+    public static boolean isThresholdViolated(AlertRule.Operator operator, double value, double threshold) {
+        switch (operator) {
+            case GREATER_THAN:
+                return value > threshold;
+            case GREATER_THAN_OR_EQUAL:
+                return value >= threshold;
+            case LESS_THAN:
+                return value < threshold;
+            case LESS_THAN_OR_EQUAL:
+                return value <= threshold;
+            case EQUAL:
+                return Math.abs(value - threshold) < 0.0001;
+            case NOT_EQUAL:
+                return Math.abs(value - threshold) >= 0.0001;
+            default:
+                return false;
+        }
+    }
+
+    private List<RuleEvaluation> evaluateGroups(List<RuleGroup> groups, int offset, int stride, Instant now) {
+        List<RuleEvaluation> evaluations = new ArrayList<>();
+        for (int i = offset; i < groups.size(); i += stride) {
+            RuleGroup group = groups.get(i);
+            WindowKey key = group.key;
+            double value;
+            try {
+                value = windowQuery.query(key.serviceName(), key.metricName(),
+                        now.minusMillis(key.evaluationPeriod()), now, key.aggregation());
+            } catch (Exception e) {
+                log.error("Error querying {} of {} for service {} ({} alert rules): {}",
+                        key.aggregation(), key.metricName(), key.serviceName(), group.rules.length, e.getMessage(), e);
+                continue;
+            }
+            if (Double.isNaN(value)) {
+                log.debug("No data for {} of {} for service {}, skipping {} alert rules",
+                        key.aggregation(), key.metricName(), key.serviceName(), group.rules.length);
+                continue;
+            }
+            group.evaluate(value, evaluations);
+        }
+        return evaluations;
+    }
+
+    /**
+     * Computes the aggregated value of a series over a time window.
+     */
+    @FunctionalInterface
+    public interface WindowQuery {
+
+        /**
+         * Query the aggregated value of a series window.
+         *
+         * @param serviceName the service name
+         * @param metricName the metric name
+         * @param startTime the start of the window
+         * @param endTime the end of the window
+         * @param aggregation the aggregation function
+         * @return the aggregated value, or NaN if the window holds no data
+         */
+        double query(String serviceName, String metricName, Instant startTime, Instant endTime, String aggregation);
+    }
+
+    /**
+     * Outcome of the evaluation of a rule.
+     *
+     * @param rule the rule
+     * @param value the value of the rule's window
+     * @param violated whether the value violates the rule's threshold
+     */
+    public record RuleEvaluation(AlertRule rule, double value, boolean violated) {
+    }
+
+    /**
+     * Series window watched by a rule.
+     */
+    record WindowKey(String serviceName, String metricName, long evaluationPeriod, String aggregation) {
+    }
+
+    /**
+     * Rules watching the same window, with their operators and thresholds laid out in arrays.
+     */
+    static final class RuleGroup {
+        final WindowKey key;
+        final AlertRule[] rules;
+        final AlertRule.Operator[] operators;
+        final double[] thresholds;
+
+        RuleGroup(WindowKey key, List<AlertRule> members) {
+            this.key = key;
+            this.rules = members.toArray(new AlertRule[0]);
+            this.operators = new AlertRule.Operator[rules.length];
+            this.thresholds = new double[rules.length];
+            for (int i = 0; i < rules.length; i++) {
+                operators[i] = rules[i].getOperator();
+                thresholds[i] = rules[i].getThreshold();
+            }
+        }
+
+        void evaluate(double value, List<RuleEvaluation> evaluations) {
+            for (int i = 0; i < rules.length; i++) {
+                evaluations.add(new RuleEvaluation(rules[i], value, isThresholdViolated(operators[i], value, thresholds[i])));
+            }
+        }
+    }
+}
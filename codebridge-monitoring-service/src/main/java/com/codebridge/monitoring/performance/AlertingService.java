@@ -1,5 +1,7 @@
 package com.codebridge.monitoring.performance.service;
 
+import com.codebridge.monitoring.performance.alerting.AlertEvaluationEngine;
+import com.codebridge.monitoring.performance.alerting.AlertEvaluationEngine.RuleEvaluation;
 import com.codebridge.monitoring.performance.model.AlertRule;
 import com.codebridge.monitoring.performance.model.AlertSeverity;
 import com.codebridge.monitoring.performance.model.AlertStatus;
@@ -13,11 +15,20 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for managing performance alerts.
@@ -30,10 +41,28 @@ public class AlertingService {
     private final PerformanceAlertRepository alertRepository;
     private final TimeSeriesService timeSeriesService;
     private final RestTemplate restTemplate;
+
+    // Open alert of each rule, by rule ID; guarded by alertStateLock
+    private final Object alertStateLock = new Object();
+    private final Map<UUID, PerformanceAlert> openAlerts = new HashMap<>();
+    private final Set<PerformanceAlert> pendingAlertUpdates = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Raised and resolved alerts whose notifications wait for the alert to be saved
+    private final List<PerformanceAlert> unsentRaised = new ArrayList<>();
+    private final List<PerformanceAlert> unsentResolved = new ArrayList<>();
+    private boolean openAlertsLoaded;
+
+    private ExecutorService evaluationExecutor;
+    private AlertEvaluationEngine evaluationEngine;
     
     @Value("${performance.alerting.enabled:true}")
     private boolean alertingEnabled;
     
+    @Value("${performance.alerting.check-interval:60000}")
+    private long checkInterval;
+
+    @Value("${performance.alerting.evaluation-parallelism:0}")
+    private int evaluationParallelism;
+    
     @Value("${performance.alerting.notification.email.enabled:false}")
     private boolean emailNotificationEnabled;
     
@@ -57,8 +86,37 @@ public class AlertingService {
         this.restTemplate = new RestTemplate();
     }
 
+    /**
+     * Create the rule evaluation engine.
+     */
+    @PostConstruct
+    public void init() {
+        int parallelism = evaluationParallelism > 0 ? evaluationParallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        evaluationExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "alert-evaluation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        evaluationEngine = new AlertEvaluationEngine(timeSeriesService::queryAggregatedMetric, evaluationExecutor, parallelism);
+    }
+
+    /**
+     * Persist pending alert updates and stop the evaluation threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushAlertState();
+        evaluationExecutor.shutdown();
+    }
+
     /**
      * Scheduled task to check alert rules.
+     * Rules are evaluated in parallel, with one query per distinct series window; see
+     * {@link AlertEvaluationEngine}. Open alerts are tracked in memory: alerts raised or resolved by
+     * a cycle are saved in one batch at its end, while value updates of ongoing alerts are written
+     * behind by {@link #flushAlertState()}. Notifications are only sent for saved alerts: if the batch
+     * fails, they wait until a later save of the alerts succeeds.
      */
     @Scheduled(fixedDelayString = "${performance.alerting.check-interval:60000}")
     public void checkAlertRules() {
@@ -67,87 +125,171 @@ public class AlertingService {
         }
         
         log.debug("Checking alert rules");
+        long startNanos = System.nanoTime();
         List<AlertRule> activeRules = alertRuleRepository.findByEnabled(true);
-        
-        for (AlertRule rule : activeRules) {
+        List<RuleEvaluation> evaluations = evaluationEngine.evaluate(activeRules, Instant.now());
+
+        List<PerformanceAlert> raised = new ArrayList<>();
+        List<PerformanceAlert> resolved = new ArrayList<>();
+        List<PerformanceAlert> notifyRaised = new ArrayList<>();
+        List<PerformanceAlert> notifyResolved = new ArrayList<>();
+        synchronized (alertStateLock) {
+            loadOpenAlerts();
+            for (RuleEvaluation evaluation : evaluations) {
+                try {
+                    applyEvaluation(evaluation, raised, resolved);
+                } catch (Exception e) {
+                    log.error("Error checking alert rule {}: {}", evaluation.rule().getId(), e.getMessage(), e);
+                }
+            }
+            if (!raised.isEmpty() || !resolved.isEmpty()) {
+                List<PerformanceAlert> changed = new ArrayList<>(raised);
+                changed.addAll(resolved);
+                unsentRaised.addAll(raised);
+                unsentResolved.addAll(resolved);
+                try {
+                    saveAlerts(changed);
+                } catch (Exception e) {
+                    log.error("Error saving {} alerts, retrying on next flush: {}", changed.size(), e.getMessage(), e);
+                    pendingAlertUpdates.addAll(changed);
+                }
+            }
+            takeSavedNotifications(notifyRaised, notifyResolved);
+        }
+
+        sendNotifications(notifyRaised, notifyResolved);
+
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        if (elapsedMs > checkInterval) {
+            log.warn("Checking {} alert rules took {} ms, longer than the check interval of {} ms",
+                    activeRules.size(), elapsedMs, checkInterval);
+        } else {
+            log.debug("Checked {} alert rules in {} ms", activeRules.size(), elapsedMs);
+        }
+    }
+
+    /**
+     * Scheduled task to write the value updates of ongoing alerts to the database in one batch,
+     * along with alerts whose save failed, which are then notified.
+     */
+    @Scheduled(fixedDelayString = "${performance.alerting.state-flush-interval-ms:60000}")
+    public void flushAlertState() {
+        List<PerformanceAlert> notifyRaised = new ArrayList<>();
+        List<PerformanceAlert> notifyResolved = new ArrayList<>();
+        synchronized (alertStateLock) {
+            if (pendingAlertUpdates.isEmpty()) {
+                return;
+            }
+            List<PerformanceAlert> pending = new ArrayList<>(pendingAlertUpdates);
             try {
-                checkAlertRule(rule);
+                saveAlerts(pending);
+                pendingAlertUpdates.clear();
+                log.debug("Saved {} alert updates", pending.size());
             } catch (Exception e) {
-                log.error("Error checking alert rule {}: {}", rule.getId(), e.getMessage(), e);
+                log.error("Error saving {} alert updates: {}", pending.size(), e.getMessage(), e);
             }
+            takeSavedNotifications(notifyRaised, notifyResolved);
         }
+        sendNotifications(notifyRaised, notifyResolved);
     }
-    
+
     /**
-     * Check a specific alert rule.
+     * Save alerts in one batch. Saving assigns IDs to new alerts before the batch is committed, so if it
+     * fails, the IDs of the new alerts are cleared again: they have no row, and a retry must insert them.
      *
-     * @param rule the alert rule
+     * @param alerts the alerts to save
      */
-    private void checkAlertRule(AlertRule rule) {
-        // Get the current value for the metric
-        double currentValue = getCurrentMetricValue(rule);
-        
-        // Check if the threshold is violated
-        boolean thresholdViolated = isThresholdViolated(rule, currentValue);
-        
-        // Get the most recent alert for this rule
-        PerformanceAlert recentAlert = alertRepository.findTopByAlertRuleOrderByCreatedAtDesc(rule);
-        
-        if (thresholdViolated) {
-            // If there's no recent alert or it's resolved, create a new one
-            if (recentAlert == null || recentAlert.getStatus() == AlertStatus.RESOLVED) {
-                createAlert(rule, currentValue);
-            } else if (recentAlert.getStatus() == AlertStatus.ACTIVE) {
-                // Update the existing alert
-                updateAlert(recentAlert, currentValue);
+    private void saveAlerts(List<PerformanceAlert> alerts) {
+        List<PerformanceAlert> unsaved = alerts.stream()
+                .filter(alert -> alert.getId() == null)
+                .toList();
+        try {
+            alertRepository.saveAll(alerts);
+        } catch (RuntimeException e) {
+            for (PerformanceAlert alert : unsaved) {
+                alert.setId(null);
+                alert.setCreatedAt(null);
             }
-        } else if (recentAlert != null && recentAlert.getStatus() == AlertStatus.ACTIVE) {
-            // Resolve the alert
-            resolveAlert(recentAlert);
+            throw e;
         }
     }
-    
+
     /**
-     * Get the current value for a metric.
+     * Move the raised and resolved alerts that have been saved out of the unsent notifications.
+     * Alerts whose save failed stay in the pending updates until a flush saves them.
      *
-     * @param rule the alert rule
-     * @return the current metric value
+     * @param notifyRaised collects the saved raised alerts
+     * @param notifyResolved collects the saved resolved alerts
      */
-    private double getCurrentMetricValue(AlertRule rule) {
-        Instant endTime = Instant.now();
-        Instant startTime = endTime.minusMillis(rule.getEvaluationPeriod());
-        
-        return timeSeriesService.queryAggregatedMetric(
-                rule.getServiceName(), 
-                rule.getMetricName(), 
-                startTime, 
-                endTime, 
-                rule.getAggregation());
+    private void takeSavedNotifications(List<PerformanceAlert> notifyRaised, List<PerformanceAlert> notifyResolved) {
+        unsentRaised.removeIf(alert -> !pendingAlertUpdates.contains(alert) && notifyRaised.add(alert));
+        unsentResolved.removeIf(alert -> !pendingAlertUpdates.contains(alert) && notifyResolved.add(alert));
     }
-    
+
     /**
-     * Check if a threshold is violated.
+     * Send the notifications of saved alerts, outside the alert state lock.
      *
-     * @param rule the alert rule
-     * @param currentValue the current metric value
-     * @return true if the threshold is violated, false otherwise
+     * @param raised the raised alerts
+     * @param resolved the resolved alerts
      */
-    private boolean isThresholdViolated(AlertRule rule, double currentValue) {
-        switch (rule.getOperator()) {
-            case GREATER_THAN:
-                return currentValue > rule.getThreshold();
-            case GREATER_THAN_OR_EQUAL:
-                return currentValue >= rule.getThreshold();
-            case LESS_THAN:
-                return currentValue < rule.getThreshold();
-            case LESS_THAN_OR_EQUAL:
-                return currentValue <= rule.getThreshold();
-            case EQUAL:
-                return Math.abs(currentValue - rule.getThreshold()) < 0.0001;
-            case NOT_EQUAL:
-                return Math.abs(currentValue - rule.getThreshold()) >= 0.0001;
-            default:
-                return false;
+    private void sendNotifications(List<PerformanceAlert> raised, List<PerformanceAlert> resolved) {
+        for (PerformanceAlert alert : raised) {
+            sendAlertNotifications(alert);
+            log.info("Created new alert: {}", alert.getMessage());
+        }
+        for (PerformanceAlert alert : resolved) {
+            sendAlertResolutionNotifications(alert);
+            log.info("Resolved alert: {}", alert.getMessage());
+        }
+    }
+
+    /**
+     * Load the open (active or acknowledged) alerts of each rule, on the first cycle.
+     * The alert state is kept in memory from then on.
+     */
+    private void loadOpenAlerts() {
+        if (openAlertsLoaded) {
+            return;
+        }
+        List<PerformanceAlert> alerts = new ArrayList<>(alertRepository.findByStatus(AlertStatus.ACTIVE));
+        alerts.addAll(alertRepository.findByStatus(AlertStatus.ACKNOWLEDGED));
+        for (PerformanceAlert alert : alerts) {
+            // Keep the most recent open alert of each rule
+            openAlerts.merge(alert.getAlertRule().getId(), alert, (existing, candidate) ->
+                    candidate.getCreatedAt() != null && existing.getCreatedAt() != null
+                            && candidate.getCreatedAt().isAfter(existing.getCreatedAt()) ? candidate : existing);
+        }
+        openAlertsLoaded = true;
+        log.info("Loaded {} open alerts", openAlerts.size());
+    }
+
+    /**
+     * Apply the outcome of a rule evaluation to the open alert of the rule.
+     *
+     * @param evaluation the rule evaluation
+     * @param raised collects the alerts raised
+     * @param resolved collects the alerts resolved
+     */
+    private void applyEvaluation(RuleEvaluation evaluation, List<PerformanceAlert> raised, List<PerformanceAlert> resolved) {
+        AlertRule rule = evaluation.rule();
+        PerformanceAlert openAlert = openAlerts.get(rule.getId());
+        
+        if (evaluation.violated()) {
+            if (openAlert == null) {
+                // Raise a new alert
+                PerformanceAlert alert = createAlert(rule, evaluation.value());
+                openAlerts.put(rule.getId(), alert);
+                raised.add(alert);
+            } else if (openAlert.getStatus() == AlertStatus.ACTIVE) {
+                // Update the existing alert
+                updateAlert(openAlert, evaluation.value());
+            }
+        } else if (openAlert != null && openAlert.getStatus() == AlertStatus.ACTIVE) {
+            // Resolve the alert
+            resolveAlert(openAlert);
+            openAlerts.remove(rule.getId());
+            pendingAlertUpdates.remove(openAlert);
+            resolved.add(openAlert);
         }
     }
     
@@ -156,7 +298,7 @@ public class AlertingService {
      *
      * @param rule the alert rule
      * @param currentValue the current metric value
-     * @return the created alert
+     * @return the created alert, not yet saved
      */
     private PerformanceAlert createAlert(AlertRule rule, double currentValue) {
         PerformanceAlert alert = new PerformanceAlert();
@@ -167,48 +309,29 @@ public class AlertingService {
         alert.setMessage(generateAlertMessage(rule, currentValue));
         alert.setTriggeredAt(Instant.now());
         
-        PerformanceAlert savedAlert = alertRepository.save(alert);
-        
-        // Send notifications
-        sendAlertNotifications(savedAlert);
-        
-        log.info("Created new alert: {}", savedAlert.getMessage());
-        
-        return savedAlert;
+        return alert;
     }
     
     /**
-     * Update an existing alert.
+     * Update an existing alert. The update is saved by the next {@link #flushAlertState()}.
      *
      * @param alert the alert to update
      * @param currentValue the current metric value
-     * @return the updated alert
      */
-    private PerformanceAlert updateAlert(PerformanceAlert alert, double currentValue) {
+    private void updateAlert(PerformanceAlert alert, double currentValue) {
         alert.setCurrentValue(currentValue);
         alert.setLastCheckedAt(Instant.now());
-        
-        return alertRepository.save(alert);
+        pendingAlertUpdates.add(alert);
     }
     
     /**
      * Resolve an alert.
      *
      * @param alert the alert to resolve
-     * @return the resolved alert
      */
-    private PerformanceAlert resolveAlert(PerformanceAlert alert) {
+    private void resolveAlert(PerformanceAlert alert) {
         alert.setStatus(AlertStatus.RESOLVED);
         alert.setResolvedAt(Instant.now());
-        
-        PerformanceAlert resolvedAlert = alertRepository.save(alert);
-        
-        // Send resolution notifications
-        sendAlertResolutionNotifications(resolvedAlert);
-        
-        log.info("Resolved alert: {}", resolvedAlert.getMessage());
-        
-        return resolvedAlert;
     }
     
     /**
@@ -440,6 +563,14 @@ public class AlertingService {
      */
     public void deleteAlertRule(UUID id) {
         alertRuleRepository.deleteById(id);
+        synchronized (alertStateLock) {
+            PerformanceAlert openAlert = openAlerts.remove(id);
+            if (openAlert != null) {
+                pendingAlertUpdates.remove(openAlert);
+            }
+            unsentRaised.removeIf(alert -> id.equals(alert.getAlertRule().getId()));
+            unsentResolved.removeIf(alert -> id.equals(alert.getAlertRule().getId()));
+        }
     }
     
     /**
@@ -489,17 +620,24 @@ public class AlertingService {
      * @return the acknowledged alert
      */
     public PerformanceAlert acknowledgeAlert(UUID id, String acknowledgedBy) {
-        PerformanceAlert alert = getAlertById(id);
-        
-        if (alert.getStatus() == AlertStatus.ACTIVE) {
-            alert.setStatus(AlertStatus.ACKNOWLEDGED);
-            alert.setAcknowledgedBy(acknowledgedBy);
-            alert.setAcknowledgedAt(Instant.now());
+        synchronized (alertStateLock) {
+            // Acknowledge the tracked instance so a pending update does not overwrite the status
+            PerformanceAlert alert = openAlerts.values().stream()
+                    .filter(openAlert -> id.equals(openAlert.getId()))
+                    .findFirst()
+                    .orElseGet(() -> getAlertById(id));
+            
+            if (alert.getStatus() == AlertStatus.ACTIVE) {
+                alert.setStatus(AlertStatus.ACKNOWLEDGED);
+                alert.setAcknowledgedBy(acknowledgedBy);
+                alert.setAcknowledgedAt(Instant.now());
+                pendingAlertUpdates.remove(alert);
+                
+                return alertRepository.save(alert);
+            }
             
-            return alertRepository.save(alert);
+            return alert;
         }
-        
-        return alert;
     }
 
     /**
@@ -551,7 +689,12 @@ public class AlertingService {
         alert.setThreshold(0.0); // Default threshold
         alert.setTriggeredAt(Instant.now());
         
-        alertRepository.save(alert);
+        alert = alertRepository.save(alert);
+        synchronized (alertStateLock) {
+            if (openAlertsLoaded) {
+                openAlerts.put(alertRule.getId(), alert);
+            }
+        }
         
         // Send notifications if enabled
         if (webhookNotificationEnabled && webhookUrl != null && !webhookUrl.isEmpty()) {
@@ -0,0 +1,36 @@
+package com.codebridge.monitoring.performance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity holding the checkpoint of the anomaly detection baseline of a metric.
+ */
+@Entity
+@Table(name = "anomaly_baselines",
+       uniqueConstraints = @UniqueConstraint(name = "uk_anomaly_baseline_series", columnNames = {"service_name", "metric_name"}))
+@Data
+@NoArgsConstructor
+public class AnomalyBaseline {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "service_name", nullable = false)
+    private String serviceName;
+
+    @Column(name = "metric_name", nullable = false)
+    private String metricName;
+
+    @Lob
+    @Column(name = "checkpoint", nullable = false)
+    private byte[] checkpoint;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.codebridge.monitoring.performance.repository;
+
+import com.codebridge.monitoring.performance.model.AnomalyBaseline;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository for managing anomaly detection baseline checkpoints.
+ */
+@Repository
+public interface AnomalyBaselineRepository extends JpaRepository<AnomalyBaseline, UUID> {
+
+    /**
+     * Find the baseline checkpoint of a metric.
+     *
+     * @param serviceName the service name
+     * @param metricName the metric name
+     * @return the checkpoint, if one was written
+     */
+    Optional<AnomalyBaseline> findByServiceNameAndMetricName(String serviceName, String metricName);
+}
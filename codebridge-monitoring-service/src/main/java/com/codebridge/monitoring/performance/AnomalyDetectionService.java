@@ -1,30 +1,40 @@
 package com.codebridge.monitoring.performance.service;
 
+import com.codebridge.monitoring.performance.anomaly.SeasonalBaseline;
+import com.codebridge.monitoring.performance.collector.MetricSummaryListener;
 import com.codebridge.monitoring.performance.model.AlertRule;
 import com.codebridge.monitoring.performance.model.AlertSeverity;
+import com.codebridge.monitoring.performance.model.AnomalyBaseline;
 import com.codebridge.monitoring.performance.model.MetricType;
 import com.codebridge.monitoring.performance.model.PerformanceMetric;
-import com.codebridge.monitoring.performance.repository.PerformanceMetricRepository;
+import com.codebridge.monitoring.performance.repository.AnomalyBaselineRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Service for detecting anomalies in performance metrics.
+ * Gauge metrics are checked as they are ingested against an online baseline per metric,
+ * which keeps a mean and variance overall and per hour of the week. Baselines are
+ * checkpointed to the database periodically and restored on first use.
  */
 @Service
 @Slf4j
-public class AnomalyDetectionService {
+public class AnomalyDetectionService implements MetricSummaryListener {
 
-    private final PerformanceMetricRepository metricRepository;
+    private final AnomalyBaselineRepository baselineRepository;
     private final AlertingService alertingService;
     private final TimeSeriesService timeSeriesService;
+    private final ConcurrentMap<SeriesName, TrackedBaseline> baselines = new ConcurrentHashMap<>();
     
     @Value("${performance.anomaly-detection.enabled:true}")
     private boolean anomalyDetectionEnabled;
@@ -35,93 +45,144 @@ public class AnomalyDetectionService {
     @Value("${performance.anomaly-detection.training-period-days:7}")
     private int trainingPeriodDays;
     
+    @Value("${performance.anomaly-detection.seasonal-training-weeks:4}")
+    private int seasonalTrainingWeeks;
+    
     @Value("${performance.anomaly-detection.min-data-points:100}")
     private int minDataPoints;
 
+    @Value("${performance.anomaly-detection.min-seasonal-weeks:2}")
+    private int minSeasonalWeeks;
+
+    @Value("${performance.metrics.aggregation.interval-ms:10000}")
+    private long ingestIntervalMs;
+
     @Autowired
     public AnomalyDetectionService(
-            PerformanceMetricRepository metricRepository,
+            AnomalyBaselineRepository baselineRepository,
             AlertingService alertingService,
             TimeSeriesService timeSeriesService) {
-        this.metricRepository = metricRepository;
+        this.baselineRepository = baselineRepository;
         this.alertingService = alertingService;
         this.timeSeriesService = timeSeriesService;
     }
 
     /**
-     * Scheduled task to detect anomalies.
+     * Check ingested gauge values against their baselines, then update the baselines.
+     *
+     * @param summaries the summaries of a closed aggregation interval
      */
-    @Scheduled(cron = "0 */15 * * * *") // Every 15 minutes
-    public void detectAnomalies() {
+    @Override
+    public void onSummaries(List<PerformanceMetric> summaries) {
         if (!anomalyDetectionEnabled) {
             return;
         }
         
-        log.debug("Running anomaly detection");
-        
-        // Get distinct service and metric name combinations
-        List<Object[]> serviceMetricPairs = metricRepository.findDistinctServiceAndMetricNames();
+        Map<SeriesName, List<PerformanceMetric>> anomalies = new HashMap<>();
+        Map<SeriesName, SeasonalBaseline.Expectation> expectations = new HashMap<>();
+        for (PerformanceMetric metric : summaries) {
+            if (metric.getMetricType() != MetricType.GAUGE) {
+                continue;
+            }
+            
+            SeriesName name = new SeriesName(metric.getServiceName(), metric.getMetricName());
+            SeasonalBaseline baseline = baselines.computeIfAbsent(name, this::loadBaseline).baseline;
+            long timestamp = metric.getTimestamp().toEpochMilli();
+            
+            // Check before updating, so the point is judged against its history only
+            SeasonalBaseline.Expectation expectation = baseline.expectation(timestamp, minDataPoints, minSeasonalWeeks);
+            if (expectation != null && Math.abs(metric.getValue() - expectation.mean()) > sensitivity * expectation.stdDev()) {
+                anomalies.computeIfAbsent(name, k -> new ArrayList<>()).add(metric);
+                expectations.put(name, expectation);
+            }
+            baseline.update(timestamp, metric.getValue());
+        }
         
-        for (Object[] pair : serviceMetricPairs) {
-            String serviceName = (String) pair[0];
-            String metricName = (String) pair[1];
+        for (Map.Entry<SeriesName, List<PerformanceMetric>> entry : anomalies.entrySet()) {
+            SeriesName name = entry.getKey();
+            SeasonalBaseline.Expectation expectation = expectations.get(name);
+            try {
+                handleAnomalies(name.serviceName(), name.metricName(), entry.getValue(),
+                        expectation.mean(), expectation.stdDev(),
+                        expectation.mean() + sensitivity * expectation.stdDev(),
+                        expectation.mean() - sensitivity * expectation.stdDev());
+            } catch (Exception e) {
+                log.error("Error handling anomalies for {}.{}: {}",
+                        name.serviceName(), name.metricName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Scheduled task to checkpoint the baselines that changed.
+     */
+    @Scheduled(fixedDelayString = "${performance.anomaly-detection.checkpoint-interval-ms:300000}")
+    public void checkpointBaselines() {
+        int saved = 0;
+        for (Map.Entry<SeriesName, TrackedBaseline> entry : baselines.entrySet()) {
+            TrackedBaseline tracked = entry.getValue();
+            if (!tracked.baseline.checkDirty()) {
+                continue;
+            }
             
             try {
-                detectAnomaliesForMetric(serviceName, metricName);
+                AnomalyBaseline checkpoint = tracked.checkpoint;
+                if (checkpoint == null) {
+                    checkpoint = new AnomalyBaseline();
+                    checkpoint.setServiceName(entry.getKey().serviceName());
+                    checkpoint.setMetricName(entry.getKey().metricName());
+                }
+                checkpoint.setCheckpoint(tracked.baseline.toCheckpoint());
+                checkpoint.setUpdatedAt(Instant.now());
+                tracked.checkpoint = baselineRepository.save(checkpoint);
+                saved++;
             } catch (Exception e) {
-                log.error("Error detecting anomalies for {}.{}: {}", 
-                        serviceName, metricName, e.getMessage(), e);
+                log.error("Error checkpointing anomaly baseline for {}.{}: {}",
+                        entry.getKey().serviceName(), entry.getKey().metricName(), e.getMessage(), e);
             }
         }
+        log.debug("Checkpointed {} anomaly baselines", saved);
+    }
+
+    /**
+     * Checkpoint the baselines on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        checkpointBaselines();
     }
     
     /**
-     * Detect anomalies for a specific metric.
+     * Restore the baseline of a metric from its checkpoint, or start an empty one.
      *
-     * @param serviceName the service name
-     * @param metricName the metric name
+     * @param name the metric
+     * @return the baseline
      */
-    private void detectAnomaliesForMetric(String serviceName, String metricName) {
-        // Get historical data for training
-        Instant now = Instant.now();
-        Instant trainingStart = now.minusSeconds(trainingPeriodDays * 24 * 60 * 60);
-        Instant evaluationStart = now.minusSeconds(15 * 60);
-        
-        List<PerformanceMetric> trainingData = metricRepository.findByServiceNameAndMetricNameAndMetricTypeAndTimestampBetween(
-                serviceName, metricName, MetricType.GAUGE, trainingStart, evaluationStart);
-        
-        if (trainingData.size() < minDataPoints) {
-            log.debug("Not enough data points for anomaly detection for {}.{}: {} (min: {})",
-                    serviceName, metricName, trainingData.size(), minDataPoints);
-            return;
-        }
-        
-        // Calculate statistics from training data
-        DescriptiveStatistics stats = new DescriptiveStatistics();
-        for (PerformanceMetric metric : trainingData) {
-            stats.addValue(metric.getValue());
+    private TrackedBaseline loadBaseline(SeriesName name) {
+        // A new point weighs at least 1/N, where N is the number of points in the training period
+        long pointsPerHour = Math.max(1, Duration.ofHours(1).toMillis() / ingestIntervalMs);
+        double overallAlpha = 1.0 / (pointsPerHour * 24 * trainingPeriodDays);
+        double seasonalAlpha = 1.0 / (pointsPerHour * seasonalTrainingWeeks);
+        
+        TrackedBaseline tracked = new TrackedBaseline();
+        try {
+            tracked.checkpoint = baselineRepository.findByServiceNameAndMetricName(name.serviceName(), name.metricName())
+                    .orElse(null);
+        } catch (Exception e) {
+            log.error("Error loading anomaly baseline for {}.{}: {}",
+                    name.serviceName(), name.metricName(), e.getMessage(), e);
         }
-        
-        double mean = stats.getMean();
-        double stdDev = stats.getStandardDeviation();
-        double upperThreshold = mean + (sensitivity * stdDev);
-        double lowerThreshold = mean - (sensitivity * stdDev);
-        
-        // Get recent data for evaluation
-        List<PerformanceMetric> recentData = metricRepository.findByServiceNameAndMetricNameAndMetricTypeAndTimestampBetween(
-                serviceName, metricName, MetricType.GAUGE, evaluationStart, now);
-        
-        // Check for anomalies
-        List<PerformanceMetric> anomalies = new ArrayList<>();
-        for (PerformanceMetric metric : recentData) {
-            if (metric.getValue() > upperThreshold || metric.getValue() < lowerThreshold) {
-                anomalies.add(metric);
+        if (tracked.checkpoint != null) {
+            try {
+                tracked.baseline = SeasonalBaseline.fromCheckpoint(tracked.checkpoint.getCheckpoint(), overallAlpha, seasonalAlpha);
+                return tracked;
+            } catch (RuntimeException e) {
+                log.warn("Discarding unreadable anomaly baseline for {}.{}: {}",
+                        name.serviceName(), name.metricName(), e.getMessage());
             }
         }
-        
-        if (!anomalies.isEmpty()) {
-            handleAnomalies(serviceName, metricName, anomalies, mean, stdDev, upperThreshold, lowerThreshold);
-        }
+        tracked.baseline = new SeasonalBaseline(overallAlpha, seasonalAlpha);
+        return tracked;
     }
     
     /**
@@ -214,7 +275,8 @@ public class AnomalyDetectionService {
             double avgValue = timeSeriesService.queryAggregatedMetric(
                     serviceName, metricName, intervalStart, intervalEnd, "mean");
             
-            values.add(avgValue);
+            // Intervals without data are reported as null and left out of the regression
+            values.add(Double.isNaN(avgValue) ? null : avgValue);
             labels.add(intervalStart.toString());
         }
         
@@ -247,30 +309,28 @@ public class AnomalyDetectionService {
     
     /**
      * Calculate linear regression for a list of values.
+     * Null values are skipped, keeping the positions of the others.
      *
      * @param values the list of values
      * @return array containing [slope, intercept]
      */
     private double[] calculateLinearRegression(List<Double> values) {
-        int n = values.size();
-        
-        if (n < 2) {
-            return new double[] {0, 0};
-        }
-        
-        // Create x values (0, 1, 2, ...)
-        double[] x = new double[n];
-        for (int i = 0; i < n; i++) {
-            x[i] = i;
-        }
-        
-        // Calculate means
+        int n = 0;
         double meanX = 0;
         double meanY = 0;
         
-        for (int i = 0; i < n; i++) {
-            meanX += x[i];
-            meanY += values.get(i);
+        // Calculate means, with x values (0, 1, 2, ...) taken from the positions
+        for (int i = 0; i < values.size(); i++) {
+            Double value = values.get(i);
+            if (value != null) {
+                meanX += i;
+                meanY += value;
+                n++;
+            }
+        }
+        
+        if (n < 2) {
+            return new double[] {0, 0};
         }
         
         meanX /= n;
@@ -280,9 +340,12 @@ public class AnomalyDetectionService {
         double numerator = 0;
         double denominator = 0;
         
-        for (int i = 0; i < n; i++) {
-            numerator += (x[i] - meanX) * (values.get(i) - meanY);
-            denominator += Math.pow(x[i] - meanX, 2);
+        for (int i = 0; i < values.size(); i++) {
+            Double value = values.get(i);
+            if (value != null) {
+                numerator += (i - meanX) * (value - meanY);
+                denominator += Math.pow(i - meanX, 2);
+            }
         }
         
         double slope = denominator != 0 ? numerator / denominator : 0;
@@ -337,4 +400,14 @@ public class AnomalyDetectionService {
         
         return result;
     }
+
+    private record SeriesName(String serviceName, String metricName) {}
+
+    /**
+     * A baseline and its last saved checkpoint.
+     */
+    private static final class TrackedBaseline {
+        private SeasonalBaseline baseline;
+        private AnomalyBaseline checkpoint;
+    }
 }
@@ -4,31 +4,48 @@ import com.codebridge.monitoring.performance.model.MetricType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
-import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Collector for API-related metrics.
  * This interceptor captures request counts, response times, and error rates
- * for API endpoints.
+ * for API endpoints. Requests are keyed by the route template of the matched handler
+ * (e.g. {@code /servers/{id}}) rather than the raw path, so the number of series stays bounded.
+ * Each (route, method, status class) has pre-registered series handles, so timing a request
+ * records into striped counters and histograms without allocating; error rates are computed
+ * once per aggregation interval.
  */
 @Component
 @Slf4j
-public class ApiMetricsCollector implements HandlerInterceptor {
+public class ApiMetricsCollector implements AsyncHandlerInterceptor, MetricFlushContributor {
 
-    private static final String REQUEST_START_TIME = "requestStartTime";
     private static final String SERVICE_NAME = "api-service";
+    private static final String UNMATCHED_ROUTE = "UNMATCHED";
+    private static final String ASYNC_START_TIME_ATTRIBUTE = ApiMetricsCollector.class.getName() + ".asyncStartTime";
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS", "TRACE", "OTHER"};
+    // Indexed by status / 100
+    private static final String[] STATUS_CLASSES = {"other", "1xx", "2xx", "3xx", "4xx", "5xx"};
     
     private final PerformanceMetricsCollector metricsCollector;
-    private final ConcurrentHashMap<String, Long> endpointRequestCounts = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> endpointErrorCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final ThreadLocal<StartTimes> startTimes = ThreadLocal.withInitial(StartTimes::new);
     
     @Value("${services.api.metrics-enabled:true}")
     private boolean apiMetricsEnabled;
@@ -41,33 +58,62 @@ public class ApiMetricsCollector implements HandlerInterceptor {
         this.metricsCollector = metricsCollector;
     }
 
+    /**
+     * Creates an enabled interceptor monitoring the given endpoint prefixes, for use outside a Spring context.
+     */
+    ApiMetricsCollector(PerformanceMetricsCollector metricsCollector, String... endpointsToMonitor) {
+        this(metricsCollector);
+        this.apiMetricsEnabled = true;
+        this.endpointsToMonitor = endpointsToMonitor;
+    }
+
+    /**
+     * Register the routes of all request mappings up front, so their series exist before the first request.
+     *
+     * @param event the context refreshed event
+     */
+    @EventListener
+    public void registerRoutes(ContextRefreshedEvent event) {
+        if (!apiMetricsEnabled) {
+            return;
+        }
+        
+        for (RequestMappingInfoHandlerMapping mapping :
+                event.getApplicationContext().getBeansOfType(RequestMappingInfoHandlerMapping.class).values()) {
+            for (RequestMappingInfo info : mapping.getHandlerMethods().keySet()) {
+                info.getPatternValues().forEach(this::route);
+            }
+        }
+        log.debug("Registered {} API routes for metrics", routes.size());
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         if (!apiMetricsEnabled) {
             return true;
         }
         
-        // Store the start time
-        request.setAttribute(REQUEST_START_TIME, System.currentTimeMillis());
-        
-        // Increment request counter
-        String endpoint = getEndpointPath(request);
-        if (shouldMonitorEndpoint(endpoint)) {
-            endpointRequestCounts.compute(endpoint, (k, v) -> (v == null) ? 1 : v + 1);
-            
-            // Record request count metric
-            Map<String, String> tags = new HashMap<>();
-            tags.put("endpoint", endpoint);
-            tags.put("method", request.getMethod());
-            metricsCollector.incrementCounter(SERVICE_NAME, "request.count", tags);
+        // An async dispatch completes a request that started on another thread
+        if (request.getDispatcherType() == DispatcherType.ASYNC
+                && request.getAttribute(ASYNC_START_TIME_ATTRIBUTE) instanceof Long startTime) {
+            request.removeAttribute(ASYNC_START_TIME_ATTRIBUTE);
+            startTimes.get().push(startTime);
+            return true;
         }
-        
+        // Kept per thread instead of in a request attribute, which would box the start time
+        startTimes.get().push(System.nanoTime());
         return true;
     }
 
     @Override
-    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
-        // Not used
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (apiMetricsEnabled) {
+            // The request completes on the async dispatch, which takes the start time over from the request
+            long startTime = startTimes.get().pop();
+            if (startTime != StartTimes.NONE) {
+                request.setAttribute(ASYNC_START_TIME_ATTRIBUTE, startTime);
+            }
+        }
     }
 
     @Override
@@ -76,47 +122,44 @@ public class ApiMetricsCollector implements HandlerInterceptor {
             return;
         }
         
-        Long startTime = (Long) request.getAttribute(REQUEST_START_TIME);
-        if (startTime == null) {
+        long startTime = startTimes.get().pop();
+        if (startTime == StartTimes.NONE) {
             return;
         }
         
-        String endpoint = getEndpointPath(request);
-        if (!shouldMonitorEndpoint(endpoint)) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        RouteMetrics route = route(pattern instanceof String ? (String) pattern : UNMATCHED_ROUTE);
+        if (!route.monitored) {
             return;
         }
         
-        // Calculate request duration
-        long duration = System.currentTimeMillis() - startTime;
-        
-        // Create tags
-        Map<String, String> tags = new HashMap<>();
-        tags.put("endpoint", endpoint);
-        tags.put("method", request.getMethod());
-        tags.put("status", String.valueOf(response.getStatus()));
-        
-        // Record response time
-        metricsCollector.recordTimer(SERVICE_NAME, "response.time", duration, tags);
+        // An exception escaping the handler is turned into a 500 by the container
+        int status = response.getStatus();
+        boolean error = status >= 400 || ex != null;
+        int statusClass = ex != null && status < 400 ? 5 : status / 100;
         
-        // Record status code
-        metricsCollector.incrementCounter(SERVICE_NAME, "status." + response.getStatus(), tags);
-        
-        // Record errors
-        if (response.getStatus() >= 400 || ex != null) {
-            endpointErrorCounts.compute(endpoint, (k, v) -> (v == null) ? 1 : v + 1);
-            
-            tags.put("error_type", ex != null ? ex.getClass().getSimpleName() : "HTTP" + response.getStatus());
-            metricsCollector.incrementCounter(SERVICE_NAME, "error.count", tags);
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        route.series(methodIndex(request.getMethod()), statusClass < STATUS_CLASSES.length ? statusClass : 0)
+                .record(durationMs, error);
+        route.requests.increment();
+        if (error) {
+            route.errors.increment();
+        }
+    }
+
+    /**
+     * Record the error rate of each route over the closing aggregation interval.
+     */
+    @Override
+    public void beforeFlush() {
+        for (RouteMetrics route : routes.values()) {
+            long requests = route.requests.sumThenReset();
+            if (requests == 0 || !route.monitored) {
+                continue;
+            }
+            long errors = route.errors.sumThenReset();
+            route.errorRate.record(Math.min(1.0, (double) errors / requests));
         }
-        
-        // Calculate and record error rate
-        long requestCount = endpointRequestCounts.getOrDefault(endpoint, 1L);
-        long errorCount = endpointErrorCounts.getOrDefault(endpoint, 0L);
-        double errorRate = (double) errorCount / requestCount;
-        
-        Map<String, String> errorRateTags = new HashMap<>();
-        errorRateTags.put("endpoint", endpoint);
-        metricsCollector.recordGauge(SERVICE_NAME, "error.rate", errorRate, errorRateTags);
     }
     
     /**
@@ -172,26 +215,46 @@ public class ApiMetricsCollector implements HandlerInterceptor {
     }
     
     /**
-     * Get the endpoint path from the request.
+     * Get the metrics of a route, registering it on first use.
      *
-     * @param request the HTTP request
-     * @return the endpoint path
+     * @param route the route template
+     * @return the route metrics
      */
-    private String getEndpointPath(HttpServletRequest request) {
-        String uri = request.getRequestURI();
-        String contextPath = request.getContextPath();
-        
-        if (contextPath != null && !contextPath.isEmpty()) {
-            uri = uri.substring(contextPath.length());
+    private RouteMetrics route(String route) {
+        RouteMetrics metrics = routes.get(route);
+        if (metrics == null) {
+            metrics = routes.computeIfAbsent(route, r -> new RouteMetrics(r, shouldMonitorEndpoint(r)));
         }
-        
-        // Remove query string
-        int queryStringIndex = uri.indexOf('?');
-        if (queryStringIndex > 0) {
-            uri = uri.substring(0, queryStringIndex);
+        return metrics;
+    }
+    
+    /**
+     * Get the index of an HTTP method in {@link #METHODS}.
+     *
+     * @param method the HTTP method
+     * @return the method index
+     */
+    private static int methodIndex(String method) {
+        switch (method) {
+            case "GET":
+                return 0;
+            case "POST":
+                return 1;
+            case "PUT":
+                return 2;
+            case "DELETE":
+                return 3;
+            case "PATCH":
+                return 4;
+            case "HEAD":
+                return 5;
+            case "OPTIONS":
+                return 6;
+            case "TRACE":
+                return 7;
+            default:
+                return 8;
         }
-        
-        return uri;
     }
     
     /**
@@ -217,5 +280,86 @@ public class ApiMetricsCollector implements HandlerInterceptor {
         
         return false;
     }
-}
 
+    /**
+     * Metrics of a route. Series of each (method, status class) are registered on first use
+     * and then recorded into through the held handles.
+     */
+    private final class RouteMetrics {
+        final String route;
+        final boolean monitored;
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final MetricSeries errorRate;
+        final AtomicReferenceArray<RequestSeries> series = new AtomicReferenceArray<>(METHODS.length * STATUS_CLASSES.length);
+
+        RouteMetrics(String route, boolean monitored) {
+            this.route = route;
+            this.monitored = monitored;
+            this.errorRate = monitored
+                    ? metricsCollector.getSeries(SERVICE_NAME, "error.rate", MetricType.GAUGE, Map.of("endpoint", route))
+                    : null;
+        }
+
+        RequestSeries series(int method, int statusClass) {
+            int index = method * STATUS_CLASSES.length + statusClass;
+            RequestSeries requestSeries = series.get(index);
+            if (requestSeries == null) {
+                series.compareAndSet(index, null, new RequestSeries(route, METHODS[method], STATUS_CLASSES[statusClass]));
+                requestSeries = series.get(index);
+            }
+            return requestSeries;
+        }
+    }
+
+    /**
+     * Series handles of a (route, method, status class).
+     */
+    private final class RequestSeries {
+        final MetricSeries requestCount;
+        final MetricSeries responseTime;
+        final MetricSeries errorCount;
+
+        RequestSeries(String route, String method, String statusClass) {
+            Map<String, String> tags = Map.of("endpoint", route, "method", method, "status_class", statusClass);
+            this.requestCount = metricsCollector.getSeries(SERVICE_NAME, "request.count", MetricType.COUNTER, tags);
+            this.responseTime = metricsCollector.getSeries(SERVICE_NAME, "response.time", MetricType.TIMER, tags);
+            this.errorCount = metricsCollector.getSeries(SERVICE_NAME, "error.count", MetricType.COUNTER, tags);
+        }
+
+        void record(long durationMs, boolean error) {
+            requestCount.record(1.0);
+            responseTime.record(durationMs);
+            if (error) {
+                errorCount.record(1.0);
+            }
+        }
+    }
+
+    /**
+     * Start times of the requests being handled by a thread; a stack, since a request
+     * can be forwarded or included while it is handled.
+     */
+    private static final class StartTimes {
+        static final long NONE = Long.MIN_VALUE;
+        private static final int MAX_DEPTH = 8;
+
+        private final long[] times = new long[MAX_DEPTH];
+        private int depth;
+
+        void push(long time) {
+            if (depth < MAX_DEPTH) {
+                times[depth] = time;
+            }
+            depth++;
+        }
+
+        long pop() {
+            if (depth == 0) {
+                return NONE;
+            }
+            depth--;
+            return depth < MAX_DEPTH ? times[depth] : NONE;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.codebridge.monitoring.performance.config;
+
+import com.codebridge.monitoring.performance.collector.ApiMetricsCollector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration registering the API metrics interceptor.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ApiMetricsConfig implements WebMvcConfigurer {
+
+    private final ApiMetricsCollector apiMetricsCollector;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(apiMetricsCollector);
+    }
+}
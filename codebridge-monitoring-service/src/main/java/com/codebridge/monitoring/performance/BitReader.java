@@ -0,0 +1,37 @@
+package com.codebridge.monitoring.performance.storage;
+
+/**
+ * Reads bits written by a {@link BitWriter}.
+ */
+final class BitReader {
+
+    private final byte[] bytes;
+    private int bitPosition;
+
+    BitReader(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    boolean readBit() {
+        return readBits(1) == 1;
+    }
+
+    /**
+     * Reads bits as an unsigned value.
+     *
+     * @param count the number of bits to read, from 1 to 64
+     * @return the value
+     */
+    long readBits(int count) {
+        long value = 0;
+        while (count > 0) {
+            int available = 8 - (bitPosition & 7);
+            int read = Math.min(available, count);
+            int chunk = ((bytes[bitPosition >>> 3] & 0xFF) >>> (available - read)) & ((1 << read) - 1);
+            value = (value << read) | chunk;
+            bitPosition += read;
+            count -= read;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,50 @@
+package com.codebridge.monitoring.performance.storage;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer that bits are appended to, most significant bit first.
+ */
+final class BitWriter {
+
+    private byte[] bytes;
+    private int bitPosition;
+
+    BitWriter(int initialCapacity) {
+        this.bytes = new byte[Math.max(1, initialCapacity)];
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes the lowest bits of a value.
+     *
+     * @param value the value
+     * @param count the number of bits to write, from 1 to 64
+     */
+    void writeBits(long value, int count) {
+        while (count > 0) {
+            int byteIndex = bitPosition >>> 3;
+            if (byteIndex == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            int free = 8 - (bitPosition & 7);
+            int written = Math.min(free, count);
+            int chunk = (int) (value >>> (count - written)) & ((1 << written) - 1);
+            bytes[byteIndex] |= (byte) (chunk << (free - written));
+            bitPosition += written;
+            count -= written;
+        }
+    }
+
+    /**
+     * Copies the written bits, padded with zeros to a whole number of bytes.
+     *
+     * @return the encoded bytes
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, (bitPosition + 7) >>> 3);
+    }
+}
@@ -0,0 +1,57 @@
+package com.codebridge.monitoring.performance.storage;
+
+/**
+ * Summary of a compressed block of points: its time range and the count, sum, minimum and maximum
+ * of its values. Range aggregations use the summary directly for blocks that lie entirely inside
+ * the queried range, and only decode blocks that straddle its bounds.
+ */
+final class Block {
+
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int count;
+    private final double min;
+    private final double max;
+    private final double sum;
+
+    Block(long minTimestamp, long maxTimestamp, int count, double min, double max, double sum) {
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    double getMin() {
+        return min;
+    }
+
+    double getMax() {
+        return max;
+    }
+
+    double getSum() {
+        return sum;
+    }
+
+    boolean overlaps(long start, long end) {
+        return maxTimestamp >= start && minTimestamp <= end;
+    }
+
+    boolean isWithin(long start, long end) {
+        return minTimestamp >= start && maxTimestamp <= end;
+    }
+}
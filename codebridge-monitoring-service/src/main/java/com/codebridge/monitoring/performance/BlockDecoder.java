@@ -0,0 +1,73 @@
+package com.codebridge.monitoring.performance.storage;
+
+/**
+ * Decompresses blocks written by a {@link BlockEncoder}.
+ */
+final class BlockDecoder {
+
+    /**
+     * Receives decoded points.
+     */
+    @FunctionalInterface
+    interface PointConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    private BlockDecoder() {
+    }
+
+    /**
+     * Decodes the points of a block.
+     *
+     * @param data the encoded block
+     * @param count the number of points in the block
+     * @param consumer receives the points in order
+     */
+    static void decode(byte[] data, int count, PointConsumer consumer) {
+        if (count == 0) {
+            return;
+        }
+        BitReader in = new BitReader(data);
+        long timestamp = in.readBits(64);
+        long valueBits = in.readBits(64);
+        consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+
+        long delta = 0;
+        int leadingZeros = 0;
+        int trailingZeros = 0;
+        for (int i = 1; i < count; i++) {
+            delta += readDeltaOfDelta(in);
+            timestamp += delta;
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    leadingZeros = (int) in.readBits(5);
+                    int significantBits = (int) in.readBits(6) + 1;
+                    trailingZeros = 64 - leadingZeros - significantBits;
+                }
+                valueBits ^= in.readBits(64 - leadingZeros - trailingZeros) << trailingZeros;
+            }
+            consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return signed(in.readBits(7), 7);
+        }
+        if (!in.readBit()) {
+            return signed(in.readBits(9), 9);
+        }
+        if (!in.readBit()) {
+            return signed(in.readBits(12), 12);
+        }
+        return in.readBits(64);
+    }
+
+    // Ranges are skewed towards positive values, e.g. [-63, 64] for 7 bits
+    private static long signed(long value, int bits) {
+        return value > (1L << (bits - 1)) ? value - (1L << bits) : value;
+    }
+}
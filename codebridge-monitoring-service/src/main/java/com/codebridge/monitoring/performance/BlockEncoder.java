@@ -0,0 +1,111 @@
+package com.codebridge.monitoring.performance.storage;
+
+/**
+ * Compresses points into a block using the Gorilla encoding: timestamps are stored as
+ * delta-of-deltas and values as the XOR with the previous value, so regularly spaced points
+ * with slowly changing values take only a few bits each.
+ * Points must be appended in non-decreasing timestamp order.
+ */
+final class BlockEncoder {
+
+    private final long blockStart;
+    private final BitWriter out = new BitWriter(256);
+    private int count;
+    private long minTimestamp;
+    private long maxTimestamp;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum;
+
+    private long previousTimestamp;
+    private long previousDelta;
+    private long previousValueBits;
+    private int previousLeadingZeros = -1;
+    private int previousTrailingZeros;
+
+    BlockEncoder(long blockStart) {
+        this.blockStart = blockStart;
+    }
+
+    void append(long timestamp, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            out.writeBits(timestamp, 64);
+            out.writeBits(valueBits, 64);
+            minTimestamp = timestamp;
+        } else {
+            long delta = timestamp - previousTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            writeValue(valueBits ^ previousValueBits);
+            previousDelta = delta;
+        }
+        previousTimestamp = timestamp;
+        previousValueBits = valueBits;
+        maxTimestamp = timestamp;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private void writeDeltaOfDelta(long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            out.writeBit(false);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            out.writeBits(0b10, 2);
+            out.writeBits(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            out.writeBits(0b110, 3);
+            out.writeBits(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(deltaOfDelta, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeValue(long xor) {
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+        out.writeBit(true);
+        int leadingZeros = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+        if (previousLeadingZeros >= 0 && leadingZeros >= previousLeadingZeros && trailingZeros >= previousTrailingZeros) {
+            // The meaningful bits fit in the previous window
+            out.writeBit(false);
+            out.writeBits(xor >>> previousTrailingZeros, 64 - previousLeadingZeros - previousTrailingZeros);
+        } else {
+            int significantBits = 64 - leadingZeros - trailingZeros;
+            out.writeBit(true);
+            out.writeBits(leadingZeros, 5);
+            out.writeBits(significantBits - 1, 6);
+            out.writeBits(xor >>> trailingZeros, significantBits);
+            previousLeadingZeros = leadingZeros;
+            previousTrailingZeros = trailingZeros;
+        }
+    }
+
+    long getBlockStart() {
+        return blockStart;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    Block summary() {
+        return new Block(minTimestamp, maxTimestamp, count, min, max, sum);
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
@@ -237,8 +237,8 @@ public class ContinuousMonitoringService {
         double baselineValue = timeSeriesService.queryAggregatedMetric(
                 serviceName, metricName, baselineStart, baselineEnd, "mean");
         
-        // Skip if baseline value is too small
-        if (Math.abs(baselineValue) < 0.0001) {
+        // Skip if either period has no data or the baseline value is too small
+        if (Double.isNaN(currentValue) || Double.isNaN(baselineValue) || Math.abs(baselineValue) < 0.0001) {
             return;
         }
         
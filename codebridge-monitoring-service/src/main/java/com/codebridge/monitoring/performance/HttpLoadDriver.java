@@ -0,0 +1,71 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Load driver issuing HTTP requests with the JDK's non-blocking HTTP client.
+ * The request is built once and sent as many times as the profile asks; response bodies are discarded.
+ * Responses with a status below 400 count as successful.
+ */
+public class HttpLoadDriver implements LoadDriver {
+
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final HttpRequest request;
+
+    /**
+     * Creates a driver.
+     *
+     * @param endpoint the URL to request
+     * @param method the HTTP method
+     * @param body the request body, or null for none
+     * @param headers the request headers
+     * @param timeout the timeout of each request
+     */
+    public HttpLoadDriver(String endpoint, String method, String body, Map<String, String> headers, Duration timeout) {
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(endpoint))
+                .timeout(timeout)
+                .method(method.toUpperCase(), body != null && !body.isEmpty()
+                        ? HttpRequest.BodyPublishers.ofString(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        if (headers != null) {
+            headers.forEach(builder::header);
+        }
+        this.request = builder.build();
+    }
+
+    @Override
+    public CompletableFuture<RequestOutcome> execute() {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        return RequestOutcome.failure(cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                    }
+                    int status = response.statusCode();
+                    return status < 400
+                            ? new RequestOutcome(true, status, null)
+                            : new RequestOutcome(false, status, "HTTP " + status);
+                });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,137 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which databases a database performance test may connect to and what it may run there.
+ * The JDBC URL and statement of a test come from the user who created it, and drivers act on URL parameters and
+ * connection properties: H2's {@code INIT=RUNSCRIPT FROM '...'} runs a remote script, and {@code socketFactory}
+ * style parameters instantiate arbitrary classes. Rather than trying to name every dangerous option, only known
+ * forms are accepted: a URL must have the form {@code jdbc:<driver>://<host>[:<port>][/<database>][?<parameters>]}
+ * with a configured driver and host, may only carry a few plain parameters, and the only connection properties
+ * accepted are the user name and password. The statement must be a single query, which the
+ * {@link JdbcLoadDriver} runs in a read-only transaction. Without configured drivers and hosts, database tests
+ * are refused.
+ */
+public class JdbcConnectionPolicy {
+
+    private static final Set<String> ALLOWED_PROPERTIES = Set.of("username", "password");
+
+    private static final Set<String> ALLOWED_PARAMETERS = Set.of(
+            "sslmode", "ssl", "usessl", "connecttimeout", "sockettimeout", "applicationname", "currentschema");
+
+    private static final Pattern PLAIN_VALUE = Pattern.compile("[A-Za-z0-9_.-]*");
+    private static final Pattern DATABASE_PATH = Pattern.compile("(/[A-Za-z0-9_.-]*)?");
+    private static final Pattern QUERY_START = Pattern.compile("(?i)(select|with)\\b.*", Pattern.DOTALL);
+
+    private final Set<String> allowedDrivers;
+    private final Set<String> allowedHosts;
+
+    /**
+     * Creates a policy.
+     *
+     * @param allowedDrivers the JDBC sub-protocols that may be used, e.g. {@code postgresql}
+     * @param allowedHosts the database hosts that may be connected to, as {@code host} or {@code host:port}
+     */
+    public JdbcConnectionPolicy(List<String> allowedDrivers, List<String> allowedHosts) {
+        this.allowedDrivers = normalize(allowedDrivers);
+        this.allowedHosts = normalize(allowedHosts);
+    }
+
+    /**
+     * Checks the connection settings of a database test.
+     *
+     * @param jdbcUrl the JDBC URL
+     * @param properties the connection properties, may be null
+     * @throws IllegalArgumentException if the URL or a property is not allowed
+     */
+    public void check(String jdbcUrl, Map<String, String> properties) {
+        if (jdbcUrl == null || jdbcUrl.isBlank()) {
+            throw new IllegalArgumentException("Database test has no JDBC URL");
+        }
+        if (allowedDrivers.isEmpty() || allowedHosts.isEmpty()) {
+            throw new IllegalArgumentException("Database tests are disabled: no JDBC drivers or hosts are allowed");
+        }
+        if (!jdbcUrl.startsWith("jdbc:")) {
+            throw new IllegalArgumentException("Not a JDBC URL: " + jdbcUrl);
+        }
+
+        URI uri;
+        try {
+            uri = new URI(jdbcUrl.substring("jdbc:".length()));
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("JDBC URL is not allowed for performance tests: " + jdbcUrl, e);
+        }
+        if (uri.getScheme() == null || !allowedDrivers.contains(uri.getScheme().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("JDBC driver is not allowed for performance tests: " + jdbcUrl);
+        }
+        if (uri.getHost() == null || uri.getRawUserInfo() != null || uri.getRawFragment() != null
+                || !DATABASE_PATH.matcher(uri.getRawPath()).matches()) {
+            throw new IllegalArgumentException("JDBC URL is not allowed for performance tests: " + jdbcUrl);
+        }
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        if (!allowedHosts.contains(host) && !allowedHosts.contains(host + ":" + uri.getPort())) {
+            throw new IllegalArgumentException("Database host is not allowed for performance tests: " + host);
+        }
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getRawQuery().split("&")) {
+                checkParameter(parameter);
+            }
+        }
+
+        if (properties != null) {
+            for (String name : properties.keySet()) {
+                if (!ALLOWED_PROPERTIES.contains(name)) {
+                    throw new IllegalArgumentException("Connection property is not allowed for performance tests: " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the statement of a database test, which must be a single {@code SELECT} or {@code WITH} query.
+     * Anything a query could still change is refused by the database, as the statement runs in a read-only
+     * transaction that is rolled back.
+     *
+     * @param sql the statement
+     * @throws IllegalArgumentException if the statement is not a single query
+     */
+    public void checkStatement(String sql) {
+        if (sql == null || sql.isBlank()) {
+            throw new IllegalArgumentException("Database test has no SQL statement");
+        }
+        String statement = sql.strip();
+        if (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).strip();
+        }
+        if (statement.contains(";")) {
+            throw new IllegalArgumentException("Database tests may only run a single statement");
+        }
+        if (!QUERY_START.matcher(statement).matches()) {
+            throw new IllegalArgumentException("Database tests may only run SELECT queries");
+        }
+    }
+
+    private static void checkParameter(String parameter) {
+        int equals = parameter.indexOf('=');
+        String name = (equals >= 0 ? parameter.substring(0, equals) : parameter).toLowerCase(Locale.ROOT);
+        String value = equals >= 0 ? parameter.substring(equals + 1) : "";
+        if (!ALLOWED_PARAMETERS.contains(name) || !PLAIN_VALUE.matcher(value).matches()) {
+            throw new IllegalArgumentException("JDBC URL parameter is not allowed for performance tests: " + name);
+        }
+    }
+
+    private static Set<String> normalize(List<String> values) {
+        return values.stream()
+                .map(value -> value.strip().toLowerCase(Locale.ROOT))
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,92 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Load driver running a SQL query over JDBC.
+ * JDBC has no non-blocking API, so each statement runs on its own virtual thread, which does not
+ * hold a platform thread while it waits on the database; concurrency is bounded by the connection pool.
+ * Result sets are read to the end, so the database does the full work of a query. Connections are read-only
+ * and every query runs in a transaction that is rolled back, so a statement that slipped past the
+ * {@link JdbcConnectionPolicy} still cannot change the database.
+ */
+public class JdbcLoadDriver implements LoadDriver {
+
+    private final ExecutorService executor;
+    private final HikariDataSource dataSource;
+    private final String sql;
+    private final int timeoutSeconds;
+
+    /**
+     * Creates a driver.
+     *
+     * @param jdbcUrl the JDBC URL of the database
+     * @param sql the query to run
+     * @param properties connection properties; only {@code username} and {@code password} are accepted
+     * @param maxConnections the size of the connection pool
+     * @param timeout the timeout of each statement, including the wait for a connection
+     */
+    public JdbcLoadDriver(String jdbcUrl, String sql, Map<String, String> properties, int maxConnections, Duration timeout) {
+        this.sql = sql;
+        this.timeoutSeconds = (int) Math.max(1, timeout.toSeconds());
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setPoolName("load-test");
+        config.setMaximumPoolSize(maxConnections);
+        config.setConnectionTimeout(Math.max(250, timeout.toMillis()));
+        config.setReadOnly(true);
+        config.setAutoCommit(false);
+        if (properties != null) {
+            properties.forEach((name, value) -> {
+                switch (name) {
+                    case "username" -> config.setUsername(value);
+                    case "password" -> config.setPassword(value);
+                    default -> throw new IllegalArgumentException("Unsupported connection property: " + name);
+                }
+            });
+        }
+        this.dataSource = new HikariDataSource(config);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Override
+    public CompletableFuture<RequestOutcome> execute() {
+        return CompletableFuture.supplyAsync(this::executeStatement, executor);
+    }
+
+    private RequestOutcome executeStatement() {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(timeoutSeconds);
+                try (ResultSet resultSet = statement.executeQuery(sql)) {
+                    while (resultSet.next()) {
+                        // Drain the rows
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+            return new RequestOutcome(true, 0, null);
+        } catch (SQLException e) {
+            return new RequestOutcome(false, e.getErrorCode(), e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        dataSource.close();
+    }
+}
@@ -0,0 +1,37 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Issues the requests of a load test against the system under test.
+ * Drivers must not block the calling thread; the returned future completes when the request does.
+ */
+public interface LoadDriver extends AutoCloseable {
+
+    /**
+     * Issue one request.
+     *
+     * @return the outcome of the request
+     */
+    CompletableFuture<RequestOutcome> execute();
+
+    /**
+     * Release the connections held by the driver.
+     */
+    @Override
+    void close();
+
+    /**
+     * Outcome of a request.
+     *
+     * @param success whether the request succeeded
+     * @param statusCode the protocol status code, or 0 if there is none
+     * @param errorMessage the error message of a failed request
+     */
+    record RequestOutcome(boolean success, int statusCode, String errorMessage) {
+
+        public static RequestOutcome failure(String errorMessage) {
+            return new RequestOutcome(false, 0, errorMessage);
+        }
+    }
+}
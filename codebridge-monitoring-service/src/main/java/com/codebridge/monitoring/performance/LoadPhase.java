@@ -0,0 +1,22 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+/**
+ * Phases of a load test.
+ */
+public enum LoadPhase {
+
+    /**
+     * The request rate rises to the target rate.
+     */
+    RAMP_UP,
+
+    /**
+     * The request rate holds at the target rate.
+     */
+    STEADY,
+
+    /**
+     * The request rate falls back to zero.
+     */
+    RAMP_DOWN
+}
@@ -0,0 +1,130 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import com.codebridge.common.loadtest.OpenModelLoadGenerator.ArrivalSchedule;
+
+/**
+ * Open-loop arrival schedule of a load test. The request rate rises linearly to the target rate
+ * during ramp-up, holds it during the steady phase and falls linearly back to zero during ramp-down.
+ * Requests are issued at their scheduled times whether or not earlier requests have completed,
+ * so a slow system under test cannot slow the load down.
+ *
+ * @param targetRate the steady request rate, in requests per second
+ * @param rampUpSeconds the length of the ramp-up phase
+ * @param steadySeconds the length of the steady phase
+ * @param rampDownSeconds the length of the ramp-down phase
+ */
+public record LoadProfile(double targetRate, double rampUpSeconds, double steadySeconds, double rampDownSeconds) {
+
+    public LoadProfile {
+        if (!(targetRate > 0)) {
+            throw new IllegalArgumentException("Target rate must be positive: " + targetRate);
+        }
+        if (rampUpSeconds < 0 || steadySeconds < 0 || rampDownSeconds < 0) {
+            throw new IllegalArgumentException("Phase lengths must not be negative");
+        }
+    }
+
+    /**
+     * Gets the total length of the profile.
+     *
+     * @return the length in seconds
+     */
+    public double totalSeconds() {
+        return rampUpSeconds + steadySeconds + rampDownSeconds;
+    }
+
+    /**
+     * Gets the number of requests the profile issues.
+     *
+     * @return the request count
+     */
+    public long totalRequests() {
+        return (long) Math.floor(arrivalsBy(totalSeconds()) + 0.5);
+    }
+
+    /**
+     * Gets the scheduled time of a request. The k-th request is issued when the expected number
+     * of arrivals reaches k + 1/2, which spreads the requests evenly over the schedule.
+     *
+     * @param index the zero-based request index
+     * @return the offset from the start of the test in seconds, or -1 if the profile issues fewer requests
+     */
+    public double arrivalTime(long index) {
+        double arrivals = index + 0.5;
+        double rampUpArrivals = targetRate * rampUpSeconds / 2;
+        if (arrivals <= rampUpArrivals) {
+            // Arrivals by t during ramp-up are rate * t^2 / (2 * rampUp)
+            return Math.sqrt(2 * rampUpSeconds * arrivals / targetRate);
+        }
+        double steadyArrivals = rampUpArrivals + targetRate * steadySeconds;
+        if (arrivals <= steadyArrivals) {
+            return rampUpSeconds + (arrivals - rampUpArrivals) / targetRate;
+        }
+        double remaining = arrivals - steadyArrivals;
+        if (remaining > targetRate * rampDownSeconds / 2) {
+            return -1;
+        }
+        // Arrivals by t into ramp-down are rate * t - rate * t^2 / (2 * rampDown)
+        double discriminant = Math.max(0, 1 - 2 * remaining / (targetRate * rampDownSeconds));
+        return rampUpSeconds + steadySeconds + rampDownSeconds * (1 - Math.sqrt(discriminant));
+    }
+
+    /**
+     * Creates the schedule of one run of the profile, giving the {@link #arrivalTime(long) arrival times} in order.
+     *
+     * @return a new schedule
+     */
+    public ArrivalSchedule arrivals() {
+        return new ArrivalSchedule() {
+            private long index;
+
+            @Override
+            public long nextArrivalNanos() {
+                double offset = arrivalTime(index++);
+                return offset < 0 ? -1 : (long) (offset * 1_000_000_000L);
+            }
+        };
+    }
+
+    /**
+     * Gets the phase a point in time falls into.
+     *
+     * @param seconds the offset from the start of the test in seconds
+     * @return the phase
+     */
+    public LoadPhase phaseAt(double seconds) {
+        if (seconds < rampUpSeconds) {
+            return LoadPhase.RAMP_UP;
+        }
+        if (seconds < rampUpSeconds + steadySeconds || rampDownSeconds == 0) {
+            return LoadPhase.STEADY;
+        }
+        return LoadPhase.RAMP_DOWN;
+    }
+
+    /**
+     * Gets the length of a phase.
+     *
+     * @param phase the phase
+     * @return the length in seconds
+     */
+    public double phaseSeconds(LoadPhase phase) {
+        return switch (phase) {
+            case RAMP_UP -> rampUpSeconds;
+            case STEADY -> steadySeconds;
+            case RAMP_DOWN -> rampDownSeconds;
+        };
+    }
+
+    private double arrivalsBy(double seconds) {
+        double rampUp = Math.min(seconds, rampUpSeconds);
+        double arrivals = rampUpSeconds > 0 ? targetRate * rampUp * rampUp / (2 * rampUpSeconds) : 0;
+        double steady = Math.min(Math.max(seconds - rampUpSeconds, 0), steadySeconds);
+        arrivals += targetRate * steady;
+        double rampDown = Math.min(Math.max(seconds - rampUpSeconds - steadySeconds, 0), rampDownSeconds);
+        if (rampDownSeconds > 0) {
+            arrivals += targetRate * rampDown - targetRate * rampDown * rampDown / (2 * rampDownSeconds);
+        }
+        return arrivals;
+    }
+}
@@ -0,0 +1,139 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import com.codebridge.common.loadtest.OpenModelLoadGenerator;
+import com.codebridge.common.loadtest.OpenModelLoadGenerator.ArrivalSchedule;
+import com.codebridge.common.loadtest.OpenModelLoadGenerator.ScheduledRequest;
+import com.codebridge.monitoring.performance.loadtest.LoadDriver.RequestOutcome;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Runs a load test: issues requests through a {@link LoadDriver} at the times given by a
+ * {@link LoadProfile} and records their outcomes per phase.
+ * The load is open-loop, scheduled by the shared {@link OpenModelLoadGenerator}: a request is issued at its
+ * scheduled time even when earlier requests are still outstanding, and its response time is measured from the
+ * scheduled time rather than from when it was actually sent, so a stalled system shows up in the response times
+ * instead of lowering the load. Requests that would exceed the in-flight limit are dropped and counted as failures.
+ * Requests still outstanding after the drain timeout are counted as failures when the report is taken, and their
+ * later completions are ignored, so the report does not change after it is returned.
+ */
+@Slf4j
+public class LoadTestEngine {
+
+    private final int maxInFlight;
+    private final Duration drainTimeout;
+
+    /**
+     * Creates an engine.
+     *
+     * @param maxInFlight the maximum number of outstanding requests
+     * @param drainTimeout how long to wait for outstanding requests once all have been issued
+     */
+    public LoadTestEngine(int maxInFlight, Duration drainTimeout) {
+        this.maxInFlight = maxInFlight;
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * Runs a load test, scheduling the requests on the calling thread.
+     *
+     * @param profile the arrival schedule
+     * @param driver the driver issuing the requests
+     * @return the statistics of each phase
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public LoadTestReport run(LoadProfile profile, LoadDriver driver) throws InterruptedException {
+        Map<LoadPhase, PhaseStatistics> phases = new EnumMap<>(LoadPhase.class);
+        for (LoadPhase phase : LoadPhase.values()) {
+            phases.put(phase, new PhaseStatistics());
+        }
+        // Arrivals per phase, counted on the scheduling thread
+        long[] scheduled = new long[LoadPhase.values().length];
+        ArrivalSchedule profileArrivals = profile.arrivals();
+        ArrivalSchedule arrivals = () -> {
+            long offsetNanos = profileArrivals.nextArrivalNanos();
+            if (offsetNanos >= 0) {
+                scheduled[phaseAt(profile, offsetNanos).ordinal()]++;
+            }
+            return offsetNanos;
+        };
+
+        // Completions record under the read lock until the report is taken under the write lock
+        ReadWriteLock recording = new ReentrantReadWriteLock();
+        boolean[] reported = new boolean[1];
+        ScheduledRequest request = new ScheduledRequest() {
+            @Override
+            public void execute(long offsetNanos, long intendedStartNanos, long actualStartNanos)
+                    throws InterruptedException {
+                RequestOutcome outcome = await(driver);
+                long latencyMicros = (System.nanoTime() - intendedStartNanos) / 1000;
+                recording.readLock().lock();
+                try {
+                    if (!reported[0]) {
+                        phases.get(phaseAt(profile, offsetNanos)).record(latencyMicros, outcome);
+                    }
+                } finally {
+                    recording.readLock().unlock();
+                }
+            }
+
+            @Override
+            public void dropped(long offsetNanos) {
+                phases.get(phaseAt(profile, offsetNanos)).recordDropped();
+            }
+        };
+
+        // Each request waits for its driver future on a virtual thread of its own
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(executor, maxInFlight);
+        long start = System.nanoTime();
+        try {
+            if (!generator.run(arrivals, request, drainTimeout)) {
+                recording.writeLock().lock();
+                try {
+                    reported[0] = true;
+                } finally {
+                    recording.writeLock().unlock();
+                }
+                long unanswered = 0;
+                for (LoadPhase phase : LoadPhase.values()) {
+                    PhaseStatistics statistics = phases.get(phase);
+                    long outstanding = scheduled[phase.ordinal()] - statistics.getTotalRequests();
+                    if (outstanding > 0) {
+                        statistics.recordUnanswered(outstanding);
+                        unanswered += outstanding;
+                    }
+                }
+                log.warn("{} requests still outstanding after waiting {} for the load test to drain; counted as failed",
+                        unanswered, drainTimeout);
+            }
+        } finally {
+            // Stops the threads still waiting on outstanding requests
+            executor.shutdownNow();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        return new LoadTestReport(profile, phases, elapsedSeconds);
+    }
+
+    private static LoadPhase phaseAt(LoadProfile profile, long offsetNanos) {
+        return profile.phaseAt(offsetNanos / 1e9);
+    }
+
+    private static RequestOutcome await(LoadDriver driver) throws InterruptedException {
+        try {
+            return driver.execute().get();
+        } catch (ExecutionException e) {
+            return RequestOutcome.failure(e.getCause().getMessage());
+        } catch (RuntimeException e) {
+            return RequestOutcome.failure(e.getMessage());
+        }
+    }
+}
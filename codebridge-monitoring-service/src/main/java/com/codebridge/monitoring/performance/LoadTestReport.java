@@ -0,0 +1,47 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Statistics of a load test run, per phase and overall.
+ */
+public class LoadTestReport {
+
+    private final LoadProfile profile;
+    private final Map<LoadPhase, PhaseStatistics> phases;
+    private final PhaseStatistics overall = new PhaseStatistics();
+    private final double elapsedSeconds;
+
+    LoadTestReport(LoadProfile profile, Map<LoadPhase, PhaseStatistics> phases, double elapsedSeconds) {
+        this.profile = profile;
+        this.phases = Collections.unmodifiableMap(phases);
+        this.elapsedSeconds = elapsedSeconds;
+        phases.values().forEach(overall::add);
+    }
+
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    public Map<LoadPhase, PhaseStatistics> getPhases() {
+        return phases;
+    }
+
+    public PhaseStatistics getPhase(LoadPhase phase) {
+        return phases.get(phase);
+    }
+
+    public PhaseStatistics getOverall() {
+        return overall;
+    }
+
+    /**
+     * Gets the wall-clock time of the run, including the wait for outstanding requests.
+     *
+     * @return the elapsed time in seconds
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+}
@@ -0,0 +1,267 @@
+package com.codebridge.monitoring.performance.service;
+
+import com.codebridge.monitoring.performance.model.PerformanceMetric;
+import com.codebridge.monitoring.performance.storage.RangeAggregate;
+import com.codebridge.monitoring.performance.storage.RollupSpec;
+import com.codebridge.monitoring.performance.storage.SegmentCache;
+import com.codebridge.monitoring.performance.storage.SeriesStore;
+import lombok.extern.slf4j.Slf4j;
+import org.influxdb.dto.QueryResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Embedded time-series backend that needs no external service.
+ * Each (service, metric) series is stored under its own directory as compressed, time-partitioned
+ * segment files; see {@link SeriesStore}. Points of all tag sets of a metric go into the same series,
+ * matching the InfluxDB queries, which do not filter on tags.
+ * Each series also maintains rollup tiers (by default 1m, 5m, 1h and 1d) that range queries are
+ * planned over, so long-range queries do not scan raw points. Besides the usual aggregation functions,
+ * aggregated queries support {@code median} and percentiles such as {@code p95}, estimated from the
+ * quantile sketches kept with each rollup bucket.
+ * The open blocks are checkpointed by the maintenance task and sealed on shutdown, so a restart keeps
+ * them and a crash loses at most one maintenance interval of points.
+ * At most {@code max-open-segments} segment files of all series are mapped at a time; the least
+ * recently used ones are closed beyond that.
+ */
+@Component
+@ConditionalOnProperty(name = "performance.metrics.storage.backend", havingValue = "local")
+@Slf4j
+public class LocalTimeSeriesBackend implements TimeSeriesBackend {
+
+    private static final Pattern INTERVAL_PATTERN = Pattern.compile("(\\d+)(ms|s|m|h|d|w)");
+    private static final int MAX_BUCKETS = 100_000;
+
+    private final ConcurrentMap<SeriesName, SeriesStore> series = new ConcurrentHashMap<>();
+
+    @Value("${performance.metrics.storage.local.data-dir:data/timeseries}")
+    private String dataDir;
+
+    @Value("${performance.metrics.storage.local.block-duration-ms:3600000}")
+    private long blockDurationMs;
+
+    @Value("${performance.metrics.storage.local.segment-duration-ms:86400000}")
+    private long segmentDurationMs;
+
+    @Value("${performance.metrics.storage.local.max-points-per-block:4096}")
+    private int maxPointsPerBlock;
+
+    @Value("${performance.metrics.storage.local.rollups:1m:7d,5m:30d,1h:365d,1d:1825d}")
+    private String[] rollupTiers;
+
+    @Value("${performance.metrics.storage.local.max-open-segments:512}")
+    private int maxOpenSegments;
+
+    @Value("${performance.metrics.retention-days:30}")
+    private int retentionDays;
+
+    private Path root;
+    private List<RollupSpec> rollups;
+    private SegmentCache segmentCache;
+
+    /**
+     * Open the series already stored in the data directory.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        rollups = new ArrayList<>();
+        for (String tier : rollupTiers) {
+            // Each tier is given as resolution:retention, e.g. 5m:30d
+            String[] parts = tier.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid rollup tier: " + tier);
+            }
+            rollups.add(new RollupSpec(parseInterval(parts[0]), parseInterval(parts[1])));
+        }
+
+        segmentCache = new SegmentCache(maxOpenSegments);
+        root = Paths.get(dataDir);
+        Files.createDirectories(root);
+        try (Stream<Path> serviceDirs = Files.list(root)) {
+            for (Path serviceDir : serviceDirs.filter(Files::isDirectory).toList()) {
+                try (Stream<Path> metricDirs = Files.list(serviceDir)) {
+                    for (Path metricDir : metricDirs.filter(Files::isDirectory).toList()) {
+                        SeriesName name = new SeriesName(decode(serviceDir), decode(metricDir));
+                        series.put(name, new SeriesStore(metricDir, blockDurationMs, segmentDurationMs, maxPointsPerBlock, rollups, segmentCache));
+                    }
+                }
+            }
+        }
+        log.info("Opened local time-series store at {} with {} series", root.toAbsolutePath(), series.size());
+    }
+
+    /**
+     * Seal all open blocks and release the segment files.
+     */
+    @PreDestroy
+    public void close() {
+        for (SeriesStore store : series.values()) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                log.error("Error closing time-series store: {}", e.getMessage(), e);
+            }
+        }
+        log.info("Closed local time-series store");
+    }
+
+    @Override
+    public void storeMetrics(List<PerformanceMetric> metrics) {
+        for (PerformanceMetric metric : metrics) {
+            try {
+                store(metric.getServiceName(), metric.getMetricName())
+                        .append(metric.getTimestamp().toEpochMilli(), metric.getValue());
+            } catch (IOException | UncheckedIOException e) {
+                log.error("Error storing metric {} for service {}: {}",
+                        metric.getMetricName(), metric.getServiceName(), e.getMessage(), e);
+            }
+        }
+        log.debug("Stored {} metrics in local time-series store", metrics.size());
+    }
+
+    @Override
+    public double queryAggregatedMetric(String serviceName, String metricName,
+                                       Instant startTime, Instant endTime, String aggregation) {
+        SeriesStore store = series.get(new SeriesName(serviceName, metricName));
+        if (store == null) {
+            return RangeAggregate.emptyValue(aggregation.toLowerCase());
+        }
+
+        try {
+            return store.aggregate(startTime.toEpochMilli(), endTime.toEpochMilli(), RangeAggregate.isPercentile(aggregation))
+                    .getValue(aggregation);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error querying aggregated metric from local time-series store: {}", e.getMessage(), e);
+            return Double.NaN;
+        }
+    }
+
+    @Override
+    public QueryResult queryTimeSeriesData(String serviceName, String metricName,
+                                          Instant startTime, Instant endTime, String interval) {
+        QueryResult queryResult = new QueryResult();
+        QueryResult.Result result = new QueryResult.Result();
+        queryResult.setResults(List.of(result));
+
+        SeriesStore store = series.get(new SeriesName(serviceName, metricName));
+        if (store == null) {
+            return queryResult;
+        }
+
+        try {
+            long bucketMs = parseInterval(interval);
+            long start = startTime.toEpochMilli();
+            long end = endTime.toEpochMilli();
+            if ((end - start) / bucketMs >= MAX_BUCKETS) {
+                throw new IllegalArgumentException("Interval " + interval + " yields too many buckets");
+            }
+
+            // Buckets are aligned to the epoch and empty buckets have a null mean, as in InfluxDB
+            RangeAggregate[] buckets = store.aggregateBuckets(start, end, bucketMs, false);
+            long firstBucketStart = Math.floorDiv(start, bucketMs) * bucketMs;
+            List<List<Object>> values = new ArrayList<>(buckets.length);
+            for (int i = 0; i < buckets.length; i++) {
+                Object mean = buckets[i].isEmpty() ? null : buckets[i].getValue("mean");
+                values.add(Arrays.asList(Instant.ofEpochMilli(firstBucketStart + i * bucketMs).toString(), mean));
+            }
+
+            QueryResult.Series resultSeries = new QueryResult.Series();
+            resultSeries.setName(serviceName);
+            resultSeries.setColumns(List.of("time", "mean"));
+            resultSeries.setValues(values);
+            result.setSeries(List.of(resultSeries));
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error querying time-series data from local time-series store: {}", e.getMessage(), e);
+            result.setError(e.getMessage());
+        }
+        return queryResult;
+    }
+
+    /**
+     * Scheduled task to seal blocks and rollup buckets whose time window has passed, checkpoint the
+     * open ones and delete segment files older than their retention period.
+     */
+    @Scheduled(fixedDelayString = "${performance.metrics.storage.local.maintenance-interval-ms:60000}")
+    public void maintain() {
+        long now = System.currentTimeMillis();
+        long retentionMs = Duration.ofDays(retentionDays).toMillis();
+        int deleted = 0;
+        for (SeriesStore store : series.values()) {
+            try {
+                store.sealCompletedBlocks(now);
+                store.checkpoint();
+                deleted += store.deleteExpiredSegments(now, retentionMs);
+            } catch (IOException e) {
+                log.error("Error maintaining time-series store: {}", e.getMessage(), e);
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} expired time-series segment files", deleted);
+        }
+    }
+
+    private SeriesStore store(String serviceName, String metricName) {
+        return series.computeIfAbsent(new SeriesName(serviceName, metricName), name -> {
+            try {
+                Path directory = root.resolve(encode(serviceName)).resolve(encode(metricName));
+                return new SeriesStore(directory, blockDurationMs, segmentDurationMs, maxPointsPerBlock, rollups, segmentCache);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static long parseInterval(String interval) {
+        Matcher matcher = INTERVAL_PATTERN.matcher(interval);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        Duration unit = switch (matcher.group(2)) {
+            case "ms" -> Duration.ofMillis(1);
+            case "s" -> Duration.ofSeconds(1);
+            case "m" -> Duration.ofMinutes(1);
+            case "h" -> Duration.ofHours(1);
+            case "d" -> Duration.ofDays(1);
+            default -> Duration.ofDays(7);
+        };
+        long bucketMs = unit.multipliedBy(amount).toMillis();
+        if (bucketMs <= 0) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        return bucketMs;
+    }
+
+    private static String encode(String name) {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(Path directory) {
+        return URLDecoder.decode(directory.getFileName().toString(), StandardCharsets.UTF_8);
+    }
+
+    private record SeriesName(String serviceName, String metricName) {}
+}
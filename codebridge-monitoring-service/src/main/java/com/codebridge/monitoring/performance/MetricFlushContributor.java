@@ -0,0 +1,15 @@
+package com.codebridge.monitoring.performance.collector;
+
+/**
+ * Records metrics derived from the aggregation interval that is about to close, such as ratios
+ * of counters, so they are computed once per interval instead of on every observation.
+ */
+public interface MetricFlushContributor {
+
+    /**
+     * Record the derived metrics of the current aggregation interval.
+     * Called on the flush thread right before the {@link PerformanceMetricsCollector} closes the interval;
+     * values recorded here are part of the closing interval.
+     */
+    void beforeFlush();
+}
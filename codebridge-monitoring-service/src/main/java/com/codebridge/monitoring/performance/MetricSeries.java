@@ -0,0 +1,275 @@
+package com.codebridge.monitoring.performance.collector;
+
+import com.codebridge.common.metrics.LatencyHistogram;
+import com.codebridge.monitoring.performance.model.MetricType;
+import com.codebridge.monitoring.performance.model.PerformanceMetric;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A single metric series, identified by service, metric, type and tag set.
+ * Observations are folded into the current aggregation interval using lock-free counters,
+ * so recording never allocates. At the end of each interval the series is rolled over into
+ * one summary row. A series that has been idle for a while may be retired by its registry,
+ * unless it is pinned because a caller holds on to it.
+ */
+public final class MetricSeries {
+
+    private final int id;
+    private final String serviceName;
+    private final String metricName;
+    private final MetricType metricType;
+    private final Map<String, String> tags;
+    private final AtomicReference<Interval> current;
+    private Interval spare;
+    private int idleIntervals;
+    private boolean pinned;
+    private volatile boolean retired;
+
+    MetricSeries(int id, String serviceName, String metricName, MetricType metricType,
+                 Map<String, String> tags, long histogramHighestValue, int histogramSignificantDigits) {
+        this.id = id;
+        this.serviceName = serviceName;
+        this.metricName = metricName;
+        this.metricType = metricType;
+        this.tags = tags;
+        this.current = new AtomicReference<>(new Interval(metricType, histogramHighestValue, histogramSignificantDigits));
+        this.spare = new Interval(metricType, histogramHighestValue, histogramSignificantDigits);
+    }
+
+    /**
+     * Records an observation in the current interval.
+     *
+     * @param value the observed value
+     */
+    public void record(double value) {
+        Interval interval = enter();
+        try {
+            interval.record(value);
+        } finally {
+            interval.writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records an observation unless the series has been retired.
+     * The retirement is checked while registered as a writer, so an observation is either
+     * recorded before the final rollover of a retired series or refused.
+     *
+     * @param value the observed value
+     * @return false if the series was retired and the observation was not recorded
+     */
+    boolean tryRecord(double value) {
+        Interval interval = enter();
+        try {
+            if (retired) {
+                return false;
+            }
+            interval.record(value);
+            return true;
+        } finally {
+            interval.writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Registers the calling thread as a writer of the current interval. The interval is read again
+     * after registering, so a rollover either sees the writer or the writer sees the new interval.
+     */
+    private Interval enter() {
+        while (true) {
+            Interval interval = current.get();
+            interval.writers.incrementAndGet();
+            if (current.get() == interval) {
+                return interval;
+            }
+            interval.writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Closes the current interval and summarizes it.
+     * Waits for the observations already being recorded into the closed interval before reading it,
+     * so every observation is counted in exactly one interval; one racing with the rollover may be
+     * counted in the following interval.
+     *
+     * @param intervalStart the start of the closed interval
+     * @param intervalMs the length of the closed interval
+     * @return the summary row, or null if nothing was recorded in the interval
+     */
+    synchronized PerformanceMetric rollover(Instant intervalStart, long intervalMs) {
+        Interval closed = current.getAndSet(spare);
+        spare = closed;
+        closed.awaitWriters();
+        if (closed.count.sum() == 0) {
+            idleIntervals++;
+            return null;
+        }
+        idleIntervals = 0;
+        PerformanceMetric summary = closed.summarize(this, intervalStart, intervalMs);
+        closed.reset();
+        return summary;
+    }
+
+    /**
+     * Keeps the series from being retired, for callers that hold on to it.
+     *
+     * @return false if the series was already retired
+     */
+    synchronized boolean pin() {
+        if (retired) {
+            return false;
+        }
+        pinned = true;
+        return true;
+    }
+
+    /**
+     * Retires the series if it is not pinned and nothing was recorded in its last intervals.
+     * Once retired, the series refuses {@link #tryRecord(double) observations}.
+     *
+     * @param maxIdleIntervals the number of consecutive empty intervals after which the series is retired
+     * @return true if the series was retired
+     */
+    synchronized boolean retireIfIdle(int maxIdleIntervals) {
+        if (!pinned && idleIntervals >= maxIdleIntervals) {
+            retired = true;
+        }
+        return retired;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Aggregates of one interval. Counters only track count and sum; gauges also keep the last,
+     * minimum and maximum values; timers, histograms and summaries also keep a latency histogram.
+     */
+    private static final class Interval {
+        private static final long EMPTY_MIN = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        private static final long EMPTY_MAX = Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY);
+
+        private final MetricType metricType;
+        private final AtomicLong writers = new AtomicLong();
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final AtomicLong min = new AtomicLong(EMPTY_MIN);
+        private final AtomicLong max = new AtomicLong(EMPTY_MAX);
+        private final LatencyHistogram histogram;
+        private volatile double last;
+
+        Interval(MetricType metricType, long histogramHighestValue, int histogramSignificantDigits) {
+            this.metricType = metricType;
+            this.histogram = hasHistogram(metricType)
+                ? new LatencyHistogram(histogramHighestValue, histogramSignificantDigits)
+                : null;
+        }
+
+        void record(double value) {
+            count.increment();
+            sum.add(value);
+            if (metricType == MetricType.COUNTER) {
+                return;
+            }
+            last = value;
+            updateMin(value);
+            updateMax(value);
+            if (histogram != null) {
+                histogram.recordValue(Math.round(value));
+            }
+        }
+
+        private void updateMin(double value) {
+            long bits = min.get();
+            while (value < Double.longBitsToDouble(bits) && !min.compareAndSet(bits, Double.doubleToRawLongBits(value))) {
+                bits = min.get();
+            }
+        }
+
+        private void updateMax(double value) {
+            long bits = max.get();
+            while (value > Double.longBitsToDouble(bits) && !max.compareAndSet(bits, Double.doubleToRawLongBits(value))) {
+                bits = max.get();
+            }
+        }
+
+        PerformanceMetric summarize(MetricSeries series, Instant intervalStart, long intervalMs) {
+            long intervalCount = count.sum();
+            double intervalSum = sum.sum();
+
+            PerformanceMetric summary = new PerformanceMetric();
+            summary.setServiceName(series.serviceName);
+            summary.setMetricName(series.metricName);
+            summary.setMetricType(series.metricType);
+            summary.setTimestamp(intervalStart);
+            summary.setIntervalMs(intervalMs);
+            summary.setTags(new HashMap<>(series.tags));
+            summary.setSampleCount(intervalCount);
+            summary.setSumValue(intervalSum);
+
+            // The row value keeps the meaning raw points had: increments for counters,
+            // the latest reading for gauges and the mean for everything else
+            switch (metricType) {
+                case COUNTER -> summary.setValue(intervalSum);
+                case GAUGE -> summary.setValue(last);
+                default -> summary.setValue(intervalSum / intervalCount);
+            }
+            if (metricType != MetricType.COUNTER) {
+                summary.setMinValue(Double.longBitsToDouble(min.get()));
+                summary.setMaxValue(Double.longBitsToDouble(max.get()));
+            }
+            if (histogram != null) {
+                summary.setP50((double) histogram.getValueAtPercentile(50));
+                summary.setP95((double) histogram.getValueAtPercentile(95));
+                summary.setP99((double) histogram.getValueAtPercentile(99));
+            }
+            return summary;
+        }
+
+        void awaitWriters() {
+            // Writers only update counters, so they leave the interval quickly
+            while (writers.get() != 0) {
+                Thread.yield();
+            }
+        }
+
+        void reset() {
+            count.reset();
+            sum.reset();
+            min.set(EMPTY_MIN);
+            max.set(EMPTY_MAX);
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+
+        private static boolean hasHistogram(MetricType metricType) {
+            return metricType == MetricType.TIMER
+                || metricType == MetricType.HISTOGRAM
+                || metricType == MetricType.SUMMARY;
+        }
+    }
+}
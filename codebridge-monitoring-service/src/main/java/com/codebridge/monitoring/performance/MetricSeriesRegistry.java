@@ -0,0 +1,171 @@
+package com.codebridge.monitoring.performance.collector;
+
+import com.codebridge.monitoring.performance.model.MetricType;
+import com.codebridge.monitoring.performance.model.PerformanceMetric;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns metric series by service, metric, type and tag set.
+ * Looking up an existing series does not copy the caller's tags. The number of series is capped;
+ * once the cap is reached, observations for new tag sets are folded into a single overflow
+ * series per metric so a high-cardinality tag cannot exhaust memory. Series nothing has been
+ * recorded into for a number of intervals are evicted, which frees their place under the cap for
+ * the tag sets in use now; series handed out as handles are pinned and never evicted.
+ */
+@Slf4j
+public class MetricSeriesRegistry {
+
+    static final String OVERFLOW_TAG = "series_overflow";
+
+    private final ConcurrentMap<SeriesKey, MetricSeries> series = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicBoolean overflowLogged = new AtomicBoolean();
+    private final int maxSeries;
+    private final int maxIdleIntervals;
+    private final long histogramHighestValue;
+    private final int histogramSignificantDigits;
+
+    /**
+     * Creates a registry.
+     *
+     * @param maxSeries the maximum number of distinct series, not counting overflow series
+     * @param maxIdleIntervals the number of consecutive empty intervals after which a series is evicted,
+     *                         or 0 to keep every series
+     * @param histogramHighestValue the highest value tracked by timer histograms
+     * @param histogramSignificantDigits the precision of timer histograms
+     */
+    public MetricSeriesRegistry(int maxSeries, int maxIdleIntervals, long histogramHighestValue,
+                                int histogramSignificantDigits) {
+        this.maxSeries = maxSeries;
+        this.maxIdleIntervals = maxIdleIntervals;
+        this.histogramHighestValue = histogramHighestValue;
+        this.histogramSignificantDigits = histogramSignificantDigits;
+    }
+
+    /**
+     * Records an observation in the series of a metric and tag set, registering it on first use.
+     *
+     * @param serviceName the name of the service reporting the metric
+     * @param metricName the name of the metric
+     * @param metricType the type of metric
+     * @param tags the tags of the series, or null for none
+     * @param value the observed value
+     */
+    public void record(String serviceName, String metricName, MetricType metricType, Map<String, String> tags,
+                       double value) {
+        // A series evicted after the lookup refuses the observation, which then goes to its replacement
+        while (!getOrCreate(serviceName, metricName, metricType, tags).tryRecord(value)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Gets the series for a metric and tag set, registering it on first use, and pins it so
+     * callers can keep it and record into it directly.
+     *
+     * @param serviceName the name of the service reporting the metric
+     * @param metricName the name of the metric
+     * @param metricType the type of metric
+     * @param tags the tags of the series, or null for none
+     * @return the series, which is never evicted
+     */
+    public MetricSeries getPinned(String serviceName, String metricName, MetricType metricType, Map<String, String> tags) {
+        while (true) {
+            MetricSeries pinned = getOrCreate(serviceName, metricName, metricType, tags);
+            if (pinned.pin()) {
+                return pinned;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Gets the series for a metric and tag set, registering it on first use.
+     * The series may be evicted once idle, so it must not be kept.
+     *
+     * @param serviceName the name of the service reporting the metric
+     * @param metricName the name of the metric
+     * @param metricType the type of metric
+     * @param tags the tags of the series, or null for none
+     * @return the series
+     */
+    private MetricSeries getOrCreate(String serviceName, String metricName, MetricType metricType, Map<String, String> tags) {
+        Map<String, String> lookupTags = tags != null ? tags : Collections.emptyMap();
+        MetricSeries existing = series.get(new SeriesKey(serviceName, metricName, metricType, lookupTags));
+        if (existing != null) {
+            return existing;
+        }
+
+        if (series.size() >= maxSeries) {
+            if (overflowLogged.compareAndSet(false, true)) {
+                log.warn("Metric series limit of {} reached, new tag sets are aggregated into overflow series", maxSeries);
+            }
+            lookupTags = Map.of(OVERFLOW_TAG, "true");
+        }
+
+        SeriesKey key = new SeriesKey(serviceName, metricName, metricType,
+            Collections.unmodifiableMap(new TreeMap<>(lookupTags)));
+        return series.computeIfAbsent(key, k -> new MetricSeries(nextId.getAndIncrement(), serviceName, metricName,
+            metricType, k.tags(), histogramHighestValue, histogramSignificantDigits));
+    }
+
+    /**
+     * Evicts the series that were idle for the configured number of intervals. Call after rolling
+     * over every series. An evicted series is rolled over once more after it stops accepting
+     * observations, so nothing recorded into it since the last rollover is lost.
+     *
+     * @param intervalStart the start of the interval just closed
+     * @param intervalMs the length of the interval just closed
+     * @return the summaries of observations that reached evicted series since their last rollover
+     */
+    public List<PerformanceMetric> evictIdle(Instant intervalStart, long intervalMs) {
+        List<PerformanceMetric> summaries = new ArrayList<>();
+        if (maxIdleIntervals <= 0) {
+            return summaries;
+        }
+        int evicted = 0;
+        for (Iterator<MetricSeries> iterator = series.values().iterator(); iterator.hasNext(); ) {
+            MetricSeries candidate = iterator.next();
+            if (candidate.retireIfIdle(maxIdleIntervals)) {
+                iterator.remove();
+                evicted++;
+                PerformanceMetric summary = candidate.rollover(intervalStart, intervalMs);
+                if (summary != null) {
+                    summaries.add(summary);
+                }
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle metric series, {} remain", evicted, series.size());
+        }
+        return summaries;
+    }
+
+    /**
+     * Gets all registered series.
+     *
+     * @return a live view of the series
+     */
+    public Collection<MetricSeries> getSeries() {
+        return series.values();
+    }
+
+    public int size() {
+        return series.size();
+    }
+
+    private record SeriesKey(String serviceName, String metricName, MetricType metricType, Map<String, String> tags) {}
+}
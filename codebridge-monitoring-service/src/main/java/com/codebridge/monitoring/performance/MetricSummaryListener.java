@@ -0,0 +1,21 @@
+package com.codebridge.monitoring.performance.collector;
+
+import com.codebridge.monitoring.performance.model.PerformanceMetric;
+
+import java.util.List;
+
+/**
+ * Receives the summary rows of every aggregation interval flushed by the
+ * {@link PerformanceMetricsCollector}, so metrics can be processed as they are ingested
+ * instead of being queried back from storage.
+ */
+public interface MetricSummaryListener {
+
+    /**
+     * Process the summaries of a closed aggregation interval.
+     * Called on the flush thread after the summaries have been stored.
+     *
+     * @param summaries one summary row per series active in the interval
+     */
+    void onSummaries(List<PerformanceMetric> summaries);
+}
@@ -0,0 +1,74 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import com.codebridge.common.metrics.LatencyHistogram;
+
+/**
+ * Tests whether a response time percentile of a run is significantly higher than in a baseline run.
+ * For a sample of n values the rank of the p-th quantile is approximately normal with mean np and
+ * variance np(1-p), which gives a distribution-free confidence interval for each run's percentile.
+ * The percentile has shifted significantly when the current run's interval lies entirely above the
+ * baseline's and the shift is larger than a minimum effect, so that tiny shifts are not reported
+ * merely because the runs were large.
+ */
+public final class PercentileComparison {
+
+    private PercentileComparison() {
+    }
+
+    /**
+     * Compares a percentile of two runs.
+     *
+     * @param baseline the response times of the baseline run
+     * @param current the response times of the current run
+     * @param percentile the percentile (0-100)
+     * @param zScore the z-score of the confidence level, e.g. 1.96 for 95%
+     * @param minShiftPercent the smallest relative increase reported as significant
+     * @return the comparison
+     */
+    public static Result compare(LatencyHistogram baseline, LatencyHistogram current,
+                                 double percentile, double zScore, double minShiftPercent) {
+        long[] baselineInterval = confidenceInterval(baseline, percentile, zScore);
+        long[] currentInterval = confidenceInterval(current, percentile, zScore);
+        double baselineValue = baseline.getValueAtPercentile(percentile);
+        double currentValue = current.getValueAtPercentile(percentile);
+        double shiftPercent = baselineValue > 0 ? (currentValue - baselineValue) / baselineValue * 100 : 0;
+        boolean significant = currentInterval[0] > baselineInterval[1] && shiftPercent >= minShiftPercent;
+        return new Result(percentile, baselineValue, currentValue, shiftPercent, significant);
+    }
+
+    /**
+     * Gets the confidence interval of a percentile from the ranks around the percentile's rank.
+     *
+     * @param histogram the recorded values
+     * @param percentile the percentile (0-100)
+     * @param zScore the z-score of the confidence level
+     * @return the lower and upper bound of the interval
+     */
+    static long[] confidenceInterval(LatencyHistogram histogram, double percentile, double zScore) {
+        long count = histogram.getTotalCount();
+        if (count == 0) {
+            return new long[] {0, 0};
+        }
+        double p = percentile / 100;
+        double halfWidth = zScore * Math.sqrt(count * p * (1 - p));
+        double lowerRank = Math.max(1, Math.floor(count * p - halfWidth));
+        double upperRank = Math.min(count, Math.ceil(count * p + halfWidth));
+        return new long[] {
+                histogram.getValueAtPercentile(lowerRank / count * 100),
+                histogram.getValueAtPercentile(upperRank / count * 100)
+        };
+    }
+
+    /**
+     * Comparison of a percentile between two runs.
+     *
+     * @param percentile the percentile (0-100)
+     * @param baselineValue the percentile of the baseline run
+     * @param currentValue the percentile of the current run
+     * @param shiftPercent the relative change of the percentile
+     * @param significant whether the percentile increased significantly
+     */
+    public record Result(double percentile, double baselineValue, double currentValue,
+                         double shiftPercent, boolean significant) {
+    }
+}
@@ -43,6 +43,36 @@ public class PerformanceMetric {
     @Column(name = "timestamp", nullable = false)
     private Instant timestamp;
 
+    /**
+     * Length of the aggregation interval starting at the timestamp, or null for a raw point.
+     */
+    @Column(name = "interval_ms")
+    private Long intervalMs;
+
+    /**
+     * Number of observations summarized by this row.
+     */
+    @Column(name = "sample_count")
+    private Long sampleCount;
+
+    @Column(name = "sum_value")
+    private Double sumValue;
+
+    @Column(name = "min_value")
+    private Double minValue;
+
+    @Column(name = "max_value")
+    private Double maxValue;
+
+    @Column(name = "p50")
+    private Double p50;
+
+    @Column(name = "p95")
+    private Double p95;
+
+    @Column(name = "p99")
+    private Double p99;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
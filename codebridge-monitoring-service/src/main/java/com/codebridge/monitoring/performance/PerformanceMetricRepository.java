@@ -15,6 +15,8 @@ import java.util.UUID;
 
 /**
  * Repository for managing performance metrics.
+ * Rows are either raw points or summaries of an aggregation interval, so the aggregate queries
+ * weigh each row by its sample count and read the interval sum, minimum and maximum where present.
  */
 @Repository
 public interface PerformanceMetricRepository extends JpaRepository<PerformanceMetric, UUID> {
@@ -71,7 +73,8 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return the average value
      */
-    @Query("SELECT AVG(m.value) FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
+    @Query("SELECT SUM(COALESCE(m.sumValue, m.value)) / SUM(COALESCE(m.sampleCount, 1L)) " +
+           "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName AND m.timestamp BETWEEN :startTime AND :endTime")
     Double calculateAverageValue(
             @Param("serviceName") String serviceName,
@@ -88,7 +91,8 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return the maximum value
      */
-    @Query("SELECT MAX(m.value) FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
+    @Query("SELECT MAX(COALESCE(m.maxValue, m.value)) " +
+           "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName AND m.timestamp BETWEEN :startTime AND :endTime")
     Double calculateMaxValue(
             @Param("serviceName") String serviceName,
@@ -105,7 +109,8 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return the minimum value
      */
-    @Query("SELECT MIN(m.value) FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
+    @Query("SELECT MIN(COALESCE(m.minValue, m.value)) " +
+           "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName AND m.timestamp BETWEEN :startTime AND :endTime")
     Double calculateMinValue(
             @Param("serviceName") String serviceName,
@@ -122,7 +127,8 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return the sum of values
      */
-    @Query("SELECT SUM(m.value) FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
+    @Query("SELECT SUM(COALESCE(m.sumValue, m.value)) " +
+           "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName AND m.timestamp BETWEEN :startTime AND :endTime")
     Double calculateSumValue(
             @Param("serviceName") String serviceName,
@@ -139,7 +145,8 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return the count of metrics
      */
-    @Query("SELECT COUNT(m) FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
+    @Query("SELECT SUM(COALESCE(m.sampleCount, 1L)) " +
+           "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName AND m.timestamp BETWEEN :startTime AND :endTime")
     Long countMetrics(
             @Param("serviceName") String serviceName,
@@ -173,9 +180,10 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return list of slow endpoints with their average response times
      */
-    @Query("SELECT m.serviceName, m.metricName, AVG(m.value) as avgResponseTime " +
+    @Query("SELECT m.serviceName, m.metricName, " +
+           "SUM(COALESCE(m.sumValue, m.value)) / SUM(COALESCE(m.sampleCount, 1L)) as avgResponseTime " +
            "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
-           "AND m.metricName = :metricName AND m.value > :threshold " +
+           "AND m.metricName = :metricName AND COALESCE(m.maxValue, m.value) > :threshold " +
            "AND m.timestamp BETWEEN :startTime AND :endTime " +
            "GROUP BY m.serviceName, m.metricName " +
            "ORDER BY avgResponseTime DESC")
@@ -195,7 +203,9 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return list of slow query types with their metrics
      */
-    @Query("SELECT m.serviceName, m.metricName, COUNT(m) as queryCount, AVG(m.value) as avgTime " +
+    @Query("SELECT m.serviceName, m.metricName, " +
+           "SUM(COALESCE(m.sampleCount, 1L)) as queryCount, " +
+           "SUM(COALESCE(m.sumValue, m.value)) / SUM(COALESCE(m.sampleCount, 1L)) as avgTime " +
            "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName " +
            "AND m.timestamp BETWEEN :startTime AND :endTime " +
@@ -217,12 +227,12 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return list of frequent endpoints with their request counts
      */
-    @Query("SELECT m.serviceName, m.metricName, SUM(m.value) as totalRequests " +
+    @Query("SELECT m.serviceName, m.metricName, SUM(COALESCE(m.sumValue, m.value)) as totalRequests " +
            "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName " +
            "AND m.timestamp BETWEEN :startTime AND :endTime " +
            "GROUP BY m.serviceName, m.metricName " +
-           "HAVING SUM(m.value) > :minRequestCount " +
+           "HAVING SUM(COALESCE(m.sumValue, m.value)) > :minRequestCount " +
            "ORDER BY totalRequests DESC")
     List<Object[]> findFrequentEndpoints(
             @Param("serviceName") String serviceName,
@@ -241,12 +251,13 @@ public interface PerformanceMetricRepository extends JpaRepository<PerformanceMe
      * @param endTime the end time
      * @return list of endpoints with high error rates
      */
-    @Query("SELECT m.serviceName, m.metricName, AVG(m.value) as avgErrorRate " +
+    @Query("SELECT m.serviceName, m.metricName, " +
+           "SUM(COALESCE(m.sumValue, m.value)) / SUM(COALESCE(m.sampleCount, 1L)) as avgErrorRate " +
            "FROM PerformanceMetric m WHERE m.serviceName = :serviceName " +
            "AND m.metricName = :metricName " +
            "AND m.timestamp BETWEEN :startTime AND :endTime " +
            "GROUP BY m.serviceName, m.metricName " +
-           "HAVING AVG(m.value) > :errorRateThreshold " +
+           "HAVING SUM(COALESCE(m.sumValue, m.value)) / SUM(COALESCE(m.sampleCount, 1L)) > :errorRateThreshold " +
            "ORDER BY avgErrorRate DESC")
     List<Object[]> findHighErrorRateEndpoints(
             @Param("serviceName") String serviceName,
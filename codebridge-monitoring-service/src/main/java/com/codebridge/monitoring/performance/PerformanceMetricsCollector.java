@@ -5,23 +5,24 @@ import com.codebridge.monitoring.performance.model.PerformanceMetric;
 import com.codebridge.monitoring.performance.repository.PerformanceMetricRepository;
 import com.codebridge.monitoring.performance.service.TimeSeriesService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * Core component for collecting, aggregating, and storing performance metrics.
- * This collector manages metrics from various sources and persists them to both
- * a relational database and a time-series database for efficient querying.
+ * Observations are pre-aggregated in memory per series (service, metric, type and tag set)
+ * and flushed once per aggregation interval as one summary row per series, which is
+ * persisted to both a relational database and a time-series database.
  */
 @Component
 @Slf4j
@@ -29,21 +30,64 @@ public class PerformanceMetricsCollector {
 
     private final PerformanceMetricRepository metricRepository;
     private final TimeSeriesService timeSeriesService;
-    private final ConcurrentMap<String, List<PerformanceMetric>> metricBuffer;
+    private final ObjectProvider<MetricSummaryListener> summaryListeners;
+    private final ObjectProvider<MetricFlushContributor> flushContributors;
+    private MetricSeriesRegistry seriesRegistry;
+    private Instant intervalStart;
     
     @Value("${performance.metrics.collection.enabled:true}")
     private boolean metricsCollectionEnabled;
     
-    @Value("${performance.metrics.collection.buffer-size:1000}")
-    private int bufferSize;
+    @Value("${performance.metrics.aggregation.max-series:10000}")
+    private int maxSeries;
+
+    @Value("${performance.metrics.aggregation.series-idle-intervals:30}")
+    private int seriesIdleIntervals;
+
+    @Value("${performance.metrics.aggregation.histogram-highest-value:3600000}")
+    private long histogramHighestValue;
+
+    @Value("${performance.metrics.aggregation.histogram-significant-digits:2}")
+    private int histogramSignificantDigits;
 
     @Autowired
     public PerformanceMetricsCollector(
             PerformanceMetricRepository metricRepository,
-            TimeSeriesService timeSeriesService) {
+            TimeSeriesService timeSeriesService,
+            ObjectProvider<MetricSummaryListener> summaryListeners,
+            ObjectProvider<MetricFlushContributor> flushContributors) {
         this.metricRepository = metricRepository;
         this.timeSeriesService = timeSeriesService;
-        this.metricBuffer = new ConcurrentHashMap<>();
+        this.summaryListeners = summaryListeners;
+        this.flushContributors = flushContributors;
+    }
+
+    /**
+     * Creates an enabled collector with the given aggregation settings, for use outside a Spring context.
+     */
+    PerformanceMetricsCollector(
+            PerformanceMetricRepository metricRepository,
+            TimeSeriesService timeSeriesService,
+            ObjectProvider<MetricSummaryListener> summaryListeners,
+            ObjectProvider<MetricFlushContributor> flushContributors,
+            int maxSeries,
+            long histogramHighestValue,
+            int histogramSignificantDigits) {
+        this(metricRepository, timeSeriesService, summaryListeners, flushContributors);
+        this.metricsCollectionEnabled = true;
+        this.maxSeries = maxSeries;
+        this.histogramHighestValue = histogramHighestValue;
+        this.histogramSignificantDigits = histogramSignificantDigits;
+    }
+
+    /**
+     * Initialize the series registry and start the first aggregation interval.
+     */
+    @PostConstruct
+    public void init() {
+        seriesRegistry = new MetricSeriesRegistry(maxSeries, seriesIdleIntervals, histogramHighestValue,
+                histogramSignificantDigits);
+        intervalStart = Instant.now();
     }
 
     /**
@@ -61,22 +105,23 @@ public class PerformanceMetricsCollector {
             return;
         }
         
-        String metricKey = buildMetricKey(serviceName, metricName);
-        PerformanceMetric metric = new PerformanceMetric();
-        metric.setServiceName(serviceName);
-        metric.setMetricName(metricName);
-        metric.setMetricType(metricType);
-        metric.setValue(value);
-        metric.setTimestamp(Instant.now());
-        metric.setTags(tags != null ? tags : new HashMap<>());
-        
-        // Add to buffer
-        metricBuffer.computeIfAbsent(metricKey, k -> new ArrayList<>()).add(metric);
-        
-        // If buffer reaches threshold, flush immediately
-        if (metricBuffer.get(metricKey).size() >= bufferSize) {
-            flushMetrics(metricKey);
-        }
+        seriesRegistry.record(serviceName, metricName, metricType, tags, value);
+    }
+    
+    /**
+     * Get the series of a metric and tag set, registering it on first use.
+     * Hot paths can keep the returned handle and record into it directly, which skips the
+     * series lookup and does not allocate. Handles keep working across flushes and are never evicted,
+     * so they should only be taken for series of bounded cardinality.
+     *
+     * @param serviceName the name of the service reporting the metric
+     * @param metricName the name of the metric
+     * @param metricType the type of metric (COUNTER, GAUGE, TIMER, etc.)
+     * @param tags tags/dimensions of the series
+     * @return the series handle
+     */
+    public MetricSeries getSeries(String serviceName, String metricName, MetricType metricType, Map<String, String> tags) {
+        return seriesRegistry.getPinned(serviceName, metricName, metricType, tags);
     }
     
     /**
@@ -115,49 +160,70 @@ public class PerformanceMetricsCollector {
     }
 
     /**
-     * Scheduled task to flush all metrics to storage.
+     * Scheduled task to close the current aggregation interval and flush one summary row
+     * per series to storage.
      */
-    @Scheduled(fixedDelayString = "${performance.metrics.collection.interval:15000}")
-    public void flushAllMetrics() {
+    @Scheduled(fixedRateString = "${performance.metrics.aggregation.interval-ms:10000}")
+    public synchronized void flushAllMetrics() {
         if (!metricsCollectionEnabled) {
             return;
         }
         
-        log.debug("Flushing all metrics to storage");
-        List<String> metricKeys = new ArrayList<>(metricBuffer.keySet());
-        for (String metricKey : metricKeys) {
-            flushMetrics(metricKey);
+        // Let contributors record their derived metrics into the closing interval
+        flushContributors.orderedStream().forEach(contributor -> {
+            try {
+                contributor.beforeFlush();
+            } catch (Exception e) {
+                log.error("Error running metric flush contributor {}: {}",
+                        contributor.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        });
+
+        Instant intervalEnd = Instant.now();
+        long intervalMs = intervalEnd.toEpochMilli() - intervalStart.toEpochMilli();
+        List<PerformanceMetric> summaries = new ArrayList<>();
+        for (MetricSeries series : seriesRegistry.getSeries()) {
+            PerformanceMetric summary = series.rollover(intervalStart, intervalMs);
+            if (summary != null) {
+                summaries.add(summary);
+            }
         }
-    }
-    
-    /**
-     * Flush metrics for a specific key to storage.
-     *
-     * @param metricKey the metric key
-     */
-    private synchronized void flushMetrics(String metricKey) {
-        List<PerformanceMetric> metrics = metricBuffer.get(metricKey);
-        if (metrics == null || metrics.isEmpty()) {
+        summaries.addAll(seriesRegistry.evictIdle(intervalStart, intervalMs));
+        intervalStart = intervalEnd;
+
+        if (summaries.isEmpty()) {
             return;
         }
         
         try {
-            // Create a copy of the metrics to flush
-            List<PerformanceMetric> metricsToFlush = new ArrayList<>(metrics);
-            
-            // Clear the buffer
-            metrics.clear();
-            
             // Store in relational database
-            metricRepository.saveAll(metricsToFlush);
+            metricRepository.saveAll(summaries);
             
             // Store in time-series database
-            timeSeriesService.storeMetrics(metricsToFlush);
+            timeSeriesService.storeMetrics(summaries);
             
-            log.debug("Flushed {} metrics for key {}", metricsToFlush.size(), metricKey);
+            log.debug("Flushed {} series summaries for {} series", summaries.size(), seriesRegistry.size());
         } catch (Exception e) {
-            log.error("Error flushing metrics for key {}: {}", metricKey, e.getMessage(), e);
+            log.error("Error flushing metric summaries: {}", e.getMessage(), e);
         }
+
+        // Notify listeners
+        summaryListeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onSummaries(summaries);
+            } catch (Exception e) {
+                log.error("Error notifying metric summary listener {}: {}",
+                        listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Flush the partial interval on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushAllMetrics();
     }
     
     /**
@@ -174,16 +240,4 @@ public class PerformanceMetricsCollector {
                                   Instant startTime, Instant endTime, String aggregation) {
         return timeSeriesService.queryAggregatedMetric(serviceName, metricName, startTime, endTime, aggregation);
     }
-    
-    /**
-     * Build a unique key for a metric.
-     *
-     * @param serviceName the name of the service
-     * @param metricName the name of the metric
-     * @return the metric key
-     */
-    private String buildMetricKey(String serviceName, String metricName) {
-        return serviceName + ":" + metricName;
-    }
 }
-
@@ -79,6 +79,15 @@ public class PerformanceTest {
     @Column(name = "duration")
     private int duration;
 
+    @Column(name = "ramp_down_period")
+    private Integer rampDownPeriod;
+
+    /**
+     * Steady request rate in requests per second; derived from the concurrent users when not set.
+     */
+    @Column(name = "target_rate")
+    private Double targetRate;
+
     @Column(name = "scheduled")
     private boolean scheduled;
 
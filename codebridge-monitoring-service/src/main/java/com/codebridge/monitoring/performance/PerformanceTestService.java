@@ -1,6 +1,17 @@
 package com.codebridge.monitoring.performance.service;
 
+import com.codebridge.common.metrics.LatencyHistogram;
 import com.codebridge.monitoring.performance.collector.PerformanceMetricsCollector;
+import com.codebridge.monitoring.performance.loadtest.HttpLoadDriver;
+import com.codebridge.monitoring.performance.loadtest.JdbcConnectionPolicy;
+import com.codebridge.monitoring.performance.loadtest.JdbcLoadDriver;
+import com.codebridge.monitoring.performance.loadtest.LoadDriver;
+import com.codebridge.monitoring.performance.loadtest.LoadPhase;
+import com.codebridge.monitoring.performance.loadtest.LoadProfile;
+import com.codebridge.monitoring.performance.loadtest.LoadTestEngine;
+import com.codebridge.monitoring.performance.loadtest.LoadTestReport;
+import com.codebridge.monitoring.performance.loadtest.PercentileComparison;
+import com.codebridge.monitoring.performance.loadtest.PhaseStatistics;
 import com.codebridge.monitoring.performance.model.MetricType;
 import com.codebridge.monitoring.performance.model.PerformanceTest;
 import com.codebridge.monitoring.performance.model.PerformanceTestResult;
@@ -12,11 +23,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.*;
 
 /**
  * Service for managing and executing performance tests.
@@ -26,12 +36,12 @@ import java.util.concurrent.*;
 public class PerformanceTestService {
 
     private static final String SERVICE_NAME = "performance-test";
+    private static final String LATENCY_HISTOGRAM = "latencyHistogram";
+    private static final double[] REGRESSION_PERCENTILES = {50, 90, 95, 99};
     
     private final PerformanceTestRepository testRepository;
     private final PerformanceTestResultRepository resultRepository;
     private final PerformanceMetricsCollector metricsCollector;
-    private final RestTemplate restTemplate;
-    private final ExecutorService executorService;
     
     @Value("${performance.testing.enabled:true}")
     private boolean testingEnabled;
@@ -44,6 +54,36 @@ public class PerformanceTestService {
     
     @Value("${performance.testing.duration:300}")
     private int testDuration;
+    
+    @Value("${performance.testing.ramp-down-period:0}")
+    private int rampDownPeriod;
+    
+    @Value("${performance.testing.requests-per-user-per-second:1.0}")
+    private double requestsPerUserPerSecond;
+    
+    @Value("${performance.testing.max-in-flight:1000}")
+    private int maxInFlight;
+    
+    @Value("${performance.testing.request-timeout-ms:30000}")
+    private long requestTimeoutMs;
+    
+    @Value("${performance.testing.database.max-connections:20}")
+    private int databaseMaxConnections;
+    
+    @Value("${performance.testing.database.allowed-drivers:}")
+    private List<String> databaseAllowedDrivers;
+    
+    @Value("${performance.testing.database.allowed-hosts:}")
+    private List<String> databaseAllowedHosts;
+    
+    @Value("${performance.testing.regression.z-score:1.96}")
+    private double regressionZScore;
+    
+    @Value("${performance.testing.regression.min-shift-percent:5.0}")
+    private double regressionMinShiftPercent;
+    
+    @Value("${performance.testing.regression.min-samples:100}")
+    private long regressionMinSamples;
 
     @Autowired
     public PerformanceTestService(
@@ -53,8 +93,6 @@ public class PerformanceTestService {
         this.testRepository = testRepository;
         this.resultRepository = resultRepository;
         this.metricsCollector = metricsCollector;
-        this.restTemplate = new RestTemplate();
-        this.executorService = Executors.newFixedThreadPool(20);
     }
 
     /**
@@ -110,9 +148,9 @@ public class PerformanceTestService {
             // Update test result
             result.setEndTime(Instant.now());
             result.setStatus(PerformanceTestStatus.COMPLETED);
-            result.setTotalRequests((Integer) testResults.get("totalRequests"));
-            result.setSuccessfulRequests((Integer) testResults.get("successfulRequests"));
-            result.setFailedRequests((Integer) testResults.get("failedRequests"));
+            result.setTotalRequests(((Long) testResults.get("totalRequests")).intValue());
+            result.setSuccessfulRequests(((Long) testResults.get("successfulRequests")).intValue());
+            result.setFailedRequests(((Long) testResults.get("failedRequests")).intValue());
             result.setAverageResponseTime((Double) testResults.get("averageResponseTime"));
             result.setMinResponseTime((Double) testResults.get("minResponseTime"));
             result.setMaxResponseTime((Double) testResults.get("maxResponseTime"));
@@ -154,6 +192,8 @@ public class PerformanceTestService {
     
     /**
      * Execute a performance test.
+     * The load is open-loop: requests are issued at a rate that ramps up to the target rate, holds it
+     * for the test duration and ramps down, independently of how fast the system under test responds.
      *
      * @param test the performance test
      * @return the test results
@@ -164,128 +204,95 @@ public class PerformanceTestService {
         int users = test.getConcurrentUsers() > 0 ? test.getConcurrentUsers() : concurrentUsers;
         int rampUp = test.getRampUpPeriod() > 0 ? test.getRampUpPeriod() : rampUpPeriod;
         int duration = test.getDuration() > 0 ? test.getDuration() : testDuration;
+        int rampDown = test.getRampDownPeriod() != null && test.getRampDownPeriod() > 0
+                ? test.getRampDownPeriod() : rampDownPeriod;
+        double targetRate = test.getTargetRate() != null && test.getTargetRate() > 0
+                ? test.getTargetRate() : users * requestsPerUserPerSecond;
         
-        // Create user threads
-        List<Callable<List<RequestResult>>> tasks = new ArrayList<>();
-        for (int i = 0; i < users; i++) {
-            tasks.add(new UserSimulator(test, duration, i, users, rampUp));
-        }
-        
-        // Execute user threads
-        List<Future<List<RequestResult>>> futures = executorService.invokeAll(tasks);
+        LoadProfile profile = new LoadProfile(targetRate, rampUp, duration, rampDown);
+        LoadTestEngine engine = new LoadTestEngine(maxInFlight, Duration.ofMillis(requestTimeoutMs));
         
-        // Collect results
-        List<RequestResult> allResults = new ArrayList<>();
-        for (Future<List<RequestResult>> future : futures) {
-            allResults.addAll(future.get());
+        LoadTestReport report;
+        try (LoadDriver driver = createDriver(test)) {
+            report = engine.run(profile, driver);
         }
         
-        // Analyze results
-        return analyzeResults(allResults);
+        return analyzeResults(report);
     }
     
     /**
-     * Analyze test results.
+     * Create the driver issuing the requests of a test.
+     * HTTP and API tests request the endpoint URL. Database tests connect to the endpoint as a
+     * JDBC URL and run the request body as a read-only SQL query; the headers are passed as connection properties.
+     * Only JDBC URLs, properties and queries accepted by the {@link JdbcConnectionPolicy} are used.
      *
-     * @param results the list of request results
-     * @return the analyzed results
+     * @param test the performance test
+     * @return the load driver
      */
-    private Map<String, Object> analyzeResults(List<RequestResult> results) {
-        int totalRequests = results.size();
-        int successfulRequests = 0;
-        int failedRequests = 0;
-        double totalResponseTime = 0;
-        double minResponseTime = Double.MAX_VALUE;
-        double maxResponseTime = 0;
-        
-        List<Double> responseTimes = new ArrayList<>();
-        
-        for (RequestResult result : results) {
-            if (result.isSuccess()) {
-                successfulRequests++;
-            } else {
-                failedRequests++;
-            }
-            
-            double responseTime = result.getResponseTime();
-            totalResponseTime += responseTime;
-            minResponseTime = Math.min(minResponseTime, responseTime);
-            maxResponseTime = Math.max(maxResponseTime, responseTime);
-            
-            responseTimes.add(responseTime);
+    private LoadDriver createDriver(PerformanceTest test) {
+        Duration timeout = Duration.ofMillis(requestTimeoutMs);
+        switch (test.getType()) {
+            case HTTP:
+            case API:
+                return new HttpLoadDriver(test.getEndpoint(), test.getMethod(), test.getRequestBody(),
+                        test.getHeaders(), timeout);
+            case DATABASE:
+                checkConnectionSettings(test);
+                return new JdbcLoadDriver(test.getEndpoint(), test.getRequestBody(), test.getHeaders(),
+                        databaseMaxConnections, timeout);
+            default:
+                throw new IllegalArgumentException("Unsupported test type: " + test.getType());
         }
-        
-        // Calculate statistics
-        double averageResponseTime = totalRequests > 0 ? totalResponseTime / totalRequests : 0;
-        double errorRate = totalRequests > 0 ? (double) failedRequests / totalRequests * 100 : 0;
-        
-        // Calculate throughput (requests per second)
-        long testDuration = 0;
-        if (!results.isEmpty()) {
-            long firstRequest = results.get(0).getTimestamp().toEpochMilli();
-            long lastRequest = results.get(results.size() - 1).getTimestamp().toEpochMilli();
-            testDuration = lastRequest - firstRequest;
-        }
-        
-        double throughput = testDuration > 0 ? 
-                (double) totalRequests / (testDuration / 1000.0) : 0;
-        
-        // Calculate percentiles
-        Collections.sort(responseTimes);
-        double percentile90 = calculatePercentile(responseTimes, 90);
-        double percentile95 = calculatePercentile(responseTimes, 95);
-        double percentile99 = calculatePercentile(responseTimes, 99);
-        
-        // Create result map
-        Map<String, Object> resultMap = new HashMap<>();
-        resultMap.put("totalRequests", totalRequests);
-        resultMap.put("successfulRequests", successfulRequests);
-        resultMap.put("failedRequests", failedRequests);
-        resultMap.put("averageResponseTime", averageResponseTime);
-        resultMap.put("minResponseTime", minResponseTime);
-        resultMap.put("maxResponseTime", maxResponseTime);
-        resultMap.put("throughput", throughput);
-        resultMap.put("percentile90", percentile90);
-        resultMap.put("percentile95", percentile95);
-        resultMap.put("percentile99", percentile99);
-        resultMap.put("errorRate", errorRate);
-        resultMap.put("testDuration", testDuration);
-        
-        // Add request details
-        List<Map<String, Object>> requestDetails = new ArrayList<>();
-        for (RequestResult result : results) {
-            Map<String, Object> detail = new HashMap<>();
-            detail.put("timestamp", result.getTimestamp());
-            detail.put("endpoint", result.getEndpoint());
-            detail.put("method", result.getMethod());
-            detail.put("responseTime", result.getResponseTime());
-            detail.put("success", result.isSuccess());
-            detail.put("statusCode", result.getStatusCode());
-            detail.put("errorMessage", result.getErrorMessage());
-            
-            requestDetails.add(detail);
+    }
+    
+    private JdbcConnectionPolicy jdbcConnectionPolicy() {
+        return new JdbcConnectionPolicy(
+                databaseAllowedDrivers != null ? databaseAllowedDrivers : List.of(),
+                databaseAllowedHosts != null ? databaseAllowedHosts : List.of());
+    }
+    
+    /**
+     * Reject database tests whose connection settings or statement are not allowed, before they are stored.
+     */
+    private void checkConnectionSettings(PerformanceTest test) {
+        if (test.getType() == PerformanceTest.TestType.DATABASE) {
+            JdbcConnectionPolicy policy = jdbcConnectionPolicy();
+            policy.check(test.getEndpoint(), test.getHeaders());
+            policy.checkStatement(test.getRequestBody());
         }
-        resultMap.put("requestDetails", requestDetails);
-        
-        return resultMap;
     }
     
     /**
-     * Calculate a percentile value.
+     * Analyze test results.
+     * The headline figures cover all phases, except throughput, which is measured over the steady phase
+     * when there is one. The steady-phase response time histogram is kept for regression checks.
      *
-     * @param values the sorted list of values
-     * @param percentile the percentile to calculate (0-100)
-     * @return the percentile value
+     * @param report the load test report
+     * @return the analyzed results
      */
-    private double calculatePercentile(List<Double> values, int percentile) {
-        if (values.isEmpty()) {
-            return 0;
-        }
-        
-        int index = (int) Math.ceil(percentile / 100.0 * values.size()) - 1;
-        index = Math.max(0, Math.min(index, values.size() - 1));
+    private Map<String, Object> analyzeResults(LoadTestReport report) {
+        LoadProfile profile = report.getProfile();
+        PhaseStatistics overall = report.getOverall();
+        PhaseStatistics steady = report.getPhase(LoadPhase.STEADY);
+        boolean hasSteadyPhase = profile.steadySeconds() > 0 && steady.getLatencies().getTotalCount() > 0;
+        
+        Map<String, Object> resultMap = overall.toMap(report.getElapsedSeconds());
+        if (hasSteadyPhase) {
+            resultMap.put("throughput", steady.toMap(profile.steadySeconds()).get("throughput"));
+        }
+        resultMap.put("targetRate", profile.targetRate());
+        resultMap.put("testDuration", (long) (report.getElapsedSeconds() * 1000));
+        
+        Map<String, Object> phases = new LinkedHashMap<>();
+        report.getPhases().forEach((phase, statistics) -> {
+            if (profile.phaseSeconds(phase) > 0) {
+                phases.put(phase.name(), statistics.toMap(profile.phaseSeconds(phase)));
+            }
+        });
+        resultMap.put("phases", phases);
+        resultMap.put(LATENCY_HISTOGRAM, (hasSteadyPhase ? steady : overall).latenciesToMap());
         
-        return values.get(index);
+        return resultMap;
     }
     
     /**
@@ -320,6 +327,10 @@ public class PerformanceTestService {
     
     /**
      * Check for performance regression.
+     * Response time percentiles are compared with the previous run using the stored latency histograms,
+     * and only shifts that are statistically significant count as regressions; see
+     * {@link PercentileComparison}. The error rate is compared with a two-proportion z-test.
+     * Runs without a stored histogram fall back to comparing the average response time.
      *
      * @param test the performance test
      * @param result the test result
@@ -334,27 +345,40 @@ public class PerformanceTestService {
             return;
         }
         
-        // Calculate percentage changes
-        double responseTimeChange = calculatePercentageChange(
-                previousResult.getAverageResponseTime(), result.getAverageResponseTime());
-        
-        double throughputChange = calculatePercentageChange(
-                previousResult.getThroughput(), result.getThroughput());
-        
-        double errorRateChange = calculatePercentageChange(
-                previousResult.getErrorRate(), result.getErrorRate());
-        
-        // Check for significant regressions
         boolean hasRegression = false;
         StringBuilder regressionMessage = new StringBuilder("Performance regression detected:\n");
         
-        if (responseTimeChange > 10) { // 10% increase in response time
-            hasRegression = true;
-            regressionMessage.append(String.format(
-                    "- Average response time increased by %.2f%% (%.2f ms -> %.2f ms)\n",
-                    responseTimeChange, previousResult.getAverageResponseTime(), result.getAverageResponseTime()));
+        LatencyHistogram previousLatencies = storedLatencies(previousResult);
+        LatencyHistogram currentLatencies = storedLatencies(result);
+        if (previousLatencies != null && currentLatencies != null
+                && previousLatencies.getTotalCount() >= regressionMinSamples
+                && currentLatencies.getTotalCount() >= regressionMinSamples) {
+            for (double percentile : REGRESSION_PERCENTILES) {
+                PercentileComparison.Result comparison = PercentileComparison.compare(previousLatencies,
+                        currentLatencies, percentile, regressionZScore, regressionMinShiftPercent);
+                if (comparison.significant()) {
+                    hasRegression = true;
+                    regressionMessage.append(String.format(
+                            "- p%.0f response time increased significantly by %.2f%% (%.2f ms -> %.2f ms)\n",
+                            percentile, comparison.shiftPercent(),
+                            comparison.baselineValue() / 1000, comparison.currentValue() / 1000));
+                }
+            }
+        } else {
+            double responseTimeChange = calculatePercentageChange(
+                    previousResult.getAverageResponseTime(), result.getAverageResponseTime());
+            
+            if (responseTimeChange > 10) { // 10% increase in response time
+                hasRegression = true;
+                regressionMessage.append(String.format(
+                        "- Average response time increased by %.2f%% (%.2f ms -> %.2f ms)\n",
+                        responseTimeChange, previousResult.getAverageResponseTime(), result.getAverageResponseTime()));
+            }
         }
         
+        double throughputChange = calculatePercentageChange(
+                previousResult.getThroughput(), result.getThroughput());
+        
         if (throughputChange < -10) { // 10% decrease in throughput
             hasRegression = true;
             regressionMessage.append(String.format(
@@ -362,11 +386,11 @@ public class PerformanceTestService {
                     Math.abs(throughputChange), previousResult.getThroughput(), result.getThroughput()));
         }
         
-        if (errorRateChange > 5) { // 5% increase in error rate
+        if (isErrorRateIncreaseSignificant(previousResult, result)) {
             hasRegression = true;
             regressionMessage.append(String.format(
-                    "- Error rate increased by %.2f%% (%.2f%% -> %.2f%%)\n",
-                    errorRateChange, previousResult.getErrorRate(), result.getErrorRate()));
+                    "- Error rate increased significantly (%.2f%% -> %.2f%%)\n",
+                    previousResult.getErrorRate(), result.getErrorRate()));
         }
         
         if (hasRegression) {
@@ -385,6 +409,49 @@ public class PerformanceTestService {
         }
     }
     
+    /**
+     * Get the latency histogram stored with a test result.
+     *
+     * @param result the test result
+     * @return the histogram in microseconds, or null if the result has none
+     */
+    private LatencyHistogram storedLatencies(PerformanceTestResult result) {
+        Map<String, Object> details = result.getDetailedResults();
+        if (details == null || !(details.get(LATENCY_HISTOGRAM) instanceof Map<?, ?> stored)) {
+            return null;
+        }
+        try {
+            return PhaseStatistics.latenciesFromMap(stored);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring latency histogram of test result {}: {}", result.getId(), e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Check whether the error rate increased significantly, with a one-sided two-proportion z-test.
+     *
+     * @param previousResult the previous test result
+     * @param result the current test result
+     * @return true if the error rate increased significantly
+     */
+    private boolean isErrorRateIncreaseSignificant(PerformanceTestResult previousResult, PerformanceTestResult result) {
+        long previousTotal = previousResult.getTotalRequests();
+        long currentTotal = result.getTotalRequests();
+        if (previousTotal == 0 || currentTotal == 0) {
+            return false;
+        }
+        double previousRate = (double) previousResult.getFailedRequests() / previousTotal;
+        double currentRate = (double) result.getFailedRequests() / currentTotal;
+        double pooledRate = (double) (previousResult.getFailedRequests() + result.getFailedRequests())
+                / (previousTotal + currentTotal);
+        double standardError = Math.sqrt(pooledRate * (1 - pooledRate) * (1.0 / previousTotal + 1.0 / currentTotal));
+        if (standardError == 0) {
+            return false;
+        }
+        return (currentRate - previousRate) / standardError > regressionZScore;
+    }
+    
     /**
      * Calculate percentage change between two values.
      *
@@ -436,6 +503,7 @@ public class PerformanceTestService {
         test.setEnabled(true);
         test.setStatus(PerformanceTestStatus.CREATED);
         
+        checkConnectionSettings(test);
         return testRepository.save(test);
     }
     
@@ -479,9 +547,12 @@ public class PerformanceTestService {
         existingTest.setConcurrentUsers(test.getConcurrentUsers());
         existingTest.setRampUpPeriod(test.getRampUpPeriod());
         existingTest.setDuration(test.getDuration());
+        existingTest.setRampDownPeriod(test.getRampDownPeriod());
+        existingTest.setTargetRate(test.getTargetRate());
         existingTest.setScheduled(test.isScheduled());
         existingTest.setEnabled(test.isEnabled());
         
+        checkConnectionSettings(existingTest);
         return testRepository.save(existingTest);
     }
     
@@ -515,185 +586,4 @@ public class PerformanceTestService {
         return resultRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Test result not found: " + id));
     }
-    
-    /**
-     * Inner class representing a simulated user for load testing.
-     */
-    private class UserSimulator implements Callable<List<RequestResult>> {
-        private final PerformanceTest test;
-        private final int duration;
-        private final int userIndex;
-        private final int totalUsers;
-        private final int rampUpPeriod;
-        
-        public UserSimulator(PerformanceTest test, int duration, int userIndex, int totalUsers, int rampUpPeriod) {
-            this.test = test;
-            this.duration = duration;
-            this.userIndex = userIndex;
-            this.totalUsers = totalUsers;
-            this.rampUpPeriod = rampUpPeriod;
-        }
-        
-        @Override
-        public List<RequestResult> call() throws Exception {
-            List<RequestResult> results = new ArrayList<>();
-            
-            // Calculate start delay based on ramp-up period
-            long startDelay = rampUpPeriod > 0 ? 
-                    (long) (rampUpPeriod * 1000 * (userIndex / (double) totalUsers)) : 0;
-            
-            if (startDelay > 0) {
-                Thread.sleep(startDelay);
-            }
-            
-            // Calculate end time
-            long endTime = System.currentTimeMillis() + (duration * 1000);
-            
-            // Execute requests until duration is reached
-            while (System.currentTimeMillis() < endTime) {
-                try {
-                    RequestResult result = executeRequest();
-                    results.add(result);
-                    
-                    // Add think time between requests (random between 100ms and 1000ms)
-                    Thread.sleep(ThreadLocalRandom.current().nextInt(100, 1001));
-                } catch (Exception e) {
-                    log.error("Error executing request: {}", e.getMessage(), e);
-                }
-            }
-            
-            return results;
-        }
-        
-        private RequestResult executeRequest() {
-            RequestResult result = new RequestResult();
-            result.setTimestamp(Instant.now());
-            result.setEndpoint(test.getEndpoint());
-            result.setMethod(test.getMethod());
-            
-            long startTime = System.currentTimeMillis();
-            
-            try {
-                // Execute the request based on the test type
-                switch (test.getType()) {
-                    case HTTP:
-                        executeHttpRequest(result);
-                        break;
-                    case API:
-                        executeApiRequest(result);
-                        break;
-                    case DATABASE:
-                        executeDatabaseRequest(result);
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unsupported test type: " + test.getType());
-                }
-                
-                result.setResponseTime(System.currentTimeMillis() - startTime);
-                return result;
-            } catch (Exception e) {
-                result.setSuccess(false);
-                result.setErrorMessage(e.getMessage());
-                result.setResponseTime(System.currentTimeMillis() - startTime);
-                return result;
-            }
-        }
-        
-        private void executeHttpRequest(RequestResult result) {
-            // In a real implementation, this would use RestTemplate or WebClient
-            // to execute an HTTP request to the specified endpoint
-            
-            // Simulate a request
-            result.setSuccess(true);
-            result.setStatusCode(200);
-        }
-        
-        private void executeApiRequest(RequestResult result) {
-            // In a real implementation, this would use a client to execute
-            // an API request to the specified endpoint
-            
-            // Simulate a request
-            result.setSuccess(true);
-            result.setStatusCode(200);
-        }
-        
-        private void executeDatabaseRequest(RequestResult result) {
-            // In a real implementation, this would use a database client
-            // to execute a database query
-            
-            // Simulate a request
-            result.setSuccess(true);
-            result.setStatusCode(200);
-        }
-    }
-    
-    /**
-     * Inner class representing a request result.
-     */
-    private static class RequestResult {
-        private Instant timestamp;
-        private String endpoint;
-        private String method;
-        private double responseTime;
-        private boolean success;
-        private int statusCode;
-        private String errorMessage;
-        
-        public Instant getTimestamp() {
-            return timestamp;
-        }
-        
-        public void setTimestamp(Instant timestamp) {
-            this.timestamp = timestamp;
-        }
-        
-        public String getEndpoint() {
-            return endpoint;
-        }
-        
-        public void setEndpoint(String endpoint) {
-            this.endpoint = endpoint;
-        }
-        
-        public String getMethod() {
-            return method;
-        }
-        
-        public void setMethod(String method) {
-            this.method = method;
-        }
-        
-        public double getResponseTime() {
-            return responseTime;
-        }
-        
-        public void setResponseTime(double responseTime) {
-            this.responseTime = responseTime;
-        }
-        
-        public boolean isSuccess() {
-            return success;
-        }
-        
-        public void setSuccess(boolean success) {
-            this.success = success;
-        }
-        
-        public int getStatusCode() {
-            return statusCode;
-        }
-        
-        public void setStatusCode(int statusCode) {
-            this.statusCode = statusCode;
-        }
-        
-        public String getErrorMessage() {
-            return errorMessage;
-        }
-        
-        public void setErrorMessage(String errorMessage) {
-            this.errorMessage = errorMessage;
-        }
-    }
 }
-
@@ -0,0 +1,225 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import com.codebridge.common.metrics.LatencyHistogram;
+import com.codebridge.common.metrics.LatencyHistogramSnapshot;
+import com.codebridge.monitoring.performance.loadtest.LoadDriver.RequestOutcome;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Statistics of the requests of one load test phase, in constant memory: response times go into
+ * a latency histogram in microseconds and only a bounded number of distinct error messages is counted.
+ * Recording is thread-safe.
+ */
+public class PhaseStatistics {
+
+    /**
+     * Highest response time tracked, one hour in microseconds.
+     */
+    public static final long HIGHEST_LATENCY_MICROS = 3_600_000_000L;
+    public static final int SIGNIFICANT_DIGITS = 2;
+
+    private static final int MAX_ERROR_MESSAGES = 20;
+    private static final String OTHER_ERRORS = "other";
+
+    private final LatencyHistogram latencies = new LatencyHistogram(HIGHEST_LATENCY_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Records a completed request.
+     *
+     * @param latencyMicros the response time in microseconds, from the scheduled start of the request
+     * @param outcome the outcome of the request
+     */
+    public void record(long latencyMicros, RequestOutcome outcome) {
+        latencies.recordValue(latencyMicros);
+        if (outcome.success()) {
+            successes.increment();
+        } else {
+            failures.increment();
+            recordError(outcome.errorMessage() != null ? outcome.errorMessage() : "Unknown error");
+        }
+    }
+
+    /**
+     * Records a request that was not issued because too many requests were in flight.
+     */
+    public void recordDropped() {
+        dropped.increment();
+        recordError("Too many requests in flight");
+    }
+
+    /**
+     * Records requests that were issued but had not completed when the test stopped waiting for them.
+     *
+     * @param count the number of requests
+     */
+    public void recordUnanswered(long count) {
+        failures.add(count);
+        errorCount("No response before the test ended").add(count);
+    }
+
+    /**
+     * Adds the statistics of another phase to these.
+     *
+     * @param other the statistics to add
+     */
+    public void add(PhaseStatistics other) {
+        latencies.add(other.latencies);
+        successes.add(other.successes.sum());
+        failures.add(other.failures.sum());
+        dropped.add(other.dropped.sum());
+        other.errors.forEach((message, count) -> errorCount(message).add(count.sum()));
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public long getSuccessfulRequests() {
+        return successes.sum();
+    }
+
+    /**
+     * Gets the number of failed requests, including dropped ones.
+     *
+     * @return the failed request count
+     */
+    public long getFailedRequests() {
+        return failures.sum() + dropped.sum();
+    }
+
+    public long getDroppedRequests() {
+        return dropped.sum();
+    }
+
+    public long getTotalRequests() {
+        return getSuccessfulRequests() + getFailedRequests();
+    }
+
+    /**
+     * Gets the error rate.
+     *
+     * @return the percentage of failed requests
+     */
+    public double getErrorRate() {
+        long total = getTotalRequests();
+        return total > 0 ? (double) getFailedRequests() / total * 100 : 0;
+    }
+
+    /**
+     * Gets a response time percentile.
+     *
+     * @param percentile the percentile (0-100)
+     * @return the response time in milliseconds
+     */
+    public double getResponseTimePercentile(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Summarizes the statistics.
+     *
+     * @param seconds the length of the phase, for the throughput
+     * @return the summary, with response times in milliseconds and throughput in requests per second
+     */
+    public Map<String, Object> toMap(double seconds) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("totalRequests", getTotalRequests());
+        map.put("successfulRequests", getSuccessfulRequests());
+        map.put("failedRequests", getFailedRequests());
+        map.put("droppedRequests", getDroppedRequests());
+        map.put("averageResponseTime", latencies.getMean() / 1000.0);
+        map.put("minResponseTime", latencies.getMin() / 1000.0);
+        map.put("maxResponseTime", latencies.getMax() / 1000.0);
+        map.put("percentile50", getResponseTimePercentile(50));
+        map.put("percentile90", getResponseTimePercentile(90));
+        map.put("percentile95", getResponseTimePercentile(95));
+        map.put("percentile99", getResponseTimePercentile(99));
+        map.put("throughput", seconds > 0 ? latencies.getTotalCount() / seconds : 0.0);
+        map.put("errorRate", getErrorRate());
+        Map<String, Long> errorCounts = new HashMap<>();
+        errors.forEach((message, count) -> errorCounts.put(message, count.sum()));
+        map.put("errors", errorCounts);
+        return map;
+    }
+
+    /**
+     * Converts the response time histogram to a map that can be stored as JSON.
+     *
+     * @return the histogram buckets and totals
+     */
+    public Map<String, Object> latenciesToMap() {
+        LatencyHistogramSnapshot snapshot = latencies.snapshot();
+        Map<String, Object> map = new HashMap<>();
+        map.put("totalCount", snapshot.getTotalCount());
+        map.put("sum", snapshot.getSum());
+        map.put("min", snapshot.getMin());
+        map.put("max", snapshot.getMax());
+        map.put("bucketIndexes", snapshot.getBucketIndexes());
+        map.put("bucketCounts", snapshot.getBucketCounts());
+        return map;
+    }
+
+    /**
+     * Restores a response time histogram stored with {@link #latenciesToMap()}.
+     * Numbers may come back from JSON as any numeric type.
+     *
+     * @param map the stored histogram
+     * @return the histogram, in microseconds
+     * @throws IllegalArgumentException if the map is not a stored histogram
+     */
+    public static LatencyHistogram latenciesFromMap(Map<?, ?> map) {
+        try {
+            LatencyHistogramSnapshot snapshot = new LatencyHistogramSnapshot();
+            snapshot.setHighestTrackableValue(HIGHEST_LATENCY_MICROS);
+            snapshot.setSignificantDigits(SIGNIFICANT_DIGITS);
+            snapshot.setTotalCount(((Number) map.get("totalCount")).longValue());
+            snapshot.setSum(((Number) map.get("sum")).longValue());
+            snapshot.setMin(((Number) map.get("min")).longValue());
+            snapshot.setMax(((Number) map.get("max")).longValue());
+            snapshot.setBucketIndexes(toNumbers(map.get("bucketIndexes")).mapToInt(Number::intValue).toArray());
+            snapshot.setBucketCounts(toNumbers(map.get("bucketCounts")).mapToLong(Number::longValue).toArray());
+
+            LatencyHistogram histogram = new LatencyHistogram(HIGHEST_LATENCY_MICROS, SIGNIFICANT_DIGITS);
+            histogram.add(snapshot);
+            return histogram;
+        } catch (ClassCastException | NullPointerException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid stored latency histogram", e);
+        }
+    }
+
+    private static Stream<Number> toNumbers(Object values) {
+        if (values instanceof int[] ints) {
+            return Arrays.stream(ints).boxed().map(Number.class::cast);
+        }
+        if (values instanceof long[] longs) {
+            return Arrays.stream(longs).boxed().map(Number.class::cast);
+        }
+        return ((Collection<?>) values).stream().map(Number.class::cast);
+    }
+
+    private void recordError(String message) {
+        errorCount(message).increment();
+    }
+
+    private LongAdder errorCount(String message) {
+        LongAdder count = errors.get(message);
+        if (count != null) {
+            return count;
+        }
+        return errors.size() < MAX_ERROR_MESSAGES
+                ? errors.computeIfAbsent(message, m -> new LongAdder())
+                : errors.computeIfAbsent(OTHER_ERRORS, m -> new LongAdder());
+    }
+}
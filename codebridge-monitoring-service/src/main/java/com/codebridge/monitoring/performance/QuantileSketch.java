@@ -0,0 +1,206 @@
+package com.codebridge.monitoring.performance.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative-error guarantees, in the style of DDSketch.
+ * Values are counted in logarithmically sized bins, so any quantile is estimated within 1% of its
+ * true value, and sketches of different time ranges merge exactly. Values closer to zero than
+ * {@link #MIN_INDEXABLE_VALUE} are counted as zero.
+ */
+public final class QuantileSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final double MIN_INDEXABLE_VALUE = 1e-9;
+
+    private final Bins positive = new Bins();
+    private final Bins negative = new Bins();
+    private long zeroCount;
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value > MIN_INDEXABLE_VALUE) {
+            positive.add(index(value), 1);
+        } else if (value < -MIN_INDEXABLE_VALUE) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+    }
+
+    public void merge(QuantileSketch other) {
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+    }
+
+    public long getCount() {
+        return positive.total + negative.total + zeroCount;
+    }
+
+    /**
+     * Estimates the value at a quantile.
+     *
+     * @param quantile the quantile, from 0 to 1
+     * @return the estimated value, or 0.0 if the sketch is empty
+     */
+    public double getValueAtQuantile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, quantile)) * (count - 1));
+
+        // Negative values in ascending order are the negative bins in descending index order
+        long seen = 0;
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) {
+                return -value(negative.offset + i);
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0.0;
+        }
+        for (int i = 0; i < positive.counts.length; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) {
+                return value(positive.offset + i);
+            }
+        }
+        return value(positive.offset + positive.counts.length - 1);
+    }
+
+    /**
+     * Serializes the sketch.
+     *
+     * @return the serialized sketch
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarLong(out, zeroCount);
+        positive.write(out);
+        negative.write(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Deserializes a sketch written by {@link #toByteArray()}.
+     *
+     * @param bytes the serialized sketch
+     * @return the sketch
+     */
+    public static QuantileSketch fromByteArray(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.zeroCount = readVarLong(in);
+        sketch.positive.read(in);
+        sketch.negative.read(in);
+        return sketch;
+    }
+
+    private static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    // Midpoint of the bin, which is within the relative accuracy of every value in it
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Dense bin counts for a contiguous range of indexes.
+     */
+    private static final class Bins {
+        private long[] counts = new long[0];
+        private int offset;
+        private long total;
+
+        void add(int index, long count) {
+            if (counts.length == 0) {
+                counts = new long[8];
+                offset = index;
+            } else if (index < offset) {
+                long[] grown = new long[counts.length + (offset - index)];
+                System.arraycopy(counts, 0, grown, offset - index, counts.length);
+                counts = grown;
+                offset = index;
+            } else if (index >= offset + counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(index - offset + 1, counts.length * 2));
+            }
+            counts[index - offset] += count;
+            total += count;
+        }
+
+        void merge(Bins other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        // Only non-empty bins are written, as index deltas and counts
+        void write(ByteArrayOutputStream out) {
+            int nonEmpty = 0;
+            for (long count : counts) {
+                if (count != 0) {
+                    nonEmpty++;
+                }
+            }
+            writeVarLong(out, nonEmpty);
+            if (nonEmpty == 0) {
+                return;
+            }
+            int previous = 0;
+            boolean first = true;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    int index = offset + i;
+                    // The first index is zigzag encoded, as it may be negative
+                    writeVarLong(out, first ? Integer.toUnsignedLong((index << 1) ^ (index >> 31)) : index - previous);
+                    writeVarLong(out, counts[i]);
+                    previous = index;
+                    first = false;
+                }
+            }
+        }
+
+        void read(ByteBuffer in) {
+            long nonEmpty = readVarLong(in);
+            int index = 0;
+            for (long i = 0; i < nonEmpty; i++) {
+                long encoded = readVarLong(in);
+                index = i == 0 ? (int) (encoded >>> 1) ^ -(int) (encoded & 1) : index + (int) encoded;
+                add(index, readVarLong(in));
+            }
+        }
+    }
+}
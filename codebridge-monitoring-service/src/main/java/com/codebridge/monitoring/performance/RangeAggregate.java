@@ -0,0 +1,139 @@
+package com.codebridge.monitoring.performance.storage;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Count, sum, minimum and maximum of the values in a time range, and optionally a quantile sketch
+ * of them for percentile aggregations.
+ */
+public final class RangeAggregate {
+
+    private static final Pattern PERCENTILE_PATTERN = Pattern.compile("p(\\d{1,2}(\\.\\d+)?)");
+
+    private final QuantileSketch sketch;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates an empty aggregate.
+     *
+     * @param withSketch whether to track a quantile sketch
+     */
+    public RangeAggregate(boolean withSketch) {
+        this.sketch = withSketch ? new QuantileSketch() : null;
+    }
+
+    /**
+     * Creates an empty aggregate able to answer an aggregation function.
+     *
+     * @param aggregation the aggregation function
+     * @return the aggregate
+     */
+    public static RangeAggregate forAggregation(String aggregation) {
+        return new RangeAggregate(isPercentile(aggregation));
+    }
+
+    /**
+     * Checks whether an aggregation function needs a quantile sketch.
+     *
+     * @param aggregation the aggregation function
+     * @return true for median and percentile (e.g. p95) aggregations
+     */
+    public static boolean isPercentile(String aggregation) {
+        String function = aggregation.toLowerCase();
+        return function.equals("median") || PERCENTILE_PATTERN.matcher(function).matches();
+    }
+
+    void add(double value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (sketch != null) {
+            sketch.add(value);
+        }
+    }
+
+    /**
+     * Merges a block summary. The caller must merge the sketch of the block separately if one is tracked.
+     */
+    void merge(Block block) {
+        count += block.getCount();
+        sum += block.getSum();
+        min = Math.min(min, block.getMin());
+        max = Math.max(max, block.getMax());
+    }
+
+    void mergeSketch(QuantileSketch other) {
+        sketch.merge(other);
+    }
+
+    boolean hasSketch() {
+        return sketch != null;
+    }
+
+    QuantileSketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * Creates a block summary of the aggregate, for storing it as a rollup bucket.
+     */
+    Block toBlock(long bucketStart, long resolutionMs) {
+        return new Block(bucketStart, bucketStart + resolutionMs - 1, (int) count, min, max, sum);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Gets the value of an aggregation function.
+     *
+     * @param aggregation the aggregation function (mean, avg, min, max, sum, count, median or a percentile such as p95)
+     * @return the aggregated value, or NaN if the range is empty and the function is neither count nor sum
+     * @throws IllegalArgumentException if the aggregation function is not supported
+     */
+    public double getValue(String aggregation) {
+        String function = aggregation.toLowerCase();
+        if (count == 0) {
+            return emptyValue(function);
+        }
+        Matcher percentile = PERCENTILE_PATTERN.matcher(function);
+        if (sketch != null && percentile.matches()) {
+            return sketch.getValueAtQuantile(Double.parseDouble(percentile.group(1)) / 100);
+        }
+        return switch (function) {
+            case "mean", "avg" -> sum / count;
+            case "min" -> min;
+            case "max" -> max;
+            case "sum" -> sum;
+            case "count" -> count;
+            case "median" -> {
+                if (sketch == null) {
+                    throw new IllegalArgumentException("Aggregation " + aggregation + " requires a quantile sketch");
+                }
+                yield sketch.getValueAtQuantile(0.5);
+            }
+            default -> throw new IllegalArgumentException("Unsupported aggregation: " + aggregation);
+        };
+    }
+
+    /**
+     * Gets the value of an aggregation function over a range without data.
+     * Only a count and a sum are defined there; every other function has no value.
+     *
+     * @param function the lower-case aggregation function
+     * @return 0.0 for count and sum, NaN otherwise
+     */
+    public static double emptyValue(String function) {
+        return function.equals("count") || function.equals("sum") ? 0.0 : Double.NaN;
+    }
+}
@@ -235,22 +235,24 @@ public class ResourceOptimizationService {
         List<PerformanceMetric> slowQueries = metricRepository.findByServiceNameAndMetricNameAndMetricTypeAndTimestampBetween(
                 "database-service", "query.slow", MetricType.COUNTER, startTime, endTime);
         
-        Map<String, Integer> slowQueryCounts = new HashMap<>();
+        Map<String, Long> slowQueryCounts = new HashMap<>();
         Map<String, String> slowQueryTypes = new HashMap<>();
         
         for (PerformanceMetric metric : slowQueries) {
             String databaseType = metric.getTags().get("database_type");
             String queryType = metric.getTags().get("query_type");
             String key = databaseType + ":" + queryType;
+            // A summary row stands for all slow queries of its aggregation interval
+            long count = metric.getSampleCount() != null ? metric.getSampleCount() : 1;
             
-            slowQueryCounts.put(key, slowQueryCounts.getOrDefault(key, 0) + 1);
+            slowQueryCounts.merge(key, count, Long::sum);
             slowQueryTypes.put(key, queryType);
         }
         
         // Create recommendations for slow queries
-        for (Map.Entry<String, Integer> entry : slowQueryCounts.entrySet()) {
+        for (Map.Entry<String, Long> entry : slowQueryCounts.entrySet()) {
             String key = entry.getKey();
-            int count = entry.getValue();
+            long count = entry.getValue();
             String[] parts = key.split(":");
             String databaseType = parts[0];
             String queryType = slowQueryTypes.get(key);
@@ -0,0 +1,10 @@
+package com.codebridge.monitoring.performance.storage;
+
+/**
+ * Configuration of a rollup tier.
+ *
+ * @param resolutionMs the bucket width
+ * @param retentionMs how long buckets are kept
+ */
+public record RollupSpec(long resolutionMs, long retentionMs) {
+}
@@ -0,0 +1,225 @@
+package com.codebridge.monitoring.performance.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * A rollup tier of a series: the count, sum, minimum, maximum and quantile sketch of its values in
+ * fixed buckets of one resolution, aligned to the epoch. The current bucket is kept in memory and
+ * written out as a block of the tier's segment files once it has passed. A point arriving for a bucket
+ * that was already written produces another block for the same bucket, which queries merge.
+ * The current bucket is checkpointed along with the open block of its series.
+ */
+final class RollupTier {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "open.ckp";
+    // Each segment file of a tier holds this many buckets
+    private static final int BUCKETS_PER_SEGMENT = 1440;
+
+    private final Path directory;
+    private final RollupSpec spec;
+    private final long segmentDurationMs;
+    private final SegmentCache segmentCache;
+    private final TreeMap<Long, SegmentFile> segments = new TreeMap<>();
+    private long openBucketStart;
+    private RangeAggregate openBucket;
+    private boolean openBucketChanged;
+    private boolean checkpointed;
+
+    RollupTier(Path seriesDirectory, RollupSpec spec, SegmentCache segmentCache) throws IOException {
+        this.directory = seriesDirectory.resolve("rollup-" + spec.resolutionMs());
+        this.spec = spec;
+        this.segmentDurationMs = spec.resolutionMs() * BUCKETS_PER_SEGMENT;
+        this.segmentCache = segmentCache;
+
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).forEach(file -> {
+                    String name = file.getFileName().toString();
+                    long partitionStart = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(partitionStart, new SegmentFile(file, partitionStart, segmentCache));
+                });
+            }
+        }
+        restoreCheckpoint();
+    }
+
+    long getResolutionMs() {
+        return spec.resolutionMs();
+    }
+
+    /**
+     * Gets the start of the time the tier is guaranteed to hold, given its retention period.
+     * Older buckets may already have been deleted along with their segment file.
+     *
+     * @param now the current time in epoch milliseconds
+     * @return the earliest retained time in epoch milliseconds
+     */
+    long retainedFrom(long now) {
+        return now - spec.retentionMs();
+    }
+
+    void add(long timestamp, double value) throws IOException {
+        long bucketStart = Math.floorDiv(timestamp, spec.resolutionMs()) * spec.resolutionMs();
+        if (openBucket != null && openBucketStart != bucketStart) {
+            seal();
+        }
+        if (openBucket == null) {
+            openBucket = new RangeAggregate(true);
+            openBucketStart = bucketStart;
+        }
+        openBucket.add(value);
+        openBucketChanged = true;
+    }
+
+    void sealCompletedBucket(long now) throws IOException {
+        if (openBucket != null && now >= openBucketStart + spec.resolutionMs()) {
+            seal();
+        }
+    }
+
+    /**
+     * Writes the open bucket and its sketch to the checkpoint file, if it changed since the last checkpoint.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    void checkpoint() throws IOException {
+        if (openBucketChanged && openBucket != null) {
+            SegmentFile.writeCheckpoint(directory.resolve(CHECKPOINT_FILE),
+                    openBucket.toBlock(openBucketStart, spec.resolutionMs()), openBucket.getSketch().toByteArray());
+            checkpointed = true;
+        }
+        openBucketChanged = false;
+    }
+
+    /**
+     * Merges the buckets in a range into an aggregate.
+     *
+     * @param from the range start, aligned to the resolution
+     * @param to the range end, exclusive and aligned to the resolution
+     * @param aggregate the aggregate to merge into
+     * @throws IOException if a segment file cannot be read
+     */
+    void collect(long from, long to, RangeAggregate aggregate) throws IOException {
+        forEachBucket(from, to, (bucketStart, bucket, sketch) -> {
+            aggregate.merge(bucket);
+            if (aggregate.hasSketch()) {
+                aggregate.mergeSketch(sketch.get());
+            }
+        });
+    }
+
+    /**
+     * Visits the buckets in a range, in no particular order.
+     *
+     * @param from the range start, aligned to the resolution
+     * @param to the range end, exclusive and aligned to the resolution
+     * @param visitor receives the buckets
+     * @throws IOException if a segment file cannot be read
+     */
+    void forEachBucket(long from, long to, BucketVisitor visitor) throws IOException {
+        long firstPartition = Math.floorDiv(from, segmentDurationMs) * segmentDurationMs;
+        for (SegmentFile segment : segments.subMap(firstPartition, true, to, false).values()) {
+            List<Block> blocks = segment.getBlocks();
+            for (int i = 0; i < blocks.size(); i++) {
+                Block bucket = blocks.get(i);
+                if (bucket.getMinTimestamp() >= from && bucket.getMinTimestamp() < to) {
+                    int index = i;
+                    visitor.visit(bucket.getMinTimestamp(), bucket,
+                        () -> QuantileSketch.fromByteArray(segment.readData(index)));
+                }
+            }
+        }
+
+        if (openBucket != null && openBucketStart >= from && openBucketStart < to) {
+            visitor.visit(openBucketStart, openBucket.toBlock(openBucketStart, spec.resolutionMs()),
+                () -> openBucket.getSketch());
+        }
+    }
+
+    /**
+     * Deletes the segment files whose partition ended before the tier's retention period.
+     *
+     * @param now the current time in epoch milliseconds
+     * @return the number of deleted files
+     * @throws IOException if a file cannot be deleted
+     */
+    int deleteExpiredSegments(long now) throws IOException {
+        int deleted = 0;
+        long cutoff = now - spec.retentionMs();
+        Iterator<SegmentFile> iterator = segments.headMap(cutoff - segmentDurationMs, true).values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().delete();
+            iterator.remove();
+            deleted++;
+        }
+        return deleted;
+    }
+
+    void close() throws IOException {
+        seal();
+        for (SegmentFile segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    private void seal() throws IOException {
+        if (openBucket == null) {
+            return;
+        }
+        RangeAggregate bucket = openBucket;
+        openBucket = null;
+        long partitionStart = Math.floorDiv(openBucketStart, segmentDurationMs) * segmentDurationMs;
+        SegmentFile segment = segments.get(partitionStart);
+        if (segment == null) {
+            Files.createDirectories(directory);
+            segment = new SegmentFile(directory.resolve(partitionStart + SEGMENT_SUFFIX), partitionStart, segmentCache);
+            segments.put(partitionStart, segment);
+        }
+        segment.append(bucket.toBlock(openBucketStart, spec.resolutionMs()), bucket.getSketch().toByteArray());
+        if (checkpointed) {
+            Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE));
+            checkpointed = false;
+        }
+    }
+
+    private void restoreCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        SegmentFile.readCheckpoint(path, (summary, data) -> {
+            SegmentFile segment = segments.get(Math.floorDiv(summary.getMinTimestamp(), segmentDurationMs) * segmentDurationMs);
+            if (segment != null && segment.containsSealed(summary)) {
+                return;
+            }
+            openBucket = new RangeAggregate(true);
+            openBucket.merge(summary);
+            openBucket.mergeSketch(QuantileSketch.fromByteArray(data));
+            openBucketStart = summary.getMinTimestamp();
+        });
+        checkpointed = true;
+    }
+
+    /**
+     * Receives the buckets of a tier.
+     */
+    @FunctionalInterface
+    interface BucketVisitor {
+        void visit(long bucketStart, Block bucket, SketchReader sketch) throws IOException;
+    }
+
+    /**
+     * Reads the quantile sketch of a bucket, which is only done for percentile queries.
+     */
+    @FunctionalInterface
+    interface SketchReader {
+        QuantileSketch get() throws IOException;
+    }
+}
@@ -0,0 +1,204 @@
+package com.codebridge.monitoring.performance.anomaly;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Online model of the normal range of a metric, updated one point at a time.
+ * It keeps an overall mean and variance plus one per hour of the week (UTC), so daily and weekly
+ * patterns are not reported as anomalies. Each estimate is exact (Welford) until it has seen
+ * 1 / alpha points and exponentially weighted afterwards, so the model follows slow drifts.
+ * An hour of the week is only trusted once it has been seen in enough past weeks: all points of one
+ * hour are alike, so their number says nothing about how the hour varies from week to week.
+ * The model can be serialized into a compact checkpoint.
+ */
+public final class SeasonalBaseline {
+
+    public static final int HOURS_PER_WEEK = 168;
+
+    private static final byte CHECKPOINT_VERSION = 2;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    // The epoch was a Thursday; shift so that slot 0 is Monday 00:00 UTC
+    private static final long EPOCH_HOUR_OF_WEEK = 3 * 24;
+
+    private final double overallAlpha;
+    private final double seasonalAlpha;
+    private final Estimate overall = new Estimate();
+    private final Estimate[] hourOfWeek = new Estimate[HOURS_PER_WEEK];
+    private boolean dirty;
+
+    /**
+     * Creates an empty baseline.
+     *
+     * @param overallAlpha the smallest weight of a new point in the overall estimate
+     * @param seasonalAlpha the smallest weight of a new point in an hour-of-week estimate
+     */
+    public SeasonalBaseline(double overallAlpha, double seasonalAlpha) {
+        this.overallAlpha = overallAlpha;
+        this.seasonalAlpha = seasonalAlpha;
+        for (int i = 0; i < HOURS_PER_WEEK; i++) {
+            hourOfWeek[i] = new Estimate();
+        }
+    }
+
+    /**
+     * Gets the expected range of a point, preferring the estimate for its hour of the week.
+     *
+     * @param timestamp the point timestamp in epoch milliseconds
+     * @param minPoints the number of points the overall estimate needs
+     * @param minSeasonalWeeks the number of completed past weeks an hour-of-week estimate needs
+     * @return the expectation, or null if neither estimate has seen enough data
+     */
+    public synchronized Expectation expectation(long timestamp, long minPoints, int minSeasonalWeeks) {
+        Estimate seasonal = hourOfWeek[slot(timestamp)];
+        // The week the point falls in has not been completed yet
+        int completedWeeks = seasonal.lastWeek == week(timestamp) ? seasonal.weeks - 1 : seasonal.weeks;
+        if (completedWeeks >= minSeasonalWeeks) {
+            return new Expectation(seasonal.mean, Math.sqrt(seasonal.variance), true);
+        }
+        if (overall.count >= minPoints) {
+            return new Expectation(overall.mean, Math.sqrt(overall.variance), false);
+        }
+        return null;
+    }
+
+    /**
+     * Updates the model with a point.
+     *
+     * @param timestamp the point timestamp in epoch milliseconds
+     * @param value the point value
+     */
+    public synchronized void update(long timestamp, double value) {
+        if (!Double.isFinite(value)) {
+            return;
+        }
+        overall.update(value, overallAlpha);
+        Estimate seasonal = hourOfWeek[slot(timestamp)];
+        seasonal.update(value, seasonalAlpha);
+        long week = week(timestamp);
+        if (week > seasonal.lastWeek) {
+            seasonal.weeks++;
+            seasonal.lastWeek = week;
+        }
+        dirty = true;
+    }
+
+    /**
+     * Checks whether the model changed since the last checkpoint, and clears the flag.
+     *
+     * @return true if a new checkpoint should be written
+     */
+    public synchronized boolean checkDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    /**
+     * Serializes the model. Only hours of the week that have seen points are written.
+     *
+     * @return the checkpoint
+     */
+    public synchronized byte[] toCheckpoint() {
+        int used = 0;
+        for (Estimate estimate : hourOfWeek) {
+            if (estimate.count > 0) {
+                used++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + Estimate.SIZE + used * (1 + Estimate.SIZE));
+        buffer.put(CHECKPOINT_VERSION);
+        buffer.putShort((short) used);
+        overall.write(buffer);
+        for (int i = 0; i < HOURS_PER_WEEK; i++) {
+            if (hourOfWeek[i].count > 0) {
+                buffer.put((byte) i);
+                hourOfWeek[i].write(buffer);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Restores a model from a checkpoint.
+     *
+     * @param checkpoint the checkpoint written by {@link #toCheckpoint()}
+     * @param overallAlpha the smallest weight of a new point in the overall estimate
+     * @param seasonalAlpha the smallest weight of a new point in an hour-of-week estimate
+     * @return the model
+     * @throws IllegalArgumentException if the checkpoint version is not supported
+     */
+    public static SeasonalBaseline fromCheckpoint(byte[] checkpoint, double overallAlpha, double seasonalAlpha) {
+        ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+        byte version = buffer.get();
+        if (version != CHECKPOINT_VERSION) {
+            throw new IllegalArgumentException("Unsupported baseline checkpoint version " + version);
+        }
+        SeasonalBaseline baseline = new SeasonalBaseline(overallAlpha, seasonalAlpha);
+        int used = buffer.getShort();
+        baseline.overall.read(buffer);
+        for (int i = 0; i < used; i++) {
+            baseline.hourOfWeek[buffer.get() & 0xFF].read(buffer);
+        }
+        return baseline;
+    }
+
+    static int slot(long timestamp) {
+        return (int) Math.floorMod(hourOfEpochWeek(timestamp), (long) HOURS_PER_WEEK);
+    }
+
+    static long week(long timestamp) {
+        return Math.floorDiv(hourOfEpochWeek(timestamp), (long) HOURS_PER_WEEK);
+    }
+
+    private static long hourOfEpochWeek(long timestamp) {
+        return Math.floorDiv(timestamp, MILLIS_PER_HOUR) + EPOCH_HOUR_OF_WEEK;
+    }
+
+    /**
+     * Expected range of a point.
+     *
+     * @param mean the expected mean
+     * @param stdDev the expected standard deviation
+     * @param seasonal whether the expectation comes from the point's hour of the week
+     */
+    public record Expectation(double mean, double stdDev, boolean seasonal) {
+    }
+
+    /**
+     * Incremental mean and variance, and the number of distinct weeks it has seen points in.
+     */
+    private static final class Estimate {
+        static final int SIZE = 8 + 8 + 8 + 4 + 8;
+
+        long count;
+        double mean;
+        double variance;
+        int weeks;
+        long lastWeek = Long.MIN_VALUE;
+
+        void update(double value, double minAlpha) {
+            count++;
+            double alpha = Math.max(1.0 / count, minAlpha);
+            double diff = value - mean;
+            double increment = alpha * diff;
+            mean += increment;
+            variance = (1 - alpha) * (variance + diff * increment);
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putLong(count);
+            buffer.putDouble(mean);
+            buffer.putDouble(variance);
+            buffer.putInt(weeks);
+            buffer.putLong(lastWeek);
+        }
+
+        void read(ByteBuffer buffer) {
+            count = buffer.getLong();
+            mean = buffer.getDouble();
+            variance = buffer.getDouble();
+            weeks = buffer.getInt();
+            lastWeek = buffer.getLong();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.codebridge.monitoring.performance.storage;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounds the number of segment files that are open at a time, shared by all series of a backend.
+ * A segment registers each time it is used; once more segments are open than the limit allows, the
+ * least recently used ones are closed, which drops their mapping and releases their channel. A closed
+ * segment is opened and rescanned on its next use. Segments that are in use by another thread are
+ * skipped rather than waited for, so eviction never blocks on a segment lock.
+ */
+public final class SegmentCache {
+
+    private final int maxOpenSegments;
+    // Access-ordered, least recently used first
+    private final LinkedHashMap<SegmentFile, Boolean> openSegments = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxOpenSegments the number of segment files that may be open at a time
+     */
+    public SegmentCache(int maxOpenSegments) {
+        if (maxOpenSegments < 1) {
+            throw new IllegalArgumentException("At least one segment file must be allowed to be open");
+        }
+        this.maxOpenSegments = maxOpenSegments;
+    }
+
+    /**
+     * Gets the number of segment files currently open.
+     *
+     * @return the number of open segment files
+     */
+    public int getOpenSegments() {
+        synchronized (openSegments) {
+            return openSegments.size();
+        }
+    }
+
+    /**
+     * Records the use of an open segment and closes the least recently used others if too many are open.
+     *
+     * @param segment the segment being used, whose lock the caller holds
+     * @throws IOException if an evicted segment cannot be closed cleanly; it is released nonetheless
+     */
+    void touch(SegmentFile segment) throws IOException {
+        synchronized (openSegments) {
+            openSegments.put(segment, Boolean.TRUE);
+            Iterator<SegmentFile> iterator = openSegments.keySet().iterator();
+            int excess = openSegments.size() - maxOpenSegments;
+            while (excess > 0 && iterator.hasNext()) {
+                SegmentFile candidate = iterator.next();
+                if (candidate == segment) {
+                    continue;
+                }
+                boolean evicted;
+                try {
+                    evicted = candidate.tryRelease();
+                } catch (IOException e) {
+                    iterator.remove();
+                    throw e;
+                }
+                if (evicted) {
+                    iterator.remove();
+                    excess--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets a segment that was closed or deleted by its series.
+     *
+     * @param segment the segment
+     */
+    void remove(SegmentFile segment) {
+        synchronized (openSegments) {
+            openSegments.remove(segment);
+        }
+    }
+}
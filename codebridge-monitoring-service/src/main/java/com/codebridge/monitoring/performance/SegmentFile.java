@@ -0,0 +1,317 @@
+package com.codebridge.monitoring.performance.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only, memory-mapped file holding the compressed blocks of one series for one time partition.
+ * Each block is stored as a fixed-size header with its summary followed by the encoded points.
+ * Rollup tiers use the same format, with one block per rollup bucket followed by its quantile sketch.
+ * The header magic is written last, so a block that was only partly written is ignored when
+ * the file is reopened and overwritten by the next append. The file is mapped on first use and
+ * registered with the {@link SegmentCache} of its backend, which closes it again when it turns cold;
+ * it is then reopened and rescanned on its next use. Every access holds the segment's lock, so the
+ * cache can close it from another thread.
+ * A checkpoint is a file in the same format holding a single block that is still open in memory.
+ */
+final class SegmentFile {
+
+    private static final int BLOCK_MAGIC = 0x54534231;
+    // magic, min/max timestamp, count, min/max/sum, data length
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 4 + 8 + 8 + 8 + 4;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final Path path;
+    private final long partitionStart;
+    private final SegmentCache cache;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<Integer> dataOffsets = new ArrayList<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    /**
+     * Creates a segment file, which is opened on first use.
+     *
+     * @param path the file
+     * @param partitionStart the start of the time partition the file covers
+     * @param cache the cache bounding the open segment files, or null to keep the file open until closed
+     */
+    SegmentFile(Path path, long partitionStart, SegmentCache cache) {
+        this.path = path;
+        this.partitionStart = partitionStart;
+        this.cache = cache;
+    }
+
+    long getPartitionStart() {
+        return partitionStart;
+    }
+
+    /**
+     * Gets the summaries of the blocks in the file, in the order they were appended.
+     *
+     * @return a copy of the block summaries, which stays valid if the file is closed
+     * @throws IOException if the file cannot be opened
+     */
+    List<Block> getBlocks() throws IOException {
+        lock.lock();
+        try {
+            open();
+            return List.copyOf(blocks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a block.
+     *
+     * @param summary the block summary
+     * @param data the encoded points
+     * @throws IOException if the file cannot be opened or grown
+     */
+    void append(Block summary, byte[] data) throws IOException {
+        lock.lock();
+        try {
+            open();
+            write(summary, data);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Block summary, byte[] data) throws IOException {
+        int required = writePosition + HEADER_SIZE + data.length;
+        if (required > buffer.capacity()) {
+            map(Math.max((long) buffer.capacity() * 2, required));
+        }
+
+        int position = writePosition;
+        buffer.putLong(position + 4, summary.getMinTimestamp());
+        buffer.putLong(position + 12, summary.getMaxTimestamp());
+        buffer.putInt(position + 20, summary.getCount());
+        buffer.putDouble(position + 24, summary.getMin());
+        buffer.putDouble(position + 32, summary.getMax());
+        buffer.putDouble(position + 40, summary.getSum());
+        buffer.putInt(position + 48, data.length);
+        buffer.put(position + HEADER_SIZE, data);
+        buffer.putInt(position, BLOCK_MAGIC);
+
+        blocks.add(summary);
+        dataOffsets.add(position + HEADER_SIZE);
+        writePosition = required;
+    }
+
+    /**
+     * Decodes the points of a block.
+     *
+     * @param index the index of the block in {@link #getBlocks()}
+     * @param consumer receives the points
+     * @throws IOException if the file cannot be opened
+     */
+    void forEachPoint(int index, BlockDecoder.PointConsumer consumer) throws IOException {
+        byte[] data;
+        int count;
+        lock.lock();
+        try {
+            data = readData(index);
+            count = blocks.get(index).getCount();
+        } finally {
+            lock.unlock();
+        }
+        BlockDecoder.decode(data, count, consumer);
+    }
+
+    /**
+     * Reads the data stored after a block header.
+     *
+     * @param index the index of the block in {@link #getBlocks()}
+     * @return the block data
+     * @throws IOException if the file cannot be opened
+     */
+    byte[] readData(int index) throws IOException {
+        lock.lock();
+        try {
+            open();
+            int offset = dataOffsets.get(index);
+            byte[] data = new byte[buffer.getInt(offset - HEADER_SIZE + 48)];
+            buffer.get(offset, data);
+            return data;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() throws IOException {
+        lock.lock();
+        try {
+            release();
+        } finally {
+            lock.unlock();
+        }
+        if (cache != null) {
+            cache.remove(this);
+        }
+    }
+
+    /**
+     * Closes the file unless another thread is using it. Called by the cache to evict the file.
+     *
+     * @return true if the file is closed, false if it is in use
+     * @throws IOException if the file cannot be written out; it is closed nonetheless
+     */
+    boolean tryRelease() throws IOException {
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            release();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            // Drop the unused tail the file was extended by when it was mapped
+            channel.truncate(writePosition);
+        } finally {
+            channel.close();
+            channel = null;
+            // The mapping is released once the buffer is no longer reachable
+            buffer = null;
+            blocks.clear();
+            dataOffsets.clear();
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Replaces a checkpoint file with one holding a single block. The block is written to a temporary
+     * file first, which is then moved over the checkpoint, so a crash leaves either the old or the new one.
+     *
+     * @param path the checkpoint file
+     * @param summary the block summary
+     * @param data the block data
+     * @throws IOException if the file cannot be written
+     */
+    static void writeCheckpoint(Path path, Block summary, byte[] data) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        SegmentFile file = new SegmentFile(temp, 0, null);
+        try {
+            file.append(summary, data);
+        } finally {
+            file.close();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the block of a checkpoint file written by {@link #writeCheckpoint}.
+     *
+     * @param path the checkpoint file
+     * @param reader receives the block summary and data, unless the file holds no complete block
+     * @throws IOException if the file cannot be read
+     */
+    static void readCheckpoint(Path path, CheckpointReader reader) throws IOException {
+        SegmentFile file = new SegmentFile(path, 0, null);
+        try {
+            List<Block> blocks = file.getBlocks();
+            if (!blocks.isEmpty()) {
+                reader.read(blocks.get(0), file.readData(0));
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Checks whether the file holds a block starting at the same timestamp as a checkpointed block
+     * with at least as many points, i.e. whether the block was sealed after it was checkpointed.
+     *
+     * @param checkpoint the summary of the checkpointed block
+     * @return true if the block was already sealed into this file
+     * @throws IOException if the file cannot be opened
+     */
+    boolean containsSealed(Block checkpoint) throws IOException {
+        for (Block block : getBlocks()) {
+            if (block.getMinTimestamp() == checkpoint.getMinTimestamp() && block.getCount() >= checkpoint.getCount()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void open() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                map(Math.max(channel.size(), INITIAL_CAPACITY));
+            } catch (IOException e) {
+                channel.close();
+                channel = null;
+                throw e;
+            }
+            scan();
+        }
+        if (cache != null) {
+            cache.touch(this);
+        }
+    }
+
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Segment file " + path + " exceeds the maximum size");
+        }
+        // Mapping beyond the end of the file extends it
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void scan() {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity() && buffer.getInt(position) == BLOCK_MAGIC) {
+            int length = buffer.getInt(position + 48);
+            if (length < 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            blocks.add(new Block(
+                buffer.getLong(position + 4),
+                buffer.getLong(position + 12),
+                buffer.getInt(position + 20),
+                buffer.getDouble(position + 24),
+                buffer.getDouble(position + 32),
+                buffer.getDouble(position + 40)));
+            dataOffsets.add(position + HEADER_SIZE);
+            position += HEADER_SIZE + length;
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Receives the block of a checkpoint file.
+     */
+    @FunctionalInterface
+    interface CheckpointReader {
+        void read(Block summary, byte[] data) throws IOException;
+    }
+}
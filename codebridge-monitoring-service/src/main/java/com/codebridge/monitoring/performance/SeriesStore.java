@@ -0,0 +1,427 @@
+package com.codebridge.monitoring.performance.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Storage for a single series in its own directory.
+ * Points are compressed into an in-memory block covering a fixed time window, which is sealed and
+ * appended to the segment file of its time partition once the window has passed. Each segment file
+ * covers a fixed partition of time, so retention deletes whole files.
+ * Every point is also added to the series' rollup tiers, and range queries are planned over them:
+ * the range is covered with buckets of the coarsest tier that fit, and only the remainders at its
+ * edges are read from finer tiers, down to the raw blocks. The cost of a query therefore depends on
+ * the number of tiers rather than the length of the range.
+ * The open block and the open rollup buckets are checkpointed to files periodically and restored when
+ * the store is reopened, so a crash loses only the points appended since the last checkpoint.
+ */
+public final class SeriesStore {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "open.ckp";
+
+    private final Path directory;
+    private final long blockDurationMs;
+    private final long segmentDurationMs;
+    private final int maxPointsPerBlock;
+    private final SegmentCache segmentCache;
+    private final TreeMap<Long, SegmentFile> segments = new TreeMap<>();
+    private final List<RollupTier> tiers = new ArrayList<>();
+    private BlockEncoder openBlock;
+    private boolean openBlockChanged;
+    private boolean checkpointed;
+
+    /**
+     * Opens the store of a series, picking up the segment files already in its directory
+     * and restoring the open block and rollup buckets from their checkpoints.
+     *
+     * @param directory the series directory
+     * @param blockDurationMs the time window covered by a block
+     * @param segmentDurationMs the time partition covered by a segment file, a multiple of the block duration
+     * @param maxPointsPerBlock the number of points after which a block is sealed early
+     * @param rollups the rollup tiers to maintain
+     * @param segmentCache the cache bounding the open segment files of the backend
+     * @throws IOException if the directory cannot be listed
+     */
+    public SeriesStore(Path directory, long blockDurationMs, long segmentDurationMs, int maxPointsPerBlock,
+                       List<RollupSpec> rollups, SegmentCache segmentCache) throws IOException {
+        if (segmentDurationMs % blockDurationMs != 0) {
+            throw new IllegalArgumentException("Segment duration must be a multiple of the block duration");
+        }
+        this.directory = directory;
+        this.blockDurationMs = blockDurationMs;
+        this.segmentDurationMs = segmentDurationMs;
+        this.maxPointsPerBlock = maxPointsPerBlock;
+        this.segmentCache = segmentCache;
+
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).forEach(file -> {
+                    String name = file.getFileName().toString();
+                    long partitionStart = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(partitionStart, new SegmentFile(file, partitionStart, segmentCache));
+                });
+            }
+        }
+
+        List<RollupSpec> sortedRollups = new ArrayList<>(rollups);
+        sortedRollups.sort(Comparator.comparingLong(RollupSpec::resolutionMs));
+        for (RollupSpec rollup : sortedRollups) {
+            tiers.add(new RollupTier(directory, rollup, segmentCache));
+        }
+        restoreCheckpoint();
+    }
+
+    /**
+     * Appends a point. Points older than the last point of the open block start a new block.
+     *
+     * @param timestamp the point timestamp in epoch milliseconds
+     * @param value the point value
+     * @throws IOException if a sealed block cannot be written
+     */
+    public synchronized void append(long timestamp, double value) throws IOException {
+        long blockStart = Math.floorDiv(timestamp, blockDurationMs) * blockDurationMs;
+        if (openBlock != null && (openBlock.getBlockStart() != blockStart
+                || timestamp < openBlock.getMaxTimestamp()
+                || openBlock.getCount() >= maxPointsPerBlock)) {
+            seal();
+        }
+        if (openBlock == null) {
+            openBlock = new BlockEncoder(blockStart);
+        }
+        openBlock.append(timestamp, value);
+        openBlockChanged = true;
+
+        for (RollupTier tier : tiers) {
+            tier.add(timestamp, value);
+        }
+    }
+
+    /**
+     * Seals the open block and rollup buckets whose time window has passed.
+     *
+     * @param now the current time in epoch milliseconds
+     * @throws IOException if a block cannot be written
+     */
+    public synchronized void sealCompletedBlocks(long now) throws IOException {
+        if (openBlock != null && now >= openBlock.getBlockStart() + blockDurationMs) {
+            seal();
+        }
+        for (RollupTier tier : tiers) {
+            tier.sealCompletedBucket(now);
+        }
+    }
+
+    /**
+     * Writes the open block and the open rollup buckets to their checkpoint files, if they changed since
+     * the last checkpoint.
+     *
+     * @throws IOException if a checkpoint cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (openBlockChanged && openBlock != null) {
+            SegmentFile.writeCheckpoint(directory.resolve(CHECKPOINT_FILE), openBlock.summary(), openBlock.toByteArray());
+            checkpointed = true;
+        }
+        openBlockChanged = false;
+        for (RollupTier tier : tiers) {
+            tier.checkpoint();
+        }
+    }
+
+    /**
+     * Aggregates the values in a time range.
+     *
+     * @param start the range start in epoch milliseconds, inclusive
+     * @param end the range end in epoch milliseconds, inclusive
+     * @param withSketch whether to build a quantile sketch, for percentile aggregations
+     * @return the aggregate
+     * @throws IOException if a segment file cannot be read
+     * @throws IllegalArgumentException if the range ends before it starts
+     */
+    public synchronized RangeAggregate aggregate(long start, long end, boolean withSketch) throws IOException {
+        checkRange(start, end);
+        RangeAggregate aggregate = new RangeAggregate(withSketch);
+        aggregateRange(start, end + 1, tiers.size() - 1, aggregate);
+        return aggregate;
+    }
+
+    /**
+     * Aggregates the values in a time range into fixed buckets aligned to the epoch.
+     * Whole buckets are read in one pass from the coarsest rollup tier whose resolution divides the
+     * bucket width; the partial buckets at the range edges, and whole buckets older than that tier
+     * retains, are planned like {@link #aggregate}.
+     *
+     * @param start the range start in epoch milliseconds, inclusive
+     * @param end the range end in epoch milliseconds, inclusive
+     * @param bucketMs the bucket width
+     * @param withSketch whether to build quantile sketches, for percentile aggregations
+     * @return the aggregates, starting with the bucket containing the range start
+     * @throws IOException if a segment file cannot be read
+     * @throws IllegalArgumentException if the range ends before it starts or the bucket width is not positive
+     */
+    public synchronized RangeAggregate[] aggregateBuckets(long start, long end, long bucketMs, boolean withSketch)
+            throws IOException {
+        checkRange(start, end);
+        if (bucketMs <= 0) {
+            throw new IllegalArgumentException("Bucket width must be positive: " + bucketMs);
+        }
+        long firstBucket = Math.floorDiv(start, bucketMs);
+        RangeAggregate[] buckets = new RangeAggregate[(int) (Math.floorDiv(end, bucketMs) - firstBucket + 1)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new RangeAggregate(withSketch);
+        }
+
+        int tier = tiers.size() - 1;
+        while (tier >= 0 && bucketMs % tiers.get(tier).getResolutionMs() != 0) {
+            tier--;
+        }
+        if (tier < 0) {
+            scanRawBuckets(start, end, bucketMs, firstBucket, buckets);
+            return buckets;
+        }
+
+        long to = end + 1;
+        long wholeFrom = ceil(start, bucketMs);
+        long wholeTo = Math.floorDiv(to, bucketMs) * bucketMs;
+        if (wholeFrom >= wholeTo) {
+            // No whole bucket, so the range lies within at most two buckets
+            for (int i = 0; i < buckets.length; i++) {
+                long bucketStart = (firstBucket + i) * bucketMs;
+                aggregateRange(Math.max(start, bucketStart), Math.min(to, bucketStart + bucketMs), tiers.size() - 1, buckets[i]);
+            }
+            return buckets;
+        }
+
+        // Whole buckets older than the tier keeps are read like the edges, from finer tiers or the raw blocks
+        long retainedFrom = ceil(tiers.get(tier).retainedFrom(System.currentTimeMillis()), bucketMs);
+        long tierFrom = Math.min(wholeTo, Math.max(wholeFrom, retainedFrom));
+        for (long bucketStart = wholeFrom; bucketStart < tierFrom; bucketStart += bucketMs) {
+            aggregateRange(bucketStart, bucketStart + bucketMs, tier - 1,
+                    buckets[(int) (Math.floorDiv(bucketStart, bucketMs) - firstBucket)]);
+        }
+        tiers.get(tier).forEachBucket(tierFrom, wholeTo, (bucketStart, bucket, sketch) -> {
+            RangeAggregate target = buckets[(int) (Math.floorDiv(bucketStart, bucketMs) - firstBucket)];
+            target.merge(bucket);
+            if (withSketch) {
+                target.mergeSketch(sketch.get());
+            }
+        });
+        aggregateRange(start, wholeFrom, tiers.size() - 1, buckets[0]);
+        aggregateRange(wholeTo, to, tiers.size() - 1, buckets[buckets.length - 1]);
+        return buckets;
+    }
+
+    /**
+     * Deletes the segment files whose partition ended before the retention period of the raw points,
+     * and the rollup files past the retention period of their tier.
+     *
+     * @param now the current time in epoch milliseconds
+     * @param retentionMs the retention period of the raw points
+     * @return the number of deleted files
+     * @throws IOException if a file cannot be deleted
+     */
+    public synchronized int deleteExpiredSegments(long now, long retentionMs) throws IOException {
+        int deleted = 0;
+        Iterator<SegmentFile> iterator = segments.headMap(now - retentionMs - segmentDurationMs, true).values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().delete();
+            iterator.remove();
+            deleted++;
+        }
+        for (RollupTier tier : tiers) {
+            deleted += tier.deleteExpiredSegments(now);
+        }
+        return deleted;
+    }
+
+    /**
+     * Seals the open block and rollup buckets and releases the segment files.
+     *
+     * @throws IOException if a block cannot be written
+     */
+    public synchronized void close() throws IOException {
+        seal();
+        for (SegmentFile segment : segments.values()) {
+            segment.close();
+        }
+        for (RollupTier tier : tiers) {
+            tier.close();
+        }
+    }
+
+    /**
+     * Aggregates the half-open range [from, to) into an aggregate, using the buckets of the given tier
+     * that fit in the range and finer tiers for the rest, including any part the tier no longer retains.
+     */
+    private void aggregateRange(long from, long to, int tier, RangeAggregate aggregate) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        if (tier < 0) {
+            scanRaw(from, to - 1, aggregate);
+            return;
+        }
+        RollupTier rollup = tiers.get(tier);
+        long resolution = rollup.getResolutionMs();
+        // The part of the range older than the tier keeps is read from finer tiers or the raw blocks
+        long retainedFrom = ceil(rollup.retainedFrom(System.currentTimeMillis()), resolution);
+        if (from < retainedFrom) {
+            if (retainedFrom >= to) {
+                aggregateRange(from, to, tier - 1, aggregate);
+                return;
+            }
+            aggregateRange(from, retainedFrom, tier - 1, aggregate);
+            from = retainedFrom;
+        }
+        long alignedFrom = ceil(from, resolution);
+        long alignedTo = Math.floorDiv(to, resolution) * resolution;
+        if (alignedFrom >= alignedTo) {
+            aggregateRange(from, to, tier - 1, aggregate);
+            return;
+        }
+        rollup.collect(alignedFrom, alignedTo, aggregate);
+        aggregateRange(from, alignedFrom, tier - 1, aggregate);
+        aggregateRange(alignedTo, to, tier - 1, aggregate);
+    }
+
+    private static void checkRange(long start, long end) {
+        if (end < start) {
+            throw new IllegalArgumentException("Range end " + end + " is before its start " + start);
+        }
+    }
+
+    private void scanRaw(long start, long end, RangeAggregate aggregate) throws IOException {
+        scan(start, end, new RangeVisitor() {
+            @Override
+            public boolean merge(Block block) {
+                // Block summaries have no sketch
+                if (aggregate.hasSketch()) {
+                    return false;
+                }
+                aggregate.merge(block);
+                return true;
+            }
+
+            @Override
+            public void add(long timestamp, double value) {
+                aggregate.add(value);
+            }
+        });
+    }
+
+    private void scanRawBuckets(long start, long end, long bucketMs, long firstBucket, RangeAggregate[] buckets)
+            throws IOException {
+        scan(start, end, new RangeVisitor() {
+            @Override
+            public boolean merge(Block block) {
+                long bucket = Math.floorDiv(block.getMinTimestamp(), bucketMs);
+                if (buckets[0].hasSketch() || bucket != Math.floorDiv(block.getMaxTimestamp(), bucketMs)) {
+                    return false;
+                }
+                buckets[(int) (bucket - firstBucket)].merge(block);
+                return true;
+            }
+
+            @Override
+            public void add(long timestamp, double value) {
+                buckets[(int) (Math.floorDiv(timestamp, bucketMs) - firstBucket)].add(value);
+            }
+        });
+    }
+
+    private static long ceil(long value, long unit) {
+        return -Math.floorDiv(-value, unit) * unit;
+    }
+
+    private void seal() throws IOException {
+        if (openBlock == null) {
+            return;
+        }
+        BlockEncoder block = openBlock;
+        openBlock = null;
+        long partitionStart = Math.floorDiv(block.getBlockStart(), segmentDurationMs) * segmentDurationMs;
+        SegmentFile segment = segments.get(partitionStart);
+        if (segment == null) {
+            Files.createDirectories(directory);
+            segment = new SegmentFile(directory.resolve(partitionStart + SEGMENT_SUFFIX), partitionStart, segmentCache);
+            segments.put(partitionStart, segment);
+        }
+        segment.append(block.summary(), block.toByteArray());
+        if (checkpointed) {
+            Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE));
+            checkpointed = false;
+        }
+    }
+
+    /**
+     * Restores the open block from its checkpoint, unless the block was sealed after the checkpoint
+     * was written and the process stopped before the checkpoint was deleted.
+     */
+    private void restoreCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        SegmentFile.readCheckpoint(path, (summary, data) -> {
+            SegmentFile segment = segments.get(Math.floorDiv(summary.getMinTimestamp(), segmentDurationMs) * segmentDurationMs);
+            if (segment != null && segment.containsSealed(summary)) {
+                return;
+            }
+            BlockEncoder block = new BlockEncoder(Math.floorDiv(summary.getMinTimestamp(), blockDurationMs) * blockDurationMs);
+            BlockDecoder.decode(data, summary.getCount(), block::append);
+            openBlock = block;
+        });
+        checkpointed = true;
+    }
+
+    private void scan(long start, long end, RangeVisitor visitor) throws IOException {
+        long firstPartition = Math.floorDiv(start, segmentDurationMs) * segmentDurationMs;
+        for (SegmentFile segment : segments.subMap(firstPartition, true, end, true).values()) {
+            List<Block> blocks = segment.getBlocks();
+            for (int i = 0; i < blocks.size(); i++) {
+                Block block = blocks.get(i);
+                if (!block.overlaps(start, end) || (block.isWithin(start, end) && visitor.merge(block))) {
+                    continue;
+                }
+                segment.forEachPoint(i, (timestamp, value) -> {
+                    if (timestamp >= start && timestamp <= end) {
+                        visitor.add(timestamp, value);
+                    }
+                });
+            }
+        }
+
+        if (openBlock != null) {
+            Block block = openBlock.summary();
+            if (block.overlaps(start, end) && !(block.isWithin(start, end) && visitor.merge(block))) {
+                BlockDecoder.decode(openBlock.toByteArray(), block.getCount(), (timestamp, value) -> {
+                    if (timestamp >= start && timestamp <= end) {
+                        visitor.add(timestamp, value);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Receives the blocks and points of a range scan.
+     */
+    private interface RangeVisitor {
+        /**
+         * Offers a block that lies entirely inside the range.
+         *
+         * @return true if the summary was used, false to have the block's points added instead
+         */
+        boolean merge(Block block);
+
+        void add(long timestamp, double value);
+    }
+}
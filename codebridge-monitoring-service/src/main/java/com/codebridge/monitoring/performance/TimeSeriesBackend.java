@@ -0,0 +1,47 @@
+package com.codebridge.monitoring.performance.service;
+
+import com.codebridge.monitoring.performance.model.PerformanceMetric;
+import org.influxdb.dto.QueryResult;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Storage backend behind {@link TimeSeriesService}.
+ * The backend is selected with {@code performance.metrics.storage.backend}.
+ */
+public interface TimeSeriesBackend {
+
+    /**
+     * Store metrics.
+     *
+     * @param metrics the metrics to store
+     */
+    void storeMetrics(List<PerformanceMetric> metrics);
+
+    /**
+     * Query an aggregated metric value.
+     *
+     * @param serviceName the service name
+     * @param metricName the metric name
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param aggregation the aggregation function (mean, min, max, sum, count)
+     * @return the aggregated metric value; NaN if there is no data (0.0 for count and sum) or the query fails
+     */
+    double queryAggregatedMetric(String serviceName, String metricName,
+                                 Instant startTime, Instant endTime, String aggregation);
+
+    /**
+     * Query the mean of a metric grouped into time buckets.
+     *
+     * @param serviceName the service name
+     * @param metricName the metric name
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param interval the interval for grouping (e.g., "1m", "5m", "1h")
+     * @return the query result, in the InfluxDB result format
+     */
+    QueryResult queryTimeSeriesData(String serviceName, String metricName,
+                                    Instant startTime, Instant endTime, String interval);
+}
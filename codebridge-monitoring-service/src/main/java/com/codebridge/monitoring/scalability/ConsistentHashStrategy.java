@@ -0,0 +1,319 @@
+package com.codebridge.monitoring.scalability.loadbalancer.impl;
+
+import com.codebridge.monitoring.scalability.loadbalancer.LoadBalancingStrategy;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consistent hash load balancing strategy with bounded loads.
+ * Each instance owns a number of virtual nodes on a hash ring, proportional to its weight; a request goes to
+ * the owner of the first virtual node at or after the hash of its request ID. Adding or removing an instance
+ * therefore only moves the requests of the ring segments it gains or loses, instead of nearly all of them.
+ * An instance already carrying more than {@code loadFactor} times its fair share of the in-flight requests is
+ * skipped and the walk continues clockwise, so hot keys spill over to the next instances instead of
+ * overloading one. Requests without a request ID are spread round-robin but still count as in flight on their
+ * instance. In-flight requests are released through {@link #onRequestComplete}.
+ * The ring is rebuilt only when the instance list changes: a selection with the list the ring was last used with
+ * costs one identity check, and any other list is compared by a fingerprint of its instance IDs, addresses and
+ * weights, so a selection never parses weights or looks up members.
+ */
+public class ConsistentHashStrategy implements LoadBalancingStrategy {
+
+    private static final String WEIGHT_METADATA_KEY = "weight";
+    private static final int DEFAULT_WEIGHT = 100;
+
+    private final int virtualNodes;
+    private final double loadFactor;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final RoundRobinStrategy fallbackStrategy = new RoundRobinStrategy();
+
+    /**
+     * Creates the strategy.
+     *
+     * @param virtualNodes the number of virtual nodes of an instance with the default weight
+     * @param loadFactor how far above its fair share of in-flight requests an instance may go, at least 1
+     */
+    public ConsistentHashStrategy(int virtualNodes, double loadFactor) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        if (loadFactor < 1.0) {
+            throw new IllegalArgumentException("loadFactor must be at least 1");
+        }
+        this.virtualNodes = virtualNodes;
+        this.loadFactor = loadFactor;
+    }
+
+    @Override
+    public ServiceInstance selectInstance(List<ServiceInstance> instances, String serviceId, String requestId) {
+        if (instances == null || instances.isEmpty()) {
+            return null;
+        }
+
+        Ring ring = rings.get(serviceId);
+        if (ring == null || !ring.isBuiltFor(instances)) {
+            long fingerprint = fingerprint(instances);
+            ring = rings.compute(serviceId, (id, current) ->
+                    current != null && current.fingerprint == fingerprint
+                            ? current : rebuild(current, instances, fingerprint));
+            ring.source = instances;
+        }
+
+        // Without a key there is nothing to be consistent about, but the request still counts towards the load
+        // of its instance, so that onRequestComplete releases a slot that was actually taken
+        if (requestId == null || requestId.isEmpty()) {
+            ServiceInstance instance = fallbackStrategy.selectInstance(instances, serviceId, requestId);
+            Member member = instance != null ? ring.members.get(instanceKey(instance)) : null;
+            if (member != null) {
+                ring.acquire(member);
+            }
+            return instance;
+        }
+
+        Member member = ring.select(hash(requestId), loadFactor);
+        return member.instance;
+    }
+
+    @Override
+    public void onRequestComplete(String serviceId, ServiceInstance instance, long durationNanos, boolean success) {
+        Ring ring = rings.get(serviceId);
+        if (ring != null) {
+            ring.release(instanceKey(instance));
+        }
+    }
+
+    /**
+     * Builds the ring for a new set of instances from the previous ring.
+     * Virtual nodes of instances that are kept are reused as they are, with their in-flight counts;
+     * only the nodes of added instances are hashed, and both sorted sequences are merged.
+     */
+    private Ring rebuild(Ring previous, List<ServiceInstance> instances, long fingerprint) {
+        Map<String, Member> members = new HashMap<>(instances.size() * 2);
+        List<Member> added = new ArrayList<>();
+        for (ServiceInstance instance : instances) {
+            String key = instanceKey(instance);
+            int weight = getInstanceWeight(instance);
+            Member existing = previous != null ? previous.members.get(key) : null;
+            if (existing != null && existing.matches(instance, weight)) {
+                members.put(key, existing);
+            } else {
+                Member member = new Member(key, instance, weight);
+                members.put(key, member);
+                added.add(member);
+            }
+        }
+
+        long[] keptPoints;
+        Member[] keptOwners;
+        int kept = 0;
+        if (previous != null) {
+            keptPoints = new long[previous.points.length];
+            keptOwners = new Member[previous.points.length];
+            for (int i = 0; i < previous.points.length; i++) {
+                Member owner = previous.owners[i];
+                if (members.get(owner.key) == owner) {
+                    keptPoints[kept] = previous.points[i];
+                    keptOwners[kept] = owner;
+                    kept++;
+                }
+            }
+        } else {
+            keptPoints = new long[0];
+            keptOwners = new Member[0];
+        }
+
+        List<VirtualNode> addedNodes = new ArrayList<>();
+        for (Member member : added) {
+            int nodes = Math.max(1, (int) Math.round((double) virtualNodes * member.weight / DEFAULT_WEIGHT));
+            for (int i = 0; i < nodes; i++) {
+                addedNodes.add(new VirtualNode(hash(member.key + "#" + i), member));
+            }
+        }
+        addedNodes.sort((a, b) -> Long.compare(a.point, b.point));
+
+        // Merge the kept and the added virtual nodes, both sorted by point
+        int size = kept + addedNodes.size();
+        long[] points = new long[size];
+        Member[] owners = new Member[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j >= addedNodes.size() || (i < kept && keptPoints[i] <= addedNodes.get(j).point)) {
+                points[k] = keptPoints[i];
+                owners[k] = keptOwners[i++];
+            } else {
+                VirtualNode node = addedNodes.get(j++);
+                points[k] = node.point;
+                owners[k] = node.owner;
+            }
+        }
+
+        int totalWeight = 0;
+        int inFlight = 0;
+        for (Member member : members.values()) {
+            totalWeight += member.weight;
+            inFlight += member.inFlight.get();
+        }
+        return new Ring(points, owners, members, Math.max(1, totalWeight), inFlight, fingerprint);
+    }
+
+    /**
+     * Fingerprints an instance list by what the ring is built from: the key, address and raw weight of each
+     * instance. The combination is order-independent, as discovery clients do not keep instances in order.
+     */
+    static long fingerprint(List<ServiceInstance> instances) {
+        long fingerprint = instances.size();
+        for (ServiceInstance instance : instances) {
+            Map<String, String> metadata = instance.getMetadata();
+            String weight = metadata != null ? metadata.get(WEIGHT_METADATA_KEY) : null;
+            long h = Objects.hashCode(instance.getInstanceId());
+            h = h * 31 + Objects.hashCode(instance.getHost());
+            h = h * 31 + instance.getPort();
+            h = (h << 32) ^ Objects.hashCode(weight);
+            fingerprint += mix(h);
+        }
+        return mix(fingerprint);
+    }
+
+    private String instanceKey(ServiceInstance instance) {
+        String instanceId = instance.getInstanceId();
+        return instanceId != null ? instanceId : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private int getInstanceWeight(ServiceInstance instance) {
+        Map<String, String> metadata = instance.getMetadata();
+
+        if (metadata != null && metadata.containsKey(WEIGHT_METADATA_KEY)) {
+            try {
+                return Math.max(1, Integer.parseInt(metadata.get(WEIGHT_METADATA_KEY)));
+            } catch (NumberFormatException e) {
+                return DEFAULT_WEIGHT;
+            }
+        }
+
+        return DEFAULT_WEIGHT;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of a string, finished with the MurmurHash3 mixer so that
+     * keys differing only in their last characters still land far apart on the ring.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * An instance on the ring, with its weight and the number of requests it is serving.
+     */
+    private static final class Member {
+        final String key;
+        final ServiceInstance instance;
+        final int weight;
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Member(String key, ServiceInstance instance, int weight) {
+            this.key = key;
+            this.instance = instance;
+            this.weight = weight;
+        }
+
+        boolean matches(ServiceInstance other, int otherWeight) {
+            return weight == otherWeight
+                    && instance.getPort() == other.getPort()
+                    && instance.getHost().equals(other.getHost());
+        }
+    }
+
+    private record VirtualNode(long point, Member owner) {
+    }
+
+    /**
+     * Immutable ring of virtual nodes sorted by point; only the in-flight counts and the last instance list change.
+     */
+    private final class Ring {
+        final long[] points;
+        final Member[] owners;
+        final Map<String, Member> members;
+        final int totalWeight;
+        final AtomicInteger inFlight;
+        final long fingerprint;
+        // The instance list the ring was last selected from; callers must not modify a list after passing it
+        volatile List<ServiceInstance> source;
+
+        Ring(long[] points, Member[] owners, Map<String, Member> members, int totalWeight, int inFlight,
+             long fingerprint) {
+            this.points = points;
+            this.owners = owners;
+            this.members = members;
+            this.totalWeight = totalWeight;
+            this.inFlight = new AtomicInteger(inFlight);
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Checks whether the ring was last used with this very instance list.
+         */
+        boolean isBuiltFor(List<ServiceInstance> instances) {
+            return source == instances;
+        }
+
+        Member select(long hash, double loadFactor) {
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+
+            // Capacity of an instance: its weighted share of the in-flight requests including this one
+            double capacityPerWeight = loadFactor * (inFlight.get() + 1) / totalWeight;
+            for (int step = 0; step < points.length; step++) {
+                Member owner = owners[(index + step) % points.length];
+                if (owner.inFlight.get() + 1 <= Math.ceil(capacityPerWeight * owner.weight)) {
+                    acquire(owner);
+                    return owner;
+                }
+            }
+
+            // Only reachable when concurrent selections raced past every capacity
+            Member owner = owners[index % points.length];
+            acquire(owner);
+            return owner;
+        }
+
+        void acquire(Member member) {
+            member.inFlight.incrementAndGet();
+            inFlight.incrementAndGet();
+        }
+
+        void release(String key) {
+            Member member = members.get(key);
+            if (member != null && member.inFlight.getAndUpdate(count -> count > 0 ? count - 1 : 0) > 0) {
+                inFlight.updateAndGet(count -> count > 0 ? count - 1 : 0);
+            }
+        }
+    }
+}
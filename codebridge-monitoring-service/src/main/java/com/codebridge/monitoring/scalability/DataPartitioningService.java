@@ -2,6 +2,7 @@ package com.codebridge.monitoring.scalability.resilience;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Service for managing data partitioning.
@@ -26,6 +27,16 @@ public interface DataPartitioningService {
      */
     List<Map<String, Object>> executeQueryOnShard(int shardId, String sql, Object... params);
 
+    /**
+     * Executes a query on the shard that owns a key.
+     *
+     * @param key the key that selects the shard
+     * @param sql the SQL statement to execute
+     * @param params the parameters for the SQL statement
+     * @return the query results
+     */
+    List<Map<String, Object>> executeQueryForKey(String key, String sql, Object... params);
+
     /**
      * Executes a query on all shards and aggregates the results.
      *
@@ -35,6 +46,16 @@ public interface DataPartitioningService {
      */
     List<Map<String, Object>> executeQueryOnAllShards(String sql, Object... params);
 
+    /**
+     * Executes a query on all shards and passes the merged rows to a consumer as they arrive,
+     * without collecting them first.
+     *
+     * @param sql the SQL statement to execute
+     * @param rowConsumer receives the merged rows
+     * @param params the parameters for the SQL statement
+     */
+    void streamQueryOnAllShards(String sql, Consumer<Map<String, Object>> rowConsumer, Object... params);
+
     /**
      * Executes an update on a specific shard.
      *
@@ -45,6 +66,16 @@ public interface DataPartitioningService {
      */
     int executeUpdateOnShard(int shardId, String sql, Object... params);
 
+    /**
+     * Executes an update on the shard that owns a key.
+     *
+     * @param key the key that selects the shard
+     * @param sql the SQL statement to execute
+     * @param params the parameters for the SQL statement
+     * @return the number of rows affected
+     */
+    int executeUpdateForKey(String key, String sql, Object... params);
+
     /**
      * Executes an update on all shards.
      *
@@ -61,6 +92,14 @@ public interface DataPartitioningService {
      */
     boolean rebalanceShards();
 
+    /**
+     * Changes the number of shards and rebalances data across them.
+     *
+     * @param shardCount the new number of shards
+     * @return true if the rebalancing was successful, false otherwise
+     */
+    boolean rebalanceShards(int shardCount);
+
     /**
      * Gets information about all shards.
      *
@@ -6,12 +6,16 @@ import com.codebridge.monitoring.scalability.resilience.ReplicationService;
 import com.codebridge.monitoring.scalability.resilience.impl.DefaultBackupService;
 import com.codebridge.monitoring.scalability.resilience.impl.DefaultDataPartitioningService;
 import com.codebridge.monitoring.scalability.resilience.impl.DefaultReplicationService;
+import com.codebridge.monitoring.scalability.resilience.impl.ShardDataSourceFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Configuration for data resilience components.
  */
@@ -51,6 +55,39 @@ public class DataResilienceConfig {
     @Value("${codebridge.scalability.data-resilience.partitioning.shard-count}")
     private int shardCount;
 
+    @Value("${codebridge.scalability.data-resilience.partitioning.hash-partitions:1024}")
+    private int hashPartitions;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.tables:}")
+    private String partitionedTables;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.fetch-size:500}")
+    private int shardFetchSize;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.query-timeout-seconds:30}")
+    private int shardQueryTimeoutSeconds;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.shard.url-template:jdbc:h2:mem:codebridge_shard_{shard};DB_CLOSE_DELAY=-1}")
+    private String shardUrlTemplate;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.shard.schema-template:}")
+    private String shardSchemaTemplate;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.shard.username:${spring.datasource.username:sa}}")
+    private String shardUsername;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.shard.password:${spring.datasource.password:}}")
+    private String shardPassword;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.shard.pool.maximum-size:5}")
+    private int shardPoolMaximumSize;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.shard.pool.minimum-idle:1}")
+    private int shardPoolMinimumIdle;
+
+    @Value("${codebridge.scalability.data-resilience.partitioning.shard.schema-location:}")
+    private String shardSchemaLocation;
+
     /**
      * Creates a replication service.
      *
@@ -93,8 +130,39 @@ public class DataResilienceConfig {
                 partitioningEnabled,
                 partitioningStrategy,
                 shardCount,
+                hashPartitions,
+                parsePartitionedTables(partitionedTables),
+                shardFetchSize,
+                shardQueryTimeoutSeconds,
+                new ShardDataSourceFactory(
+                        shardUrlTemplate,
+                        shardSchemaTemplate,
+                        shardUsername,
+                        shardPassword,
+                        shardPoolMaximumSize,
+                        shardPoolMinimumIdle,
+                        shardSchemaLocation
+                ),
                 jdbcTemplate
         );
     }
+
+    /**
+     * Parses the partitioned tables, given as comma-separated {@code table:keyColumn} pairs.
+     */
+    private static Map<String, String> parsePartitionedTables(String value) {
+        Map<String, String> tables = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.strip().split(":");
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Partitioned tables must be given as table:keyColumn, got: " + entry);
+            }
+            tables.put(parts[0].strip(), parts[1].strip());
+        }
+        return tables;
+    }
 }
 
@@ -1,44 +1,107 @@
 package com.codebridge.monitoring.scalability.resilience.impl;
 
 import com.codebridge.monitoring.scalability.resilience.DataPartitioningService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * Default implementation of the data partitioning service.
+ * Every shard is a database or schema with its own connection pool. Keys are routed through a {@link ShardMap}
+ * persisted in the primary database. Queries on all shards run on every shard in parallel and their rows are
+ * merged as they arrive: in the requested order when the query has an {@code ORDER BY}, with the limit pushed down
+ * to the shards and the merge stopped as soon as the limit is reached (see {@link ScatterGatherQuery}).
+ * Rebalancing moves whole partitions between shards while the shards stay online. The rows are copied while writes
+ * go on; the keys written meanwhile are recorded and copied again in a short final step, and only then do writes
+ * to the shard wait. Reads are never blocked. A query on all shards that runs during a rebalance may see rows of a
+ * moving partition on both shards.
+ * Rebalancing copies the rows of the configured tables, identified by their key column, so every shard needs
+ * those tables; the schema script of the {@link ShardDataSourceFactory} can create them.
  */
 @Slf4j
 public class DefaultDataPartitioningService implements DataPartitioningService {
 
+    private static final String ONLINE = "ONLINE";
+    private static final String OFFLINE = "OFFLINE";
+    private static final String REBALANCING = "REBALANCING";
+    private static final Object END = new Object();
+    private static final int SPLIT_SAMPLE_SIZE = 10_000;
+
     private final boolean enabled;
     private final String strategy;
-    private final int shardCount;
+    private volatile int shardCount;
+    private final int hashPartitions;
+    private final Map<String, String> tables;
+    private final int fetchSize;
+    private final int queryTimeoutSeconds;
+    private final ShardDataSourceFactory dataSourceFactory;
     private final JdbcTemplate jdbcTemplate;
-    
-    private final Map<Integer, ShardInfo> shards = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Shard> shards = new ConcurrentHashMap<>();
+    private final ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean rebalancing = new AtomicBoolean();
+    private ShardMap shardMap;
 
     /**
      * Creates a new DefaultDataPartitioningService.
      *
      * @param enabled whether partitioning is enabled
-     * @param strategy the partitioning strategy
+     * @param strategy the partitioning strategy, hash or range
      * @param shardCount the number of shards
-     * @param jdbcTemplate the JDBC template
+     * @param hashPartitions the number of partitions the hash space is split into
+     * @param tables the partitioned tables, mapped to their key columns
+     * @param fetchSize the number of rows fetched from a shard at a time
+     * @param queryTimeoutSeconds the timeout of statements on shards, or 0 for none
+     * @param dataSourceFactory creates the connection pools of the shards
+     * @param jdbcTemplate the JDBC template of the primary database, which holds the shard map
      */
-    public DefaultDataPartitioningService(boolean enabled, String strategy, int shardCount, JdbcTemplate jdbcTemplate) {
+    public DefaultDataPartitioningService(boolean enabled, String strategy, int shardCount, int hashPartitions,
+                                          Map<String, String> tables, int fetchSize, int queryTimeoutSeconds,
+                                          ShardDataSourceFactory dataSourceFactory, JdbcTemplate jdbcTemplate) {
         this.enabled = enabled;
         this.strategy = strategy;
         this.shardCount = shardCount;
+        this.hashPartitions = hashPartitions;
+        this.tables = new LinkedHashMap<>(tables);
+        this.fetchSize = fetchSize;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.dataSourceFactory = dataSourceFactory;
         this.jdbcTemplate = jdbcTemplate;
-        
+
         // Initialize shards
         if (enabled) {
             initializeShards();
@@ -50,36 +113,8 @@ public class DefaultDataPartitioningService implements DataPartitioningService {
         if (!enabled) {
             return 0; // Use primary shard
         }
-        
-        switch (strategy.toLowerCase()) {
-            case "hash":
-                return Math.abs(key.hashCode() % shardCount);
-            case "range":
-                // For demonstration, we'll use the first character of the key
-                if (key.isEmpty()) {
-                    return 0;
-                }
-                
-                char firstChar = key.charAt(0);
-                return Math.abs(firstChar % shardCount);
-            case "list":
-                // For demonstration, we'll use the first character of the key
-                if (key.isEmpty()) {
-                    return 0;
-                }
-                
-                char c = key.charAt(0);
-                
-                if (Character.isDigit(c)) {
-                    return 0;
-                } else if (Character.isLowerCase(c)) {
-                    return 1 % shardCount;
-                } else {
-                    return 2 % shardCount;
-                }
-            default:
-                return 0;
-        }
+
+        return shardMap.shardFor(key);
     }
 
     @Override
@@ -88,47 +123,108 @@ public class DefaultDataPartitioningService implements DataPartitioningService {
             // Execute on primary database
             return jdbcTemplate.queryForList(sql, params);
         }
-        
-        ShardInfo shard = shards.get(shardId);
-        
-        if (shard == null) {
-            throw new IllegalArgumentException("Shard not found: " + shardId);
-        }
-        
-        if (!"ONLINE".equals(shard.getStatus())) {
-            throw new IllegalStateException("Shard is not online: " + shardId);
-        }
-        
-        // In a real implementation, this would use a connection to the shard
-        // For demonstration, we'll just execute on the primary database
-        log.info("Executing query on shard {}: {}", shardId, sql);
-        
-        return jdbcTemplate.queryForList(sql, params);
+
+        log.debug("Executing query on shard {}: {}", shardId, sql);
+
+        return getAvailableShard(shardId).jdbcTemplate.queryForList(sql, params);
+    }
+
+    @Override
+    public List<Map<String, Object>> executeQueryForKey(String key, String sql, Object... params) {
+        return executeQueryOnShard(getShardForKey(key), sql, params);
     }
 
     @Override
     public List<Map<String, Object>> executeQueryOnAllShards(String sql, Object... params) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        streamQueryOnAllShards(sql, results::add, params);
+        return results;
+    }
+
+    @Override
+    public void streamQueryOnAllShards(String sql, Consumer<Map<String, Object>> rowConsumer, Object... params) {
         if (!enabled) {
             // Execute on primary database
-            return jdbcTemplate.queryForList(sql, params);
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> rowConsumer.accept(rowMapper.mapRow(rs, 0)), params);
+            return;
         }
-        
-        List<Map<String, Object>> results = new ArrayList<>();
-        
-        for (int shardId : shards.keySet()) {
-            ShardInfo shard = shards.get(shardId);
-            
-            if ("ONLINE".equals(shard.getStatus())) {
-                try {
-                    List<Map<String, Object>> shardResults = executeQueryOnShard(shardId, sql, params);
-                    results.addAll(shardResults);
-                } catch (Exception e) {
-                    log.error("Failed to execute query on shard {}: {}", shardId, e.getMessage());
-                }
+
+        ScatterGatherQuery query = ScatterGatherQuery.parse(sql, params);
+        List<Shard> targets = shards.values().stream()
+                .filter(shard -> !OFFLINE.equals(shard.status))
+                .sorted(Comparator.comparingInt(shard -> shard.id))
+                .toList();
+
+        List<ShardCursor> cursors = new ArrayList<>(targets.size());
+        // Without an order to merge in, all shards feed one queue and rows are passed on in arrival order
+        BlockingQueue<Object> sharedQueue = query.isOrdered() ? null : new ArrayBlockingQueue<>(fetchSize);
+        try {
+            for (Shard shard : targets) {
+                cursors.add(new ShardCursor(shard, query,
+                        sharedQueue != null ? sharedQueue : new ArrayBlockingQueue<>(fetchSize)));
+            }
+            if (query.isOrdered()) {
+                mergeOrdered(query, cursors, rowConsumer);
+            } else {
+                mergeUnordered(query, sharedQueue, cursors.size(), rowConsumer);
+            }
+        } finally {
+            cursors.forEach(ShardCursor::close);
+        }
+    }
+
+    private void mergeOrdered(ScatterGatherQuery query, List<ShardCursor> cursors, Consumer<Map<String, Object>> rowConsumer) {
+        List<Head> firstRows = new ArrayList<>(cursors.size());
+        for (int i = 0; i < cursors.size(); i++) {
+            Map<String, Object> row = cursors.get(i).next();
+            if (row != null) {
+                firstRows.add(new Head(row, i));
+            }
+        }
+        if (firstRows.isEmpty()) {
+            return;
+        }
+
+        Comparator<Map<String, Object>> rowOrder = query.comparator(new ArrayList<>(firstRows.get(0).row.keySet()));
+        PriorityQueue<Head> heads = new PriorityQueue<>(cursors.size(),
+                Comparator.<Head, Map<String, Object>>comparing(head -> head.row, rowOrder)
+                        .thenComparingInt(head -> head.cursor));
+        heads.addAll(firstRows);
+
+        long skip = query.getOffset();
+        long remaining = query.getLimit() < 0 ? Long.MAX_VALUE : query.getLimit();
+        while (!heads.isEmpty() && remaining > 0) {
+            Head head = heads.poll();
+            if (skip > 0) {
+                skip--;
+            } else {
+                rowConsumer.accept(head.row);
+                remaining--;
+            }
+            Map<String, Object> next = cursors.get(head.cursor).next();
+            if (next != null) {
+                heads.add(new Head(next, head.cursor));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mergeUnordered(ScatterGatherQuery query, BlockingQueue<Object> queue, int producers,
+                                Consumer<Map<String, Object>> rowConsumer) {
+        long skip = query.getOffset();
+        long remaining = query.getLimit() < 0 ? Long.MAX_VALUE : query.getLimit();
+        int finished = 0;
+        while (finished < producers && remaining > 0) {
+            Object item = take(queue);
+            if (item == END) {
+                finished++;
+            } else if (skip > 0) {
+                skip--;
+            } else {
+                rowConsumer.accept((Map<String, Object>) item);
+                remaining--;
             }
         }
-        
-        return results;
     }
 
     @Override
@@ -137,113 +233,607 @@ public class DefaultDataPartitioningService implements DataPartitioningService {
             // Execute on primary database
             return jdbcTemplate.update(sql, params);
         }
-        
-        ShardInfo shard = shards.get(shardId);
-        
-        if (shard == null) {
-            throw new IllegalArgumentException("Shard not found: " + shardId);
-        }
-        
-        if (!"ONLINE".equals(shard.getStatus())) {
-            throw new IllegalStateException("Shard is not online: " + shardId);
+
+        Shard shard = getAvailableShard(shardId);
+
+        log.debug("Executing update on shard {}: {}", shardId, sql);
+
+        Lock lock = shard.handOverLock.readLock();
+        lock.lock();
+        try {
+            if (shard.handOverTargets != null) {
+                // The keys this update touches are unknown, so the moving partitions are copied again
+                shard.untrackedWrites = true;
+            }
+            return shard.jdbcTemplate.update(sql, params);
+        } finally {
+            lock.unlock();
         }
-        
-        // In a real implementation, this would use a connection to the shard
-        // For demonstration, we'll just execute on the primary database
-        log.info("Executing update on shard {}: {}", shardId, sql);
-        
-        return jdbcTemplate.update(sql, params);
     }
 
     @Override
-    public int executeUpdateOnAllShards(String sql, Object... params) {
+    public int executeUpdateForKey(String key, String sql, Object... params) {
         if (!enabled) {
             // Execute on primary database
             return jdbcTemplate.update(sql, params);
         }
-        
-        int totalRowsAffected = 0;
-        
-        for (int shardId : shards.keySet()) {
-            ShardInfo shard = shards.get(shardId);
-            
-            if ("ONLINE".equals(shard.getStatus())) {
-                try {
-                    int rowsAffected = executeUpdateOnShard(shardId, sql, params);
-                    totalRowsAffected += rowsAffected;
-                } catch (Exception e) {
-                    log.error("Failed to execute update on shard {}: {}", shardId, e.getMessage());
+
+        while (true) {
+            int shardId = shardMap.shardFor(key);
+            Shard shard = getAvailableShard(shardId);
+            Lock lock = shard.handOverLock.readLock();
+            lock.lock();
+            try {
+                // The partition may have been handed over while this update waited for the lock
+                if (shardMap.shardFor(key) == shardId) {
+                    Map<String, Integer> handOverTargets = shard.handOverTargets;
+                    if (handOverTargets != null && handOverTargets.containsKey(shardMap.partitionFor(key).lowerBound())) {
+                        shard.changedKeys.add(key);
+                    }
+                    return shard.jdbcTemplate.update(sql, params);
                 }
+            } finally {
+                lock.unlock();
             }
         }
-        
-        return totalRowsAffected;
+    }
+
+    @Override
+    public int executeUpdateOnAllShards(String sql, Object... params) {
+        if (!enabled) {
+            // Execute on primary database
+            return jdbcTemplate.update(sql, params);
+        }
+
+        List<CompletableFuture<Integer>> updates = shards.values().stream()
+                .filter(shard -> !OFFLINE.equals(shard.status))
+                .map(shard -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return executeUpdateOnShard(shard.id, sql, params);
+                    } catch (Exception e) {
+                        log.error("Failed to execute update on shard {}: {}", shard.id, e.getMessage());
+                        return 0;
+                    }
+                }, executor))
+                .toList();
+
+        return updates.stream().mapToInt(CompletableFuture::join).sum();
     }
 
     @Override
     public boolean rebalanceShards() {
+        return rebalanceShards(shardCount);
+    }
+
+    @Override
+    public boolean rebalanceShards(int newShardCount) {
         if (!enabled) {
             return true;
         }
-        
+        if (newShardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + newShardCount);
+        }
+        if (!rebalancing.compareAndSet(false, true)) {
+            log.warn("Shards are already being rebalanced");
+            return false;
+        }
+
         try {
-            log.info("Rebalancing shards");
-            
-            // Mark all shards as rebalancing
-            for (ShardInfo shard : shards.values()) {
-                shard.setStatus("REBALANCING");
-            }
-            
-            // In a real implementation, this would rebalance data across shards
-            // For demonstration, we'll just update the record counts
-            long totalRecords = shards.values().stream()
-                    .mapToLong(ShardInfo::getRecordCount)
-                    .sum();
-            
-            long recordsPerShard = totalRecords / shardCount;
-            long remainder = totalRecords % shardCount;
-            
-            for (int i = 0; i < shardCount; i++) {
-                ShardInfo shard = shards.get(i);
-                
-                if (shard != null) {
-                    shard.setRecordCount(recordsPerShard + (i < remainder ? 1 : 0));
-                    shard.setStatus("ONLINE");
+            log.info("Rebalancing shards over {} shards", newShardCount);
+            shardCount = newShardCount;
+            for (int shardId = 0; shardId < newShardCount; shardId++) {
+                openShard(shardId);
+            }
+
+            // An interrupted rebalance is finished as planned before anything else moves
+            List<ShardMap.Move> moves = shardMap.pendingMoves();
+            if (moves.isEmpty()) {
+                Map<String, Long> weights = partitionWeights();
+                if (shardMap.getStrategy() == ShardMap.Strategy.RANGE) {
+                    splitRanges(newShardCount, weights);
+                }
+                moves = shardMap.planMoves(newShardCount, partition -> weights.getOrDefault(partition.lowerBound(), 0L));
+                shardMap.begin(moves);
+            }
+
+            Map<Integer, List<ShardMap.Move>> movesBySource = moves.stream()
+                    .collect(Collectors.groupingBy(ShardMap.Move::fromShard));
+            for (Map.Entry<Integer, List<ShardMap.Move>> entry : movesBySource.entrySet()) {
+                handOver(openShard(entry.getKey()), entry.getValue());
+            }
+
+            // Shards beyond the shard count are empty now
+            Set<Integer> owners = new TreeSet<>(shardMap.getShardIds());
+            for (Shard shard : new ArrayList<>(shards.values())) {
+                if (shard.id >= newShardCount && !owners.contains(shard.id)) {
+                    shards.remove(shard.id);
+                    shard.dataSource.close();
+                    log.info("Closed shard {}", shard.id);
                 }
             }
-            
-            log.info("Shards rebalanced");
-            
+
+            log.info("Shards rebalanced: moved {} partitions", moves.size());
+
             return true;
         } catch (Exception e) {
-            log.error("Failed to rebalance shards: {}", e.getMessage());
-            
+            log.error("Failed to rebalance shards: {}", e.getMessage(), e);
+
+            return false;
+        } finally {
             // Mark all shards as online
-            for (ShardInfo shard : shards.values()) {
-                shard.setStatus("ONLINE");
+            for (Shard shard : shards.values()) {
+                shard.status = ONLINE;
             }
-            
-            return false;
+            rebalancing.set(false);
+        }
+    }
+
+    /**
+     * Copies the rows of partitions that leave a shard to their new shards, hands the partitions over and then
+     * removes the rows from the shard. The bulk copy runs while writes go on and records the keys they touch; writes
+     * to the shard only wait while those keys are copied again and the partitions are handed over.
+     */
+    private void handOver(Shard source, List<ShardMap.Move> moves) {
+        Map<String, Integer> targets = new HashMap<>();
+        for (ShardMap.Move move : moves) {
+            targets.put(move.lowerBound(), move.toShard());
+            openShard(move.toShard()).status = REBALANCING;
+        }
+        source.status = REBALANCING;
+        log.info("Moving {} partitions off shard {}", moves.size(), source.id);
+
+        Lock lock = source.handOverLock.writeLock();
+        source.handOverTargets = targets;
+        try {
+            // Waits for writes that started before their keys were recorded
+            lock.lock();
+            lock.unlock();
+
+            for (Map.Entry<String, String> table : tables.entrySet()) {
+                copyRows(source, table.getKey(), table.getValue(), targets);
+            }
+
+            lock.lock();
+            try {
+                catchUp(source, targets);
+                shardMap.commit(moves);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            source.handOverTargets = null;
+            source.changedKeys.clear();
+            source.untrackedWrites = false;
+        }
+
+        // Also removes rows left behind by an earlier, interrupted rebalance
+        for (Map.Entry<String, String> table : tables.entrySet()) {
+            deleteForeignRows(source, table.getKey(), table.getValue());
+        }
+    }
+
+    /**
+     * Copies the rows written on a shard during the bulk copy of its moving partitions. Must be called while the
+     * shard's writes are held back.
+     */
+    private void catchUp(Shard source, Map<String, Integer> targets) {
+        if (source.untrackedWrites) {
+            log.info("Shard {} was updated without a key during the copy, copying its moving partitions again", source.id);
+            for (Map.Entry<String, String> table : tables.entrySet()) {
+                // The targets do not own the moving partitions yet, so this drops the rows copied so far
+                for (int targetId : new TreeSet<>(targets.values())) {
+                    deleteForeignRows(shards.get(targetId), table.getKey(), table.getValue());
+                }
+                copyRows(source, table.getKey(), table.getValue(), targets);
+            }
+            return;
+        }
+        if (source.changedKeys.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<String>> keysByTarget = source.changedKeys.stream()
+                .collect(Collectors.groupingBy(key -> targets.get(shardMap.partitionFor(key).lowerBound())));
+        for (Map.Entry<String, String> table : tables.entrySet()) {
+            for (Map.Entry<Integer, List<String>> keys : keysByTarget.entrySet()) {
+                copyKeys(source, shards.get(keys.getKey()), table.getKey(), table.getValue(), keys.getValue());
+            }
+        }
+        log.info("Copied {} keys written during the copy off shard {} again", source.changedKeys.size(), source.id);
+    }
+
+    /**
+     * Replaces the rows of some keys on a shard by their current rows on another, including keys deleted meanwhile.
+     */
+    private void copyKeys(Shard source, Shard target, String table, String keyColumn, List<String> keys) {
+        String keyClass = source.jdbcTemplate.query("SELECT " + keyColumn + " FROM " + table + " WHERE 1 = 0",
+                (ResultSetExtractor<String>) rs -> rs.getMetaData().getColumnClassName(1));
+        List<Object[]> keyValues = keys.stream()
+                .map(key -> new Object[] {keyValue(keyClass, key)})
+                .toList();
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        String select = "SELECT * FROM " + table + " WHERE " + keyColumn + " = ?";
+        for (Object[] keyValue : keyValues) {
+            rows.addAll(source.jdbcTemplate.queryForList(select, keyValue));
+        }
+        target.jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE " + keyColumn + " = ?", keyValues);
+        writeRows(target, table, keyColumn, rows);
+    }
+
+    /**
+     * Converts a routing key to the type of the key column, as databases such as PostgreSQL do not compare text
+     * with numbers or UUIDs.
+     */
+    private static Object keyValue(String keyClass, String key) {
+        if (keyClass == null) {
+            return key;
+        }
+        switch (keyClass) {
+            case "java.lang.Long":
+                return Long.valueOf(key);
+            case "java.lang.Integer":
+                return Integer.valueOf(key);
+            case "java.lang.Short":
+                return Short.valueOf(key);
+            case "java.math.BigDecimal":
+                return new BigDecimal(key);
+            case "java.util.UUID":
+                return UUID.fromString(key);
+            default:
+                return key;
+        }
+    }
+
+    private void copyRows(Shard source, String table, String keyColumn, Map<String, Integer> targets) {
+        Map<Integer, List<Map<String, Object>>> batches = new HashMap<>();
+        long[] copied = {0};
+        scan(source, "SELECT * FROM " + table, row -> {
+            String key = String.valueOf(row.get(keyColumn));
+            Integer target = targets.get(shardMap.partitionFor(key).lowerBound());
+            if (target == null) {
+                return;
+            }
+            List<Map<String, Object>> batch = batches.computeIfAbsent(target, id -> new ArrayList<>());
+            batch.add(row);
+            if (batch.size() >= fetchSize) {
+                writeRows(shards.get(target), table, keyColumn, batch);
+                copied[0] += batch.size();
+                batch.clear();
+            }
+        });
+        for (Map.Entry<Integer, List<Map<String, Object>>> batch : batches.entrySet()) {
+            writeRows(shards.get(batch.getKey()), table, keyColumn, batch.getValue());
+            copied[0] += batch.getValue().size();
         }
+        log.info("Copied {} rows of {} off shard {}", copied[0], table, source.id);
+    }
+
+    /**
+     * Writes rows to a shard, replacing copies of the same rows that an interrupted rebalance left there.
+     */
+    private void writeRows(Shard target, String table, String keyColumn, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+
+        target.writeTransaction.executeWithoutResult(status -> {
+            target.jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE " + keyColumn + " = ?",
+                    rows.stream().map(row -> new Object[] {row.get(keyColumn)}).toList());
+            target.jdbcTemplate.batchUpdate(insert,
+                    rows.stream().map(row -> columns.stream().map(row::get).toArray()).toList());
+        });
+    }
+
+    private void deleteForeignRows(Shard shard, String table, String keyColumn) {
+        List<Object[]> batch = new ArrayList<>();
+        long[] deleted = {0};
+        String delete = "DELETE FROM " + table + " WHERE " + keyColumn + " = ?";
+        scan(shard, "SELECT " + keyColumn + " FROM " + table, row -> {
+            Object key = row.get(keyColumn);
+            if (shardMap.shardFor(String.valueOf(key)) != shard.id) {
+                batch.add(new Object[] {key});
+                if (batch.size() >= fetchSize) {
+                    shard.jdbcTemplate.batchUpdate(delete, batch);
+                    deleted[0] += batch.size();
+                    batch.clear();
+                }
+            }
+        });
+        if (!batch.isEmpty()) {
+            shard.jdbcTemplate.batchUpdate(delete, batch);
+            deleted[0] += batch.size();
+        }
+        log.info("Removed {} moved rows of {} from shard {}", deleted[0], table, shard.id);
+    }
+
+    /**
+     * Weighs every partition by the rows it holds in the first partitioned table. Hash partitions are all alike.
+     */
+    private Map<String, Long> partitionWeights() {
+        Map<String, Long> weights = new HashMap<>();
+        if (shardMap.getStrategy() == ShardMap.Strategy.HASH || tables.isEmpty()) {
+            shardMap.getPartitions().forEach(partition -> weights.put(partition.lowerBound(), 1L));
+            return weights;
+        }
+
+        Map.Entry<String, String> table = tables.entrySet().iterator().next();
+        for (int shardId : shardMap.getShardIds()) {
+            scan(openShard(shardId), "SELECT " + table.getValue() + " FROM " + table.getKey(), row -> weights.merge(
+                    shardMap.partitionFor(String.valueOf(row.get(table.getValue()))).lowerBound(), 1L, Long::sum));
+        }
+        return weights;
+    }
+
+    /**
+     * Splits the heaviest range partitions at their median key until each holds at most half a shard's share,
+     * so that whole partitions can be spread evenly.
+     */
+    private void splitRanges(int newShardCount, Map<String, Long> weights) {
+        long total = weights.values().stream().mapToLong(Long::longValue).sum();
+        long maxWeight = Math.max(1, total / newShardCount / 2);
+        Map.Entry<String, String> table = tables.isEmpty() ? null : tables.entrySet().iterator().next();
+
+        for (int splits = 0; table != null && splits < 4 * newShardCount; splits++) {
+            Map.Entry<String, Long> heaviest = weights.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElse(null);
+            if (heaviest == null || heaviest.getValue() <= maxWeight) {
+                break;
+            }
+
+            String lowerBound = heaviest.getKey();
+            String splitPoint = medianKey(table.getKey(), table.getValue(), lowerBound);
+            if (splitPoint == null) {
+                // Every key of the partition is the same, it cannot be split
+                weights.put(lowerBound, 0L);
+                continue;
+            }
+            shardMap.split(lowerBound, splitPoint);
+            long weight = heaviest.getValue();
+            weights.put(lowerBound, weight / 2);
+            weights.put(splitPoint, weight - weight / 2);
+            log.info("Split range partition [{}] at [{}]", lowerBound, splitPoint);
+        }
+    }
+
+    /**
+     * Estimates the median key of a range partition from a sample of its keys.
+     *
+     * @return a key greater than the lower bound of the partition, or null if there is none
+     */
+    private String medianKey(String table, String keyColumn, String lowerBound) {
+        Shard shard = openShard(shardMap.partitionFor(lowerBound).shardId());
+        String upperBound = shardMap.upperBound(lowerBound);
+        List<String> sample = new ArrayList<>();
+        Random random = new Random(lowerBound.hashCode());
+        long[] seen = {0};
+        scan(shard, "SELECT " + keyColumn + " FROM " + table, row -> {
+            String key = String.valueOf(row.get(keyColumn));
+            if (key.compareTo(lowerBound) < 0 || (upperBound != null && key.compareTo(upperBound) >= 0)) {
+                return;
+            }
+            // Reservoir sampling keeps the sample uniform over any number of keys
+            seen[0]++;
+            if (sample.size() < SPLIT_SAMPLE_SIZE) {
+                sample.add(key);
+            } else {
+                long slot = (long) (random.nextDouble() * seen[0]);
+                if (slot < SPLIT_SAMPLE_SIZE) {
+                    sample.set((int) slot, key);
+                }
+            }
+        });
+
+        Collections.sort(sample);
+        for (int i = sample.size() / 2; i < sample.size(); i++) {
+            if (sample.get(i).compareTo(lowerBound) > 0) {
+                return sample.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Streams the rows of a query on a shard to a consumer, a fetch at a time.
+     */
+    private void scan(Shard shard, String sql, Consumer<Map<String, Object>> rowConsumer) {
+        shard.readTransaction.executeWithoutResult(status -> shard.jdbcTemplate.query(sql,
+                (RowCallbackHandler) rs -> rowConsumer.accept(rowMapper.mapRow(rs, 0))));
     }
 
     @Override
     public List<ShardInfo> getShardInfo() {
-        return new ArrayList<>(shards.values());
+        List<ShardInfo> infos = new ArrayList<>();
+        if (!enabled) {
+            return infos;
+        }
+
+        for (Shard shard : shards.values()) {
+            ShardInfo info = new ShardInfo();
+            info.setShardId(shard.id);
+            info.setConnectionUrl(dataSourceFactory.getUrl(shard.id));
+            info.setStatus(shard.status);
+
+            long recordCount = 0;
+            for (String table : tables.keySet()) {
+                try {
+                    Long count = shard.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+                    recordCount += count != null ? count : 0;
+                } catch (Exception e) {
+                    log.debug("Failed to count rows of {} on shard {}: {}", table, shard.id, e.getMessage());
+                }
+            }
+            info.setRecordCount(recordCount);
+
+            infos.add(info);
+        }
+        infos.sort(Comparator.comparingInt(ShardInfo::getShardId));
+
+        return infos;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        shards.values().forEach(shard -> shard.dataSource.close());
+        shards.clear();
     }
-    
+
     private void initializeShards() {
-        // Create shard info objects
-        IntStream.range(0, shardCount).forEach(i -> {
-            ShardInfo shard = new ShardInfo();
-            shard.setShardId(i);
-            shard.setConnectionUrl("jdbc:postgresql://shard" + i + ":5432/codebridge");
-            shard.setRecordCount(1000 * (i + 1)); // Dummy record count
-            shard.setSizeBytes(1000000 * (i + 1)); // Dummy size
-            shard.setStatus("ONLINE");
-            
-            shards.put(i, shard);
-        });
+        shardMap = ShardMap.loadOrCreate(ShardMap.Strategy.of(strategy), shardCount, hashPartitions, jdbcTemplate);
+
+        Set<Integer> shardIds = new TreeSet<>(shardMap.getShardIds());
+        shardMap.pendingMoves().forEach(move -> shardIds.add(move.toShard()));
+        for (int shardId = 0; shardId < shardCount; shardId++) {
+            shardIds.add(shardId);
+        }
+        shardIds.forEach(this::openShard);
+
+        // The persisted map outlives the configuration: a changed shard count is rebalanced online
+        Set<Integer> owners = new TreeSet<>(shardMap.getShardIds());
+        boolean resized = owners.stream().anyMatch(shardId -> shardId >= shardCount)
+                || owners.size() < Math.min(shardCount, shardMap.getPartitions().size());
+        if (resized || !shardMap.pendingMoves().isEmpty()) {
+            log.info("Shard map does not match {} shards, rebalancing in the background", shardCount);
+            executor.execute(this::rebalanceShards);
+        }
     }
-}
 
+    private Shard openShard(int shardId) {
+        return shards.computeIfAbsent(shardId, Shard::new);
+    }
+
+    private Shard getAvailableShard(int shardId) {
+        Shard shard = shards.get(shardId);
+
+        if (shard == null) {
+            throw new IllegalArgumentException("Shard not found: " + shardId);
+        }
+
+        // A rebalancing shard still serves everything it owns
+        if (OFFLINE.equals(shard.status)) {
+            throw new IllegalStateException("Shard is not online: " + shardId);
+        }
+
+        return shard;
+    }
+
+    private static Object take(BlockingQueue<Object> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while merging shard results", e);
+        }
+    }
+
+    /**
+     * A shard with its connection pool.
+     */
+    private final class Shard {
+        final int id;
+        final HikariDataSource dataSource;
+        final JdbcTemplate jdbcTemplate;
+        final TransactionTemplate readTransaction;
+        final TransactionTemplate writeTransaction;
+        // Held for writing while the shard hands partitions over
+        final ReentrantReadWriteLock handOverLock = new ReentrantReadWriteLock();
+        // While partitions are being copied off the shard: their targets, and the writes to catch up on
+        volatile Map<String, Integer> handOverTargets;
+        final Set<String> changedKeys = ConcurrentHashMap.newKeySet();
+        volatile boolean untrackedWrites;
+        volatile String status = ONLINE;
+
+        Shard(int id) {
+            this.id = id;
+            this.dataSource = dataSourceFactory.create(id);
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.setFetchSize(fetchSize);
+            jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.writeTransaction = new TransactionTemplate(transactionManager);
+            // Drivers such as PostgreSQL's only stream results with a fetch size inside a transaction
+            this.readTransaction = new TransactionTemplate(transactionManager);
+            readTransaction.setReadOnly(true);
+        }
+    }
+
+    /**
+     * Streams the rows of a query on one shard into a bounded queue, from a thread of its own.
+     * A producer that is ahead of the merge waits for it, so at most a fetch of rows per shard is held in memory.
+     */
+    private final class ShardCursor {
+        private final Shard shard;
+        private final BlockingQueue<Object> queue;
+        private volatile boolean closed;
+
+        ShardCursor(Shard shard, ScatterGatherQuery query, BlockingQueue<Object> queue) {
+            this.shard = shard;
+            this.queue = queue;
+            executor.execute(() -> produce(query));
+        }
+
+        private void produce(ScatterGatherQuery query) {
+            try {
+                shard.readTransaction.executeWithoutResult(status -> shard.jdbcTemplate.query(query.getShardSql(),
+                        (RowCallbackHandler) rs -> {
+                            if (!put(rowMapper.mapRow(rs, 0))) {
+                                // Ends the query and releases the connection
+                                throw new CancellationException();
+                            }
+                        }, query.getShardParams()));
+            } catch (CancellationException e) {
+                log.debug("Query on shard {} cancelled", shard.id);
+            } catch (Exception e) {
+                log.error("Failed to execute query on shard {}: {}", shard.id, e.getMessage());
+            } finally {
+                put(END);
+            }
+        }
+
+        /**
+         * Hands an item to the merge.
+         *
+         * @return false if the merge no longer needs any rows
+         */
+        private boolean put(Object item) {
+            try {
+                while (!closed) {
+                    if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        /**
+         * Gets the next row of the shard.
+         *
+         * @return the row, or null when the shard has no more rows
+         */
+        @SuppressWarnings("unchecked")
+        Map<String, Object> next() {
+            Object item = take(queue);
+            return item == END ? null : (Map<String, Object>) item;
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    /**
+     * The current row of a cursor in the ordered merge.
+     */
+    private record Head(Map<String, Object> row, int cursor) {
+    }
+}
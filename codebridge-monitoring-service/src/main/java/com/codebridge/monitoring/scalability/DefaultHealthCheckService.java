@@ -1,95 +1,315 @@
 package com.codebridge.monitoring.scalability.loadbalancer.impl;
 
+import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckListener;
 import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckService;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Default implementation of the health check service.
- * Periodically checks the health of service instances.
+ * Each instance is probed on its own jittered schedule with a non-blocking request and a per-probe timeout,
+ * so a hung instance delays nothing but its own next probe. Instances that are failing, or suspected of it,
+ * are probed at the shorter unhealthy interval. Besides the probes, the outcome of real requests reported by
+ * the selector is taken into account: an instance failing too large a share of its requests within an interval
+ * is marked unhealthy straight away. Health changes are pushed to the registered listeners as they happen.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class DefaultHealthCheckService implements HealthCheckService {
 
     private static final String HEALTH_CHECK_PATH = "/actuator/health";
-    
-    private final RestTemplate restTemplate;
-    private final int healthCheckIntervalSeconds;
-    
-    private final Map<String, ServiceInstance> instancesUnderCheck = new ConcurrentHashMap<>();
-    private final Set<String> unhealthyInstances = ConcurrentHashMap.newKeySet();
-    private final Map<String, String> instanceToServiceMap = new ConcurrentHashMap<>();
+    private static final double JITTER = 0.2;
+
+    private final WebClient webClient;
+    private final long healthyIntervalMillis;
+    private final long unhealthyIntervalMillis;
+    private final Duration probeTimeout;
+    private final int unhealthyThreshold;
+    private final int healthyThreshold;
+    private final int passiveMinRequests;
+    private final double passiveFailureRate;
+
+    private final Map<String, InstanceHealth> instancesUnderCheck = new ConcurrentHashMap<>();
+    private final List<HealthCheckListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "health-check-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates the health check service.
+     *
+     * @param webClient the client used for probes
+     * @param healthCheckIntervalSeconds the probe interval for healthy instances
+     * @param unhealthyIntervalSeconds the probe interval for failing or unhealthy instances
+     * @param probeTimeoutMillis how long a probe may take before it counts as failed
+     * @param unhealthyThreshold consecutive failed probes that make an instance unhealthy
+     * @param healthyThreshold consecutive successful probes that make an unhealthy instance healthy again
+     * @param passiveMinRequests requests an instance must have served in an interval before its failure rate counts
+     * @param passiveFailureRate the share of failed requests within an interval that makes an instance unhealthy
+     */
+    public DefaultHealthCheckService(WebClient webClient, int healthCheckIntervalSeconds, int unhealthyIntervalSeconds,
+                                     long probeTimeoutMillis, int unhealthyThreshold, int healthyThreshold,
+                                     int passiveMinRequests, double passiveFailureRate) {
+        this.webClient = webClient;
+        this.healthyIntervalMillis = TimeUnit.SECONDS.toMillis(healthCheckIntervalSeconds);
+        this.unhealthyIntervalMillis = TimeUnit.SECONDS.toMillis(unhealthyIntervalSeconds);
+        this.probeTimeout = Duration.ofMillis(probeTimeoutMillis);
+        this.unhealthyThreshold = Math.max(1, unhealthyThreshold);
+        this.healthyThreshold = Math.max(1, healthyThreshold);
+        this.passiveMinRequests = passiveMinRequests;
+        this.passiveFailureRate = passiveFailureRate;
+    }
 
     @Override
     public boolean isHealthy(ServiceInstance instance) {
-        String instanceId = getInstanceId(instance);
-        return !unhealthyInstances.contains(instanceId);
+        InstanceHealth health = instancesUnderCheck.get(getInstanceId(instance));
+        return health == null || health.healthy;
     }
 
     @Override
     public void startHealthCheck(ServiceInstance instance, String serviceId) {
         String instanceId = getInstanceId(instance);
-        instancesUnderCheck.put(instanceId, instance);
-        instanceToServiceMap.put(instanceId, serviceId);
+        InstanceHealth health = instancesUnderCheck.get(instanceId);
+        if (health != null) {
+            health.instance = instance;
+            return;
+        }
+
+        InstanceHealth created = new InstanceHealth(instanceId, serviceId, instance);
+        if (instancesUnderCheck.putIfAbsent(instanceId, created) == null) {
+            // Spread the first probes over the interval so that instances are not probed in bursts
+            scheduleProbe(created, ThreadLocalRandom.current().nextLong(healthyIntervalMillis + 1));
+        }
     }
 
     @Override
     public void stopHealthCheck(ServiceInstance instance) {
-        String instanceId = getInstanceId(instance);
-        instancesUnderCheck.remove(instanceId);
-        instanceToServiceMap.remove(instanceId);
-        unhealthyInstances.remove(instanceId);
+        InstanceHealth health = instancesUnderCheck.remove(getInstanceId(instance));
+        if (health != null) {
+            synchronized (health) {
+                health.stopped = true;
+                if (health.nextProbe != null) {
+                    health.nextProbe.cancel(false);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void recordRequestOutcome(ServiceInstance instance, boolean success) {
+        InstanceHealth health = instancesUnderCheck.get(getInstanceId(instance));
+        if (health == null) {
+            return;
+        }
+
+        boolean changed;
+        synchronized (health) {
+            changed = health.recordRequest(success, System.currentTimeMillis());
+        }
+        if (changed) {
+            log.warn("Instance {} is unhealthy: too many failed requests", health.instanceId);
+            notifyHealthChanged(health, false);
+            probeNow(health);
+        }
+    }
+
+    @Override
+    public void addListener(HealthCheckListener listener) {
+        listeners.add(listener);
     }
 
     /**
-     * Periodically checks the health of all instances under check.
+     * Probes all instances under check right away, instead of waiting for their next scheduled probe.
      */
-    @Scheduled(fixedDelayString = "${codebridge.scalability.load-balancing.health-check-interval-seconds:30}000")
     public void checkHealth() {
-        instancesUnderCheck.forEach((instanceId, instance) -> {
+        instancesUnderCheck.values().forEach(this::probeNow);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void scheduleProbe(InstanceHealth health, long delayMillis) {
+        synchronized (health) {
+            if (health.stopped || scheduler.isShutdown()) {
+                return;
+            }
+            if (health.nextProbe != null) {
+                health.nextProbe.cancel(false);
+            }
+            health.nextProbe = scheduler.schedule(() -> probeNow(health), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void probeNow(InstanceHealth health) {
+        synchronized (health) {
+            if (health.stopped || health.probing) {
+                return;
+            }
+            health.probing = true;
+            if (health.nextProbe != null) {
+                health.nextProbe.cancel(false);
+                health.nextProbe = null;
+            }
+        }
+
+        long start = System.nanoTime();
+        webClient.get()
+                .uri(health.instance.getUri() + HEALTH_CHECK_PATH)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .timeout(probeTimeout)
+                .map(body -> "UP".equals(body.get("status")))
+                .defaultIfEmpty(false)
+                .onErrorResume(e -> {
+                    log.debug("Health check failed for instance {}: {}", health.instanceId, e.getMessage());
+                    return Mono.just(false);
+                })
+                .subscribe(up -> onProbeResult(health, up, System.nanoTime() - start));
+    }
+
+    private void onProbeResult(InstanceHealth health, boolean up, long latencyNanos) {
+        Boolean changedTo;
+        boolean failing;
+        synchronized (health) {
+            health.probing = false;
+            // The instance was removed while the probe was in flight; its result no longer concerns anyone
+            if (health.stopped) {
+                return;
+            }
+            changedTo = health.recordProbe(up);
+            failing = !health.healthy || health.consecutiveFailures > 0;
+        }
+
+        if (changedTo != null) {
+            if (changedTo) {
+                log.info("Instance {} is now healthy", health.instanceId);
+            } else {
+                log.warn("Instance {} is unhealthy", health.instanceId);
+            }
+            notifyHealthChanged(health, changedTo);
+        }
+        for (HealthCheckListener listener : listeners) {
             try {
-                String healthUrl = instance.getUri() + HEALTH_CHECK_PATH;
-                ResponseEntity<Map> response = restTemplate.getForEntity(healthUrl, Map.class);
-                
-                if (response.getStatusCode() == HttpStatus.OK) {
-                    Map<String, Object> body = response.getBody();
-                    String status = body != null ? (String) body.get("status") : null;
-                    
-                    if ("UP".equals(status)) {
-                        if (unhealthyInstances.remove(instanceId)) {
-                            log.info("Instance {} is now healthy", instanceId);
-                        }
-                    } else {
-                        markUnhealthy(instanceId);
-                    }
-                } else {
-                    markUnhealthy(instanceId);
-                }
-            } catch (Exception e) {
-                log.warn("Health check failed for instance {}: {}", instanceId, e.getMessage());
-                markUnhealthy(instanceId);
+                listener.onHealthCheck(health.serviceId, health.instance, latencyNanos, up);
+            } catch (RuntimeException e) {
+                log.warn("Health check listener failed for instance {}: {}", health.instanceId, e.getMessage());
             }
-        });
+        }
+
+        scheduleProbe(health, jittered(failing ? unhealthyIntervalMillis : healthyIntervalMillis));
     }
-    
-    private void markUnhealthy(String instanceId) {
-        if (unhealthyInstances.add(instanceId)) {
-            log.warn("Instance {} is unhealthy", instanceId);
+
+    private void notifyHealthChanged(InstanceHealth health, boolean healthy) {
+        for (HealthCheckListener listener : listeners) {
+            try {
+                listener.onHealthChanged(health.serviceId, health.instance, healthy);
+            } catch (RuntimeException e) {
+                log.warn("Health check listener failed for instance {}: {}", health.instanceId, e.getMessage());
+            }
         }
     }
-    
+
+    private static long jittered(long intervalMillis) {
+        double factor = 1 + JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.max(1, (long) (intervalMillis * factor));
+    }
+
     private String getInstanceId(ServiceInstance instance) {
         return instance.getServiceId() + ":" + instance.getInstanceId();
     }
-}
 
+    /**
+     * Health state of one instance. Mutable fields are guarded by the instance's monitor.
+     */
+    private final class InstanceHealth {
+        final String instanceId;
+        final String serviceId;
+        volatile ServiceInstance instance;
+        volatile boolean healthy = true;
+        boolean stopped;
+        boolean probing;
+        ScheduledFuture<?> nextProbe;
+        int consecutiveFailures;
+        int consecutiveSuccesses;
+        long windowStart;
+        int windowRequests;
+        int windowFailures;
+
+        InstanceHealth(String instanceId, String serviceId, ServiceInstance instance) {
+            this.instanceId = instanceId;
+            this.serviceId = serviceId;
+            this.instance = instance;
+        }
+
+        /**
+         * Records a probe result.
+         *
+         * @return the new health if it changed, otherwise null
+         */
+        Boolean recordProbe(boolean up) {
+            if (up) {
+                consecutiveFailures = 0;
+                consecutiveSuccesses++;
+                if (!healthy && consecutiveSuccesses >= healthyThreshold) {
+                    healthy = true;
+                    resetWindow(System.currentTimeMillis());
+                    return true;
+                }
+            } else {
+                consecutiveSuccesses = 0;
+                consecutiveFailures++;
+                if (healthy && consecutiveFailures >= unhealthyThreshold) {
+                    healthy = false;
+                    return false;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Records the outcome of a request served by the instance.
+         *
+         * @return true if the instance just became unhealthy
+         */
+        boolean recordRequest(boolean success, long now) {
+            if (now - windowStart > healthyIntervalMillis) {
+                resetWindow(now);
+            }
+            windowRequests++;
+            if (!success) {
+                windowFailures++;
+            }
+            if (healthy && passiveMinRequests > 0 && windowRequests >= passiveMinRequests
+                    && windowFailures >= passiveFailureRate * windowRequests) {
+                healthy = false;
+                consecutiveSuccesses = 0;
+                resetWindow(now);
+                return true;
+            }
+            return false;
+        }
+
+        private void resetWindow(long now) {
+            windowStart = now;
+            windowRequests = 0;
+            windowFailures = 0;
+        }
+    }
+}
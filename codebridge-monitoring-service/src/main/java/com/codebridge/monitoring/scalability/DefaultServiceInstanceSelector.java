@@ -1,5 +1,6 @@
 package com.codebridge.monitoring.scalability.loadbalancer.impl;
 
+import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckListener;
 import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckService;
 import com.codebridge.monitoring.scalability.loadbalancer.LoadBalancingStrategy;
 import com.codebridge.monitoring.scalability.loadbalancer.ServiceInstanceSelector;
@@ -17,10 +18,11 @@ import java.util.stream.Collectors;
 /**
  * Default implementation of the service instance selector.
  * Selects instances based on the configured load balancing strategy and health status.
+ * Health changes are pushed by the health check service, and request outcomes are passed back to it.
  */
 @Slf4j
 @RequiredArgsConstructor
-public class DefaultServiceInstanceSelector implements ServiceInstanceSelector {
+public class DefaultServiceInstanceSelector implements ServiceInstanceSelector, HealthCheckListener {
 
     private final DiscoveryClient discoveryClient;
     private final LoadBalancingStrategy loadBalancingStrategy;
@@ -70,15 +72,26 @@ public class DefaultServiceInstanceSelector implements ServiceInstanceSelector {
         log.info("Marked instance as healthy: {}", key);
     }
     
+    @Override
+    public void requestCompleted(String serviceId, ServiceInstance instance, long durationNanos, boolean success) {
+        loadBalancingStrategy.onRequestComplete(serviceId, instance, durationNanos, success);
+        healthCheckService.recordRequestOutcome(instance, success);
+    }
+
+    @Override
+    public void onHealthChanged(String serviceId, ServiceInstance instance, boolean healthy) {
+        if (healthy) {
+            markInstanceHealthy(serviceId, instance.getInstanceId());
+        } else {
+            markInstanceUnhealthy(serviceId, instance.getInstanceId());
+        }
+    }
+    
     private boolean isHealthy(String serviceId, ServiceInstance instance) {
         String instanceId = instance.getInstanceId();
         String key = getInstanceKey(serviceId, instanceId);
         
-        if (unhealthyInstances.contains(key)) {
-            return false;
-        }
-        
-        return healthCheckService.isHealthy(instance);
+        return !unhealthyInstances.contains(key);
     }
     
     private String getInstanceKey(String serviceId, String instanceId) {
@@ -0,0 +1,30 @@
+package com.codebridge.monitoring.scalability.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Receives health check results and health changes of service instances.
+ */
+public interface HealthCheckListener {
+
+    /**
+     * Called after an instance has been probed.
+     *
+     * @param serviceId the service ID
+     * @param instance the probed instance
+     * @param latencyNanos the time the probe took, in nanoseconds
+     * @param healthy whether the instance reported itself healthy
+     */
+    default void onHealthCheck(String serviceId, ServiceInstance instance, long latencyNanos, boolean healthy) {
+    }
+
+    /**
+     * Called as soon as an instance becomes healthy or unhealthy.
+     *
+     * @param serviceId the service ID
+     * @param instance the instance
+     * @param healthy whether the instance is now healthy
+     */
+    default void onHealthChanged(String serviceId, ServiceInstance instance, boolean healthy) {
+    }
+}
@@ -29,5 +29,22 @@ public interface HealthCheckService {
      * @param instance the service instance to stop checking
      */
     void stopHealthCheck(ServiceInstance instance);
+
+    /**
+     * Reports the outcome of a request served by an instance, such as a 5xx response or a timeout,
+     * so that failing instances are noticed between probes.
+     *
+     * @param instance the instance that served the request
+     * @param success whether the request succeeded
+     */
+    void recordRequestOutcome(ServiceInstance instance, boolean success);
+
+    /**
+     * Registers a listener notified of every probe result and health change, e.g. to feed probe latencies
+     * to a load balancer.
+     *
+     * @param listener the listener
+     */
+    void addListener(HealthCheckListener listener);
 }
 
@@ -36,6 +36,11 @@ public class LeastConnectionsStrategy implements LoadBalancingStrategy {
         return selected;
     }
     
+    @Override
+    public void onRequestComplete(String serviceId, ServiceInstance instance, long durationNanos, boolean success) {
+        decrementConnectionCount(serviceId, instance);
+    }
+
     /**
      * Decrements the connection count for an instance when a request completes.
      *
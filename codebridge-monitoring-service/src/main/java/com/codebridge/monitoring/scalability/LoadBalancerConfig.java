@@ -1,5 +1,6 @@
 package com.codebridge.monitoring.scalability.config;
 
+import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckListener;
 import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckService;
 import com.codebridge.monitoring.scalability.loadbalancer.LoadBalancingStrategy;
 import com.codebridge.monitoring.scalability.loadbalancer.ServiceInstanceSelector;
@@ -12,6 +13,7 @@ import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 /**
  * Configuration for load balancing.
@@ -21,6 +23,7 @@ import org.springframework.web.client.RestTemplate;
 public class LoadBalancerConfig {
 
     private final DiscoveryClient discoveryClient;
+    private final WebClient.Builder webClientBuilder;
 
     @Value("${codebridge.scalability.load-balancing.strategy}")
     private String loadBalancingStrategy;
@@ -31,6 +34,45 @@ public class LoadBalancerConfig {
     @Value("${codebridge.scalability.load-balancing.health-check-interval-seconds}")
     private int healthCheckIntervalSeconds;
 
+    @Value("${codebridge.scalability.load-balancing.health-check.unhealthy-interval-seconds:5}")
+    private int unhealthyIntervalSeconds;
+
+    @Value("${codebridge.scalability.load-balancing.health-check.timeout-millis:2000}")
+    private long healthCheckTimeoutMillis;
+
+    @Value("${codebridge.scalability.load-balancing.health-check.unhealthy-threshold:2}")
+    private int unhealthyThreshold;
+
+    @Value("${codebridge.scalability.load-balancing.health-check.healthy-threshold:2}")
+    private int healthyThreshold;
+
+    @Value("${codebridge.scalability.load-balancing.health-check.passive.min-requests:20}")
+    private int passiveMinRequests;
+
+    @Value("${codebridge.scalability.load-balancing.health-check.passive.failure-rate:0.5}")
+    private double passiveFailureRate;
+
+    @Value("${codebridge.scalability.load-balancing.consistent-hash.virtual-nodes:160}")
+    private int consistentHashVirtualNodes;
+
+    @Value("${codebridge.scalability.load-balancing.consistent-hash.load-factor:1.25}")
+    private double consistentHashLoadFactor;
+
+    @Value("${codebridge.scalability.load-balancing.peak-ewma.decay-millis:10000}")
+    private long peakEwmaDecayMillis;
+
+    @Value("${codebridge.scalability.load-balancing.peak-ewma.ejection.consecutive-failures:5}")
+    private int ejectionConsecutiveFailures;
+
+    @Value("${codebridge.scalability.load-balancing.peak-ewma.ejection.slow-ratio:3.0}")
+    private double ejectionSlowRatio;
+
+    @Value("${codebridge.scalability.load-balancing.peak-ewma.ejection.base-millis:30000}")
+    private long ejectionBaseMillis;
+
+    @Value("${codebridge.scalability.load-balancing.peak-ewma.ejection.max-percent:50}")
+    private int ejectionMaxPercent;
+
     /**
      * Creates a load-balanced RestTemplate.
      *
@@ -49,7 +91,9 @@ public class LoadBalancerConfig {
      */
     @Bean
     public HealthCheckService healthCheckService() {
-        return new DefaultHealthCheckService(loadBalancedRestTemplate(), healthCheckIntervalSeconds);
+        // Probes address instances directly, so the client must not be load-balanced
+        return new DefaultHealthCheckService(webClientBuilder.build(), healthCheckIntervalSeconds, unhealthyIntervalSeconds,
+                healthCheckTimeoutMillis, unhealthyThreshold, healthyThreshold, passiveMinRequests, passiveFailureRate);
     }
 
     /**
@@ -68,6 +112,11 @@ public class LoadBalancerConfig {
                 return new WeightedStrategy();
             case "ip-hash":
                 return new IpHashStrategy();
+            case "consistent-hash":
+                return new ConsistentHashStrategy(consistentHashVirtualNodes, consistentHashLoadFactor);
+            case "peak-ewma":
+                return new PeakEwmaStrategy(peakEwmaDecayMillis, ejectionConsecutiveFailures, ejectionSlowRatio,
+                        ejectionBaseMillis, ejectionMaxPercent);
             default:
                 return new RoundRobinStrategy();
         }
@@ -80,8 +129,15 @@ public class LoadBalancerConfig {
      */
     @Bean
     public ServiceInstanceSelector serviceInstanceSelector() {
-        ServiceInstanceSelector selector = new DefaultServiceInstanceSelector(
-                discoveryClient, loadBalancingStrategy(), healthCheckService());
+        LoadBalancingStrategy strategy = loadBalancingStrategy();
+        HealthCheckService healthCheckService = healthCheckService();
+        if (strategy instanceof HealthCheckListener listener) {
+            healthCheckService.addListener(listener);
+        }
+
+        DefaultServiceInstanceSelector selector = new DefaultServiceInstanceSelector(
+                discoveryClient, strategy, healthCheckService);
+        healthCheckService.addListener(selector);
         
         if (stickySessionsEnabled) {
             return new StickySessionServiceInstanceSelector(selector);
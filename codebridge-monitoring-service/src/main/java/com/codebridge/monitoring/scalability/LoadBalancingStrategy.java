@@ -18,5 +18,17 @@ public interface LoadBalancingStrategy {
      * @return the selected service instance
      */
     ServiceInstance selectInstance(List<ServiceInstance> instances, String serviceId, String requestId);
+
+    /**
+     * Notifies the strategy that a request sent to a selected instance has completed.
+     * Strategies that track load use this to release the request; the default does nothing.
+     *
+     * @param serviceId the service ID
+     * @param instance the instance the request was sent to
+     * @param durationNanos the time the request took, in nanoseconds
+     * @param success whether the request succeeded
+     */
+    default void onRequestComplete(String serviceId, ServiceInstance instance, long durationNanos, boolean success) {
+    }
 }
 
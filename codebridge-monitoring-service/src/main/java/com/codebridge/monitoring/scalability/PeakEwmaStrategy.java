@@ -0,0 +1,320 @@
+package com.codebridge.monitoring.scalability.loadbalancer.impl;
+
+import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckListener;
+import com.codebridge.monitoring.scalability.loadbalancer.LoadBalancingStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency-aware load balancing strategy: power of two choices over peak EWMA load.
+ * Each instance keeps an exponentially weighted moving average of its response times that jumps straight to
+ * any slower response (the "peak") and decays towards faster ones. Its load is that average multiplied by the
+ * number of requests in flight plus one. A selection samples two instances at random and picks the one with the
+ * lower load, so it costs the same for any number of instances while still steering traffic away from slow or
+ * busy ones.
+ * Instances that fail repeatedly, or whose average response time exceeds the service-wide average by the slow
+ * ratio, are ejected for a while, longer on each repeated ejection; at most the configured share of a service's
+ * instances is ejected at once. Health check probes keep the average of idle instances current.
+ * Completions must be reported through {@link #onRequestComplete}, which
+ * {@link com.codebridge.monitoring.scalability.loadbalancer.ServiceInstanceSelector#execute} does automatically.
+ */
+@Slf4j
+public class PeakEwmaStrategy implements LoadBalancingStrategy, HealthCheckListener {
+
+    /**
+     * Response times observed before an instance can be ejected as slow.
+     */
+    private static final int MIN_SAMPLES_FOR_EJECTION = 20;
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+    private static final int MAX_PICK_ATTEMPTS = 3;
+
+    private final double decayNanos;
+    private final int consecutiveFailureThreshold;
+    private final double slowRatio;
+    private final long baseEjectionNanos;
+    private final int maxEjectionPercent;
+    private final LongSupplier clock;
+
+    private final Map<String, ServiceStats> services = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the strategy.
+     *
+     * @param decayMillis the time over which past response times lose most of their weight
+     * @param consecutiveFailureThreshold consecutive failed requests after which an instance is ejected
+     * @param slowRatio how many times slower than the service average an instance may get before it is ejected
+     * @param baseEjectionMillis how long an instance is ejected the first time
+     * @param maxEjectionPercent the largest share of a service's instances that may be ejected at once
+     */
+    public PeakEwmaStrategy(long decayMillis, int consecutiveFailureThreshold, double slowRatio,
+                            long baseEjectionMillis, int maxEjectionPercent) {
+        this(decayMillis, consecutiveFailureThreshold, slowRatio, baseEjectionMillis, maxEjectionPercent, System::nanoTime);
+    }
+
+    /**
+     * Creates the strategy with its own clock, e.g. for simulations.
+     *
+     * @param clock supplies the current time in nanoseconds
+     */
+    public PeakEwmaStrategy(long decayMillis, int consecutiveFailureThreshold, double slowRatio,
+                            long baseEjectionMillis, int maxEjectionPercent, LongSupplier clock) {
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayMillis);
+        this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+        this.slowRatio = slowRatio;
+        this.baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionMillis);
+        this.maxEjectionPercent = maxEjectionPercent;
+        this.clock = clock;
+    }
+
+    @Override
+    public ServiceInstance selectInstance(List<ServiceInstance> instances, String serviceId, String requestId) {
+        if (instances == null || instances.isEmpty()) {
+            return null;
+        }
+
+        ServiceStats service = services.computeIfAbsent(serviceId, id -> new ServiceStats());
+        service.instanceCount = instances.size();
+        if (service.instances.size() > 2 * instances.size() + 8) {
+            prune(service, instances);
+        }
+
+        long now = clock.getAsLong();
+        int size = instances.size();
+        int first;
+        int second;
+        if (size == 1) {
+            first = 0;
+            second = 0;
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            first = pickAvailable(instances, service, -1, now, random);
+            second = pickAvailable(instances, service, first, now, random);
+        }
+
+        InstanceStats firstStats = service.stats(instances.get(first));
+        InstanceStats secondStats = service.stats(instances.get(second));
+        boolean pickSecond = secondStats.load(now) < firstStats.load(now);
+
+        InstanceStats chosen = pickSecond ? secondStats : firstStats;
+        chosen.pending.incrementAndGet();
+        return instances.get(pickSecond ? second : first);
+    }
+
+    /**
+     * Picks a random instance other than {@code exclude}, preferring instances that are not ejected.
+     */
+    private int pickAvailable(List<ServiceInstance> instances, ServiceStats service, int exclude, long now,
+                              ThreadLocalRandom random) {
+        int size = instances.size();
+        int index = -1;
+        for (int attempt = 0; attempt < MAX_PICK_ATTEMPTS; attempt++) {
+            if (exclude < 0) {
+                index = random.nextInt(size);
+            } else {
+                index = random.nextInt(size - 1);
+                if (index >= exclude) {
+                    index++;
+                }
+            }
+            if (!service.stats(instances.get(index)).isEjected(now)) {
+                break;
+            }
+        }
+        // When the picks keep landing on ejected instances, the last pick is used anyway
+        return index;
+    }
+
+    @Override
+    public void onRequestComplete(String serviceId, ServiceInstance instance, long durationNanos, boolean success) {
+        ServiceStats service = services.get(serviceId);
+        if (service == null) {
+            return;
+        }
+        InstanceStats stats = service.instances.get(instanceKey(instance));
+        if (stats == null) {
+            return;
+        }
+
+        stats.pending.getAndUpdate(count -> count > 0 ? count - 1 : 0);
+        long now = clock.getAsLong();
+        double serviceLatency = service.observe(durationNanos, now);
+        if (stats.observe(durationNanos, now, success, serviceLatency) && service.canEject(now)) {
+            long ejectedFor = stats.eject(now);
+            log.warn("Ejected instance {} of service {} for {} ms", instanceKey(instance), serviceId,
+                    TimeUnit.NANOSECONDS.toMillis(ejectedFor));
+        }
+    }
+
+    @Override
+    public void onHealthCheck(String serviceId, ServiceInstance instance, long latencyNanos, boolean healthy) {
+        if (!healthy) {
+            // The selector already leaves unhealthy instances out
+            return;
+        }
+        ServiceStats service = services.get(serviceId);
+        if (service != null) {
+            service.stats(instance).observeProbe(latencyNanos, clock.getAsLong());
+        }
+    }
+
+    private void prune(ServiceStats service, List<ServiceInstance> instances) {
+        Set<String> current = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            current.add(instanceKey(instance));
+        }
+        service.instances.keySet().retainAll(current);
+    }
+
+    private static String instanceKey(ServiceInstance instance) {
+        String instanceId = instance.getInstanceId();
+        return instanceId != null ? instanceId : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private double decayWeight(long elapsedNanos) {
+        return Math.exp(-Math.max(0, elapsedNanos) / decayNanos);
+    }
+
+    /**
+     * Response time average over all instances of a service, the reference for slow instances.
+     */
+    private final class ServiceStats {
+        final Map<String, InstanceStats> instances = new ConcurrentHashMap<>();
+        volatile int instanceCount;
+        private double latency;
+        private long lastUpdate;
+
+        InstanceStats stats(ServiceInstance instance) {
+            String key = instanceKey(instance);
+            InstanceStats stats = instances.get(key);
+            if (stats == null) {
+                // A new instance starts at the service average, so it is neither flooded nor starved
+                stats = instances.computeIfAbsent(key, k -> new InstanceStats(latency(), clock.getAsLong()));
+            }
+            return stats;
+        }
+
+        synchronized double latency() {
+            return latency;
+        }
+
+        synchronized double observe(long durationNanos, long now) {
+            double weight = lastUpdate == 0 ? 0 : decayWeight(now - lastUpdate);
+            latency = latency * weight + durationNanos * (1 - weight);
+            lastUpdate = now;
+            return latency;
+        }
+
+        boolean canEject(long now) {
+            int ejected = 0;
+            for (InstanceStats stats : instances.values()) {
+                if (stats.isEjected(now)) {
+                    ejected++;
+                }
+            }
+            return ejected + 1 <= instanceCount * maxEjectionPercent / 100;
+        }
+    }
+
+    /**
+     * Peak EWMA and ejection state of one instance.
+     */
+    private final class InstanceStats {
+        final AtomicInteger pending = new AtomicInteger();
+        private volatile long ejectedUntil;
+        private double cost;
+        private double latency;
+        private long lastUpdate;
+        private int samples;
+        private int consecutiveFailures;
+        private int ejections;
+
+        InstanceStats(double cost, long now) {
+            this.cost = cost;
+            this.latency = cost;
+            this.lastUpdate = now;
+        }
+
+        boolean isEjected(long now) {
+            long until = ejectedUntil;
+            return until != 0 && until - now > 0;
+        }
+
+        /**
+         * Load of the instance: its decayed cost times the requests it would be serving.
+         */
+        double load(long now) {
+            double decayed;
+            synchronized (this) {
+                decayed = cost * decayWeight(now - lastUpdate);
+            }
+            // Without any response time yet, fall back to comparing requests in flight
+            return Math.max(decayed, 1.0) * (pending.get() + 1);
+        }
+
+        /**
+         * Records a response time.
+         *
+         * @return true if the instance should be ejected
+         */
+        synchronized boolean observe(long durationNanos, long now, boolean success, double serviceLatency) {
+            // A failure must not make an instance look faster than it was
+            double rtt = success ? durationNanos : Math.max(durationNanos, cost);
+            update(rtt, now);
+            samples++;
+            consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+
+            if (isEjected(now)) {
+                return false;
+            }
+            if (consecutiveFailureThreshold > 0 && consecutiveFailures >= consecutiveFailureThreshold) {
+                return true;
+            }
+            // The plain average is compared, as a single slow response would push the peak average over the ratio
+            return samples >= MIN_SAMPLES_FOR_EJECTION && serviceLatency > 0 && latency > slowRatio * serviceLatency;
+        }
+
+        /**
+         * Records a probe latency, but only for an instance that has not served requests recently.
+         */
+        synchronized void observeProbe(long latencyNanos, long now) {
+            if (pending.get() == 0 && now - lastUpdate > decayNanos) {
+                update(latencyNanos, now);
+            }
+        }
+
+        private void update(double rtt, long now) {
+            double weight = decayWeight(now - lastUpdate);
+            cost = rtt > cost ? rtt : cost * weight + rtt * (1 - weight);
+            latency = latency * weight + rtt * (1 - weight);
+            lastUpdate = now;
+        }
+
+        /**
+         * Ejects the instance.
+         *
+         * @return how long the instance is ejected for, in nanoseconds
+         */
+        synchronized long eject(long now) {
+            if (ejectedUntil != 0 && now - ejectedUntil > baseEjectionNanos * MAX_EJECTION_MULTIPLIER) {
+                // Well behaved for long enough to start over
+                ejections = 0;
+            }
+            ejections = Math.min(ejections + 1, MAX_EJECTION_MULTIPLIER);
+            long duration = baseEjectionNanos * ejections;
+            ejectedUntil = now + duration;
+            samples = 0;
+            consecutiveFailures = 0;
+            return duration;
+        }
+    }
+}
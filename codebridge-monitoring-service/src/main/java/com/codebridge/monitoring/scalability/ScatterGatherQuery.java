@@ -0,0 +1,367 @@
+package com.codebridge.monitoring.scalability.resilience.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A query run on all shards, split into the statement each shard runs and the way the shard results are merged.
+ * A top-level {@code ORDER BY} stays on the shard statement, with an explicit null ordering so that every database
+ * sorts the same way, and the sorted shard results are merged by the same keys. A top-level {@code LIMIT n OFFSET m}
+ * is pushed down as {@code LIMIT n + m}, as no shard can contribute more rows than that, and the offset and limit
+ * are applied to the merged rows. Limits and offsets may be literals or parameters.
+ * Sort keys have to be columns of the result: names, aliases or positions. Text is only merged in the {@code "C"}
+ * collation, which orders by code point on every database, so a text sort key has to declare {@code COLLATE "C"};
+ * merging by any other collation, such as a locale-aware database default, would interleave the shards wrongly.
+ */
+public final class ScatterGatherQuery {
+
+    private static final Pattern SORT_ITEM = Pattern.compile(
+            "(?is)^(.+?)(?:\\s+COLLATE\\s+(\"[^\"]+\"|\\w+))?(?:\\s+(ASC|DESC))?(?:\\s+NULLS\\s+(FIRST|LAST))?$");
+    private static final Pattern COLUMN = Pattern.compile("(?:[\\w$]+\\.)*(\"[^\"]+\"|[\\w$]+)");
+    private static final Pattern POSITION = Pattern.compile("\\d+");
+
+    private final String shardSql;
+    private final Object[] shardParams;
+    private final List<SortKey> sortKeys;
+    private final long limit;
+    private final long offset;
+
+    private ScatterGatherQuery(String shardSql, Object[] shardParams, List<SortKey> sortKeys, long limit, long offset) {
+        this.shardSql = shardSql;
+        this.shardParams = shardParams;
+        this.sortKeys = sortKeys;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param sql the SQL statement
+     * @param params the parameters for the SQL statement
+     * @return the parsed query
+     * @throws IllegalArgumentException if the query orders by something other than result columns, or by a
+     *         collation other than {@code "C"}
+     */
+    public static ScatterGatherQuery parse(String sql, Object... params) {
+        String trimmed = sql.strip();
+        if (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).stripTrailing();
+        }
+        Object[] safeParams = params != null ? params : new Object[0];
+
+        int orderBy = lastTopLevel(trimmed, "ORDER BY");
+        int limitAt = lastTopLevel(trimmed, "LIMIT");
+        int offsetAt = lastTopLevel(trimmed, "OFFSET");
+        if (limitAt < orderBy) {
+            limitAt = -1;
+        }
+        if (offsetAt < Math.max(orderBy, limitAt)) {
+            offsetAt = -1;
+        }
+
+        int clausesStart = firstNonNegative(orderBy, limitAt, offsetAt, trimmed.length());
+        String head = trimmed.substring(0, clausesStart).stripTrailing();
+        List<Integer> consumedParams = new ArrayList<>();
+
+        List<SortKey> sortKeys = new ArrayList<>();
+        StringBuilder orderClause = new StringBuilder();
+        if (orderBy >= 0) {
+            String items = trimmed.substring(orderBy + "ORDER BY".length(), firstNonNegative(limitAt, offsetAt, trimmed.length()));
+            for (String item : splitTopLevel(items)) {
+                SortKey sortKey = SortKey.parse(item);
+                sortKeys.add(sortKey);
+                orderClause.append(orderClause.length() == 0 ? " ORDER BY " : ", ").append(sortKey.sql());
+            }
+        }
+
+        long limit = -1;
+        if (limitAt >= 0) {
+            String value = trimmed.substring(limitAt + "LIMIT".length(), offsetAt >= 0 ? offsetAt : trimmed.length()).strip();
+            limit = count(value, trimmed, limitAt, safeParams, consumedParams);
+        }
+        long offset = 0;
+        if (offsetAt >= 0) {
+            String value = trimmed.substring(offsetAt + "OFFSET".length()).strip();
+            value = value.replaceFirst("(?i)\\s+ROWS?$", "");
+            offset = count(value, trimmed, offsetAt, safeParams, consumedParams);
+        }
+
+        StringBuilder shardSql = new StringBuilder(head).append(orderClause);
+        if (limit >= 0) {
+            shardSql.append(" LIMIT ").append(limit + offset);
+        }
+        Object[] shardParams = new Object[safeParams.length - consumedParams.size()];
+        for (int i = 0, j = 0; i < safeParams.length; i++) {
+            if (!consumedParams.contains(i)) {
+                shardParams[j++] = safeParams[i];
+            }
+        }
+        return new ScatterGatherQuery(shardSql.toString(), shardParams, sortKeys, limit, offset);
+    }
+
+    public String getShardSql() {
+        return shardSql;
+    }
+
+    public Object[] getShardParams() {
+        return shardParams;
+    }
+
+    public boolean isOrdered() {
+        return !sortKeys.isEmpty();
+    }
+
+    /**
+     * Gets the maximum number of merged rows to return.
+     *
+     * @return the limit, or -1 for no limit
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the order of the merged rows.
+     *
+     * The comparator throws an {@link IllegalArgumentException} when it meets text in a sort key that does not
+     * declare the {@code "C"} collation.
+     *
+     * @param columns the result columns, in order, to resolve sort keys given by position
+     * @return the comparator
+     */
+    public Comparator<Map<String, Object>> comparator(List<String> columns) {
+        Comparator<Map<String, Object>> comparator = null;
+        for (SortKey sortKey : sortKeys) {
+            String column = sortKey.position > 0 ? columns.get(sortKey.position - 1) : sortKey.column;
+            Comparator<Map<String, Object>> next = (a, b) -> sortKey.compare(a.get(column), b.get(column));
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static long count(String value, String sql, int clauseStart, Object[] params, List<Integer> consumedParams) {
+        if ("?".equals(value)) {
+            int index = countPlaceholders(sql, clauseStart);
+            if (index >= params.length) {
+                throw new IllegalArgumentException("Missing parameter for " + sql.substring(clauseStart));
+            }
+            consumedParams.add(index);
+            return ((Number) params[index]).longValue();
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unsupported row count in " + sql.substring(clauseStart), e);
+        }
+    }
+
+    private static int firstNonNegative(int... positions) {
+        return Arrays.stream(positions).filter(position -> position >= 0).findFirst().orElse(-1);
+    }
+
+    /**
+     * Finds the last occurrence of a keyword outside of parentheses, quotes and comments.
+     */
+    private static int lastTopLevel(String sql, String keyword) {
+        int found = -1;
+        int depth = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = sql.indexOf(c, i + 1);
+                if (i < 0) {
+                    break;
+                }
+            } else if (c == '-' && sql.startsWith("--", i)) {
+                i = sql.indexOf('\n', i);
+                if (i < 0) {
+                    break;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && matchesKeyword(sql, i, keyword)) {
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    private static boolean matchesKeyword(String sql, int at, String keyword) {
+        if (at > 0 && isWordChar(sql.charAt(at - 1))) {
+            return false;
+        }
+        int i = at;
+        for (String word : keyword.split(" ")) {
+            if (!sql.regionMatches(true, i, word, 0, word.length())) {
+                return false;
+            }
+            i += word.length();
+            if (i < sql.length() && isWordChar(sql.charAt(i))) {
+                return false;
+            }
+            while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                i++;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static int countPlaceholders(String sql, int end) {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = sql.indexOf(c, i + 1);
+                if (i < 0) {
+                    break;
+                }
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static List<String> splitTopLevel(String items) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < items.length(); i++) {
+            char c = items.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(items.substring(start, i).strip());
+                start = i + 1;
+            }
+        }
+        parts.add(items.substring(start).strip());
+        return parts;
+    }
+
+    /**
+     * One item of an {@code ORDER BY} clause.
+     */
+    private static final class SortKey {
+        final String expression;
+        final String column;
+        final int position;
+        final boolean binaryCollation;
+        final boolean descending;
+        final boolean nullsFirst;
+
+        private SortKey(String expression, String column, int position, boolean binaryCollation, boolean descending,
+                        boolean nullsFirst) {
+            this.expression = expression;
+            this.column = column;
+            this.position = position;
+            this.binaryCollation = binaryCollation;
+            this.descending = descending;
+            this.nullsFirst = nullsFirst;
+        }
+
+        static SortKey parse(String item) {
+            Matcher matcher = SORT_ITEM.matcher(item.strip());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Unsupported ORDER BY item: " + item);
+            }
+            String expression = matcher.group(1).strip();
+            String collation = matcher.group(2);
+            boolean descending = "DESC".equalsIgnoreCase(matcher.group(3));
+            // Without an explicit null ordering, nulls sort as the largest values, as in PostgreSQL
+            boolean nullsFirst = matcher.group(4) != null ? "FIRST".equalsIgnoreCase(matcher.group(4)) : descending;
+
+            if (POSITION.matcher(expression).matches()) {
+                if (collation != null) {
+                    throw new IllegalArgumentException(
+                            "A sort key given by position cannot declare a collation; order by an alias for: " + item);
+                }
+                return new SortKey(expression, null, Integer.parseInt(expression), false, descending, nullsFirst);
+            }
+            Matcher column = COLUMN.matcher(expression);
+            if (!column.matches()) {
+                throw new IllegalArgumentException(
+                        "Rows from all shards can only be merged by result columns; select and order by an alias for: "
+                                + expression);
+            }
+            if (collation != null && !"\"C\"".equals(collation) && !"C".equalsIgnoreCase(collation)) {
+                throw new IllegalArgumentException(
+                        "Rows from all shards can only be merged by text in the \"C\" collation: " + item);
+            }
+            String name = column.group(1);
+            if (name.startsWith("\"")) {
+                name = name.substring(1, name.length() - 1);
+            }
+            boolean binaryCollation = collation != null;
+            return new SortKey(binaryCollation ? expression + " COLLATE \"C\"" : expression, name, 0, binaryCollation,
+                    descending, nullsFirst);
+        }
+
+        String sql() {
+            return expression + (descending ? " DESC" : " ASC") + (nullsFirst ? " NULLS FIRST" : " NULLS LAST");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        int compare(Object a, Object b) {
+            if (a == null || b == null) {
+                if (a == b) {
+                    return 0;
+                }
+                return (a == null) == nullsFirst ? -1 : 1;
+            }
+            int result;
+            if (a instanceof String textA && b instanceof String textB) {
+                if (!binaryCollation) {
+                    throw new IllegalArgumentException("Rows from all shards are ordered by text in " + expression
+                            + "; declare COLLATE \"C\" so that every shard sorts the text the way it is merged");
+                }
+                result = compareCodePoints(textA, textB);
+            } else if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+                result = new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+            } else if (a instanceof Comparable && a.getClass() == b.getClass()) {
+                result = ((Comparable) a).compareTo(b);
+            } else {
+                result = a.toString().compareTo(b.toString());
+            }
+            return descending ? -result : result;
+        }
+
+        /**
+         * Compares text by code point, as the "C" collation does; {@link String#compareTo} compares UTF-16 units,
+         * which order supplementary characters differently.
+         */
+        private static int compareCodePoints(String a, String b) {
+            int i = 0;
+            int j = 0;
+            while (i < a.length() && j < b.length()) {
+                int codePointA = a.codePointAt(i);
+                int codePointB = b.codePointAt(j);
+                if (codePointA != codePointB) {
+                    return Integer.compare(codePointA, codePointB);
+                }
+                i += Character.charCount(codePointA);
+                j += Character.charCount(codePointB);
+            }
+            return Boolean.compare(i < a.length(), j < b.length());
+        }
+    }
+}
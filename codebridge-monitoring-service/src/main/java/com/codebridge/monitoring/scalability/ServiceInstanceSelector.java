@@ -3,6 +3,7 @@ package com.codebridge.monitoring.scalability.loadbalancer;
 import org.springframework.cloud.client.ServiceInstance;
 
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Interface for selecting service instances based on load balancing strategies.
@@ -33,5 +34,43 @@ public interface ServiceInstanceSelector {
      * @param instanceId the instance ID
      */
     void markInstanceHealthy(String serviceId, String instanceId);
+
+    /**
+     * Reports the completion of a request sent to a selected instance.
+     *
+     * @param serviceId the service ID
+     * @param instance the instance the request was sent to
+     * @param durationNanos the time the request took, in nanoseconds
+     * @param success whether the request succeeded
+     */
+    default void requestCompleted(String serviceId, ServiceInstance instance, long durationNanos, boolean success) {
+    }
+
+    /**
+     * Selects an instance, sends a request to it and reports the request's completion, so the load balancing
+     * strategy sees the in-flight requests and latency of every instance without the caller having to report them.
+     *
+     * @param serviceId the service ID
+     * @param requestId the request ID (for consistent hashing)
+     * @param request sends the request to the selected instance
+     * @param <T> the type of the response
+     * @return an optional containing the response, or empty if no instance is available or the response is null
+     */
+    default <T> Optional<T> execute(String serviceId, String requestId, Function<ServiceInstance, T> request) {
+        Optional<ServiceInstance> instance = selectInstance(serviceId, requestId);
+        if (instance.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T response = request.apply(instance.get());
+            success = true;
+            return Optional.ofNullable(response);
+        } finally {
+            requestCompleted(serviceId, instance.get(), System.nanoTime() - start, success);
+        }
+    }
 }
 
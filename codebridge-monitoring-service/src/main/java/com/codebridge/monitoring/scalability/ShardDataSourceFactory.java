@@ -0,0 +1,118 @@
+package com.codebridge.monitoring.scalability.resilience.impl;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+/**
+ * Creates the connection pool of each shard.
+ * The JDBC URL and the optional schema are templates in which {@code {shard}} is replaced by the shard ID, so the
+ * shards can be separate databases, e.g. {@code jdbc:h2:mem:codebridge_shard_{shard};DB_CLOSE_DELAY=-1}, or schemas
+ * of one database, e.g. the URL {@code jdbc:postgresql://db:5432/codebridge} with the schema {@code shard_{shard}}.
+ * A schema is created if it does not exist, and the optional schema script runs on every shard when its pool is
+ * created, so it has to be idempotent.
+ */
+@Slf4j
+public class ShardDataSourceFactory {
+
+    private static final String SHARD_PLACEHOLDER = "{shard}";
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final String urlTemplate;
+    private final String schemaTemplate;
+    private final String username;
+    private final String password;
+    private final int maximumPoolSize;
+    private final int minimumIdle;
+    private final String schemaLocation;
+
+    /**
+     * Creates a new ShardDataSourceFactory.
+     *
+     * @param urlTemplate the JDBC URL template
+     * @param schemaTemplate the schema template, or blank to use the default schema
+     * @param username the database user
+     * @param password the database password
+     * @param maximumPoolSize the maximum number of connections per shard
+     * @param minimumIdle the minimum number of idle connections per shard
+     * @param schemaLocation the location of the schema script, or blank for none
+     */
+    public ShardDataSourceFactory(String urlTemplate, String schemaTemplate, String username, String password,
+                                  int maximumPoolSize, int minimumIdle, String schemaLocation) {
+        this.urlTemplate = urlTemplate;
+        this.schemaTemplate = schemaTemplate;
+        this.username = username;
+        this.password = password;
+        this.maximumPoolSize = maximumPoolSize;
+        this.minimumIdle = minimumIdle;
+        this.schemaLocation = schemaLocation;
+    }
+
+    /**
+     * Gets the JDBC URL of a shard.
+     *
+     * @param shardId the shard ID
+     * @return the JDBC URL
+     */
+    public String getUrl(int shardId) {
+        return urlTemplate.replace(SHARD_PLACEHOLDER, String.valueOf(shardId));
+    }
+
+    /**
+     * Creates the connection pool of a shard.
+     *
+     * @param shardId the shard ID
+     * @return the connection pool
+     */
+    public HikariDataSource create(int shardId) {
+        String url = getUrl(shardId);
+        String schema = schemaTemplate == null || schemaTemplate.isBlank()
+                ? null
+                : schemaTemplate.replace(SHARD_PLACEHOLDER, String.valueOf(shardId));
+        if (schema != null) {
+            createSchema(url, schema);
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("shard-" + shardId);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setSchema(schema);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(minimumIdle);
+        HikariDataSource dataSource = new HikariDataSource(config);
+
+        if (schemaLocation != null && !schemaLocation.isBlank()) {
+            try {
+                new ResourceDatabasePopulator(new DefaultResourceLoader().getResource(schemaLocation)).execute(dataSource);
+            } catch (RuntimeException e) {
+                dataSource.close();
+                throw e;
+            }
+        }
+        log.info("Opened shard {} at {}{}", shardId, url, schema != null ? " (schema " + schema + ")" : "");
+        return dataSource;
+    }
+
+    private void createSchema(String url, String schema) {
+        if (!SCHEMA_NAME.matcher(schema).matches()) {
+            throw new IllegalArgumentException("Invalid shard schema name: " + schema);
+        }
+        // The pool would select the schema on every new connection, so it has to exist first
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create shard schema " + schema, e);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.codebridge.monitoring.scalability.resilience.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Maps keys to shards through partitions of an ordered token space.
+ * Each partition covers the tokens from its lower bound up to the lower bound of the next one and belongs to
+ * exactly one shard. With the hash strategy a key's token is a 64-bit hash of the key written as fixed-width hex,
+ * so the partitions are equal slices of the hash space; with the range strategy the token is the key itself, so
+ * neighbouring keys share a shard and range partitions are split at data-driven points.
+ * The map is persisted in the primary database. A partition being moved to another shard keeps its current
+ * owner until the move commits and records the target meanwhile, so an interrupted rebalance can be resumed.
+ */
+public class ShardMap {
+
+    static final String TABLE = "codebridge_shard_map";
+
+    private static final int TOKEN_WIDTH = 16;
+
+    /**
+     * How keys are turned into tokens.
+     */
+    public enum Strategy {
+        HASH, RANGE;
+
+        static Strategy of(String name) {
+            switch (name.toLowerCase()) {
+                case "hash":
+                case "consistent":
+                    return HASH;
+                case "range":
+                    return RANGE;
+                default:
+                    throw new IllegalArgumentException("Unsupported partitioning strategy: " + name);
+            }
+        }
+    }
+
+    /**
+     * A partition of the token space.
+     *
+     * @param lowerBound the smallest token of the partition
+     * @param shardId the shard that owns the partition
+     * @param targetShardId the shard the partition is being moved to, or null
+     */
+    public record Partition(String lowerBound, int shardId, Integer targetShardId) {
+    }
+
+    /**
+     * A partition to move from one shard to another.
+     */
+    public record Move(String lowerBound, int fromShard, int toShard) {
+    }
+
+    private final Strategy strategy;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Replaced as a whole on every change, so lookups never see a half-applied change
+    private volatile NavigableMap<String, Partition> partitions;
+
+    private ShardMap(Strategy strategy, JdbcTemplate jdbcTemplate, NavigableMap<String, Partition> partitions) {
+        this.strategy = strategy;
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Loads the persisted shard map, or creates and persists an initial one.
+     *
+     * @param strategy the partitioning strategy
+     * @param shardCount the number of shards for an initial map
+     * @param hashPartitions the number of partitions of an initial hash map
+     * @param jdbcTemplate the template of the primary database
+     * @return the shard map
+     */
+    public static ShardMap loadOrCreate(Strategy strategy, int shardCount, int hashPartitions, JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                + "lower_bound VARCHAR(1024) NOT NULL PRIMARY KEY, "
+                + "shard_id INT NOT NULL, "
+                + "target_shard_id INT, "
+                + "strategy VARCHAR(16) NOT NULL)");
+
+        NavigableMap<String, Partition> stored = new TreeMap<>();
+        List<String> strategies = new ArrayList<>();
+        jdbcTemplate.query("SELECT lower_bound, shard_id, target_shard_id, strategy FROM " + TABLE, rs -> {
+            String lowerBound = rs.getString("lower_bound");
+            Integer target = rs.getObject("target_shard_id", Integer.class);
+            stored.put(lowerBound, new Partition(lowerBound, rs.getInt("shard_id"), target));
+            strategies.add(rs.getString("strategy"));
+        });
+
+        if (!stored.isEmpty()) {
+            if (strategies.stream().anyMatch(name -> !strategy.name().equals(name))) {
+                throw new IllegalStateException("The persisted shard map uses the " + strategies.get(0)
+                        + " strategy; changing the strategy of existing shards is not supported");
+            }
+            return new ShardMap(strategy, jdbcTemplate, stored);
+        }
+
+        NavigableMap<String, Partition> initial = strategy == Strategy.HASH
+                ? initialHashPartitions(shardCount, hashPartitions)
+                : initialRangePartitions(shardCount);
+        jdbcTemplate.batchUpdate("INSERT INTO " + TABLE + " (lower_bound, shard_id, target_shard_id, strategy) VALUES (?, ?, NULL, ?)",
+                initial.values().stream()
+                        .map(partition -> new Object[] {partition.lowerBound(), partition.shardId(), strategy.name()})
+                        .toList());
+        return new ShardMap(strategy, jdbcTemplate, initial);
+    }
+
+    private static NavigableMap<String, Partition> initialHashPartitions(int shardCount, int partitionCount) {
+        NavigableMap<String, Partition> initial = new TreeMap<>();
+        // Equal slices of the unsigned 64-bit hash space, dealt out to the shards in turn
+        long step = Long.divideUnsigned(-1L, partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            String lowerBound = i == 0 ? "" : hex(step * i);
+            initial.put(lowerBound, new Partition(lowerBound, i % shardCount, null));
+        }
+        return initial;
+    }
+
+    private static NavigableMap<String, Partition> initialRangePartitions(int shardCount) {
+        NavigableMap<String, Partition> initial = new TreeMap<>();
+        // Without data to go by, the printable ASCII range is split evenly; rebalancing splits by data later
+        for (int i = 0; i < shardCount; i++) {
+            String lowerBound = i == 0 ? "" : String.valueOf((char) (' ' + i * ('~' - ' ') / shardCount));
+            initial.put(lowerBound, new Partition(lowerBound, i, null));
+        }
+        return initial;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Gets the token of a key.
+     *
+     * @param key the key
+     * @return the token
+     */
+    public String token(String key) {
+        return strategy == Strategy.HASH ? hex(hash(key)) : key;
+    }
+
+    /**
+     * Gets the partition that holds a key.
+     *
+     * @param key the key
+     * @return the partition
+     */
+    public Partition partitionFor(String key) {
+        return partitions.floorEntry(token(key)).getValue();
+    }
+
+    /**
+     * Gets the shard that owns a key.
+     *
+     * @param key the key
+     * @return the shard ID
+     */
+    public int shardFor(String key) {
+        return partitionFor(key).shardId();
+    }
+
+    /**
+     * Gets the upper bound of a partition.
+     *
+     * @param lowerBound the lower bound of the partition
+     * @return the lower bound of the next partition, or null for the last partition
+     */
+    public String upperBound(String lowerBound) {
+        return partitions.higherKey(lowerBound);
+    }
+
+    public List<Partition> getPartitions() {
+        return new ArrayList<>(partitions.values());
+    }
+
+    /**
+     * Gets the shards that own at least one partition.
+     *
+     * @return the shard IDs, sorted
+     */
+    public List<Integer> getShardIds() {
+        return partitions.values().stream().map(Partition::shardId).distinct().sorted().toList();
+    }
+
+    /**
+     * Gets the moves of a rebalance that has been planned but not completed.
+     *
+     * @return the pending moves
+     */
+    public List<Move> pendingMoves() {
+        return partitions.values().stream()
+                .filter(partition -> partition.targetShardId() != null)
+                .map(partition -> new Move(partition.lowerBound(), partition.shardId(), partition.targetShardId()))
+                .toList();
+    }
+
+    /**
+     * Plans the partition moves that spread the partitions over the given number of shards.
+     * Partitions of shards that go away are moved, as are partitions of shards holding more than their share;
+     * everything else stays where it is, so growing from n to n + 1 shards moves about 1/(n + 1) of the data.
+     *
+     * @param shardCount the number of shards to spread the partitions over
+     * @param weight the weight of a partition, e.g. the number of rows in it
+     * @return the moves
+     */
+    public List<Move> planMoves(int shardCount, ToLongFunction<Partition> weight) {
+        Map<Integer, List<Partition>> owned = new HashMap<>();
+        for (int shardId = 0; shardId < shardCount; shardId++) {
+            owned.put(shardId, new ArrayList<>());
+        }
+        List<Partition> unassigned = new ArrayList<>();
+        Map<Partition, Long> weights = new HashMap<>();
+        long total = 0;
+        for (Partition partition : partitions.values()) {
+            long partitionWeight = Math.max(1, weight.applyAsLong(partition));
+            weights.put(partition, partitionWeight);
+            total += partitionWeight;
+            List<Partition> shard = owned.get(partition.shardId());
+            if (shard != null) {
+                shard.add(partition);
+            } else {
+                unassigned.add(partition);
+            }
+        }
+
+        long[] loads = new long[shardCount];
+        long target = (total + shardCount - 1) / shardCount;
+        for (Map.Entry<Integer, List<Partition>> entry : owned.entrySet()) {
+            List<Partition> shard = entry.getValue();
+            shard.sort(Comparator.comparing(weights::get));
+            long load = shard.stream().mapToLong(weights::get).sum();
+            // Give up the lightest partitions for as long as the shard stays above its share
+            while (!shard.isEmpty() && load - weights.get(shard.get(0)) >= target) {
+                Partition partition = shard.remove(0);
+                load -= weights.get(partition);
+                unassigned.add(partition);
+            }
+            loads[entry.getKey()] = load;
+        }
+
+        // Heaviest first, each to the shard with the least load
+        unassigned.sort(Comparator.comparing(weights::get, Collections.reverseOrder()));
+        List<Move> moves = new ArrayList<>();
+        for (Partition partition : unassigned) {
+            int lightest = 0;
+            for (int shardId = 1; shardId < shardCount; shardId++) {
+                if (loads[shardId] < loads[lightest]) {
+                    lightest = shardId;
+                }
+            }
+            loads[lightest] += weights.get(partition);
+            if (lightest != partition.shardId()) {
+                moves.add(new Move(partition.lowerBound(), partition.shardId(), lightest));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Splits a partition. Both halves stay on the shard of the original partition.
+     *
+     * @param lowerBound the lower bound of the partition to split
+     * @param splitPoint the lower bound of the new upper half
+     */
+    public synchronized void split(String lowerBound, String splitPoint) {
+        Partition partition = partitions.get(lowerBound);
+        String upperBound = upperBound(lowerBound);
+        if (partition == null || splitPoint.compareTo(lowerBound) <= 0
+                || (upperBound != null && splitPoint.compareTo(upperBound) >= 0)) {
+            throw new IllegalArgumentException("Split point " + splitPoint + " is not inside partition " + lowerBound);
+        }
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (lower_bound, shard_id, target_shard_id, strategy) VALUES (?, ?, NULL, ?)",
+                splitPoint, partition.shardId(), strategy.name());
+
+        NavigableMap<String, Partition> updated = new TreeMap<>(partitions);
+        updated.put(splitPoint, new Partition(splitPoint, partition.shardId(), null));
+        partitions = updated;
+    }
+
+    /**
+     * Records the target shards of planned moves, before any data is copied.
+     *
+     * @param moves the planned moves
+     */
+    public synchronized void begin(List<Move> moves) {
+        jdbcTemplate.batchUpdate("UPDATE " + TABLE + " SET target_shard_id = ? WHERE lower_bound = ?",
+                moves.stream().map(move -> new Object[] {move.toShard(), move.lowerBound()}).toList());
+
+        NavigableMap<String, Partition> updated = new TreeMap<>(partitions);
+        for (Move move : moves) {
+            updated.computeIfPresent(move.lowerBound(),
+                    (lowerBound, partition) -> new Partition(lowerBound, partition.shardId(), move.toShard()));
+        }
+        partitions = updated;
+    }
+
+    /**
+     * Hands partitions over to their target shards once their data has been copied.
+     *
+     * @param moves the completed moves
+     */
+    public synchronized void commit(List<Move> moves) {
+        jdbcTemplate.batchUpdate("UPDATE " + TABLE + " SET shard_id = ?, target_shard_id = NULL WHERE lower_bound = ?",
+                moves.stream().map(move -> new Object[] {move.toShard(), move.lowerBound()}).toList());
+
+        NavigableMap<String, Partition> updated = new TreeMap<>(partitions);
+        for (Move move : moves) {
+            updated.computeIfPresent(move.lowerBound(),
+                    (lowerBound, partition) -> new Partition(lowerBound, move.toShard(), null));
+        }
+        partitions = updated;
+    }
+
+    private static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return "0".repeat(TOKEN_WIDTH - hex.length()) + hex;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of a key, finished with the MurmurHash3 mixer.
+     * The hash is persisted through the partition bounds, so it must never change.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
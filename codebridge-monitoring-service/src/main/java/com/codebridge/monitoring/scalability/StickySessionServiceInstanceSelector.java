@@ -58,6 +58,11 @@ public class StickySessionServiceInstanceSelector implements ServiceInstanceSele
     public void markInstanceHealthy(String serviceId, String instanceId) {
         delegate.markInstanceHealthy(serviceId, instanceId);
     }
+
+    @Override
+    public void requestCompleted(String serviceId, ServiceInstance instance, long durationNanos, boolean success) {
+        delegate.requestCompleted(serviceId, instance, durationNanos, success);
+    }
     
     private Optional<String> getInstanceIdFromSession(String serviceId) {
         HttpServletRequest request = getCurrentRequest();
@@ -0,0 +1,134 @@
+package com.codebridge.monitoring.performance.benchmark;
+
+import com.codebridge.monitoring.performance.alerting.AlertEvaluationEngine;
+import com.codebridge.monitoring.performance.alerting.AlertEvaluationEngine.RuleEvaluation;
+import com.codebridge.monitoring.performance.model.AlertRule;
+import com.codebridge.monitoring.performance.model.AlertSeverity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the time of one alert check cycle against the number of rules, comparing the
+ * previous rule-by-rule evaluation with the batched {@link AlertEvaluationEngine}.
+ * Window queries are simulated with a fixed latency, standing in for the time-series store round trip.
+ * Run with {@code java -cp <test classpath> com.codebridge.monitoring.performance.benchmark.AlertEvaluationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlertEvaluationBenchmark {
+
+    private static final String[] AGGREGATIONS = {"mean", "max", "p95"};
+    private static final long[] EVALUATION_PERIODS = {60_000L, 300_000L, 900_000L};
+
+    @Param({"100", "1000", "10000"})
+    private int ruleCount;
+
+    /**
+     * Average number of rules watching the same series window.
+     */
+    @Param({"1", "10"})
+    private int rulesPerWindow;
+
+    @Param({"100"})
+    private long queryLatencyMicros;
+
+    private List<AlertRule> rules;
+    private ExecutorService executor;
+    private AlertEvaluationEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int windows = Math.max(1, ruleCount / rulesPerWindow);
+        rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            int window = random.nextInt(windows);
+            AlertRule rule = new AlertRule();
+            rule.setId(UUID.randomUUID());
+            rule.setName("rule-" + i);
+            rule.setServiceName("service-" + window % 50);
+            rule.setMetricName("metric-" + window);
+            rule.setEvaluationPeriod(EVALUATION_PERIODS[window % EVALUATION_PERIODS.length]);
+            rule.setAggregation(AGGREGATIONS[window % AGGREGATIONS.length]);
+            rule.setOperator(AlertRule.Operator.values()[random.nextInt(AlertRule.Operator.values().length)]);
+            rule.setThreshold(random.nextDouble() * 100);
+            rule.setSeverity(AlertSeverity.WARNING);
+            rule.setEnabled(true);
+            rules.add(rule);
+        }
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(parallelism);
+        engine = new AlertEvaluationEngine(this::query, executor, parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public int ruleByRule() {
+        Instant now = Instant.now();
+        int violated = 0;
+        for (AlertRule rule : rules) {
+            double value = query(rule.getServiceName(), rule.getMetricName(),
+                    now.minusMillis(rule.getEvaluationPeriod()), now, rule.getAggregation());
+            if (AlertEvaluationEngine.isThresholdViolated(rule.getOperator(), value, rule.getThreshold())) {
+                violated++;
+            }
+        }
+        return violated;
+    }
+
+    @Benchmark
+    public int batched() {
+        int violated = 0;
+        for (RuleEvaluation evaluation : engine.evaluate(rules, Instant.now())) {
+            if (evaluation.violated()) {
+                violated++;
+            }
+        }
+        return violated;
+    }
+
+    private double query(String serviceName, String metricName, Instant startTime, Instant endTime, String aggregation) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(queryLatencyMicros));
+        return (metricName.hashCode() & 0xFFFF) % 100;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AlertEvaluationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
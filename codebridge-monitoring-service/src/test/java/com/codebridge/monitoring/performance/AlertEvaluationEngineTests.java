@@ -0,0 +1,58 @@
+package com.codebridge.monitoring.performance.alerting;
+
+import com.codebridge.monitoring.performance.alerting.AlertEvaluationEngine.RuleEvaluation;
+import com.codebridge.monitoring.performance.model.AlertRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertEvaluationEngineTests {
+
+    private static AlertRule rule(String metricName, AlertRule.Operator operator, double threshold) {
+        AlertRule rule = new AlertRule();
+        rule.setId(UUID.randomUUID());
+        rule.setServiceName("orders");
+        rule.setMetricName(metricName);
+        rule.setOperator(operator);
+        rule.setThreshold(threshold);
+        rule.setEvaluationPeriod(60_000);
+        rule.setAggregation("mean");
+        return rule;
+    }
+
+    @Test
+    void evaluate_checksEveryRuleOfAGroupAgainstOneQuery() {
+        int[] queries = new int[1];
+        AlertEvaluationEngine engine = new AlertEvaluationEngine((service, metric, start, end, aggregation) -> {
+            queries[0]++;
+            return 150.0;
+        }, Runnable::run, 1);
+        AlertRule above = rule("latency", AlertRule.Operator.GREATER_THAN, 100);
+        AlertRule below = rule("latency", AlertRule.Operator.LESS_THAN, 100);
+
+        List<RuleEvaluation> evaluations = engine.evaluate(List.of(above, below), Instant.now());
+
+        assertEquals(1, queries[0]);
+        assertEquals(2, evaluations.size());
+        assertTrue(evaluations.get(0).violated());
+        assertFalse(evaluations.get(1).violated());
+    }
+
+    @Test
+    void evaluate_leavesOutRulesOfWindowsWithoutData() {
+        AlertEvaluationEngine engine = new AlertEvaluationEngine((service, metric, start, end, aggregation) ->
+                metric.equals("latency") ? Double.NaN : 5.0, Runnable::run, 1);
+        AlertRule noData = rule("latency", AlertRule.Operator.LESS_THAN, 100);
+        AlertRule withData = rule("errors", AlertRule.Operator.GREATER_THAN, 1);
+
+        List<RuleEvaluation> evaluations = engine.evaluate(List.of(noData, withData), Instant.now());
+
+        assertEquals(1, evaluations.size());
+        assertSame(withData, evaluations.get(0).rule());
+        assertTrue(evaluations.get(0).violated());
+    }
+}
@@ -0,0 +1,223 @@
+package com.codebridge.monitoring.performance.service;
+
+import com.codebridge.monitoring.performance.model.AlertRule;
+import com.codebridge.monitoring.performance.model.AlertSeverity;
+import com.codebridge.monitoring.performance.model.AlertStatus;
+import com.codebridge.monitoring.performance.model.PerformanceAlert;
+import com.codebridge.monitoring.performance.repository.AlertRuleRepository;
+import com.codebridge.monitoring.performance.repository.PerformanceAlertRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AlertingServiceTests {
+
+    @Mock private AlertRuleRepository alertRuleRepository;
+    @Mock private PerformanceAlertRepository alertRepository;
+    @Mock private TimeSeriesService timeSeriesService;
+
+    // Saves and webhook notifications, in the order they happened
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    // Snapshots of the alerts passed to each saveAll, taken when it was called
+    private final List<List<PerformanceAlert>> savedBatches = new ArrayList<>();
+    private final AtomicBoolean saveFails = new AtomicBoolean();
+    private final double[] metricValue = {0};
+    private HttpServer webhook;
+    private AlertingService service;
+    private AlertRule rule;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        webhook = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        webhook.createContext("/alerts", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            events.add("notify " + body);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        webhook.start();
+
+        rule = new AlertRule();
+        rule.setId(UUID.randomUUID());
+        rule.setName("High latency");
+        rule.setServiceName("orders");
+        rule.setMetricName("latency");
+        rule.setOperator(AlertRule.Operator.GREATER_THAN);
+        rule.setThreshold(100);
+        rule.setEvaluationPeriod(60_000);
+        rule.setAggregation("mean");
+        rule.setSeverity(AlertSeverity.WARNING);
+        rule.setEnabled(true);
+
+        service = new AlertingService(alertRuleRepository, alertRepository, timeSeriesService);
+        ReflectionTestUtils.setField(service, "alertingEnabled", true);
+        ReflectionTestUtils.setField(service, "checkInterval", 60_000L);
+        ReflectionTestUtils.setField(service, "webhookNotificationEnabled", true);
+        ReflectionTestUtils.setField(service, "webhookUrl",
+                "http://localhost:" + webhook.getAddress().getPort() + "/alerts");
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        webhook.stop(0);
+    }
+
+    /**
+     * Serves the rule and the metric, and makes saveAll behave like JPA: new alerts get an ID when persisted,
+     * which a failing commit does not undo.
+     */
+    private void stubRepositories() {
+        when(alertRuleRepository.findByEnabled(true)).thenReturn(List.of(rule));
+        when(alertRepository.findByStatus(any())).thenReturn(List.of());
+        when(timeSeriesService.queryAggregatedMetric(eq("orders"), eq("latency"), any(), any(), anyString()))
+                .thenAnswer(invocation -> metricValue[0]);
+        when(alertRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<PerformanceAlert> alerts = invocation.getArgument(0);
+            List<PerformanceAlert> snapshot = new ArrayList<>();
+            for (PerformanceAlert alert : alerts) {
+                PerformanceAlert copy = new PerformanceAlert();
+                copy.setId(alert.getId());
+                copy.setStatus(alert.getStatus());
+                copy.setCurrentValue(alert.getCurrentValue());
+                snapshot.add(copy);
+                if (alert.getId() == null) {
+                    alert.setId(UUID.randomUUID());
+                }
+            }
+            savedBatches.add(snapshot);
+            if (saveFails.get()) {
+                throw new DataAccessResourceFailureException("database unavailable");
+            }
+            events.add("save");
+            return alerts;
+        });
+    }
+
+    private PerformanceAlert openAlert() {
+        @SuppressWarnings("unchecked")
+        Map<UUID, PerformanceAlert> openAlerts =
+                (Map<UUID, PerformanceAlert>) ReflectionTestUtils.getField(service, "openAlerts");
+        return openAlerts.get(rule.getId());
+    }
+
+    @Test
+    void checkAlertRules_notifiesARaisedAlertAfterItIsSaved() {
+        stubRepositories();
+        metricValue[0] = 150;
+
+        service.checkAlertRules();
+
+        PerformanceAlert alert = openAlert();
+        assertNotNull(alert.getId());
+        assertEquals(2, events.size());
+        assertEquals("save", events.get(0));
+        assertTrue(events.get(1).contains(alert.getId().toString()));
+    }
+
+    @Test
+    void checkAlertRules_writesValueUpdatesBehind() {
+        stubRepositories();
+        metricValue[0] = 150;
+        service.checkAlertRules();
+
+        metricValue[0] = 180;
+        service.checkAlertRules();
+        metricValue[0] = 200;
+        service.checkAlertRules();
+
+        // Ongoing alerts are not saved by the cycles, nor notified again
+        verify(alertRepository, times(1)).saveAll(any());
+        assertEquals(200, openAlert().getCurrentValue());
+
+        service.flushAlertState();
+        service.flushAlertState();
+
+        verify(alertRepository, times(2)).saveAll(any());
+        assertEquals(200, savedBatches.get(1).get(0).getCurrentValue());
+        // The flush saves without notifying again
+        assertEquals(3, events.size());
+        assertEquals("save", events.get(2));
+    }
+
+    @Test
+    void checkAlertRules_notifiesAResolvedAlertAfterItIsSaved() {
+        stubRepositories();
+        metricValue[0] = 150;
+        service.checkAlertRules();
+        UUID id = openAlert().getId();
+
+        metricValue[0] = 50;
+        service.checkAlertRules();
+
+        assertNull(openAlert());
+        assertEquals(AlertStatus.RESOLVED, savedBatches.get(1).get(0).getStatus());
+        assertEquals(4, events.size());
+        assertEquals("save", events.get(2));
+        assertTrue(events.get(3).contains("Resolved: ") && events.get(3).contains(id.toString()));
+    }
+
+    @Test
+    void checkAlertRules_clearsTheIdsOfAlertsWhoseSaveFailed() {
+        stubRepositories();
+        saveFails.set(true);
+        metricValue[0] = 150;
+
+        service.checkAlertRules();
+
+        // The failed batch assigned an ID that has no row; the alert must be inserted again, and not notified yet
+        assertNull(openAlert().getId());
+        assertTrue(events.isEmpty());
+
+        service.flushAlertState();
+        assertNull(openAlert().getId());
+        assertTrue(events.isEmpty());
+
+        saveFails.set(false);
+        service.flushAlertState();
+
+        PerformanceAlert alert = openAlert();
+        assertNull(savedBatches.get(2).get(0).getId());
+        assertNotNull(alert.getId());
+        assertEquals(2, events.size());
+        assertEquals("save", events.get(0));
+        assertTrue(events.get(1).contains(alert.getId().toString()));
+    }
+
+    @Test
+    void checkAlertRules_doesNothingWhenDisabled() {
+        ReflectionTestUtils.setField(service, "alertingEnabled", false);
+        metricValue[0] = 150;
+
+        service.checkAlertRules();
+
+        verify(alertRepository, never()).saveAll(any());
+        assertTrue(events.isEmpty());
+    }
+}
@@ -0,0 +1,50 @@
+package com.codebridge.monitoring.performance.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitWriterTests {
+
+    @Test
+    void writeBits_roundTripsThroughTheReader() {
+        Random random = new Random(42);
+        int[] counts = new int[2000];
+        long[] values = new long[counts.length];
+        // Start from a single byte so the buffer has to grow
+        BitWriter writer = new BitWriter(1);
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 1 + random.nextInt(64);
+            long value = random.nextLong();
+            values[i] = counts[i] == 64 ? value : value & ((1L << counts[i]) - 1);
+            writer.writeBits(value, counts[i]);
+        }
+
+        BitReader reader = new BitReader(writer.toByteArray());
+        for (int i = 0; i < counts.length; i++) {
+            assertEquals(values[i], reader.readBits(counts[i]), "value " + i + " of " + counts[i] + " bits");
+        }
+    }
+
+    @Test
+    void writeBits_writesTheMostSignificantBitFirst() {
+        BitWriter writer = new BitWriter(1);
+        writer.writeBit(true);
+        writer.writeBits(0b0101, 4);
+        writer.writeBits(0xFFFF_FFFF_FFFF_FFFFL, 64);
+
+        byte[] bytes = writer.toByteArray();
+
+        // 69 bits padded with zeros to 9 bytes
+        assertEquals(9, bytes.length);
+        assertEquals((byte) 0b1010_1111, bytes[0]);
+        assertEquals((byte) 0b1111_1000, bytes[8]);
+        BitReader reader = new BitReader(bytes);
+        assertTrue(reader.readBit());
+        assertEquals(0b0101, reader.readBits(4));
+        assertEquals(-1L, reader.readBits(64));
+        assertEquals(0, reader.readBits(3));
+    }
+}
@@ -0,0 +1,166 @@
+package com.codebridge.monitoring.performance.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockEncoderTests {
+
+    private static List<double[]> decode(BlockEncoder encoder) {
+        List<double[]> points = new ArrayList<>();
+        BlockDecoder.decode(encoder.toByteArray(), encoder.getCount(),
+                (timestamp, value) -> points.add(new double[] {timestamp, value}));
+        return points;
+    }
+
+    private static void assertRoundTrip(long[] timestamps, double[] values) {
+        BlockEncoder encoder = new BlockEncoder(0);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        long[] decodedTimestamps = new long[timestamps.length];
+        long[] decodedBits = new long[timestamps.length];
+        int[] index = new int[1];
+        BlockDecoder.decode(encoder.toByteArray(), encoder.getCount(), (timestamp, value) -> {
+            decodedTimestamps[index[0]] = timestamp;
+            decodedBits[index[0]++] = Double.doubleToRawLongBits(value);
+        });
+
+        assertEquals(timestamps.length, index[0]);
+        assertArrayEquals(timestamps, decodedTimestamps);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.doubleToRawLongBits(values[i]), decodedBits[i], "value " + i);
+        }
+    }
+
+    /**
+     * Encodes two points whose delta-of-delta is the given value and reads the control bits of the second.
+     */
+    private static long deltaOfDeltaControl(long deltaOfDelta) {
+        BlockEncoder encoder = new BlockEncoder(0);
+        encoder.append(1_000_000, 1.0);
+        encoder.append(1_000_000 + deltaOfDelta, 1.0);
+        BitReader reader = new BitReader(encoder.toByteArray());
+        reader.readBits(64);
+        reader.readBits(64);
+        long control = 0;
+        for (int bits = 0; bits < 4; bits++) {
+            boolean bit = reader.readBit();
+            control = (control << 1) | (bit ? 1 : 0);
+            if (!bit) {
+                break;
+            }
+        }
+        return control;
+    }
+
+    @Test
+    void append_roundTripsIrregularPointsAndSpecialValues() {
+        Random random = new Random(7);
+        int count = 1000;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        long timestamp = 1_700_000_000_000L;
+        double value = 100;
+        for (int i = 0; i < count; i++) {
+            timestamp += random.nextInt(10) == 0 ? random.nextInt(100_000) : 1000;
+            value += random.nextGaussian();
+            timestamps[i] = timestamp;
+            values[i] = value;
+        }
+        values[10] = Double.NaN;
+        values[11] = -0.0;
+        values[12] = Double.POSITIVE_INFINITY;
+        values[13] = Double.MIN_VALUE;
+        values[14] = values[13];
+
+        assertRoundTrip(timestamps, values);
+    }
+
+    @Test
+    void append_roundTripsDeltaOfDeltaBucketEdges() {
+        long[] edges = {-63, 64, -64, 65, -255, 256, -256, 257, -2047, 2048, -2048, 2049, Integer.MIN_VALUE, Long.MAX_VALUE / 4};
+        for (long deltaOfDelta : edges) {
+            // The first delta is taken against zero, so it is the delta-of-delta of the second point
+            assertRoundTrip(new long[] {1_000_000, 1_000_000 + deltaOfDelta, 1_000_000 + 2 * deltaOfDelta},
+                    new double[] {1, 2, 3});
+        }
+    }
+
+    @Test
+    void append_picksTheSmallestDeltaOfDeltaBucket() {
+        assertEquals(0b0, deltaOfDeltaControl(0));
+        assertEquals(0b10, deltaOfDeltaControl(-63));
+        assertEquals(0b10, deltaOfDeltaControl(64));
+        assertEquals(0b110, deltaOfDeltaControl(-64));
+        assertEquals(0b110, deltaOfDeltaControl(65));
+        assertEquals(0b110, deltaOfDeltaControl(-255));
+        assertEquals(0b110, deltaOfDeltaControl(256));
+        assertEquals(0b1110, deltaOfDeltaControl(-256));
+        assertEquals(0b1110, deltaOfDeltaControl(257));
+        assertEquals(0b1110, deltaOfDeltaControl(-2047));
+        assertEquals(0b1110, deltaOfDeltaControl(2048));
+        assertEquals(0b1111, deltaOfDeltaControl(-2048));
+        assertEquals(0b1111, deltaOfDeltaControl(2049));
+    }
+
+    @Test
+    void append_reusesTheXorWindowWhileTheMeaningfulBitsFit() {
+        long first = 0;
+        long second = 0x00F0_0000_0000_0000L;
+        // Fits in the window of the previous XOR: more leading and as many trailing zeros
+        long third = second ^ 0x0030_0000_0000_0000L;
+        // Does not fit: no trailing zeros, and only 31 leading zeros are recorded
+        long fourth = third ^ 1L;
+        BlockEncoder encoder = new BlockEncoder(0);
+        encoder.append(0, Double.longBitsToDouble(first));
+        encoder.append(1000, Double.longBitsToDouble(second));
+        encoder.append(2000, Double.longBitsToDouble(third));
+        encoder.append(3000, Double.longBitsToDouble(fourth));
+
+        BitReader reader = new BitReader(encoder.toByteArray());
+        reader.readBits(128);
+        // Second point: delta-of-delta 1000, new window of 8 leading and 52 trailing zeros
+        assertEquals(0b1110, reader.readBits(4));
+        reader.readBits(12);
+        assertEquals(0b11, reader.readBits(2));
+        assertEquals(8, reader.readBits(5));
+        assertEquals(3, reader.readBits(6));
+        assertEquals(0xF, reader.readBits(4));
+        // Third point: same delta, previous window reused
+        assertEquals(0, reader.readBits(1));
+        assertEquals(0b10, reader.readBits(2));
+        assertEquals(0x3, reader.readBits(4));
+        // Fourth point: new window
+        assertEquals(0, reader.readBits(1));
+        assertEquals(0b11, reader.readBits(2));
+        assertEquals(31, reader.readBits(5));
+        assertEquals(32, reader.readBits(6));
+        assertEquals(1, reader.readBits(33));
+
+        List<double[]> points = decode(encoder);
+        assertEquals(fourth, Double.doubleToRawLongBits(points.get(3)[1]));
+        assertEquals(third, Double.doubleToRawLongBits(points.get(2)[1]));
+    }
+
+    @Test
+    void summary_coversTheAppendedPoints() {
+        BlockEncoder encoder = new BlockEncoder(0);
+        encoder.append(10, 3);
+        encoder.append(20, -1);
+        encoder.append(30, 4);
+
+        Block summary = encoder.summary();
+
+        assertEquals(10, summary.getMinTimestamp());
+        assertEquals(30, summary.getMaxTimestamp());
+        assertEquals(3, summary.getCount());
+        assertEquals(-1, summary.getMin());
+        assertEquals(4, summary.getMax());
+        assertEquals(6, summary.getSum());
+    }
+}
@@ -0,0 +1,73 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcConnectionPolicyTests {
+
+    private final JdbcConnectionPolicy policy =
+            new JdbcConnectionPolicy(List.of("postgresql"), List.of("perf-db", "replica:5433"));
+
+    @Test
+    void check_acceptsAllowedDriverAndHost() {
+        assertDoesNotThrow(() -> policy.check("jdbc:postgresql://perf-db:5432/orders?sslmode=require",
+                Map.of("username", "load", "password", "secret")));
+        assertDoesNotThrow(() -> policy.check("jdbc:postgresql://replica:5433/orders", null));
+    }
+
+    @Test
+    void check_rejectsOtherDriversAndHosts() {
+        assertThrows(IllegalArgumentException.class, () -> policy.check("jdbc:h2:tcp://perf-db/orders", null));
+        assertThrows(IllegalArgumentException.class, () -> policy.check("jdbc:mysql://perf-db/orders", null));
+        assertThrows(IllegalArgumentException.class, () -> policy.check("jdbc:postgresql://prod-db/orders", null));
+        assertThrows(IllegalArgumentException.class, () -> policy.check("jdbc:postgresql://replica:5432/orders", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> policy.check("jdbc:postgresql://perf-db,prod-db/orders", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> policy.check("jdbc:postgresql://admin@perf-db/orders", null));
+    }
+
+    @Test
+    void check_rejectsParametersOutsideTheAllowlist() {
+        assertThrows(IllegalArgumentException.class,
+                () -> policy.check("jdbc:postgresql://perf-db/orders?socketFactory=com.example.Evil", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> policy.check("jdbc:postgresql://perf-db/orders?loggerFile=/tmp/x", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> policy.check("jdbc:postgresql://perf-db/orders;INIT=RUNSCRIPT", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> policy.check("jdbc:postgresql://perf-db/orders?sslmode=require%26x", null));
+    }
+
+    @Test
+    void check_rejectsOtherProperties() {
+        assertThrows(IllegalArgumentException.class,
+                () -> policy.check("jdbc:postgresql://perf-db/orders", Map.of("sslfactory", "com.example.Evil")));
+    }
+
+    @Test
+    void check_refusesEverythingWithoutConfiguration() {
+        JdbcConnectionPolicy unconfigured = new JdbcConnectionPolicy(List.of(" "), List.of());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> unconfigured.check("jdbc:postgresql://perf-db/orders", null));
+    }
+
+    @Test
+    void checkStatement_acceptsASingleQuery() {
+        assertDoesNotThrow(() -> policy.checkStatement("SELECT id FROM orders WHERE id = 1;"));
+        assertDoesNotThrow(() -> policy.checkStatement("with recent as (select 1) select * from recent"));
+    }
+
+    @Test
+    void checkStatement_rejectsWritesAndSeveralStatements() {
+        assertThrows(IllegalArgumentException.class, () -> policy.checkStatement("DELETE FROM orders"));
+        assertThrows(IllegalArgumentException.class, () -> policy.checkStatement("selected"));
+        assertThrows(IllegalArgumentException.class, () -> policy.checkStatement("SELECT 1; DROP TABLE orders"));
+        assertThrows(IllegalArgumentException.class, () -> policy.checkStatement(" "));
+    }
+}
@@ -0,0 +1,92 @@
+package com.codebridge.monitoring.performance.loadtest;
+
+import com.codebridge.monitoring.performance.loadtest.LoadDriver.RequestOutcome;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestEngineTests {
+
+    /**
+     * Driver whose requests succeed immediately, except every {@code hangEvery}-th, which completes only when released.
+     */
+    private static class TestDriver implements LoadDriver {
+
+        private final int hangEvery;
+        private final AtomicInteger requests = new AtomicInteger();
+        private final List<CompletableFuture<RequestOutcome>> hanging = new CopyOnWriteArrayList<>();
+
+        TestDriver(int hangEvery) {
+            this.hangEvery = hangEvery;
+        }
+
+        @Override
+        public CompletableFuture<RequestOutcome> execute() {
+            if (hangEvery > 0 && requests.incrementAndGet() % hangEvery == 0) {
+                CompletableFuture<RequestOutcome> request = new CompletableFuture<>();
+                hanging.add(request);
+                return request;
+            }
+            return CompletableFuture.completedFuture(new RequestOutcome(true, 200, null));
+        }
+
+        void release() {
+            hanging.forEach(request -> request.complete(new RequestOutcome(true, 200, null)));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void run_recordsEveryScheduledRequest() throws InterruptedException {
+        LoadProfile profile = new LoadProfile(200, 0, 0.5, 0);
+
+        LoadTestReport report = new LoadTestEngine(100, Duration.ofSeconds(5)).run(profile, new TestDriver(0));
+
+        assertEquals(profile.totalRequests(), report.getOverall().getTotalRequests());
+        assertEquals(profile.totalRequests(), report.getPhase(LoadPhase.STEADY).getSuccessfulRequests());
+        assertEquals(0, report.getOverall().getFailedRequests());
+    }
+
+    @Test
+    void run_countsRequestsOutstandingAfterTheDrainTimeoutAsFailed() throws InterruptedException {
+        LoadProfile profile = new LoadProfile(100, 0, 0.5, 0);
+        TestDriver driver = new TestDriver(10);
+
+        LoadTestReport report = new LoadTestEngine(100, Duration.ofMillis(50)).run(profile, driver);
+        PhaseStatistics steady = report.getPhase(LoadPhase.STEADY);
+        long hanging = driver.hanging.size();
+
+        assertTrue(hanging > 0);
+        assertEquals(profile.totalRequests(), steady.getTotalRequests());
+        assertEquals(hanging, steady.getFailedRequests());
+        assertEquals(profile.totalRequests() - hanging, steady.getLatencies().getTotalCount());
+
+        // Completions after the report are not recorded
+        driver.release();
+        assertEquals(profile.totalRequests(), steady.getTotalRequests());
+        assertEquals(profile.totalRequests() - hanging, steady.getLatencies().getTotalCount());
+    }
+
+    @Test
+    void run_dropsRequestsBeyondTheInFlightLimit() throws InterruptedException {
+        LoadProfile profile = new LoadProfile(100, 0, 0.5, 0);
+        TestDriver driver = new TestDriver(1);
+
+        LoadTestReport report = new LoadTestEngine(5, Duration.ofMillis(50)).run(profile, driver);
+        PhaseStatistics steady = report.getPhase(LoadPhase.STEADY);
+
+        assertEquals(profile.totalRequests(), steady.getTotalRequests());
+        assertEquals(profile.totalRequests() - 5, steady.getDroppedRequests());
+        assertEquals(profile.totalRequests(), steady.getFailedRequests());
+        driver.release();
+    }
+}
@@ -0,0 +1,136 @@
+package com.codebridge.monitoring.performance.collector;
+
+import com.codebridge.monitoring.performance.model.MetricType;
+import com.codebridge.monitoring.performance.model.PerformanceMetric;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricSeriesRegistryTests {
+
+    private static final String SERVICE = "service";
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final MetricSeriesRegistry registry = new MetricSeriesRegistry(2, 2, 3_600_000L, 2);
+
+    private List<PerformanceMetric> flush() {
+        List<PerformanceMetric> summaries = new ArrayList<>();
+        for (MetricSeries series : registry.getSeries()) {
+            PerformanceMetric summary = series.rollover(START, 1000);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        summaries.addAll(registry.evictIdle(START, 1000));
+        return summaries;
+    }
+
+    @Test
+    void record_sharesTheSeriesOfEqualTags() {
+        Map<String, String> tags = new HashMap<>(Map.of("endpoint", "/a", "method", "GET"));
+        registry.record(SERVICE, "requests", MetricType.COUNTER, tags, 1);
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("method", "GET", "endpoint", "/a"), 2);
+
+        List<PerformanceMetric> summaries = flush();
+
+        assertEquals(1, registry.size());
+        assertEquals(1, summaries.size());
+        assertEquals(3.0, summaries.get(0).getValue());
+    }
+
+    @Test
+    void record_foldsNewTagSetsIntoTheOverflowSeriesAtTheCap() {
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "1"), 1);
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "2"), 1);
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "3"), 1);
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "4"), 1);
+
+        List<PerformanceMetric> summaries = flush();
+
+        assertEquals(3, registry.size());
+        PerformanceMetric overflow = summaries.stream()
+                .filter(summary -> summary.getTags().containsKey(MetricSeriesRegistry.OVERFLOW_TAG))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2.0, overflow.getValue());
+    }
+
+    @Test
+    void evictIdle_removesSeriesIdleForTheConfiguredIntervals() {
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "1"), 1);
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "2"), 1);
+        flush();
+
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "2"), 1);
+        flush();
+        assertEquals(2, registry.size());
+
+        flush();
+        assertEquals(1, registry.size());
+
+        // The evicted series' place under the cap is free for a new tag set
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "2"), 1);
+        registry.record(SERVICE, "requests", MetricType.COUNTER, Map.of("user", "3"), 1);
+        List<PerformanceMetric> summaries = flush();
+        assertEquals(2, registry.size());
+        assertTrue(summaries.stream().anyMatch(summary -> summary.getTags().equals(Map.of("user", "3"))));
+        assertTrue(summaries.stream().noneMatch(summary -> summary.getTags().containsKey(MetricSeriesRegistry.OVERFLOW_TAG)));
+    }
+
+    @Test
+    void evictIdle_keepsPinnedSeries() {
+        MetricSeries pinned = registry.getPinned(SERVICE, "latency", MetricType.TIMER, null);
+
+        flush();
+        flush();
+        flush();
+        pinned.record(5);
+
+        List<PerformanceMetric> summaries = flush();
+        assertSame(pinned, registry.getSeries().iterator().next());
+        assertEquals(5.0, summaries.get(0).getValue());
+    }
+
+    @Test
+    void evictIdle_flushesObservationsRecordedSinceTheLastRollover() {
+        registry.record(SERVICE, "requests", MetricType.COUNTER, null, 1);
+        flush();
+        flush();
+        MetricSeries idle = registry.getSeries().iterator().next();
+
+        // Recorded after the interval's rollover, while the series is being evicted
+        for (MetricSeries series : registry.getSeries()) {
+            assertNull(series.rollover(START, 1000));
+        }
+        assertTrue(idle.tryRecord(4));
+        List<PerformanceMetric> summaries = registry.evictIdle(START, 1000);
+
+        assertEquals(0, registry.size());
+        assertEquals(1, summaries.size());
+        assertEquals(4.0, summaries.get(0).getValue());
+        assertFalse(idle.tryRecord(1));
+
+        // Later observations go to a new series
+        registry.record(SERVICE, "requests", MetricType.COUNTER, null, 7);
+        assertEquals(7.0, flush().get(0).getValue());
+    }
+
+    @Test
+    void evictIdle_keepsEverySeriesWhenDisabled() {
+        MetricSeriesRegistry keeping = new MetricSeriesRegistry(2, 0, 3_600_000L, 2);
+        keeping.record(SERVICE, "requests", MetricType.COUNTER, null, 1);
+        MetricSeries series = keeping.getSeries().iterator().next();
+
+        for (int i = 0; i < 5; i++) {
+            series.rollover(START, 1000);
+            assertTrue(keeping.evictIdle(START, 1000).isEmpty());
+        }
+        assertEquals(1, keeping.size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.codebridge.monitoring.performance.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTests {
+
+    // The relative accuracy of the sketch, with room for rounding
+    private static final double RELATIVE_ERROR = 0.01 + 1e-12;
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1};
+
+    private static double[] logNormal(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            // Latencies from about a microsecond to many seconds
+            values[i] = Math.exp(random.nextGaussian() * 3);
+        }
+        return values;
+    }
+
+    private static QuantileSketch sketchOf(double[] values) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    /**
+     * Checks every quantile against the value of the same rank in the sorted values.
+     */
+    private static void assertWithinRelativeError(double[] values, QuantileSketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertEquals(sorted.length, sketch.getCount());
+        for (double quantile : QUANTILES) {
+            double expected = sorted[(int) Math.floor(quantile * (sorted.length - 1))];
+            double actual = sketch.getValueAtQuantile(quantile);
+            assertEquals(expected, actual, Math.abs(expected) * RELATIVE_ERROR, "quantile " + quantile);
+        }
+    }
+
+    @Test
+    void getValueAtQuantile_isWithinTheRelativeAccuracy() {
+        double[] values = logNormal(new Random(42), 100_000);
+
+        assertWithinRelativeError(values, sketchOf(values));
+    }
+
+    @Test
+    void getValueAtQuantile_handlesNegativeAndZeroValues() {
+        Random random = new Random(7);
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = switch (i % 3) {
+                case 0 -> -Math.exp(random.nextGaussian() * 2);
+                case 1 -> 0.0;
+                default -> Math.exp(random.nextGaussian() * 2);
+            };
+        }
+
+        QuantileSketch sketch = sketchOf(values);
+
+        assertWithinRelativeError(values, sketch);
+        assertEquals(0.0, sketch.getValueAtQuantile(0.5));
+    }
+
+    @Test
+    void getValueAtQuantile_isZeroForAnEmptySketch() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(Double.NaN);
+
+        assertEquals(0, sketch.getCount());
+        assertEquals(0.0, sketch.getValueAtQuantile(0.5));
+    }
+
+    @Test
+    void merge_equalsASketchOfAllValues() {
+        Random random = new Random(11);
+        double[] first = logNormal(random, 20_000);
+        // Larger and smaller magnitudes, so the merge has to grow the bins on both sides, staying above the
+        // values the sketch counts as zero
+        double[] second = Arrays.stream(logNormal(random, 5_000)).map(value -> value * 1e6).toArray();
+        double[] third = Arrays.stream(logNormal(random, 5_000)).map(value -> value * 1e-2).toArray();
+
+        QuantileSketch merged = sketchOf(first);
+        merged.merge(sketchOf(second));
+        merged.merge(sketchOf(third));
+
+        double[] all = new double[first.length + second.length + third.length];
+        System.arraycopy(first, 0, all, 0, first.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        System.arraycopy(third, 0, all, first.length + second.length, third.length);
+        QuantileSketch direct = sketchOf(all);
+        for (double quantile : QUANTILES) {
+            assertEquals(direct.getValueAtQuantile(quantile), merged.getValueAtQuantile(quantile), "quantile " + quantile);
+        }
+        assertWithinRelativeError(all, merged);
+    }
+
+    @Test
+    void fromByteArray_restoresTheSketch() {
+        Random random = new Random(3);
+        double[] values = logNormal(random, 10_000);
+        values[0] = 0;
+        values[1] = -12.5;
+        QuantileSketch sketch = sketchOf(values);
+
+        QuantileSketch restored = QuantileSketch.fromByteArray(sketch.toByteArray());
+
+        assertEquals(sketch.getCount(), restored.getCount());
+        for (double quantile : QUANTILES) {
+            assertEquals(sketch.getValueAtQuantile(quantile), restored.getValueAtQuantile(quantile));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.codebridge.monitoring.performance.anomaly;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeasonalBaselineTests {
+
+    private static final double TOLERANCE = 1e-9;
+    // Monday 1970-01-05 00:00 UTC, the start of the first full week
+    private static final long MONDAY = Instant.parse("1970-01-05T00:00:00Z").toEpochMilli();
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long WEEK = Duration.ofDays(7).toMillis();
+
+    @Test
+    void slot_startsTheWeekOnMondayUtc() {
+        assertEquals(0, SeasonalBaseline.slot(MONDAY));
+        assertEquals(1, SeasonalBaseline.slot(MONDAY + HOUR));
+        assertEquals(SeasonalBaseline.HOURS_PER_WEEK - 1, SeasonalBaseline.slot(MONDAY - 1));
+        assertEquals(SeasonalBaseline.week(MONDAY) + 1, SeasonalBaseline.week(MONDAY + WEEK));
+        assertEquals(SeasonalBaseline.week(MONDAY), SeasonalBaseline.week(MONDAY + WEEK - 1));
+    }
+
+    @Test
+    void update_matchesTheExactMeanAndVarianceUntilAlphaIsReached() {
+        SeasonalBaseline baseline = new SeasonalBaseline(0.01, 0.01);
+        double[] values = {4, 7, 13, 16, 10};
+        for (double value : values) {
+            baseline.update(MONDAY, value);
+        }
+
+        double mean = 0;
+        for (double value : values) {
+            mean += value / values.length;
+        }
+        double variance = 0;
+        for (double value : values) {
+            variance += (value - mean) * (value - mean) / values.length;
+        }
+        SeasonalBaseline.Expectation expectation = baseline.expectation(MONDAY, values.length, Integer.MAX_VALUE);
+        assertFalse(expectation.seasonal());
+        assertEquals(mean, expectation.mean(), TOLERANCE);
+        assertEquals(Math.sqrt(variance), expectation.stdDev(), TOLERANCE);
+    }
+
+    @Test
+    void update_weighsPointsExponentiallyOnceAlphaIsReached() {
+        SeasonalBaseline baseline = new SeasonalBaseline(0.5, 0.5);
+        baseline.update(MONDAY, 0);
+        baseline.update(MONDAY, 0);
+        baseline.update(MONDAY, 0);
+        baseline.update(MONDAY, 10);
+
+        // The last point weighs alpha = 0.5 rather than 1/4: mean 0.5 * 10, variance 0.5 * (10 * 5)
+        SeasonalBaseline.Expectation expectation = baseline.expectation(MONDAY, 4, Integer.MAX_VALUE);
+        assertEquals(5, expectation.mean(), TOLERANCE);
+        assertEquals(5, expectation.stdDev(), TOLERANCE);
+    }
+
+    @Test
+    void update_followsALevelShift() {
+        SeasonalBaseline baseline = new SeasonalBaseline(0.1, 0.1);
+        for (int i = 0; i < 1000; i++) {
+            baseline.update(MONDAY, 100);
+        }
+        for (int i = 0; i < 100; i++) {
+            baseline.update(MONDAY, 200);
+        }
+
+        assertEquals(200, baseline.expectation(MONDAY, 1, Integer.MAX_VALUE).mean(), 0.01);
+    }
+
+    @Test
+    void update_ignoresNonFiniteValues() {
+        SeasonalBaseline baseline = new SeasonalBaseline(0.1, 0.1);
+        baseline.update(MONDAY, Double.NaN);
+        baseline.update(MONDAY, Double.POSITIVE_INFINITY);
+
+        assertNull(baseline.expectation(MONDAY, 1, 1));
+        assertFalse(baseline.checkDirty());
+    }
+
+    @Test
+    void expectation_trustsAnHourOnlyAfterEnoughCompletedWeeks() {
+        SeasonalBaseline baseline = new SeasonalBaseline(0.01, 0.01);
+        // Many points of Monday 09:00 in the first week, and one other hour to give the overall estimate
+        long mondayNine = MONDAY + 9 * HOUR;
+        for (int i = 0; i < 50; i++) {
+            baseline.update(mondayNine + i * 60_000L, 500);
+            baseline.update(MONDAY + 20 * HOUR, 100);
+        }
+
+        // The week of the points is not complete yet, however many points it has
+        SeasonalBaseline.Expectation sameWeek = baseline.expectation(mondayNine + 30 * 60_000L, 1, 1);
+        assertFalse(sameWeek.seasonal());
+        assertEquals(300, sameWeek.mean(), TOLERANCE);
+
+        // A week later the first week counts as completed
+        SeasonalBaseline.Expectation nextWeek = baseline.expectation(mondayNine + WEEK, 1, 1);
+        assertTrue(nextWeek.seasonal());
+        assertEquals(500, nextWeek.mean(), TOLERANCE);
+
+        // A second week of points completes a week only once it has passed
+        baseline.update(mondayNine + WEEK, 500);
+        assertFalse(baseline.expectation(mondayNine + WEEK, 1, 2).seasonal());
+        assertTrue(baseline.expectation(mondayNine + 2 * WEEK, 1, 2).seasonal());
+    }
+
+    @Test
+    void expectation_isNullWithoutEnoughPoints() {
+        SeasonalBaseline baseline = new SeasonalBaseline(0.01, 0.01);
+        baseline.update(MONDAY, 1);
+
+        assertNull(baseline.expectation(MONDAY, 2, 1));
+    }
+
+    @Test
+    void fromCheckpoint_restoresTheModel() {
+        SeasonalBaseline baseline = new SeasonalBaseline(0.05, 0.1);
+        for (int i = 0; i < 200; i++) {
+            baseline.update(MONDAY + (i % 3) * WEEK + (i % 5) * HOUR, i % 7);
+        }
+        assertTrue(baseline.checkDirty());
+        assertFalse(baseline.checkDirty());
+
+        SeasonalBaseline restored = SeasonalBaseline.fromCheckpoint(baseline.toCheckpoint(), 0.05, 0.1);
+
+        for (int hour = 0; hour < 6; hour++) {
+            long timestamp = MONDAY + 3 * WEEK + hour * HOUR;
+            assertEquals(baseline.expectation(timestamp, 1, 3), restored.expectation(timestamp, 1, 3));
+        }
+        assertFalse(restored.checkDirty());
+    }
+
+    @Test
+    void fromCheckpoint_rejectsOtherVersions() {
+        byte[] checkpoint = new SeasonalBaseline(0.1, 0.1).toCheckpoint();
+        checkpoint[0] = 1;
+
+        assertThrows(IllegalArgumentException.class, () -> SeasonalBaseline.fromCheckpoint(checkpoint, 0.1, 0.1));
+    }
+}
@@ -0,0 +1,59 @@
+package com.codebridge.monitoring.performance.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentCacheTests {
+
+    @TempDir
+    Path directory;
+
+    private SegmentFile segment(String name, SegmentCache cache, long timestamp) throws IOException {
+        SegmentFile segment = new SegmentFile(directory.resolve(name), 0, cache);
+        segment.append(new Block(timestamp, timestamp, 1, 1.0, 1.0, 1.0), new byte[] {1, 2, 3});
+        return segment;
+    }
+
+    @Test
+    void touch_closesTheLeastRecentlyUsedSegments() throws IOException {
+        SegmentCache cache = new SegmentCache(2);
+        SegmentFile first = segment("first.seg", cache, 1);
+        SegmentFile second = segment("second.seg", cache, 2);
+        first.getBlocks();
+
+        SegmentFile third = segment("third.seg", cache, 3);
+
+        assertEquals(2, cache.getOpenSegments());
+        // The second segment was the coldest, so it was closed and is reopened from its file
+        List<Block> blocks = second.getBlocks();
+        assertEquals(1, blocks.size());
+        assertEquals(2, blocks.get(0).getMinTimestamp());
+        assertArrayEquals(new byte[] {1, 2, 3}, second.readData(0));
+        assertEquals(2, cache.getOpenSegments());
+        third.close();
+        first.close();
+        second.close();
+        assertEquals(0, cache.getOpenSegments());
+    }
+
+    @Test
+    void touch_keepsAppendingToAReopenedSegment() throws IOException {
+        SegmentCache cache = new SegmentCache(1);
+        SegmentFile first = segment("first.seg", cache, 1);
+        segment("second.seg", cache, 2);
+
+        first.append(new Block(5, 5, 1, 2.0, 2.0, 2.0), new byte[] {4});
+
+        List<Block> blocks = first.getBlocks();
+        assertEquals(2, blocks.size());
+        assertEquals(5, blocks.get(1).getMinTimestamp());
+        assertArrayEquals(new byte[] {4}, first.readData(1));
+        assertEquals(1, cache.getOpenSegments());
+    }
+}
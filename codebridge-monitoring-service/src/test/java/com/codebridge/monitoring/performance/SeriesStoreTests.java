@@ -0,0 +1,239 @@
+package com.codebridge.monitoring.performance.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeriesStoreTests {
+
+    private static final long BLOCK_MS = 60_000;
+    private static final long SEGMENT_MS = 3_600_000;
+
+    @TempDir
+    Path directory;
+
+    private final List<SeriesStore> stores = new ArrayList<>();
+    private long base;
+
+    @BeforeEach
+    void setUp() {
+        // Two hours back, so every tier retains the points
+        base = Math.floorDiv(System.currentTimeMillis(), SEGMENT_MS) * SEGMENT_MS - 2 * SEGMENT_MS;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (SeriesStore store : stores) {
+            store.close();
+        }
+    }
+
+    private SeriesStore open(List<RollupSpec> rollups) throws IOException {
+        SeriesStore store = new SeriesStore(directory, BLOCK_MS, SEGMENT_MS, 4096, rollups, new SegmentCache(16));
+        stores.add(store);
+        return store;
+    }
+
+    private void appendMinute(SeriesStore store, int minute, int points) throws IOException {
+        for (int i = 0; i < points; i++) {
+            store.append(base + minute * BLOCK_MS + i * 1000L, minute * 100 + i);
+        }
+    }
+
+    /**
+     * Appends a point every 7 seconds for two hours, so blocks and buckets do not line up with the points.
+     *
+     * @return the points as timestamp and value pairs
+     */
+    private List<double[]> appendTwoHours(SeriesStore store) throws IOException {
+        List<double[]> points = new ArrayList<>();
+        for (long timestamp = base; timestamp < base + 2 * SEGMENT_MS; timestamp += 7_000) {
+            double value = 1 + (timestamp / 7_000 * 37) % 1000;
+            store.append(timestamp, value);
+            points.add(new double[] {timestamp, value});
+        }
+        return points;
+    }
+
+    private static double[] valuesIn(List<double[]> points, long start, long end) {
+        return points.stream()
+                .filter(point -> point[0] >= start && point[0] <= end)
+                .mapToDouble(point -> point[1])
+                .toArray();
+    }
+
+    private static void assertAggregates(double[] values, RangeAggregate aggregate, String range) {
+        assertEquals(values.length, aggregate.getCount(), range);
+        assertEquals(Arrays.stream(values).sum(), aggregate.getValue("sum"), 1e-6, range);
+        if (values.length > 0) {
+            assertEquals(Arrays.stream(values).min().getAsDouble(), aggregate.getValue("min"), range);
+            assertEquals(Arrays.stream(values).max().getAsDouble(), aggregate.getValue("max"), range);
+        }
+    }
+
+    private static double sum(int minute, int points) {
+        double sum = 0;
+        for (int i = 0; i < points; i++) {
+            sum += minute * 100 + i;
+        }
+        return sum;
+    }
+
+    @Test
+    void reopen_afterACrashKeepsThePointsUpToTheLastCheckpoint() throws IOException {
+        List<RollupSpec> rollups = List.of(new RollupSpec(BLOCK_MS, 7 * 86_400_000L));
+        SeriesStore store = open(rollups);
+        appendMinute(store, 0, 10);
+        appendMinute(store, 1, 10);
+        store.checkpoint();
+        // Appended after the checkpoint and lost in the crash
+        store.append(base + BLOCK_MS + 30_000, 1000);
+
+        // The crashed store is never closed, the new one reads what it left on disk
+        SeriesStore reopened = open(rollups);
+        RangeAggregate aggregate = reopened.aggregate(base, base + 2 * BLOCK_MS - 1, false);
+
+        assertEquals(20, aggregate.getCount());
+        assertEquals(sum(0, 10) + sum(1, 10), aggregate.getValue("sum"), 1e-9);
+        // Within a single block the raw points are read rather than the rollup
+        assertEquals(10, reopened.aggregate(base + BLOCK_MS, base + BLOCK_MS + 9_999, false).getCount());
+    }
+
+    @Test
+    void reopen_ignoresACheckpointOfABlockSealedAfterIt() throws IOException {
+        SeriesStore store = open(List.of());
+        appendMinute(store, 0, 10);
+        store.checkpoint();
+        Path checkpoint = directory.resolve("open.ckp");
+        Path copy = directory.resolve("open.ckp.copy");
+        Files.copy(checkpoint, copy);
+        store.sealCompletedBlocks(base + BLOCK_MS);
+        assertFalse(Files.exists(checkpoint));
+        // The process stopped after sealing the block but before the checkpoint was deleted
+        Files.move(copy, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+
+        SeriesStore reopened = open(List.of());
+
+        assertEquals(10, reopened.aggregate(base, base + BLOCK_MS - 1, false).getCount());
+    }
+
+    @Test
+    void reopen_ignoresATornBlockAndOverwritesIt() throws IOException {
+        SeriesStore store = open(List.of());
+        appendMinute(store, 0, 10);
+        store.close();
+        stores.remove(store);
+        // A block whose header was only partly written: its magic is written last and is missing
+        Files.write(directory.resolve(base + ".seg"), new byte[] {0, 0, 0, 0, 1, 2, 3, 4, 5, 6, 7, 8},
+                StandardOpenOption.APPEND);
+
+        SeriesStore reopened = open(List.of());
+        assertEquals(10, reopened.aggregate(base, base + 3 * BLOCK_MS, false).getCount());
+        appendMinute(reopened, 1, 5);
+        reopened.close();
+        stores.remove(reopened);
+
+        SeriesStore again = open(List.of());
+        RangeAggregate aggregate = again.aggregate(base, base + 3 * BLOCK_MS, false);
+        assertEquals(15, aggregate.getCount());
+        assertEquals(sum(0, 10) + sum(1, 5), aggregate.getValue("sum"), 1e-9);
+    }
+
+    @Test
+    void aggregate_returnsNoValueForAnEmptyRange() throws IOException {
+        SeriesStore store = open(List.of());
+        appendMinute(store, 0, 10);
+
+        RangeAggregate aggregate = store.aggregate(base + 5 * BLOCK_MS, base + 6 * BLOCK_MS, false);
+
+        assertTrue(Double.isNaN(aggregate.getValue("mean")));
+        assertTrue(Double.isNaN(aggregate.getValue("max")));
+        assertEquals(0.0, aggregate.getValue("count"));
+        assertEquals(0.0, aggregate.getValue("sum"));
+    }
+
+    @Test
+    void aggregate_matchesTheRawPointsForAnyRange() throws IOException {
+        // The hourly tier keeps less than the data, so older whole hours are read from the finer tiers
+        SeriesStore store = open(List.of(
+                new RollupSpec(BLOCK_MS, 7 * 86_400_000L),
+                new RollupSpec(10 * BLOCK_MS, 7 * 86_400_000L),
+                new RollupSpec(SEGMENT_MS, 90 * BLOCK_MS)));
+        List<double[]> points = appendTwoHours(store);
+
+        List<long[]> ranges = new ArrayList<>(List.of(
+                new long[] {base, base + 2 * SEGMENT_MS - 1},
+                new long[] {base + SEGMENT_MS, base + 2 * SEGMENT_MS - 1},
+                new long[] {base + 10 * BLOCK_MS, base + 20 * BLOCK_MS - 1},
+                new long[] {base + 30_000, base + SEGMENT_MS + 30_000},
+                new long[] {base - BLOCK_MS, base + 3 * SEGMENT_MS},
+                new long[] {base + 7_000, base + 7_000}));
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            long start = base - BLOCK_MS + (long) (random.nextDouble() * (2 * SEGMENT_MS + 2 * BLOCK_MS));
+            ranges.add(new long[] {start, start + (long) (random.nextDouble() * 2 * SEGMENT_MS)});
+        }
+
+        for (long[] range : ranges) {
+            String description = (range[0] - base) + ".." + (range[1] - base);
+            assertAggregates(valuesIn(points, range[0], range[1]), store.aggregate(range[0], range[1], false), description);
+        }
+    }
+
+    @Test
+    void aggregate_readsWholeBucketsFromTheRollupTiersAndEdgesFromTheRawBlocks() throws IOException {
+        SeriesStore store = open(List.of(
+                new RollupSpec(BLOCK_MS, 7 * 86_400_000L),
+                new RollupSpec(SEGMENT_MS, 7 * 86_400_000L)));
+        List<double[]> points = appendTwoHours(store);
+        long now = System.currentTimeMillis();
+        store.sealCompletedBlocks(now);
+
+        // Without raw blocks, only what the planner reads from the tiers is left
+        assertEquals(2, store.deleteExpiredSegments(now, 0));
+
+        assertAggregates(valuesIn(points, base, base + 2 * SEGMENT_MS - 1),
+                store.aggregate(base, base + 2 * SEGMENT_MS - 1, false), "whole hours");
+        assertAggregates(valuesIn(points, base + BLOCK_MS, base + SEGMENT_MS + BLOCK_MS - 1),
+                store.aggregate(base + BLOCK_MS, base + SEGMENT_MS + BLOCK_MS - 1, false), "whole minutes");
+        // The partial minutes at the edges would have come from the raw blocks
+        assertAggregates(valuesIn(points, base + BLOCK_MS, base + SEGMENT_MS - 1),
+                store.aggregate(base + 30_000, base + SEGMENT_MS + 30_000, false), "partial minutes");
+    }
+
+    @Test
+    void aggregateBuckets_matchesTheRawPointsOfEachBucket() throws IOException {
+        SeriesStore store = open(List.of(
+                new RollupSpec(BLOCK_MS, 7 * 86_400_000L),
+                new RollupSpec(10 * BLOCK_MS, 7 * 86_400_000L)));
+        List<double[]> points = appendTwoHours(store);
+        long bucketMs = 20 * BLOCK_MS;
+        long start = base + 90_000;
+        long end = base + 2 * SEGMENT_MS - 45_000;
+
+        RangeAggregate[] buckets = store.aggregateBuckets(start, end, bucketMs, true);
+
+        assertEquals(6, buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            long bucketStart = base + i * bucketMs;
+            double[] values = valuesIn(points, Math.max(start, bucketStart), Math.min(end, bucketStart + bucketMs - 1));
+            assertAggregates(values, buckets[i], "bucket " + i);
+            Arrays.sort(values);
+            double median = values[(values.length - 1) / 2];
+            assertEquals(median, buckets[i].getValue("p50"), median * 0.01, "bucket " + i);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.codebridge.monitoring.scalability.loadbalancer.benchmark;
+
+import com.codebridge.monitoring.scalability.loadbalancer.LoadBalancingStrategy;
+import com.codebridge.monitoring.scalability.loadbalancer.impl.ConsistentHashStrategy;
+import com.codebridge.monitoring.scalability.loadbalancer.impl.IpHashStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the modulo hashing of {@link IpHashStrategy} with {@link ConsistentHashStrategy}.
+ * {@link #main} first reports the share of keys that change instance when one instance is added or removed,
+ * then measures the time of a single selection.
+ * Run with {@code java -cp <test classpath> com.codebridge.monitoring.scalability.loadbalancer.benchmark.ConsistentHashBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsistentHashBenchmark {
+
+    private static final String SERVICE_ID = "benchmark-service";
+    private static final int KEY_COUNT = 100_000;
+
+    @Param({"3", "10", "50"})
+    private int instanceCount;
+
+    private List<ServiceInstance> instances;
+    private String[] keys;
+    private IpHashStrategy ipHashStrategy;
+    private ConsistentHashStrategy consistentHashStrategy;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instances = instances(instanceCount);
+        keys = keys(KEY_COUNT);
+        ipHashStrategy = new IpHashStrategy();
+        consistentHashStrategy = new ConsistentHashStrategy(160, 1.25);
+    }
+
+    @Benchmark
+    public ServiceInstance ipHash() {
+        return ipHashStrategy.selectInstance(instances, SERVICE_ID, nextKey());
+    }
+
+    @Benchmark
+    public ServiceInstance consistentHash() {
+        ServiceInstance selected = consistentHashStrategy.selectInstance(instances, SERVICE_ID, nextKey());
+        consistentHashStrategy.onRequestComplete(SERVICE_ID, selected, 0, true);
+        return selected;
+    }
+
+    private String nextKey() {
+        String key = keys[next];
+        next = next + 1 == keys.length ? 0 : next + 1;
+        return key;
+    }
+
+    /**
+     * Share of keys routed to a different instance after the instance list changes from {@code before} to
+     * {@code after}. Each request is released right away, so the bounded-load spill-over does not kick in.
+     */
+    static double movedKeys(LoadBalancingStrategy strategy, List<ServiceInstance> before, List<ServiceInstance> after,
+                            String[] keys) {
+        String[] assigned = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ServiceInstance selected = strategy.selectInstance(before, SERVICE_ID, keys[i]);
+            strategy.onRequestComplete(SERVICE_ID, selected, 0, true);
+            assigned[i] = selected.getInstanceId();
+        }
+        int moved = 0;
+        for (int i = 0; i < keys.length; i++) {
+            ServiceInstance selected = strategy.selectInstance(after, SERVICE_ID, keys[i]);
+            strategy.onRequestComplete(SERVICE_ID, selected, 0, true);
+            if (!selected.getInstanceId().equals(assigned[i])) {
+                moved++;
+            }
+        }
+        return (double) moved / keys.length;
+    }
+
+    private static List<ServiceInstance> instances(int count) {
+        List<ServiceInstance> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            instances.add(instance(i));
+        }
+        return instances;
+    }
+
+    private static ServiceInstance instance(int index) {
+        return new DefaultServiceInstance("instance-" + index, SERVICE_ID, "10.0.0." + index, 8080, false, Map.of());
+    }
+
+    private static String[] keys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = "client-" + i;
+        }
+        return keys;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String[] keys = keys(KEY_COUNT);
+        System.out.println("Share of keys moved by a membership change (ideal: 1/n of the keys)");
+        System.out.printf("%-10s %-12s %10s %16s%n", "instances", "change", "ip-hash", "consistent-hash");
+        for (int count : new int[] {3, 10, 50}) {
+            List<ServiceInstance> current = instances(count);
+            List<ServiceInstance> scaledUp = new ArrayList<>(current);
+            scaledUp.add(instance(count));
+            List<ServiceInstance> scaledDown = new ArrayList<>(current.subList(1, count));
+
+            System.out.printf("%-10d %-12s %9.1f%% %15.1f%%%n", count, "add one",
+                    100 * movedKeys(new IpHashStrategy(), current, scaledUp, keys),
+                    100 * movedKeys(new ConsistentHashStrategy(160, 1.25), current, scaledUp, keys));
+            System.out.printf("%-10d %-12s %9.1f%% %15.1f%%%n", count, "remove one",
+                    100 * movedKeys(new IpHashStrategy(), current, scaledDown, keys),
+                    100 * movedKeys(new ConsistentHashStrategy(160, 1.25), current, scaledDown, keys));
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(ConsistentHashBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,158 @@
+package com.codebridge.monitoring.scalability.loadbalancer.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashStrategyTests {
+
+    private static final String SERVICE_ID = "test-service";
+    private static final int KEY_COUNT = 10_000;
+
+    private static ServiceInstance instance(int index, Integer weight) {
+        Map<String, String> metadata = weight != null ? Map.of("weight", weight.toString()) : Map.of();
+        return new DefaultServiceInstance("instance-" + index, SERVICE_ID, "10.0.0." + index, 8080, false, metadata);
+    }
+
+    private static List<ServiceInstance> instances(int count) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            instances.add(instance(i, null));
+        }
+        return instances;
+    }
+
+    /**
+     * Maps each key to the instance it is sent to, completing every request before the next one
+     * so that the load bound never applies.
+     */
+    private static Map<String, String> assignments(ConsistentHashStrategy strategy, List<ServiceInstance> instances) {
+        Map<String, String> assignments = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String key = "request-" + i;
+            ServiceInstance selected = strategy.selectInstance(instances, SERVICE_ID, key);
+            strategy.onRequestComplete(SERVICE_ID, selected, 0, true);
+            assignments.put(key, selected.getInstanceId());
+        }
+        return assignments;
+    }
+
+    @Test
+    void selectInstance_addingAnInstanceOnlyMovesKeysToIt() {
+        ConsistentHashStrategy strategy = new ConsistentHashStrategy(160, 1.25);
+        List<ServiceInstance> four = instances(4);
+        Map<String, String> before = assignments(strategy, four);
+
+        List<ServiceInstance> five = instances(5);
+        Map<String, String> after = assignments(strategy, five);
+
+        int moved = 0;
+        for (String key : before.keySet()) {
+            if (!before.get(key).equals(after.get(key))) {
+                assertEquals("instance-4", after.get(key));
+                moved++;
+            }
+        }
+        // The new instance takes about a fifth of the keys
+        assertTrue(moved > KEY_COUNT / 10 && moved < KEY_COUNT * 3 / 10, "moved " + moved);
+    }
+
+    @Test
+    void selectInstance_removingAnInstanceOnlyMovesItsKeys() {
+        ConsistentHashStrategy strategy = new ConsistentHashStrategy(160, 1.25);
+        Map<String, String> before = assignments(strategy, instances(5));
+
+        Map<String, String> after = assignments(strategy, instances(4));
+
+        for (String key : before.keySet()) {
+            if (!before.get(key).equals("instance-4")) {
+                assertEquals(before.get(key), after.get(key));
+            }
+        }
+        assertFalse(after.containsValue("instance-4"));
+    }
+
+    @Test
+    void selectInstance_isUnaffectedByTheOrderOfTheInstances() {
+        ConsistentHashStrategy strategy = new ConsistentHashStrategy(160, 1.25);
+        Map<String, String> before = assignments(strategy, instances(4));
+
+        List<ServiceInstance> reversed = new ArrayList<>(instances(4));
+        Collections.reverse(reversed);
+
+        assertEquals(ConsistentHashStrategy.fingerprint(instances(4)), ConsistentHashStrategy.fingerprint(reversed));
+        assertEquals(before, assignments(strategy, reversed));
+    }
+
+    @Test
+    void selectInstance_rebuildsTheRingWhenAWeightChanges() {
+        ConsistentHashStrategy strategy = new ConsistentHashStrategy(160, 1.25);
+        List<ServiceInstance> equal = instances(2);
+        List<ServiceInstance> weighted = List.of(instance(0, 300), instance(1, null));
+
+        assertNotEquals(ConsistentHashStrategy.fingerprint(equal), ConsistentHashStrategy.fingerprint(weighted));
+        assignments(strategy, equal);
+        Map<String, String> after = assignments(strategy, weighted);
+
+        long heavy = after.values().stream().filter("instance-0"::equals).count();
+        // Three times the virtual nodes take about three quarters of the keys
+        assertTrue(heavy > KEY_COUNT * 65 / 100 && heavy < KEY_COUNT * 85 / 100, "heavy " + heavy);
+    }
+
+    @Test
+    void selectInstance_spillsAHotKeyOverOnceItsInstanceIsFull() {
+        ConsistentHashStrategy strategy = new ConsistentHashStrategy(160, 1.25);
+        List<ServiceInstance> instances = instances(4);
+        ServiceInstance home = strategy.selectInstance(instances, SERVICE_ID, "hot-key");
+        strategy.onRequestComplete(SERVICE_ID, home, 0, true);
+
+        Map<String, Integer> inFlight = new HashMap<>();
+        List<ServiceInstance> selected = new ArrayList<>();
+        int requests = 40;
+        for (int i = 0; i < requests; i++) {
+            ServiceInstance instance = strategy.selectInstance(instances, SERVICE_ID, "hot-key");
+            selected.add(instance);
+            inFlight.merge(instance.getInstanceId(), 1, Integer::sum);
+        }
+
+        assertEquals(home, selected.get(0));
+        Set<String> used = new HashSet<>(inFlight.keySet());
+        assertEquals(4, used.size());
+        // No instance carries more than loadFactor times its fair share of the in-flight requests
+        int bound = (int) Math.ceil(1.25 * requests / instances.size());
+        inFlight.values().forEach(count -> assertTrue(count <= bound, "in flight " + count));
+
+        // Once the requests complete, the key returns to its own instance
+        selected.forEach(instance -> strategy.onRequestComplete(SERVICE_ID, instance, 0, true));
+        assertEquals(home, strategy.selectInstance(instances, SERVICE_ID, "hot-key"));
+    }
+
+    @Test
+    void selectInstance_countsRequestsWithoutKeyTowardsTheLoad() {
+        ConsistentHashStrategy strategy = new ConsistentHashStrategy(160, 1.0);
+        List<ServiceInstance> instances = instances(2);
+        ServiceInstance home = strategy.selectInstance(instances, SERVICE_ID, "key");
+        strategy.onRequestComplete(SERVICE_ID, home, 0, true);
+
+        // Round-robin requests without a key fill both instances
+        ServiceInstance first = strategy.selectInstance(instances, SERVICE_ID, null);
+        ServiceInstance second = strategy.selectInstance(instances, SERVICE_ID, null);
+        assertNotEquals(first, second);
+
+        // The key's own instance may take one more request, after which the key spills over
+        ServiceInstance keyed = strategy.selectInstance(instances, SERVICE_ID, "key");
+        ServiceInstance other = strategy.selectInstance(instances, SERVICE_ID, "key");
+        assertEquals(home, keyed);
+        assertNotEquals(home, other);
+    }
+}
@@ -0,0 +1,108 @@
+package com.codebridge.monitoring.scalability.resilience.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultDataPartitioningServiceTests {
+
+    private static final int ROWS = 200;
+
+    private DefaultDataPartitioningService service;
+
+    @BeforeEach
+    void setUp() {
+        String database = "partitioning_" + UUID.randomUUID().toString().replace("-", "");
+        JdbcTemplate primary = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1"));
+        ShardDataSourceFactory dataSourceFactory = new ShardDataSourceFactory(
+                "jdbc:h2:mem:" + database + "_shard_{shard};DB_CLOSE_DELAY=-1", "", "sa", "", 4, 1,
+                "classpath:partitioning-test-schema.sql");
+        service = new DefaultDataPartitioningService(true, "hash", 2, 16, Map.of("items", "id"), 50, 0,
+                dataSourceFactory, primary);
+
+        for (int i = 0; i < ROWS; i++) {
+            String key = "item-" + i;
+            service.executeUpdateForKey(key, "INSERT INTO items (id, score) VALUES (?, ?)", key, i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private void assertEveryRowOnItsShard(int shardCount) {
+        int total = 0;
+        for (int shardId = 0; shardId < shardCount; shardId++) {
+            List<Map<String, Object>> rows = service.executeQueryOnShard(shardId, "SELECT id FROM items");
+            assertFalse(rows.isEmpty(), "shard " + shardId + " is empty");
+            for (Map<String, Object> row : rows) {
+                assertEquals(shardId, service.getShardForKey((String) row.get("id")));
+            }
+            total += rows.size();
+        }
+        assertEquals(ROWS, total);
+    }
+
+    @Test
+    void streamQueryOnAllShards_mergesInOrderAndAppliesTheOffset() {
+        List<Map<String, Object>> rows = service.executeQueryOnAllShards(
+                "SELECT id, score FROM items ORDER BY score DESC LIMIT ? OFFSET 10", 5);
+
+        assertEquals(List.of(189, 188, 187, 186, 185), rows.stream().map(row -> row.get("score")).toList());
+    }
+
+    @Test
+    void rebalanceShards_movesRowsToTheirNewShards() {
+        assertEveryRowOnItsShard(2);
+
+        assertTrue(service.rebalanceShards(3));
+
+        assertEveryRowOnItsShard(3);
+        assertEquals(ROWS, service.executeQueryOnAllShards("SELECT id FROM items").size());
+    }
+
+    @Test
+    void rebalanceShards_shrinkingClosesTheEmptiedShard() {
+        assertTrue(service.rebalanceShards(3));
+        assertTrue(service.rebalanceShards(1));
+
+        assertEquals(ROWS, service.executeQueryOnShard(0, "SELECT id FROM items").size());
+        assertThrows(IllegalArgumentException.class, () -> service.executeQueryOnShard(2, "SELECT id FROM items"));
+    }
+
+    @Test
+    void rebalanceShards_keepsWritesMadeDuringTheCopy() {
+        Map<String, Integer> written = new HashMap<>();
+        AtomicBoolean done = new AtomicBoolean();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; !done.get() || i < 100; i++) {
+                String key = "item-" + ThreadLocalRandom.current().nextInt(ROWS);
+                int score = ROWS + i;
+                service.executeUpdateForKey(key, "UPDATE items SET score = ? WHERE id = ?", score, key);
+                written.put(key, score);
+            }
+        });
+
+        assertTrue(service.rebalanceShards(3));
+        done.set(true);
+        writer.join();
+
+        assertEveryRowOnItsShard(3);
+        written.forEach((key, score) -> assertEquals(score,
+                service.executeQueryForKey(key, "SELECT score FROM items WHERE id = ?", key).get(0).get("score")));
+    }
+}
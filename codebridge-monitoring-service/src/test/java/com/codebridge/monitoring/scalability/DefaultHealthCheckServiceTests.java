@@ -0,0 +1,202 @@
+package com.codebridge.monitoring.scalability.loadbalancer.impl;
+
+import com.codebridge.monitoring.scalability.loadbalancer.HealthCheckListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultHealthCheckServiceTests {
+
+    private static final String SERVICE_ID = "orders";
+    // Long enough that no scheduled probe runs during a test; the tests probe with checkHealth
+    private static final int HEALTHY_INTERVAL_SECONDS = 3600;
+    private static final int UNHEALTHY_INTERVAL_SECONDS = 60;
+
+    private final ServiceInstance instance = new DefaultServiceInstance("instance-1", SERVICE_ID, "10.0.0.1", 8080, false);
+    private final AtomicReference<String> status = new AtomicReference<>("UP");
+    private final AtomicReference<Mono<Void>> probeGate = new AtomicReference<>(Mono.empty());
+    private final AtomicInteger probes = new AtomicInteger();
+    // Listener calls, in the order they happened
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private DefaultHealthCheckService service;
+
+    @BeforeEach
+    void setUp() {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            probes.incrementAndGet();
+            ClientResponse response = ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("{\"status\":\"" + status.get() + "\"}")
+                    .build();
+            return probeGate.get().then(Mono.just(response));
+        }).build();
+        service = new DefaultHealthCheckService(webClient, HEALTHY_INTERVAL_SECONDS, UNHEALTHY_INTERVAL_SECONDS,
+                5000, 3, 2, 10, 0.5);
+        service.addListener(new HealthCheckListener() {
+            @Override
+            public void onHealthCheck(String serviceId, ServiceInstance probed, long latencyNanos, boolean healthy) {
+                events.add("check " + healthy);
+            }
+
+            @Override
+            public void onHealthChanged(String serviceId, ServiceInstance changed, boolean healthy) {
+                events.add("changed " + healthy);
+            }
+        });
+        service.startHealthCheck(instance, SERVICE_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private Object instanceHealth() {
+        Map<?, ?> instancesUnderCheck = (Map<?, ?>) ReflectionTestUtils.getField(service, "instancesUnderCheck");
+        return instancesUnderCheck.get(SERVICE_ID + ":instance-1");
+    }
+
+    private static long nextProbeDelaySeconds(Object health) {
+        ScheduledFuture<?> nextProbe = (ScheduledFuture<?>) ReflectionTestUtils.getField(health, "nextProbe");
+        assertNotNull(nextProbe);
+        return nextProbe.getDelay(TimeUnit.SECONDS);
+    }
+
+    private void probe(String reportedStatus) {
+        status.set(reportedStatus);
+        service.checkHealth();
+    }
+
+    @Test
+    void checkHealth_changesHealthOnlyAfterTheThresholds() {
+        probe("DOWN");
+        probe("DOWN");
+        assertTrue(service.isHealthy(instance));
+
+        probe("DOWN");
+        assertFalse(service.isHealthy(instance));
+
+        probe("UP");
+        assertFalse(service.isHealthy(instance));
+
+        probe("UP");
+        assertTrue(service.isHealthy(instance));
+        assertEquals(List.of("check false", "check false", "changed false", "check false",
+                "check true", "changed true", "check true"), events);
+    }
+
+    @Test
+    void checkHealth_resetsTheCountOfConsecutiveFailures() {
+        probe("DOWN");
+        probe("DOWN");
+        probe("UP");
+        probe("DOWN");
+        probe("DOWN");
+
+        assertTrue(service.isHealthy(instance));
+        assertFalse(events.contains("changed false"));
+    }
+
+    @Test
+    void checkHealth_probesFailingInstancesAtTheUnhealthyInterval() {
+        Object health = instanceHealth();
+
+        probe("UP");
+        assertTrue(nextProbeDelaySeconds(health) > UNHEALTHY_INTERVAL_SECONDS * 1.2);
+
+        // A single failure is below the threshold, but the instance is already probed more often
+        probe("DOWN");
+        assertTrue(service.isHealthy(instance));
+        assertTrue(nextProbeDelaySeconds(health) <= UNHEALTHY_INTERVAL_SECONDS * 1.2);
+
+        probe("DOWN");
+        probe("DOWN");
+        probe("UP");
+        assertFalse(service.isHealthy(instance));
+        assertTrue(nextProbeDelaySeconds(health) <= UNHEALTHY_INTERVAL_SECONDS * 1.2);
+
+        probe("UP");
+        assertTrue(service.isHealthy(instance));
+        assertTrue(nextProbeDelaySeconds(health) >= HEALTHY_INTERVAL_SECONDS * 0.8);
+    }
+
+    @Test
+    void recordRequestOutcome_marksAnInstanceFailingTooManyRequestsUnhealthy() {
+        for (int i = 0; i < 5; i++) {
+            service.recordRequestOutcome(instance, false);
+        }
+        // Too few requests for the failure rate to count
+        assertTrue(service.isHealthy(instance));
+
+        for (int i = 0; i < 4; i++) {
+            service.recordRequestOutcome(instance, true);
+        }
+        assertTrue(service.isHealthy(instance));
+        assertEquals(0, probes.get());
+
+        service.recordRequestOutcome(instance, true);
+
+        // Half of ten requests failed; the instance is probed straight away, and one good probe is not enough
+        assertFalse(service.isHealthy(instance));
+        assertEquals(1, probes.get());
+        assertEquals(List.of("changed false", "check true"), events);
+        assertTrue(nextProbeDelaySeconds(instanceHealth()) <= UNHEALTHY_INTERVAL_SECONDS * 1.2);
+
+        probe("UP");
+        assertTrue(service.isHealthy(instance));
+    }
+
+    @Test
+    void recordRequestOutcome_ignoresInstancesNotUnderCheck() {
+        service.stopHealthCheck(instance);
+
+        for (int i = 0; i < 10; i++) {
+            service.recordRequestOutcome(instance, false);
+        }
+
+        assertTrue(service.isHealthy(instance));
+        assertTrue(events.isEmpty());
+        assertEquals(0, probes.get());
+    }
+
+    @Test
+    void stopHealthCheck_discardsTheResultOfAProbeInFlight() {
+        Object health = instanceHealth();
+        probe("DOWN");
+        probe("DOWN");
+        events.clear();
+        Sinks.Empty<Void> gate = Sinks.empty();
+        probeGate.set(gate.asMono());
+
+        probe("DOWN");
+        assertEquals(3, probes.get());
+        service.stopHealthCheck(instance);
+        gate.tryEmitEmpty();
+
+        // The failed probe would have crossed the threshold and scheduled the next probe
+        assertTrue(events.isEmpty());
+        assertNull(ReflectionTestUtils.getField(health, "nextProbe"));
+        assertEquals(Boolean.FALSE, ReflectionTestUtils.getField(health, "probing"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.codebridge.monitoring.scalability.loadbalancer.benchmark;
+
+import com.codebridge.monitoring.scalability.loadbalancer.LoadBalancingStrategy;
+import com.codebridge.monitoring.scalability.loadbalancer.impl.LeastConnectionsStrategy;
+import com.codebridge.monitoring.scalability.loadbalancer.impl.PeakEwmaStrategy;
+import com.codebridge.monitoring.scalability.loadbalancer.impl.RoundRobinStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares {@link PeakEwmaStrategy} with the round-robin and least-connections strategies.
+ * {@link #main} first simulates a service whose replicas each serve a fixed number of requests at a time,
+ * with one replica ten times slower than the others, and reports the response time percentiles each strategy
+ * achieves; it then measures the time of a single selection.
+ * Run with {@code java -cp <test classpath> com.codebridge.monitoring.scalability.loadbalancer.benchmark.PeakEwmaBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeakEwmaBenchmark {
+
+    private static final String SERVICE_ID = "benchmark-service";
+
+    @Param({"3", "10", "50"})
+    private int instanceCount;
+
+    private List<ServiceInstance> instances;
+    private LeastConnectionsStrategy leastConnectionsStrategy;
+    private PeakEwmaStrategy peakEwmaStrategy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instances = instances(instanceCount);
+        leastConnectionsStrategy = new LeastConnectionsStrategy();
+        peakEwmaStrategy = new PeakEwmaStrategy(10_000, 5, 3.0, 30_000, 50);
+    }
+
+    @Benchmark
+    public ServiceInstance leastConnections() {
+        ServiceInstance selected = leastConnectionsStrategy.selectInstance(instances, SERVICE_ID, null);
+        leastConnectionsStrategy.onRequestComplete(SERVICE_ID, selected, 1_000_000, true);
+        return selected;
+    }
+
+    @Benchmark
+    public ServiceInstance peakEwma() {
+        ServiceInstance selected = peakEwmaStrategy.selectInstance(instances, SERVICE_ID, null);
+        peakEwmaStrategy.onRequestComplete(SERVICE_ID, selected, 1_000_000, true);
+        return selected;
+    }
+
+    private static List<ServiceInstance> instances(int count) {
+        List<ServiceInstance> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            instances.add(new DefaultServiceInstance("instance-" + i, SERVICE_ID, "10.0.0." + i, 8080, false, Map.of()));
+        }
+        return instances;
+    }
+
+    /**
+     * Discrete-event simulation of Poisson arrivals to replicas with exponential service times.
+     * Each replica serves {@code concurrency} requests at a time and queues the rest.
+     *
+     * @return the response times in milliseconds, sorted
+     */
+    static double[] simulate(Function<LongSupplier, LoadBalancingStrategy> strategyFactory, int replicas, int concurrency,
+                             double serviceMillis, double degradedServiceMillis, double arrivalsPerSecond, int requests) {
+        Random random = new Random(42);
+        long[] now = {0};
+        LoadBalancingStrategy strategy = strategyFactory.apply(() -> now[0]);
+        List<ServiceInstance> instances = instances(replicas);
+        int[] busy = new int[replicas];
+        List<Queue<long[]>> queues = new ArrayList<>();
+        for (int i = 0; i < replicas; i++) {
+            queues.add(new ArrayDeque<>());
+        }
+
+        // Events are {time, replica, arrival time}; a replica of -1 marks an arrival
+        PriorityQueue<long[]> events = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        long arrival = 0;
+        for (int i = 0; i < requests; i++) {
+            arrival += (long) (-Math.log(1 - random.nextDouble()) / arrivalsPerSecond * 1e9);
+            events.add(new long[] {arrival, -1, arrival});
+        }
+
+        double[] latencies = new double[requests];
+        int completed = 0;
+        while (!events.isEmpty()) {
+            long[] event = events.poll();
+            now[0] = event[0];
+            if (event[1] < 0) {
+                int replica = instances.indexOf(strategy.selectInstance(instances, SERVICE_ID, null));
+                queues.get(replica).add(event);
+            } else {
+                int replica = (int) event[1];
+                busy[replica]--;
+                long latency = now[0] - event[2];
+                strategy.onRequestComplete(SERVICE_ID, instances.get(replica), latency, true);
+                latencies[completed++] = latency / 1e6;
+            }
+            for (int replica = 0; replica < replicas; replica++) {
+                while (busy[replica] < concurrency && !queues.get(replica).isEmpty()) {
+                    long[] request = queues.get(replica).poll();
+                    double mean = replica == 0 ? degradedServiceMillis : serviceMillis;
+                    long service = (long) (-Math.log(1 - random.nextDouble()) * mean * 1e6);
+                    busy[replica]++;
+                    events.add(new long[] {now[0] + service, replica, request[2]});
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100 * sorted.length) - 1)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Map<String, Function<LongSupplier, LoadBalancingStrategy>> strategies = Map.of(
+                "round-robin", clock -> new RoundRobinStrategy(),
+                "least-connections", clock -> new LeastConnectionsStrategy(),
+                "peak-ewma", clock -> new PeakEwmaStrategy(10_000, 5, 3.0, 30_000, 50, clock));
+
+        System.out.println("10 replicas serving 4 requests at a time, 10 ms mean; replica 0 degraded to 100 ms; 2500 req/s");
+        System.out.printf("%-18s %10s %10s %10s %10s%n", "strategy", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (String name : List.of("round-robin", "least-connections", "peak-ewma")) {
+            double[] latencies = simulate(strategies.get(name), 10, 4, 10, 100, 2500, 200_000);
+            System.out.printf("%-18s %10.1f %10.1f %10.1f %10.1f%n", name, percentile(latencies, 50),
+                    percentile(latencies, 99), percentile(latencies, 99.9), latencies[latencies.length - 1]);
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(PeakEwmaBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
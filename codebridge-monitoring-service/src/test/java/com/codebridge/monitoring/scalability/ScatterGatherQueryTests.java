@@ -0,0 +1,89 @@
+package com.codebridge.monitoring.scalability.resilience.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScatterGatherQueryTests {
+
+    private Map<String, Object> row(String column, Object value) {
+        Map<String, Object> row = new HashMap<>();
+        row.put(column, value);
+        return row;
+    }
+
+    @Test
+    void parse_pushesLimitAndOffsetDownAsOneLimit() {
+        ScatterGatherQuery query = ScatterGatherQuery.parse(
+                "SELECT id, score FROM items WHERE owner = ? ORDER BY score DESC LIMIT ? OFFSET ?;", "alice", 10, 5);
+
+        assertEquals("SELECT id, score FROM items WHERE owner = ? ORDER BY score DESC NULLS FIRST LIMIT 15",
+                query.getShardSql());
+        assertArrayEquals(new Object[] {"alice"}, query.getShardParams());
+        assertEquals(10, query.getLimit());
+        assertEquals(5, query.getOffset());
+        assertTrue(query.isOrdered());
+    }
+
+    @Test
+    void parse_ignoresClausesOfSubqueries() {
+        String sql = "SELECT * FROM (SELECT id FROM items ORDER BY id LIMIT 3) recent";
+
+        ScatterGatherQuery query = ScatterGatherQuery.parse(sql);
+
+        assertEquals(sql, query.getShardSql());
+        assertFalse(query.isOrdered());
+        assertEquals(-1, query.getLimit());
+    }
+
+    @Test
+    void parse_rejectsSortKeysThatAreNotResultColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ScatterGatherQuery.parse("SELECT id, score FROM items ORDER BY score * 2"));
+    }
+
+    @Test
+    void parse_rejectsCollationsOtherThanC() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ScatterGatherQuery.parse("SELECT name FROM items ORDER BY name COLLATE \"de_DE\""));
+        assertThrows(IllegalArgumentException.class,
+                () -> ScatterGatherQuery.parse("SELECT name FROM items ORDER BY 1 COLLATE \"C\""));
+    }
+
+    @Test
+    void comparator_resolvesPositionsAndSortsNullsLastWhenAscending() {
+        ScatterGatherQuery query = ScatterGatherQuery.parse("SELECT id, score FROM items ORDER BY 2");
+        List<Map<String, Object>> rows = new ArrayList<>(List.of(row("score", null), row("score", 3L), row("score", 1)));
+
+        rows.sort(query.comparator(List.of("id", "score")));
+
+        assertEquals(1, rows.get(0).get("score"));
+        assertEquals(3L, rows.get(1).get("score"));
+        assertNull(rows.get(2).get("score"));
+    }
+
+    @Test
+    void comparator_refusesTextWithoutCCollation() {
+        Comparator<Map<String, Object>> comparator =
+                ScatterGatherQuery.parse("SELECT name FROM items ORDER BY name").comparator(List.of("name"));
+
+        assertThrows(IllegalArgumentException.class, () -> comparator.compare(row("name", "a"), row("name", "b")));
+    }
+
+    @Test
+    void comparator_ordersCCollatedTextByCodePoint() {
+        ScatterGatherQuery query = ScatterGatherQuery.parse("SELECT name FROM items ORDER BY name COLLATE \"C\"");
+        Comparator<Map<String, Object>> comparator = query.comparator(List.of("name"));
+
+        assertEquals("SELECT name FROM items ORDER BY name COLLATE \"C\" ASC NULLS LAST", query.getShardSql());
+        // A supplementary character sorts after U+FFFF by code point, but before it by UTF-16 unit
+        assertTrue(comparator.compare(row("name", "\uFFFF"), row("name", "\uD83D\uDE00")) < 0);
+        assertTrue(comparator.compare(row("name", "ab"), row("name", "abc")) < 0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.codebridge.monitoring.scalability.resilience.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardMapTests {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:shard_map_" + UUID.randomUUID().toString().replace("-", "") + ";DB_CLOSE_DELAY=-1"));
+    }
+
+    @Test
+    void loadOrCreate_keepsThePersistedMapOverTheConfiguration() {
+        ShardMap created = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 2, 8, jdbcTemplate);
+        ShardMap loaded = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 5, 32, jdbcTemplate);
+
+        assertEquals(8, loaded.getPartitions().size());
+        assertEquals(created.getPartitions(), loaded.getPartitions());
+        assertEquals(List.of(0, 1), loaded.getShardIds());
+        assertEquals(created.shardFor("customer-42"), loaded.shardFor("customer-42"));
+    }
+
+    @Test
+    void loadOrCreate_refusesToChangeTheStrategy() {
+        ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 2, 8, jdbcTemplate);
+
+        assertThrows(IllegalStateException.class,
+                () -> ShardMap.loadOrCreate(ShardMap.Strategy.RANGE, 2, 8, jdbcTemplate));
+    }
+
+    @Test
+    void planMoves_addingAShardMovesOnlyItsShare() {
+        ShardMap shardMap = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 3, 12, jdbcTemplate);
+
+        List<ShardMap.Move> moves = shardMap.planMoves(4, partition -> 1);
+
+        assertEquals(3, moves.size());
+        assertTrue(moves.stream().allMatch(move -> move.toShard() == 3));
+        assertEquals(3, moves.stream().map(ShardMap.Move::fromShard).distinct().count());
+    }
+
+    @Test
+    void planMoves_removingAShardSpreadsItsPartitionsOverTheRest() {
+        ShardMap shardMap = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 3, 12, jdbcTemplate);
+
+        List<ShardMap.Move> moves = shardMap.planMoves(2, partition -> 1);
+
+        assertEquals(4, moves.size());
+        assertTrue(moves.stream().allMatch(move -> move.fromShard() == 2));
+        assertEquals(2, moves.stream().filter(move -> move.toShard() == 0).count());
+        assertEquals(2, moves.stream().filter(move -> move.toShard() == 1).count());
+    }
+
+    @Test
+    void planMoves_balancesByWeight() {
+        ShardMap shardMap = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 1, 4, jdbcTemplate);
+        String heaviest = shardMap.getPartitions().get(0).lowerBound();
+
+        List<ShardMap.Move> moves = shardMap.planMoves(2, partition -> partition.lowerBound().equals(heaviest) ? 30 : 10);
+
+        // The heavy partition balances the three light ones, so only it or only they move
+        long moved = moves.stream().mapToLong(move -> move.lowerBound().equals(heaviest) ? 30 : 10).sum();
+        assertEquals(30, moved);
+    }
+
+    @Test
+    void beginAndCommit_persistTheMoves() {
+        ShardMap shardMap = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 2, 8, jdbcTemplate);
+        List<ShardMap.Move> moves = shardMap.planMoves(3, partition -> 1);
+
+        shardMap.begin(moves);
+        ShardMap interrupted = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 3, 8, jdbcTemplate);
+        assertEquals(moves.size(), interrupted.pendingMoves().size());
+        assertTrue(interrupted.pendingMoves().containsAll(moves));
+
+        shardMap.commit(moves);
+        ShardMap completed = ShardMap.loadOrCreate(ShardMap.Strategy.HASH, 3, 8, jdbcTemplate);
+        assertTrue(completed.pendingMoves().isEmpty());
+        assertEquals(List.of(0, 1, 2), completed.getShardIds());
+        for (ShardMap.Move move : moves) {
+            assertTrue(completed.getPartitions().contains(new ShardMap.Partition(move.lowerBound(), move.toShard(), null)));
+        }
+    }
+
+    @Test
+    void split_keepsBothHalvesOnTheShard() {
+        ShardMap shardMap = ShardMap.loadOrCreate(ShardMap.Strategy.RANGE, 1, 0, jdbcTemplate);
+
+        shardMap.split("", "m");
+
+        assertEquals(2, shardMap.getPartitions().size());
+        assertEquals("m", shardMap.partitionFor("q").lowerBound());
+        assertEquals("", shardMap.partitionFor("c").lowerBound());
+        assertThrows(IllegalArgumentException.class, () -> shardMap.split("m", "a"));
+    }
+}
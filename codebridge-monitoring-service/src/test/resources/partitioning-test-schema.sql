@@ -0,0 +1,4 @@
+CREATE TABLE IF NOT EXISTS items (
+    id VARCHAR(64) NOT NULL PRIMARY KEY,
+    score INT NOT NULL
+);
@@ -1,11 +1,13 @@
 package com.codebridge.server.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,6 +23,15 @@ public class RabbitMQConfig {
     @Value("${codebridge.rabbitmq.activity-log.routing-key}")
     private String activityLogRoutingKey;
 
+    @Value("${codebridge.rabbitmq.activity-log.prefetch:500}")
+    private int activityLogPrefetch;
+
+    @Value("${codebridge.rabbitmq.activity-log.consumers:2}")
+    private int activityLogConsumers;
+
+    @Value("${codebridge.rabbitmq.activity-log.max-consumers:4}")
+    private int activityLogMaxConsumers;
+
     @Bean
     public Queue activityLogQueue() {
         // Durable queue
@@ -38,9 +49,28 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(activityLogQueue).to(activityLogExchange).with(activityLogRoutingKey);
     }
 
+    // Activity log listeners acknowledge manually, once their events are committed to the database.
+    // The prefetch has to cover at least one write batch, otherwise the consumer stalls until the flush interval.
+    @Bean
+    public SimpleRabbitListenerContainerFactory activityLogListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(activityLogPrefetch);
+        factory.setConcurrentConsumers(activityLogConsumers);
+        factory.setMaxConcurrentConsumers(activityLogMaxConsumers);
+        // Messages that fail conversion would fail again, so they are not requeued
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    // Every published message gets an ID, from which the activity log consumer derives the log's ID
     @Bean
     public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
+        converter.setCreateMessageIds(true);
+        return converter;
     }
 
     // Optional: Configure RabbitTemplate to use the jsonMessageConverter by default
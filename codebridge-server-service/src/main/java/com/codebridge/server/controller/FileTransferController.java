@@ -2,9 +2,9 @@ package com.codebridge.server.controller;
 
 import com.codebridge.server.dto.file.RemoteFileEntry;
 import com.codebridge.server.service.FileTransferService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.NotBlank;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -50,25 +51,35 @@ public class FileTransferController {
         return ResponseEntity.ok(files);
     }
 
+    /**
+     * Stream a file from the remote server.
+     * Supports a single HTTP range to resume a download, gzip transfer encoding when the client
+     * accepts it, and a parallel mode that fetches large files as concurrent ranged parts.
+     */
     @GetMapping("/download")
-    public ResponseEntity<Resource> downloadFile(
+    public void downloadFile(
             @PathVariable UUID serverId,
             @RequestParam @NotBlank String remotePath,
-            Authentication authentication) {
+            @RequestParam(required = false, defaultValue = "false") boolean compress,
+            @RequestParam(required = false, defaultValue = "false") boolean parallel,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            Authentication authentication,
+            HttpServletResponse response) {
         UUID platformUserId = getPlatformUserId(authentication);
-        byte[] fileData = fileTransferService.downloadFile(serverId, platformUserId, remotePath);
-
-        ByteArrayResource resource = new ByteArrayResource(fileData);
 
         String filename = remotePath.substring(remotePath.lastIndexOf('/') + 1);
         // Ensure filename is properly encoded for the Content-Disposition header
         String encodedFilename = URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20");
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + encodedFilename + "\"")
-                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileData.length))
-                .body(resource);
+        boolean gzip = compress && acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        fileTransferService.downloadFile(serverId, platformUserId, remotePath, range, gzip, parallel, (status, headers) -> {
+            response.setStatus(status.value());
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + encodedFilename + "\"");
+            headers.forEach((name, values) -> response.setHeader(name, values.get(0)));
+            return response.getOutputStream();
+        });
     }
 
     @PostMapping("/upload")
@@ -84,16 +95,43 @@ public class FileTransferController {
 
         String originalFilename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "uploaded_file";
 
-        fileTransferService.uploadFile(
-                serverId,
-                platformUserId,
-                remotePath,
-                file.getInputStream(),
-                originalFilename
-        );
+        try (InputStream inputStream = file.getInputStream()) {
+            fileTransferService.uploadFile(
+                    serverId,
+                    platformUserId,
+                    remotePath,
+                    inputStream,
+                    originalFilename,
+                    file.getSize()
+            );
+        }
         return ResponseEntity.ok().build(); // Or ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    /**
+     * Upload a file sent as the raw request body.
+     * Unlike a multipart upload, the body is not spooled by the container first: it is passed on to the
+     * remote server as it arrives, so the client's sending rate follows the remote server's.
+     * @param serverId Server ID
+     * @param remotePath Target directory
+     * @param fileName Name of the file
+     * @param request the request whose body is the file content
+     * @param authentication Authentication object
+     * @return Empty response once the upload completes
+     */
+    @PutMapping("/upload")
+    public ResponseEntity<Void> uploadFileStream(
+            @PathVariable UUID serverId,
+            @RequestParam @NotBlank String remotePath,
+            @RequestParam @NotBlank String fileName,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        UUID platformUserId = getPlatformUserId(authentication);
+        fileTransferService.uploadFile(serverId, platformUserId, remotePath, request.getInputStream(),
+                fileName, request.getContentLengthLong());
+        return ResponseEntity.ok().build();
+    }
+
     /**
      * Delete a file or directory on the remote server
      * @param serverId Server ID
@@ -1,6 +1,7 @@
 package com.codebridge.server.controller;
 
 import com.codebridge.server.service.LogExportService;
+import com.codebridge.server.service.LogExportService.Format;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -27,6 +29,9 @@ public class LogExportController {
 
     private static final Logger logger = LoggerFactory.getLogger(LogExportController.class);
     private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
     
     private final LogExportService logExportService;
     
@@ -42,28 +47,19 @@ public class LogExportController {
      * @param serverId optional server ID to filter by
      * @param startDate optional start date to filter by
      * @param endDate optional end date to filter by
-     * @return the CSV file
+     * @param gzip whether to gzip the file
+     * @return the CSV file, streamed as it is written
      */
     @GetMapping("/csv")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public ResponseEntity<byte[]> exportLogsAsCsv(
+    public ResponseEntity<StreamingResponseBody> exportLogsAsCsv(
             @RequestParam(required = false) UUID userId,
             @RequestParam(required = false) UUID serverId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        
-        logger.info("Exporting logs as CSV for user: {}, server: {}, startDate: {}, endDate: {}", 
-                userId, serverId, startDate, endDate);
-        
-        byte[] csvData = logExportService.exportLogsAsCsv(userId, serverId, startDate, endDate);
-        
-        String filename = "logs_" + LocalDateTime.now().format(FILE_DATE_FORMATTER) + ".csv";
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean gzip) {
         
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .contentLength(csvData.length)
-                .body(csvData);
+        return export(Format.CSV, userId, serverId, startDate, endDate, gzip);
     }
     
     /**
@@ -73,28 +69,41 @@ public class LogExportController {
      * @param serverId optional server ID to filter by
      * @param startDate optional start date to filter by
      * @param endDate optional end date to filter by
-     * @return the JSON file
+     * @param gzip whether to gzip the file
+     * @return the JSON file, streamed as it is written
      */
     @GetMapping("/json")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public ResponseEntity<byte[]> exportLogsAsJson(
+    public ResponseEntity<StreamingResponseBody> exportLogsAsJson(
             @RequestParam(required = false) UUID userId,
             @RequestParam(required = false) UUID serverId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean gzip) {
         
-        logger.info("Exporting logs as JSON for user: {}, server: {}, startDate: {}, endDate: {}", 
-                userId, serverId, startDate, endDate);
-        
-        byte[] jsonData = logExportService.exportLogsAsJson(userId, serverId, startDate, endDate);
-        
-        String filename = "logs_" + LocalDateTime.now().format(FILE_DATE_FORMATTER) + ".json";
+        return export(Format.JSON, userId, serverId, startDate, endDate, gzip);
+    }
+    
+    /**
+     * Export logs as newline-delimited JSON, one log per line.
+     *
+     * @param userId optional user ID to filter by
+     * @param serverId optional server ID to filter by
+     * @param startDate optional start date to filter by
+     * @param endDate optional end date to filter by
+     * @param gzip whether to gzip the file
+     * @return the NDJSON file, streamed as it is written
+     */
+    @GetMapping("/ndjson")
+    @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+    public ResponseEntity<StreamingResponseBody> exportLogsAsNdjson(
+            @RequestParam(required = false) UUID userId,
+            @RequestParam(required = false) UUID serverId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean gzip) {
         
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_JSON)
-                .contentLength(jsonData.length)
-                .body(jsonData);
+        return export(Format.NDJSON, userId, serverId, startDate, endDate, gzip);
     }
     
     /**
@@ -104,28 +113,43 @@ public class LogExportController {
      * @param serverId optional server ID to filter by
      * @param startDate optional start date to filter by
      * @param endDate optional end date to filter by
-     * @return the ZIP file
+     * @return the ZIP file, streamed as it is written
      */
     @GetMapping("/zip")
     @PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public ResponseEntity<byte[]> exportLogsAsZip(
+    public ResponseEntity<StreamingResponseBody> exportLogsAsZip(
             @RequestParam(required = false) UUID userId,
             @RequestParam(required = false) UUID serverId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         
-        logger.info("Exporting logs as ZIP for user: {}, server: {}, startDate: {}, endDate: {}", 
-                userId, serverId, startDate, endDate);
+        return export(Format.ZIP, userId, serverId, startDate, endDate, false);
+    }
+    
+    private ResponseEntity<StreamingResponseBody> export(Format format, UUID userId, UUID serverId,
+                                                         LocalDateTime startDate, LocalDateTime endDate, boolean gzip) {
+        logger.info("Exporting logs as {} for user: {}, server: {}, startDate: {}, endDate: {}, gzip: {}",
+                format, userId, serverId, startDate, endDate, gzip);
         
-        byte[] zipData = logExportService.exportLogsAsZip(userId, serverId, startDate, endDate);
+        String filename = "logs_" + LocalDateTime.now().format(FILE_DATE_FORMATTER) + "." + format.name().toLowerCase();
+        MediaType contentType = switch (format) {
+            case CSV -> TEXT_CSV;
+            case JSON -> MediaType.APPLICATION_JSON;
+            case NDJSON -> MediaType.APPLICATION_NDJSON;
+            case ZIP -> APPLICATION_ZIP;
+        };
+        if (gzip) {
+            filename += ".gz";
+            contentType = APPLICATION_GZIP;
+        }
         
-        String filename = "logs_" + LocalDateTime.now().format(FILE_DATE_FORMATTER) + ".zip";
+        // Logs are written as they are read from the database, so the length is unknown and the response is chunked
+        StreamingResponseBody body = outputStream ->
+                logExportService.exportLogs(format, userId, serverId, startDate, endDate, gzip, outputStream);
         
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.parseMediaType("application/zip"))
-                .contentLength(zipData.length)
-                .body(zipData);
+                .contentType(contentType)
+                .body(body);
     }
 }
-
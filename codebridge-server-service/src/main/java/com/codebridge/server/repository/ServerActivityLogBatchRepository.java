@@ -0,0 +1,88 @@
+package com.codebridge.server.repository;
+
+import com.codebridge.server.model.ServerActivityLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Bulk writes of activity logs over JDBC.
+ * Inserts go out as a single JDBC batch instead of one persist per entity; with the PostgreSQL driver's
+ * {@code reWriteBatchedInserts} option the batch is sent as multi-row inserts.
+ * Skipping logs that already exist needs a statement of the database's own dialect: {@code ON CONFLICT} on
+ * PostgreSQL and {@code MERGE ... KEY} on H2, which rewrites the existing row with the same values.
+ */
+@Repository
+public class ServerActivityLogBatchRepository {
+
+    private static final String COLUMNS =
+            "(id, server_id, platform_user_id, user_id, action, details, status, error_message, ip_address, user_agent, timestamp)";
+    private static final String VALUES = "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String POSTGRESQL_INSERT_SQL =
+            "INSERT INTO server_activity_logs " + COLUMNS + " " + VALUES + " ON CONFLICT (id) DO NOTHING";
+    private static final String H2_INSERT_SQL = "MERGE INTO server_activity_logs " + COLUMNS + " KEY (id) " + VALUES;
+    private static final String PLAIN_INSERT_SQL = "INSERT INTO server_activity_logs " + COLUMNS + " " + VALUES;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String insertSql;
+
+    @Autowired
+    public ServerActivityLogBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert activity logs in one batch. The logs must have their IDs assigned;
+     * on PostgreSQL and H2 logs whose ID already exists are skipped, so a batch can safely be written again.
+     *
+     * @param logs the logs to insert
+     */
+    public void insertAll(List<ServerActivityLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(insertSql(), logs, logs.size(), (ps, log) -> {
+            ps.setObject(1, log.getId());
+            ps.setObject(2, log.getServerId());
+            ps.setObject(3, log.getPlatformUserId());
+            ps.setObject(4, log.getUserId());
+            ps.setString(5, log.getAction());
+            ps.setString(6, log.getDetails());
+            ps.setString(7, log.getStatus());
+            ps.setString(8, log.getErrorMessage());
+            ps.setString(9, log.getIpAddress());
+            ps.setString(10, log.getUserAgent());
+            ps.setTimestamp(11, Timestamp.valueOf(log.getTimestamp()));
+        });
+    }
+
+    private String insertSql() {
+        String sql = insertSql;
+        if (sql == null) {
+            String product;
+            try {
+                product = JdbcUtils.extractDatabaseMetaData(
+                        jdbcTemplate.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+            } catch (MetaDataAccessException e) {
+                throw new DataAccessResourceFailureException("Failed to detect the database for activity logs", e);
+            }
+            if ("PostgreSQL".equals(product)) {
+                sql = POSTGRESQL_INSERT_SQL;
+            } else if ("H2".equals(product)) {
+                sql = H2_INSERT_SQL;
+            } else {
+                sql = PLAIN_INSERT_SQL;
+            }
+            insertSql = sql;
+        }
+        return sql;
+    }
+}
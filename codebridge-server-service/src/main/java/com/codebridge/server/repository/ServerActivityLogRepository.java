@@ -1,8 +1,11 @@
 package com.codebridge.server.repository;
 
 import com.codebridge.server.model.ServerActivityLog;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -26,5 +29,15 @@ public interface ServerActivityLogRepository extends JpaRepository<ServerActivit
     List<ServerActivityLog> findByUserIdAndTimestampBetween(UUID userId, LocalDateTime startDate, LocalDateTime endDate);
     List<ServerActivityLog> findByServerIdAndTimestampBetween(UUID serverId, LocalDateTime startDate, LocalDateTime endDate);
     List<ServerActivityLog> findByUserIdAndServerIdAndTimestampBetween(UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Keyset-paged finders for streaming exports, ordered by (timestamp, id) so a page resumes after the last row read
+    Window<ServerActivityLog> findByTimestampBetweenOrderByTimestampAscIdAsc(
+            LocalDateTime startDate, LocalDateTime endDate, ScrollPosition position, Limit limit);
+    Window<ServerActivityLog> findByUserIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+            UUID userId, LocalDateTime startDate, LocalDateTime endDate, ScrollPosition position, Limit limit);
+    Window<ServerActivityLog> findByServerIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+            UUID serverId, LocalDateTime startDate, LocalDateTime endDate, ScrollPosition position, Limit limit);
+    Window<ServerActivityLog> findByUserIdAndServerIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+            UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate, ScrollPosition position, Limit limit);
 }
 
@@ -0,0 +1,75 @@
+package com.codebridge.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the volume, duration and throughput of each proxied SFTP transfer.
+ */
+@Component
+public class FileTransferMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileTransferMetrics.class);
+
+    /**
+     * Direction of a transfer, seen from the client.
+     */
+    public enum Direction {
+        DOWNLOAD, UPLOAD;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public FileTransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Record a finished transfer.
+     *
+     * @param direction the direction
+     * @param mode how the transfer was carried out, e.g. "stream", "parallel" or "range"
+     * @param bytes the number of bytes sent to the client or the remote server
+     * @param durationNanos the duration of the transfer
+     * @param success whether the transfer completed
+     */
+    public void recordTransfer(Direction direction, String mode, long bytes, long durationNanos, boolean success) {
+        String outcome = success ? "success" : "failure";
+        Timer.builder("codebridge.sftp.transfer.duration")
+                .description("Duration of proxied SFTP transfers")
+                .tags("direction", direction.tag, "mode", mode, "outcome", outcome)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("codebridge.sftp.transfer.bytes")
+                .description("Bytes moved by proxied SFTP transfers")
+                .baseUnit("bytes")
+                .tags("direction", direction.tag, "mode", mode, "outcome", outcome)
+                .register(meterRegistry)
+                .increment(bytes);
+
+        double seconds = durationNanos / 1e9;
+        if (success && bytes > 0 && seconds > 0) {
+            double bytesPerSecond = bytes / seconds;
+            DistributionSummary.builder("codebridge.sftp.transfer.throughput")
+                    .description("Throughput of completed proxied SFTP transfers")
+                    .baseUnit("bytes.per.second")
+                    .tags("direction", direction.tag, "mode", mode)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(bytesPerSecond);
+            logger.debug("SFTP {} ({}) of {} bytes took {} ms, {} KiB/s",
+                    direction.tag, mode, bytes, TimeUnit.NANOSECONDS.toMillis(durationNanos), (long) (bytesPerSecond / 1024));
+        }
+    }
+}
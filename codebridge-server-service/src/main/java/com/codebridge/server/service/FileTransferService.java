@@ -5,26 +5,37 @@ import com.codebridge.server.exception.FileTransferException;
 import com.codebridge.server.exception.AccessDeniedException; // Added
 import com.codebridge.server.util.JwtUtil; // Assuming a utility for JWT parsing
 import io.jsonwebtoken.Claims; // Added
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value; // Added
 import org.springframework.core.ParameterizedTypeReference; // Added
-import org.springframework.core.io.ByteArrayResource; // Added for download
-import org.springframework.core.io.Resource; // Added
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.*; // Added
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap; // Added
 import org.springframework.util.MultiValueMap; // Added
 import org.springframework.web.client.HttpStatusCodeException; // Added
 import org.springframework.web.client.RestTemplate; // Added
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder; // Added
 
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 // Removed JSch specific imports: JSch, Session, ChannelSftp, SftpATTRS, SftpException, Vector
 // Removed ByteArrayOutputStream, Instant, ZoneId, DateTimeFormatter, ArrayList from direct JSch use
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.UUID;
-import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class FileTransferService {
@@ -35,19 +46,41 @@ public class FileTransferService {
     private final RestTemplate restTemplate;
     private final ServerAccessControlService serverAccessControlService;
     private final ServerActivityLogService activityLogService;
+    private final FileTransferMetrics fileTransferMetrics;
     private final String sessionServiceBaseUrl;
-    private final JwtUtil jwtUtil = new JwtUtil(); // Placeholder for parsing SessionService JWT
+    private final JwtUtil jwtUtil;
+    // Fetches the parts of parallel downloads; the number of parts in flight is bounded per download
+    private final ExecutorService partExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Size of the copy buffer between the SessionService and the client, which bounds what a transfer holds in memory
+    @Value("${codebridge.file-transfer.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${codebridge.file-transfer.part-size:8388608}")
+    private int partSize;
+
+    @Value("${codebridge.file-transfer.parallelism:4}")
+    private int parallelism;
 
     public FileTransferService(RestTemplate restTemplate,
                                ServerAccessControlService serverAccessControlService,
                                ServerActivityLogService activityLogService,
+                               FileTransferMetrics fileTransferMetrics,
+                               JwtUtil jwtUtil,
                                @Value("${codebridge.service-urls.session-service}") String sessionServiceBaseUrl) {
         this.restTemplate = restTemplate;
         this.serverAccessControlService = serverAccessControlService;
         this.activityLogService = activityLogService;
+        this.fileTransferMetrics = fileTransferMetrics;
+        this.jwtUtil = jwtUtil;
         this.sessionServiceBaseUrl = sessionServiceBaseUrl;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        partExecutor.shutdownNow();
+    }
+
     // Helper to validate token and authorize - throws exceptions on failure
     protected UUID validateTokenAndAuthorize(UUID serverId, String sessionToken) {
         Claims claims = jwtUtil.extractAllClaims(sessionToken);
@@ -74,16 +107,18 @@ public class FileTransferService {
         return listFiles(serverId, sessionToken, remotePath);
     }
     
-    public byte[] downloadFile(UUID serverId, UUID platformUserId, String remotePath) {
+    public void downloadFile(UUID serverId, UUID platformUserId, String remotePath, String range,
+                             boolean compress, boolean parallel, DownloadTarget target) {
         // Get a valid session token for this user and server
         String sessionToken = getSessionTokenForUser(platformUserId, serverId);
-        return downloadFile(serverId, sessionToken, remotePath);
+        downloadFile(serverId, sessionToken, remotePath, range, compress, parallel, target);
     }
     
-    public void uploadFile(UUID serverId, UUID platformUserId, String remoteDirectory, InputStream inputStream, String remoteFileName) {
+    public void uploadFile(UUID serverId, UUID platformUserId, String remoteDirectory, InputStream inputStream,
+                           String remoteFileName, long contentLength) {
         // Get a valid session token for this user and server
         String sessionToken = getSessionTokenForUser(platformUserId, serverId);
-        uploadFile(serverId, sessionToken, remoteDirectory, inputStream, remoteFileName);
+        uploadFile(serverId, sessionToken, remoteDirectory, inputStream, remoteFileName, contentLength);
     }
     
     public void deleteFile(UUID serverId, UUID platformUserId, String remotePath, boolean recursive) {
@@ -153,11 +188,28 @@ public class FileTransferService {
         }
     }
 
-    public byte[] downloadFile(UUID serverId, String sessionToken, String remotePath) {
+    /**
+     * Stream a file from the remote server to a download target.
+     * Nothing is buffered beyond the copy buffer, except in parallel mode, where up to
+     * {@code parallelism} parts are fetched ahead of the one being written.
+     *
+     * @param serverId Server ID
+     * @param sessionToken Session token
+     * @param remotePath Path of the file
+     * @param range optional HTTP Range header, forwarded to the SessionService to resume or split a download
+     * @param compress whether to send the file gzip-encoded; ignored for range and parallel downloads
+     * @param parallel whether to fetch the file as parallel ranged parts; ignored for range downloads
+     * @param target receives the response status and headers, and returns the stream to write the file to
+     */
+    public void downloadFile(UUID serverId, String sessionToken, String remotePath, String range,
+                             boolean compress, boolean parallel, DownloadTarget target) {
         UUID platformUserId = null;
         String logStatus = "FAILED";
         String errorMessage = null;
-        String logDetails = String.format("Path: '%s'", remotePath);
+        String logDetails = String.format("Path: '%s'", remotePath) + (range != null ? ", Range: " + range : "");
+        String mode = range != null ? "range" : parallel && parallelism > 1 ? "parallel" : "stream";
+        CountingTarget countingTarget = new CountingTarget(target);
+        long startTime = System.nanoTime();
         try {
             platformUserId = validateTokenAndAuthorize(serverId, sessionToken);
 
@@ -166,31 +218,54 @@ public class FileTransferService {
                 .queryParam("remotePath", remotePath)
                 .toUriString();
 
-            HttpHeaders headers = new HttpHeaders();
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<byte[]> response = restTemplate.exchange(url, HttpMethod.GET, entity, byte[].class);
+            if ("parallel".equals(mode)) {
+                downloadInParts(url, countingTarget);
+            } else {
+                downloadStream(url, range, compress && range == null, countingTarget);
+            }
             logStatus = "SUCCESS";
+            fileTransferMetrics.recordTransfer(FileTransferMetrics.Direction.DOWNLOAD, mode,
+                    countingTarget.bytes(), System.nanoTime() - startTime, true);
             activityLogService.createLog(platformUserId, "FILE_DOWNLOAD_PROXY", serverId, logDetails, logStatus, null);
-            return response.getBody();
         } catch (HttpStatusCodeException e) {
             errorMessage = e.getResponseBodyAsString();
+            fileTransferMetrics.recordTransfer(FileTransferMetrics.Direction.DOWNLOAD, mode,
+                    countingTarget.bytes(), System.nanoTime() - startTime, false);
             logger.error("Error calling SessionService for SFTP download on server {}: {} - {}", serverId, e.getStatusCode(), errorMessage, e);
             activityLogService.createLog(platformUserId, "FILE_DOWNLOAD_PROXY_FAILED", serverId, logDetails, "FAILED", errorMessage);
+            if (e.getStatusCode().value() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                throw new ResponseStatusException(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, "Requested range not satisfiable: " + range, e);
+            }
             throw new FileTransferException("Failed to download file via SessionService: " + errorMessage, e);
         } catch (Exception e) {
             errorMessage = e.getMessage();
+            fileTransferMetrics.recordTransfer(FileTransferMetrics.Direction.DOWNLOAD, mode,
+                    countingTarget.bytes(), System.nanoTime() - startTime, false);
             logger.error("Unexpected error during SFTP download proxy for server {}: {}", serverId, errorMessage, e);
             activityLogService.createLog(platformUserId, "FILE_DOWNLOAD_PROXY_ERROR", serverId, logDetails, "FAILED", errorMessage);
             throw new FileTransferException("Unexpected error during SFTP download: " + errorMessage, e);
         }
     }
 
-    public void uploadFile(UUID serverId, String sessionToken, String remoteDirectory, InputStream inputStream, String remoteFileName) {
+    /**
+     * Stream a file to the remote server. The content is passed on as it is read,
+     * so the upload is never held in memory as a whole.
+     *
+     * @param serverId Server ID
+     * @param sessionToken Session token
+     * @param remoteDirectory Directory to upload to
+     * @param inputStream the file content
+     * @param remoteFileName Name of the file
+     * @param contentLength the length of the content, or -1 if unknown
+     */
+    public void uploadFile(UUID serverId, String sessionToken, String remoteDirectory, InputStream inputStream,
+                           String remoteFileName, long contentLength) {
         UUID platformUserId = null;
         String logStatus = "FAILED";
         String errorMessage = null;
         String logDetails = String.format("Path: '%s', Filename: '%s'", remoteDirectory, remoteFileName);
+        CountingInputStream countingStream = new CountingInputStream(inputStream);
+        long startTime = System.nanoTime();
         try {
             platformUserId = validateTokenAndAuthorize(serverId, sessionToken);
 
@@ -203,17 +278,17 @@ public class FileTransferService {
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            // Wrap InputStream in a Resource that RestTemplate can handle for multipart
-            // Important: RestTemplate needs a resource with a filename for multipart.
-            // We also need to ensure the InputStream is not closed by RestTemplate before it's fully read.
-            // A ByteArrayResource is simplest if the file isn't too large, otherwise, custom Resource impl.
-            // For this restoration, assuming file content can be read into byte array first.
-            // This is a simplification; true streaming upload is more complex with RestTemplate.
-            byte[] fileBytes = inputStream.readAllBytes(); // This is NOT ideal for large files
-            ByteArrayResource fileResource = new ByteArrayResource(fileBytes) {
+            // The resource streams the content; its filename is crucial for the SessionService to name the file.
+            // A known length is passed on so that the multipart part carries it, otherwise it is sent chunked.
+            InputStreamResource fileResource = new InputStreamResource(countingStream) {
                 @Override
                 public String getFilename() {
-                    return remoteFileName; // Crucial for multipart for server-side to get filename
+                    return remoteFileName;
+                }
+
+                @Override
+                public long contentLength() {
+                    return contentLength >= 0 ? contentLength : -1;
                 }
             };
             body.add("file", fileResource);
@@ -223,15 +298,21 @@ public class FileTransferService {
 
             restTemplate.postForEntity(url, requestEntity, Void.class);
             logStatus = "SUCCESS";
+            fileTransferMetrics.recordTransfer(FileTransferMetrics.Direction.UPLOAD, "stream",
+                    countingStream.bytes, System.nanoTime() - startTime, true);
             activityLogService.createLog(platformUserId, "FILE_UPLOAD_PROXY", serverId, logDetails, logStatus, null);
 
         } catch (HttpStatusCodeException e) {
             errorMessage = e.getResponseBodyAsString();
+            fileTransferMetrics.recordTransfer(FileTransferMetrics.Direction.UPLOAD, "stream",
+                    countingStream.bytes, System.nanoTime() - startTime, false);
             logger.error("Error calling SessionService for SFTP upload on server {}: {} - {}", serverId, e.getStatusCode(), errorMessage, e);
             activityLogService.createLog(platformUserId, "FILE_UPLOAD_PROXY_FAILED", serverId, logDetails, "FAILED", errorMessage);
             throw new FileTransferException("Failed to upload file via SessionService: " + errorMessage, e);
-        } catch (Exception e) { // Includes IOException from readAllBytes
+        } catch (Exception e) {
             errorMessage = e.getMessage();
+            fileTransferMetrics.recordTransfer(FileTransferMetrics.Direction.UPLOAD, "stream",
+                    countingStream.bytes, System.nanoTime() - startTime, false);
             logger.error("Unexpected error during SFTP upload proxy for server {}: {}", serverId, errorMessage, e);
             activityLogService.createLog(platformUserId, "FILE_UPLOAD_PROXY_ERROR", serverId, logDetails, "FAILED", errorMessage);
             throw new FileTransferException("Unexpected error during SFTP upload: " + errorMessage, e);
@@ -359,4 +440,248 @@ public class FileTransferService {
             throw new FileTransferException("Unexpected error during SFTP rename: " + errorMessage, e);
         }
     }
+
+    private void downloadStream(String url, String range, boolean compress, DownloadTarget target) {
+        restTemplate.execute(url, HttpMethod.GET, request -> {
+            if (range != null) {
+                request.getHeaders().set(HttpHeaders.RANGE, range);
+            }
+            if (compress) {
+                request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            }
+        }, response -> {
+            HttpHeaders headers = forwardedHeaders(response.getHeaders());
+            boolean encoded = "gzip".equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            if (compress && !encoded) {
+                // The SessionService sent the file as is; compress it on the way through
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                GZIPOutputStream gzipStream = new GZIPOutputStream(target.open(response.getStatusCode(), headers), bufferSize);
+                copy(response.getBody(), gzipStream);
+                gzipStream.finish();
+                gzipStream.flush();
+            } else {
+                OutputStream out = target.open(response.getStatusCode(), headers);
+                copy(response.getBody(), out);
+                out.flush();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Downloads a file as ranged parts fetched in parallel and writes them in order. The first part also
+     * yields the file length; if the SessionService does not honour ranges the file is streamed instead.
+     * Later parts require the entity tag of the first, so a file changing mid-download fails the download.
+     */
+    private void downloadInParts(String url, DownloadTarget target) throws IOException {
+        FilePart first;
+        try {
+            first = fetchPart(url, 0, partSize - 1L, null, true);
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode().value() != HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                throw e;
+            }
+            // An empty file has no satisfiable range
+            first = null;
+        }
+        if (first == null) {
+            downloadStream(url, null, false, target);
+            return;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentLength(first.totalLength());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String eTag = first.headers().getETag();
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+        if (first.headers().getLastModified() >= 0) {
+            headers.setLastModified(first.headers().getLastModified());
+        }
+        OutputStream out = target.open(HttpStatus.OK, headers);
+        out.write(first.content());
+
+        Deque<CompletableFuture<FilePart>> inFlight = new ArrayDeque<>(parallelism);
+        long next = first.content().length;
+        try {
+            while (next < first.totalLength() || !inFlight.isEmpty()) {
+                while (next < first.totalLength() && inFlight.size() < parallelism) {
+                    long start = next;
+                    long end = Math.min(next + partSize, first.totalLength()) - 1;
+                    inFlight.add(CompletableFuture.supplyAsync(() -> fetchPart(url, start, end, eTag, false), partExecutor));
+                    next = end + 1;
+                }
+                out.write(join(inFlight.poll()).content());
+            }
+        } finally {
+            inFlight.forEach(part -> part.cancel(true));
+        }
+        out.flush();
+    }
+
+    /**
+     * Fetches one byte range of a file.
+     *
+     * @return the part, or null if the SessionService answered the first part without a range
+     */
+    private FilePart fetchPart(String url, long start, long end, String eTag, boolean first) {
+        return restTemplate.execute(url, HttpMethod.GET, request -> {
+            request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + start + "-" + end);
+            if (eTag != null) {
+                request.getHeaders().setIfMatch(eTag);
+            }
+        }, response -> {
+            String contentRange = response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE);
+            long totalLength = contentRange != null ? parseTotalLength(contentRange) : -1;
+            if (response.getStatusCode().value() != HttpStatus.PARTIAL_CONTENT.value() || totalLength < 0) {
+                if (first) {
+                    return null;
+                }
+                throw new IOException("SessionService did not return the requested range " + start + "-" + end);
+            }
+            int expected = (int) (Math.min(end, totalLength - 1) - start + 1);
+            byte[] content = response.getBody().readNBytes(expected);
+            if (content.length != expected) {
+                throw new IOException("Part " + start + "-" + end + " ended after " + content.length + " bytes");
+            }
+            return new FilePart(content, totalLength, response.getHeaders());
+        });
+    }
+
+    private static long parseTotalLength(String contentRange) {
+        // bytes <first>-<last>/<length>, where the length may be "*" if unknown
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0 || contentRange.endsWith("*")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static FilePart join(CompletableFuture<FilePart> part) {
+        try {
+            return part.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static HttpHeaders forwardedHeaders(HttpHeaders upstream) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : new String[] {HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_RANGE, HttpHeaders.CONTENT_ENCODING,
+                HttpHeaders.ACCEPT_RANGES, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED}) {
+            String value = upstream.getFirst(name);
+            if (value != null) {
+                headers.set(name, value);
+            }
+        }
+        return headers;
+    }
+
+    private long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Destination of a streamed download.
+     */
+    @FunctionalInterface
+    public interface DownloadTarget {
+
+        /**
+         * Called once the SessionService has answered, before any content is written.
+         *
+         * @param status the status to send to the client, 200 or 206
+         * @param headers the content headers to send to the client
+         * @return the stream to write the file content to; it is flushed but not closed
+         * @throws IOException if the stream cannot be opened
+         */
+        OutputStream open(HttpStatusCode status, HttpHeaders headers) throws IOException;
+    }
+
+    private record FilePart(byte[] content, long totalLength, HttpHeaders headers) {
+    }
+
+    /**
+     * Counts the bytes written to the client.
+     */
+    private static final class CountingTarget implements DownloadTarget {
+        private final DownloadTarget target;
+        private CountingOutputStream stream;
+
+        CountingTarget(DownloadTarget target) {
+            this.target = target;
+        }
+
+        @Override
+        public OutputStream open(HttpStatusCode status, HttpHeaders headers) throws IOException {
+            stream = new CountingOutputStream(target.open(status, headers));
+            return stream;
+        }
+
+        long bytes() {
+            return stream != null ? stream.bytes : 0;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long bytes;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long bytes;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                bytes += read;
+            }
+            return read;
+        }
+    }
 }
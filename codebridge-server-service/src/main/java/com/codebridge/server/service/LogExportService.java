@@ -2,246 +2,385 @@ package com.codebridge.server.service;
 
 import com.codebridge.server.model.ServerActivityLog;
 import com.codebridge.server.repository.ServerActivityLogRepository;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
  * Service for exporting logs.
+ * Exports are streamed: logs are read in keyset-paged batches ordered by timestamp and written
+ * straight to the output stream, so memory use does not depend on the size of the export.
  */
 @Service
 public class LogExportService {
 
     private static final Logger logger = LoggerFactory.getLogger(LogExportService.class);
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    
+    private static final String CSV_HEADER = "ID,User ID,Server ID,Action,Status,Details,Error Message,IP Address,User Agent,Timestamp";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Export formats.
+     */
+    public enum Format {
+        /** Comma-separated values with a header row. */
+        CSV,
+        /** A JSON array of log objects. */
+        JSON,
+        /** One compact JSON object per line, suited to very large exports. */
+        NDJSON,
+        /** A ZIP archive containing the CSV and JSON exports. */
+        ZIP
+    }
+
     private final ServerActivityLogRepository activityLogRepository;
-    
+    private final EntityManager entityManager;
+
+    @Value("${codebridge.logs.export.page-size:1000}")
+    private int pageSize;
+
     @Autowired
-    public LogExportService(ServerActivityLogRepository activityLogRepository) {
+    public LogExportService(ServerActivityLogRepository activityLogRepository, EntityManager entityManager) {
         this.activityLogRepository = activityLogRepository;
+        this.entityManager = entityManager;
     }
-    
+
     /**
-     * Export logs as CSV.
+     * Export logs to an output stream.
+     * The stream is finished but not closed.
      *
+     * @param format the export format
      * @param userId optional user ID to filter by
      * @param serverId optional server ID to filter by
-     * @param startDate optional start date to filter by
-     * @param endDate optional end date to filter by
-     * @return the CSV data as a byte array
+     * @param startDate optional start date to filter by, defaults to seven days ago
+     * @param endDate optional end date to filter by, defaults to now
+     * @param gzip whether to gzip the output; ignored for ZIP exports, which are already compressed
+     * @param outputStream the stream to write the export to
+     * @return the number of exported logs
+     * @throws IOException if writing to the stream fails
      */
-    @Transactional(readOnly = true)
-    public byte[] exportLogsAsCsv(UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate) {
-        logger.info("Exporting logs as CSV for user: {}, server: {}, startDate: {}, endDate: {}", 
-                userId, serverId, startDate, endDate);
-        
-        List<ServerActivityLog> logs = fetchLogs(userId, serverId, startDate, endDate);
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
-            // Write CSV header
-            writer.println("ID,User ID,Server ID,Action,Status,Details,Error Message,IP Address,User Agent,Timestamp");
-            
-            // Write log entries
-            for (ServerActivityLog log : logs) {
-                writer.println(String.format("%s,%s,%s,%s,%s,%s,%s,%s,%s,%s",
-                        log.getId(),
-                        log.getUserId(),
-                        log.getServerId() != null ? log.getServerId() : "",
-                        escapeCsvField(log.getAction()),
-                        escapeCsvField(log.getStatus()),
-                        escapeCsvField(log.getDetails()),
-                        escapeCsvField(log.getErrorMessage()),
-                        escapeCsvField(log.getIpAddress()),
-                        escapeCsvField(log.getUserAgent()),
-                        log.getTimestamp().format(TIMESTAMP_FORMATTER)));
-            }
+    public long exportLogs(Format format, UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate,
+                           boolean gzip, OutputStream outputStream) throws IOException {
+        logger.info("Exporting logs as {} for user: {}, server: {}, startDate: {}, endDate: {}",
+                format, userId, serverId, startDate, endDate);
+
+        // Fix the range once so that every page, and every entry of a ZIP export, covers the same logs
+        LocalDateTime now = LocalDateTime.now();
+        LogFilter filter = new LogFilter(userId, serverId,
+                startDate != null ? startDate : now.minusDays(7),
+                endDate != null ? endDate : now);
+
+        long exported;
+        if (format == Format.ZIP) {
+            exported = exportZip(filter, outputStream);
+        } else if (gzip) {
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, WRITE_BUFFER_SIZE);
+            exported = exportText(format, filter, gzipOutputStream);
+            gzipOutputStream.finish();
+        } else {
+            exported = exportText(format, filter, outputStream);
         }
-        
-        return outputStream.toByteArray();
+        outputStream.flush();
+
+        logger.info("Exported {} logs as {}", exported, format);
+        return exported;
     }
-    
-    /**
-     * Export logs as JSON.
-     *
-     * @param userId optional user ID to filter by
-     * @param serverId optional server ID to filter by
-     * @param startDate optional start date to filter by
-     * @param endDate optional end date to filter by
-     * @return the JSON data as a byte array
-     */
-    @Transactional(readOnly = true)
-    public byte[] exportLogsAsJson(UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate) {
-        logger.info("Exporting logs as JSON for user: {}, server: {}, startDate: {}, endDate: {}", 
-                userId, serverId, startDate, endDate);
-        
-        List<ServerActivityLog> logs = fetchLogs(userId, serverId, startDate, endDate);
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
-            // Write JSON array start
-            writer.println("[");
-            
-            // Write log entries
-            for (int i = 0; i < logs.size(); i++) {
-                ServerActivityLog log = logs.get(i);
-                
-                writer.println("  {");
-                writer.println(String.format("    \"id\": \"%s\",", log.getId()));
-                writer.println(String.format("    \"userId\": \"%s\",", log.getUserId()));
-                
-                if (log.getServerId() != null) {
-                    writer.println(String.format("    \"serverId\": \"%s\",", log.getServerId()));
-                } else {
-                    writer.println("    \"serverId\": null,");
-                }
-                
-                writer.println(String.format("    \"action\": \"%s\",", escapeJsonField(log.getAction())));
-                writer.println(String.format("    \"status\": \"%s\",", escapeJsonField(log.getStatus())));
-                writer.println(String.format("    \"details\": \"%s\",", escapeJsonField(log.getDetails())));
-                
-                if (log.getErrorMessage() != null) {
-                    writer.println(String.format("    \"errorMessage\": \"%s\",", escapeJsonField(log.getErrorMessage())));
-                } else {
-                    writer.println("    \"errorMessage\": null,");
-                }
-                
-                writer.println(String.format("    \"ipAddress\": \"%s\",", escapeJsonField(log.getIpAddress())));
-                writer.println(String.format("    \"userAgent\": \"%s\",", escapeJsonField(log.getUserAgent())));
-                writer.println(String.format("    \"timestamp\": \"%s\"", log.getTimestamp().format(TIMESTAMP_FORMATTER)));
-                
-                if (i < logs.size() - 1) {
-                    writer.println("  },");
-                } else {
-                    writer.println("  }");
-                }
+
+    private long exportText(Format format, LogFilter filter, OutputStream outputStream) throws IOException {
+        Writer writer = newWriter(outputStream);
+        long exported = switch (format) {
+            case CSV -> {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                yield forEachLog(filter, (log, index) -> writeCsvRow(writer, log));
             }
-            
-            // Write JSON array end
-            writer.println("]");
-        }
-        
-        return outputStream.toByteArray();
+            case JSON -> {
+                writer.write("[\n");
+                long count = forEachLog(filter, (log, index) -> {
+                    if (index > 0) {
+                        writer.write(",\n");
+                    }
+                    writeJsonObject(writer, log, true);
+                });
+                writer.write(count > 0 ? "\n]\n" : "]\n");
+                yield count;
+            }
+            case NDJSON -> forEachLog(filter, (log, index) -> {
+                writeJsonObject(writer, log, false);
+                writer.write('\n');
+            });
+            default -> throw new IllegalArgumentException("Unsupported text export format: " + format);
+        };
+        writer.flush();
+        return exported;
     }
-    
+
     /**
-     * Export logs as ZIP containing both CSV and JSON formats.
-     *
-     * @param userId optional user ID to filter by
-     * @param serverId optional server ID to filter by
-     * @param startDate optional start date to filter by
-     * @param endDate optional end date to filter by
-     * @return the ZIP data as a byte array
+     * Writes a ZIP archive with a CSV and a JSON entry from a single pass over the logs.
+     * The CSV entry is streamed into the archive while the JSON entry is spooled to a temporary file,
+     * because ZIP entries have to be written one after the other.
      */
-    @Transactional(readOnly = true)
-    public byte[] exportLogsAsZip(UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate) {
-        logger.info("Exporting logs as ZIP for user: {}, server: {}, startDate: {}, endDate: {}", 
-                userId, serverId, startDate, endDate);
-        
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        
-        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
-            // Add CSV file to ZIP
-            byte[] csvData = exportLogsAsCsv(userId, serverId, startDate, endDate);
-            ZipEntry csvEntry = new ZipEntry("logs.csv");
-            zipOutputStream.putNextEntry(csvEntry);
-            zipOutputStream.write(csvData);
+    private long exportZip(LogFilter filter, OutputStream outputStream) throws IOException {
+        Path jsonFile = Files.createTempFile("logs-export-", ".json");
+        try {
+            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+            zipOutputStream.putNextEntry(new ZipEntry("logs.csv"));
+            Writer csvWriter = newWriter(zipOutputStream);
+            long exported;
+            try (Writer jsonWriter = newWriter(Files.newOutputStream(jsonFile))) {
+                csvWriter.write(CSV_HEADER);
+                csvWriter.write('\n');
+                jsonWriter.write("[\n");
+                exported = forEachLog(filter, (log, index) -> {
+                    writeCsvRow(csvWriter, log);
+                    if (index > 0) {
+                        jsonWriter.write(",\n");
+                    }
+                    writeJsonObject(jsonWriter, log, true);
+                });
+                jsonWriter.write(exported > 0 ? "\n]\n" : "]\n");
+            }
+            csvWriter.flush();
             zipOutputStream.closeEntry();
-            
-            // Add JSON file to ZIP
-            byte[] jsonData = exportLogsAsJson(userId, serverId, startDate, endDate);
-            ZipEntry jsonEntry = new ZipEntry("logs.json");
-            zipOutputStream.putNextEntry(jsonEntry);
-            zipOutputStream.write(jsonData);
+
+            zipOutputStream.putNextEntry(new ZipEntry("logs.json"));
+            Files.copy(jsonFile, zipOutputStream);
             zipOutputStream.closeEntry();
-        } catch (IOException e) {
-            logger.error("Error creating ZIP file", e);
-            throw new RuntimeException("Error creating ZIP file", e);
+            zipOutputStream.finish();
+            return exported;
+        } finally {
+            Files.deleteIfExists(jsonFile);
         }
-        
-        return outputStream.toByteArray();
     }
-    
+
     /**
-     * Fetch logs based on filters.
+     * Pages through the logs matching a filter in (timestamp, id) order.
+     * The persistence context is cleared after each page so that exported entities can be collected.
      *
-     * @param userId optional user ID to filter by
-     * @param serverId optional server ID to filter by
-     * @param startDate optional start date to filter by
-     * @param endDate optional end date to filter by
-     * @return the list of logs
+     * @param filter the filter
+     * @param consumer receives each log with its zero-based index
+     * @return the number of logs
+     * @throws IOException if the consumer fails
      */
-    private List<ServerActivityLog> fetchLogs(UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate) {
-        // Set default dates if not provided
-        LocalDateTime effectiveStartDate = startDate != null ? startDate : LocalDateTime.now().minusDays(7);
-        LocalDateTime effectiveEndDate = endDate != null ? endDate : LocalDateTime.now();
-        
-        // Fetch logs based on filters
-        if (userId != null && serverId != null) {
-            return activityLogRepository.findByUserIdAndServerIdAndTimestampBetween(
-                    userId, serverId, effectiveStartDate, effectiveEndDate);
-        } else if (userId != null) {
-            return activityLogRepository.findByUserIdAndTimestampBetween(
-                    userId, effectiveStartDate, effectiveEndDate);
-        } else if (serverId != null) {
-            return activityLogRepository.findByServerIdAndTimestampBetween(
-                    serverId, effectiveStartDate, effectiveEndDate);
+    private long forEachLog(LogFilter filter, LogConsumer consumer) throws IOException {
+        ScrollPosition position = ScrollPosition.keyset();
+        long count = 0;
+        while (true) {
+            Window<ServerActivityLog> page = fetchPage(filter, position);
+            for (ServerActivityLog log : page) {
+                consumer.accept(log, count++);
+            }
+            if (page.isEmpty() || !page.hasNext()) {
+                return count;
+            }
+            position = page.positionAt(page.size() - 1);
+            entityManager.clear();
+        }
+    }
+
+    private Window<ServerActivityLog> fetchPage(LogFilter filter, ScrollPosition position) {
+        Limit limit = Limit.of(pageSize);
+        if (filter.userId() != null && filter.serverId() != null) {
+            return activityLogRepository.findByUserIdAndServerIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+                    filter.userId(), filter.serverId(), filter.startDate(), filter.endDate(), position, limit);
+        } else if (filter.userId() != null) {
+            return activityLogRepository.findByUserIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+                    filter.userId(), filter.startDate(), filter.endDate(), position, limit);
+        } else if (filter.serverId() != null) {
+            return activityLogRepository.findByServerIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+                    filter.serverId(), filter.startDate(), filter.endDate(), position, limit);
         } else {
-            return activityLogRepository.findByTimestampBetween(
-                    effectiveStartDate, effectiveEndDate);
+            return activityLogRepository.findByTimestampBetweenOrderByTimestampAscIdAsc(
+                    filter.startDate(), filter.endDate(), position, limit);
+        }
+    }
+
+    private static Writer newWriter(OutputStream outputStream) {
+        return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+    }
+
+    private static void writeCsvRow(Writer writer, ServerActivityLog log) throws IOException {
+        writer.write(String.valueOf(log.getId()));
+        writer.write(',');
+        writer.write(String.valueOf(log.getUserId()));
+        writer.write(',');
+        if (log.getServerId() != null) {
+            writer.write(log.getServerId().toString());
         }
+        writer.write(',');
+        writeCsvField(writer, log.getAction());
+        writer.write(',');
+        writeCsvField(writer, log.getStatus());
+        writer.write(',');
+        writeCsvField(writer, log.getDetails());
+        writer.write(',');
+        writeCsvField(writer, log.getErrorMessage());
+        writer.write(',');
+        writeCsvField(writer, log.getIpAddress());
+        writer.write(',');
+        writeCsvField(writer, log.getUserAgent());
+        writer.write(',');
+        TIMESTAMP_FORMATTER.formatTo(log.getTimestamp(), writer);
+        writer.write('\n');
     }
-    
+
+    private static void writeJsonObject(Writer writer, ServerActivityLog log, boolean pretty) throws IOException {
+        String open = pretty ? "  {\n    \"" : "{\"";
+        String separator = pretty ? ",\n    \"" : ",\"";
+        String colon = pretty ? "\": " : "\":";
+
+        writer.write(open);
+        writer.write("id");
+        writer.write(colon);
+        writeJsonString(writer, String.valueOf(log.getId()));
+        writer.write(separator);
+        writer.write("userId");
+        writer.write(colon);
+        writeJsonString(writer, String.valueOf(log.getUserId()));
+        writer.write(separator);
+        writer.write("serverId");
+        writer.write(colon);
+        if (log.getServerId() != null) {
+            writeJsonString(writer, log.getServerId().toString());
+        } else {
+            writer.write("null");
+        }
+        writer.write(separator);
+        writer.write("action");
+        writer.write(colon);
+        writeJsonString(writer, log.getAction());
+        writer.write(separator);
+        writer.write("status");
+        writer.write(colon);
+        writeJsonString(writer, log.getStatus());
+        writer.write(separator);
+        writer.write("details");
+        writer.write(colon);
+        writeJsonString(writer, log.getDetails());
+        writer.write(separator);
+        writer.write("errorMessage");
+        writer.write(colon);
+        if (log.getErrorMessage() != null) {
+            writeJsonString(writer, log.getErrorMessage());
+        } else {
+            writer.write("null");
+        }
+        writer.write(separator);
+        writer.write("ipAddress");
+        writer.write(colon);
+        writeJsonString(writer, log.getIpAddress());
+        writer.write(separator);
+        writer.write("userAgent");
+        writer.write(colon);
+        writeJsonString(writer, log.getUserAgent());
+        writer.write(separator);
+        writer.write("timestamp");
+        writer.write(colon);
+        writer.write('"');
+        TIMESTAMP_FORMATTER.formatTo(log.getTimestamp(), writer);
+        writer.write('"');
+        writer.write(pretty ? "\n  }" : "}");
+    }
+
     /**
-     * Escape a field for CSV format.
+     * Write a field in CSV format, quoting it if it contains commas, quotes or line breaks.
      *
-     * @param field the field to escape
-     * @return the escaped field
+     * @param writer the writer
+     * @param field the field to write, null is written as an empty field
      */
-    private String escapeCsvField(String field) {
+    private static void writeCsvField(Writer writer, String field) throws IOException {
         if (field == null) {
-            return "";
+            return;
         }
-        
-        // Escape quotes and wrap in quotes if the field contains commas, quotes, or newlines
-        if (field.contains("\"") || field.contains(",") || field.contains("\n")) {
-            return "\"" + field.replace("\"", "\"\"") + "\"";
+
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == '"' || c == ',' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(field);
+            return;
+        }
+
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < field.length(); i++) {
+            if (field.charAt(i) == '"') {
+                writer.write(field, start, i + 1 - start);
+                writer.write('"');
+                start = i + 1;
+            }
         }
-        
-        return field;
+        writer.write(field, start, field.length() - start);
+        writer.write('"');
     }
-    
+
     /**
-     * Escape a field for JSON format.
+     * Write a quoted JSON string, escaping backslashes, quotes and control characters.
      *
-     * @param field the field to escape
-     * @return the escaped field
+     * @param writer the writer
+     * @param field the string to write, null is written as an empty string
      */
-    private String escapeJsonField(String field) {
-        if (field == null) {
-            return "";
+    private static void writeJsonString(Writer writer, String field) throws IOException {
+        writer.write('"');
+        if (field != null) {
+            int start = 0;
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    continue;
+                }
+                writer.write(field, start, i - start);
+                start = i + 1;
+                switch (c) {
+                    case '"' -> writer.write("\\\"");
+                    case '\\' -> writer.write("\\\\");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\t' -> writer.write("\\t");
+                    default -> {
+                        writer.write("\\u00");
+                        writer.write(HEX_DIGITS[c >> 4]);
+                        writer.write(HEX_DIGITS[c & 0xF]);
+                    }
+                }
+            }
+            writer.write(field, start, field.length() - start);
         }
-        
-        // Escape backslashes, quotes, and control characters
-        return field.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+        writer.write('"');
+    }
+
+    /**
+     * Filter of an export with its effective date range.
+     */
+    private record LogFilter(UUID userId, UUID serverId, LocalDateTime startDate, LocalDateTime endDate) {
     }
-}
 
+    @FunctionalInterface
+    private interface LogConsumer {
+        void accept(ServerActivityLog log, long index) throws IOException;
+    }
+}
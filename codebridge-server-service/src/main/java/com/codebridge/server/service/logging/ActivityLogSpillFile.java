@@ -0,0 +1,134 @@
+package com.codebridge.server.service.logging;
+
+import com.codebridge.server.model.ServerActivityLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded local file holding activity logs that could not be written to the database.
+ * Logs are appended as one JSON object per line and forced to disk before the append returns,
+ * so the broker messages they came from can be acknowledged. Not thread-safe; the consumer only
+ * touches it from the flushing thread.
+ */
+final class ActivityLogSpillFile {
+
+    private final Path path;
+    private final Path replayPath;
+    private final long maxBytes;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+
+    ActivityLogSpillFile(Path path, long maxBytes, ObjectMapper objectMapper) {
+        this.path = path;
+        this.replayPath = path.resolveSibling(path.getFileName() + ".replay");
+        this.maxBytes = maxBytes;
+        this.writer = objectMapper.writerFor(ServerActivityLog.class);
+        this.reader = objectMapper.readerFor(ServerActivityLog.class);
+    }
+
+    /**
+     * Append logs to the file.
+     *
+     * @param logs the logs
+     * @return true if the logs were written and synced, false if they would not fit
+     * @throws IOException if writing fails
+     */
+    boolean append(List<ServerActivityLog> logs) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(logs.size() * 256);
+        for (ServerActivityLog log : logs) {
+            writer.writeValue(lines, log);
+            lines.write('\n');
+        }
+        if (sizeOf(path) + sizeOf(replayPath) + lines.size() > maxBytes) {
+            return false;
+        }
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether logs are waiting to be replayed.
+     *
+     * @return true if the file holds logs
+     */
+    boolean hasPending() {
+        return Files.exists(replayPath) || Files.exists(path);
+    }
+
+    /**
+     * Replay the spilled logs in batches, then delete them.
+     * Logs appended while a replay runs are kept for the next replay. If a batch fails the file is kept
+     * and the next replay starts over, so the sink must tolerate logs it has already written.
+     *
+     * @param batchSize the maximum number of logs per batch
+     * @param sink receives each batch
+     * @return the number of replayed logs
+     * @throws IOException if reading the file fails
+     */
+    long replay(int batchSize, BatchSink sink) throws IOException {
+        if (!Files.exists(replayPath)) {
+            if (!Files.exists(path)) {
+                return 0;
+            }
+            Files.move(path, replayPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        long replayed = 0;
+        List<ServerActivityLog> batch = new ArrayList<>(batchSize);
+        try (BufferedReader lines = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                batch.add(reader.readValue(line));
+                if (batch.size() == batchSize) {
+                    sink.write(batch);
+                    replayed += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.write(batch);
+            replayed += batch.size();
+        }
+        Files.delete(replayPath);
+        return replayed;
+    }
+
+    private static long sizeOf(Path file) throws IOException {
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    /**
+     * Receives replayed logs.
+     */
+    @FunctionalInterface
+    interface BatchSink {
+        void write(List<ServerActivityLog> logs);
+    }
+}
@@ -2,102 +2,335 @@ package com.codebridge.server.service.logging;
 
 import com.codebridge.server.dto.logging.LogEventMessage;
 import com.codebridge.server.model.ServerActivityLog;
-import com.codebridge.server.repository.ServerActivityLogRepository;
+import com.codebridge.server.repository.ServerActivityLogBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.dao.DataAccessException;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Consumes activity log events from RabbitMQ and writes them to the database in batches.
+ * Listener threads only map events and hand them to a lock-free ring buffer; a single writer thread drains
+ * the buffer into JDBC batch inserts, each in its own transaction, and acknowledges the broker messages
+ * once the batch is committed. Batches that cannot be written are spilled to a bounded local file and
+ * replayed when the database is back; when the spill file is full the messages are returned to the broker.
+ * Each log's ID is derived from the broker message ID, so a message that is redelivered after its batch was
+ * written is skipped by the insert. On shutdown the buffer is drained while the listener channels are still
+ * open, and deliveries arriving until the containers stop are written and acknowledged right away.
+ */
 @Service
-public class LogEventConsumerService {
+public class LogEventConsumerService implements SmartLifecycle {
 
     private static final Logger logger = LoggerFactory.getLogger(LogEventConsumerService.class);
 
-    private static final int BATCH_SIZE = 100; // Configurable via @Value if needed
-    // Using fixedDelay for simplicity, ensure this value is less than message visibility timeout if applicable
-    private static final long BATCH_FLUSH_FIXED_DELAY_MS = 5000; // 5 seconds
-    private static final long BATCH_FLUSH_INITIAL_DELAY_MS = 5000; // 5 seconds
+    private final ServerActivityLogBatchRepository batchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
 
+    @Value("${codebridge.logs.ingest.batch-size:500}")
+    private int batchSize;
 
-    private final ServerActivityLogRepository serverActivityLogRepository;
-    private final List<ServerActivityLog> logBatch = new ArrayList<>(BATCH_SIZE);
+    @Value("${codebridge.logs.ingest.flush-interval-ms:1000}")
+    private long flushIntervalMs;
 
-    public LogEventConsumerService(ServerActivityLogRepository serverActivityLogRepository) {
-        this.serverActivityLogRepository = serverActivityLogRepository;
+    @Value("${codebridge.logs.ingest.buffer-capacity:8192}")
+    private int bufferCapacity;
+
+    @Value("${codebridge.logs.ingest.spill.path:/tmp/codebridge/activity-log-spill.ndjson}")
+    private String spillPath;
+
+    @Value("${codebridge.logs.ingest.spill.max-bytes:67108864}")
+    private long spillMaxBytes;
+
+    private ActivityLogRingBuffer<PendingLogEvent> ringBuffer;
+    private ActivityLogSpillFile spillFile;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final List<PendingLogEvent> drained = new ArrayList<>();
+
+    private Counter consumedCounter;
+    private Counter spilledCounter;
+    private Counter rejectedCounter;
+    private Timer flushTimer;
+
+    private volatile boolean running;
+    private volatile boolean draining;
+    private volatile Thread writerThread;
+
+    @Autowired
+    public LogEventConsumerService(ServerActivityLogBatchRepository batchRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
     }
 
-    @RabbitListener(queues = "${codebridge.rabbitmq.activity-log.queue-name}")
-    public void receiveLogEvent(@Payload LogEventMessage logEventMessage) {
+    @PostConstruct
+    public void init() {
+        ringBuffer = new ActivityLogRingBuffer<>(bufferCapacity);
+        spillFile = new ActivityLogSpillFile(Paths.get(spillPath), spillMaxBytes, objectMapper);
+
+        consumedCounter = Counter.builder("codebridge.activitylog.events.consumed")
+                .description("Activity log events received from the broker")
+                .register(meterRegistry);
+        spilledCounter = Counter.builder("codebridge.activitylog.events.spilled")
+                .description("Activity log events written to the local spill file")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("codebridge.activitylog.events.rejected")
+                .description("Activity log events returned to the broker")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("codebridge.activitylog.flush")
+                .description("Time to write and commit a batch of activity logs")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("codebridge.activitylog.buffer.size", ringBuffer, ActivityLogRingBuffer::size)
+                .description("Activity log events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(queues = "${codebridge.rabbitmq.activity-log.queue-name}",
+            containerFactory = "activityLogListenerContainerFactory")
+    public void receiveLogEvent(@Payload LogEventMessage logEventMessage, Channel channel,
+                                @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId) {
         logger.debug("Received log event: {}", logEventMessage);
-        try {
-            ServerActivityLog logEntity = mapToEntity(logEventMessage);
+        consumedCounter.increment();
 
-            synchronized (logBatch) {
-                logBatch.add(logEntity);
-                if (logBatch.size() >= BATCH_SIZE) {
-                    logger.info("Log batch reached size {}, flushing...", BATCH_SIZE);
-                    flushLogBatchInternal(); // Call internal method that is synchronized
-                }
-            }
+        ServerActivityLog logEntity;
+        try {
+            logEntity = mapToEntity(logEventMessage, messageId);
         } catch (Exception e) {
+            // A message that cannot be mapped will never succeed, so it is not requeued
             logger.error("Error processing received log event: {}. Event: {}", e.getMessage(), logEventMessage, e);
-            // Depending on error handling strategy, message might be requeued or sent to DLQ
-            // For now, just logging the error.
+            reject(channel, deliveryTag, false);
+            return;
+        }
+
+        PendingLogEvent event = new PendingLogEvent(logEntity, channel, deliveryTag);
+        while (!ringBuffer.offer(event)) {
+            // The writer is behind; help it out, which also holds back this listener
+            flushLogBatch();
+        }
+        if (draining) {
+            // The container is about to close this channel, so the event is acknowledged while it can be
+            while (flushLogBatch() > 0) {
+                logger.debug("Flushed log events received while shutting down.");
+            }
+        } else if (ringBuffer.size() >= batchSize) {
+            LockSupport.unpark(writerThread);
         }
     }
 
-    @Scheduled(fixedDelay = BATCH_FLUSH_FIXED_DELAY_MS, initialDelay = BATCH_FLUSH_INITIAL_DELAY_MS)
-    public void scheduledFlush() {
-        logger.debug("Scheduled log batch flush triggered.");
-        flushLogBatch();
+    /**
+     * Drain the buffer when the context starts closing. This runs before any lifecycle bean is stopped,
+     * so the listener channels are still open and the acknowledgements reach the broker.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void drainOnShutdown() {
+        draining = true;
+        while (flushLogBatch() > 0) {
+            logger.debug("Flushed buffered log events before the listeners stop.");
+        }
     }
 
-    // Public synchronized method for explicit flush if needed, or for @Scheduled
-    public void flushLogBatch() {
-        synchronized (logBatch) {
-            flushLogBatchInternal();
+    /**
+     * Write the oldest buffered events to the database and acknowledge them.
+     * When nothing is buffered, logs spilled during an earlier outage are replayed instead.
+     *
+     * @return the number of events taken from the buffer
+     */
+    public int flushLogBatch() {
+        flushLock.lock();
+        try {
+            drained.clear();
+            ringBuffer.drainTo(drained, batchSize);
+            if (drained.isEmpty()) {
+                replaySpilledLogs();
+                return 0;
+            }
+
+            List<ServerActivityLog> logs = new ArrayList<>(drained.size());
+            for (PendingLogEvent event : drained) {
+                logs.add(event.log);
+            }
+
+            long startTime = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> batchRepository.insertAll(logs));
+            } catch (Exception e) {
+                logger.error("Error saving batch of {} log events to database: {}", logs.size(), e.getMessage(), e);
+                spill(logs);
+                return logs.size();
+            } finally {
+                flushTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            }
+            logger.debug("Saved {} log events to database.", logs.size());
+            acknowledge(drained);
+            return logs.size();
+        } finally {
+            drained.clear();
+            flushLock.unlock();
         }
     }
 
-    // Internal method to be called from synchronized blocks
-    @Transactional // Apply transaction to the batch save operation
-    private void flushLogBatchInternal() {
-        if (logBatch.isEmpty()) {
-            logger.debug("Log batch is empty, nothing to flush.");
-            return;
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::runWriter, "activity-log-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Whatever is left is written now; events whose acknowledgement no longer reaches the broker are
+        // redelivered and skipped by the insert, as their IDs are derived from the message IDs
+        while (flushLogBatch() > 0) {
+            logger.debug("Flushed buffered log events on shutdown.");
         }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Start before and stop after the listener containers, so that the last deliveries are still written
+        return SmartLifecycle.DEFAULT_PHASE - 1000;
+    }
 
-        List<ServerActivityLog> batchToSave = new ArrayList<>(logBatch); // Copy to avoid ConcurrentModification if save is slow
-        logBatch.clear();
+    private void runWriter() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        long nextFlush = System.nanoTime() + flushIntervalNanos;
+        while (running) {
+            long now = System.nanoTime();
+            if (ringBuffer.size() >= batchSize || now - nextFlush >= 0) {
+                try {
+                    flushLogBatch();
+                } catch (Exception e) {
+                    logger.error("Unexpected error during log batch flush: {}", e.getMessage(), e);
+                }
+                nextFlush = System.nanoTime() + flushIntervalNanos;
+            } else {
+                LockSupport.parkNanos(this, nextFlush - now);
+            }
+        }
+    }
+
+    private void spill(List<ServerActivityLog> logs) {
+        try {
+            if (spillFile.append(logs)) {
+                spilledCounter.increment(logs.size());
+                logger.warn("Spilled {} log events to {}", logs.size(), spillPath);
+                acknowledge(drained);
+                return;
+            }
+            logger.warn("Spill file {} is full, returning {} log events to the broker", spillPath, logs.size());
+        } catch (IOException e) {
+            logger.error("Error spilling {} log events to {}: {}", logs.size(), spillPath, e.getMessage(), e);
+        }
+        rejectedCounter.increment(drained.size());
+        for (PendingLogEvent event : drained) {
+            reject(event.channel, event.deliveryTag, true);
+        }
+    }
 
-        logger.info("Flushing {} log events to database.", batchToSave.size());
+    private void replaySpilledLogs() {
+        if (!spillFile.hasPending()) {
+            return;
+        }
         try {
-            serverActivityLogRepository.saveAll(batchToSave);
-            logger.info("Successfully saved {} log events to database.", batchToSave.size());
-        } catch (DataAccessException e) {
-            logger.error("Error saving log batch to database: {}", e.getMessage(), e);
-            // Handle failed batch: e.g., retry, log to a dead-letter file, etc.
-            // For now, logging the error. These logs might be lost if not handled.
-            // Re-add to batch could cause loop if DB is down; consider a DLQ strategy or limited retries.
-            // For simplicity here, items are cleared.
+            long replayed = spillFile.replay(batchSize,
+                    logs -> transactionTemplate.executeWithoutResult(status -> batchRepository.insertAll(logs)));
+            logger.info("Replayed {} spilled log events from {}", replayed, spillPath);
         } catch (Exception e) {
-            logger.error("Unexpected error during log batch save: {}", e.getMessage(), e);
+            logger.warn("Could not replay spilled log events from {}: {}", spillPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Acknowledges events with one multiple-ack per channel. A listener channel belongs to a single consumer,
+     * which offers its deliveries in tag order, so every earlier delivery on the channel has been drained too.
+     */
+    private void acknowledge(List<PendingLogEvent> events) {
+        Map<Channel, Long> lastDeliveryTags = new IdentityHashMap<>();
+        for (PendingLogEvent event : events) {
+            lastDeliveryTags.put(event.channel, event.deliveryTag);
         }
+        lastDeliveryTags.forEach((channel, deliveryTag) -> {
+            try {
+                channel.basicAck(deliveryTag, true);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Error acknowledging log events up to delivery tag {}: {}", deliveryTag, e.getMessage());
+            }
+        });
     }
 
-    private ServerActivityLog mapToEntity(LogEventMessage dto) {
+    private void reject(Channel channel, long deliveryTag, boolean requeue) {
+        try {
+            channel.basicNack(deliveryTag, false, requeue);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Error rejecting log event with delivery tag {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    private ServerActivityLog mapToEntity(LogEventMessage dto, String messageId) {
         ServerActivityLog entity = new ServerActivityLog();
+        // Derived from the message so that a log written twice (after a redelivery or a spill replay) is
+        // inserted once; a message published without an ID cannot be recognised when it comes again
+        entity.setId(messageId != null
+                ? UUID.nameUUIDFromBytes(messageId.getBytes(StandardCharsets.UTF_8))
+                : UUID.randomUUID());
         entity.setPlatformUserId(dto.getPlatformUserId());
+        entity.setUserId(dto.getPlatformUserId());
         entity.setAction(dto.getAction());
         entity.setServerId(dto.getServerId()); // Can be null
         entity.setDetails(dto.getDetails());
@@ -108,5 +341,19 @@ public class LogEventConsumerService {
         entity.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(dto.getTimestamp()), ZoneId.systemDefault()));
         return entity;
     }
-}
 
+    /**
+     * A mapped event waiting to be written, with the delivery to acknowledge once it is.
+     */
+    private static final class PendingLogEvent {
+        final ServerActivityLog log;
+        final Channel channel;
+        final long deliveryTag;
+
+        PendingLogEvent(ServerActivityLog log, Channel channel, long deliveryTag) {
+            this.log = log;
+            this.channel = channel;
+            this.deliveryTag = deliveryTag;
+        }
+    }
+}
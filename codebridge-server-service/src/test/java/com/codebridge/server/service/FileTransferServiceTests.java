@@ -3,7 +3,7 @@ package com.codebridge.server.service;
 import com.codebridge.server.dto.UserSpecificConnectionDetailsDto;
 import com.codebridge.server.dto.file.RemoteFileEntry;
 import com.codebridge.server.exception.FileTransferException;
-import com.codebridge.server.util.JwtUtil; // Placeholder
+import com.codebridge.server.util.JwtUtil;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,17 +15,27 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.*;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -38,7 +48,8 @@ class FileTransferServiceTests {
     @Mock private RestTemplate restTemplate;
     @Mock private ServerAccessControlService serverAccessControlService;
     @Mock private ServerActivityLogService activityLogService;
-    // JwtUtil is new'd up, similar challenge as in RemoteExecutionServiceTests
+    @Mock private FileTransferMetrics fileTransferMetrics;
+    @Mock private JwtUtil jwtUtil;
 
     @InjectMocks
     private FileTransferService fileTransferService;
@@ -52,12 +63,15 @@ class FileTransferServiceTests {
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(fileTransferService, "sessionServiceBaseUrl", sessionServiceBaseUrl);
+        ReflectionTestUtils.setField(fileTransferService, "bufferSize", 8192);
+        ReflectionTestUtils.setField(fileTransferService, "partSize", 4);
+        ReflectionTestUtils.setField(fileTransferService, "parallelism", 2);
 
-        // Mocking for validateTokenAndAuthorize helper method (implicitly)
+        // Claims of the session token checked by validateTokenAndAuthorize
         Claims mockClaims = Jwts.claims().setSubject(platformUserId.toString());
         mockClaims.put("resourceId", serverId.toString());
         mockClaims.put("type", "SSH"); // SFTP uses SSH sessions
-        // We assume JwtUtil works for parsing; direct mocking is hard here.
+        when(jwtUtil.extractAllClaims(sessionToken)).thenReturn(mockClaims);
 
         when(serverAccessControlService.getValidatedConnectionDetails(platformUserId, serverId))
             .thenReturn(mock(UserSpecificConnectionDetailsDto.class)); // Non-null to pass validation
@@ -87,21 +101,121 @@ class FileTransferServiceTests {
     @Test
     void downloadFile_success() {
         byte[] fileContent = "dummy content".getBytes();
-        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(fileContent, HttpStatus.OK);
+        List<HttpHeaders> requests = stubDownload(request -> new MockClientHttpResponse(fileContent, HttpStatus.OK));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-        when(restTemplate.exchange(
-            contains("/ops/ssh/" + sessionToken + "/sftp/download"),
-            eq(HttpMethod.GET),
-            any(HttpEntity.class),
-            eq(byte[].class)))
-            .thenReturn(responseEntity);
-
-        byte[] actualContent = fileTransferService.downloadFile(serverId, sessionToken, remotePath + "/file.txt");
+        fileTransferService.downloadFile(serverId, sessionToken, remotePath + "/file.txt", null, false, false,
+                (status, headers) -> out);
 
-        assertArrayEquals(fileContent, actualContent);
+        assertArrayEquals(fileContent, out.toByteArray());
+        assertNull(requests.get(0).getFirst(HttpHeaders.RANGE));
+        verify(fileTransferMetrics).recordTransfer(eq(FileTransferMetrics.Direction.DOWNLOAD), eq("stream"),
+                eq((long) fileContent.length), anyLong(), eq(true));
         verify(activityLogService).createLog(eq(platformUserId), eq("FILE_DOWNLOAD_PROXY"), eq(serverId), anyString(), eq("SUCCESS"), eq(null));
     }
 
+    @Test
+    void downloadFile_forwardsRangeAndPartialContent() {
+        stubDownload(request -> {
+            assertEquals("bytes=6-", request.getFirst(HttpHeaders.RANGE));
+            MockClientHttpResponse response = new MockClientHttpResponse("content".getBytes(), HttpStatus.PARTIAL_CONTENT);
+            response.getHeaders().set(HttpHeaders.CONTENT_RANGE, "bytes 6-12/13");
+            return response;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<HttpStatusCode> statuses = new ArrayList<>();
+        List<HttpHeaders> forwarded = new ArrayList<>();
+
+        fileTransferService.downloadFile(serverId, sessionToken, remotePath + "/file.txt", "bytes=6-", false, false,
+                (status, headers) -> {
+                    statuses.add(status);
+                    forwarded.add(headers);
+                    return out;
+                });
+
+        assertEquals("content", out.toString());
+        assertEquals(List.of(HttpStatus.PARTIAL_CONTENT), statuses);
+        assertEquals("bytes 6-12/13", forwarded.get(0).getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void downloadFile_unsatisfiableRange_throwsResponseStatusException() {
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+            .thenThrow(new HttpClientErrorException(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () ->
+                fileTransferService.downloadFile(serverId, sessionToken, remotePath + "/file.txt", "bytes=100-", false, false,
+                        (status, headers) -> new ByteArrayOutputStream()));
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, exception.getStatusCode());
+        verify(fileTransferMetrics).recordTransfer(eq(FileTransferMetrics.Direction.DOWNLOAD), eq("range"),
+                eq(0L), anyLong(), eq(false));
+    }
+
+    @Test
+    void downloadFile_compressesWhenSessionServiceDoesNot() throws IOException {
+        byte[] fileContent = "compressible content".getBytes();
+        stubDownload(request -> new MockClientHttpResponse(fileContent, HttpStatus.OK));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<HttpHeaders> forwarded = new ArrayList<>();
+
+        fileTransferService.downloadFile(serverId, sessionToken, remotePath + "/file.txt", null, true, false,
+                (status, headers) -> {
+                    forwarded.add(headers);
+                    return out;
+                });
+
+        assertEquals("gzip", forwarded.get(0).getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertArrayEquals(fileContent, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void downloadFile_parallel_fetchesPartsAndWritesThemInOrder() {
+        byte[] fileContent = "0123456789abc".getBytes();
+        List<HttpHeaders> requests = stubDownload(request -> {
+            String[] range = request.getFirst(HttpHeaders.RANGE).substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(range[0]);
+            int end = Math.min(Integer.parseInt(range[1]), fileContent.length - 1);
+            byte[] part = Arrays.copyOfRange(fileContent, start, end + 1);
+            MockClientHttpResponse response = new MockClientHttpResponse(part, HttpStatus.PARTIAL_CONTENT);
+            response.getHeaders().set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileContent.length);
+            response.getHeaders().setETag("\"v1\"");
+            return response;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<HttpHeaders> forwarded = new ArrayList<>();
+
+        fileTransferService.downloadFile(serverId, sessionToken, remotePath + "/file.txt", null, false, true,
+                (status, headers) -> {
+                    forwarded.add(headers);
+                    return out;
+                });
+
+        assertArrayEquals(fileContent, out.toByteArray());
+        assertEquals(fileContent.length, forwarded.get(0).getContentLength());
+        assertEquals(4, requests.size());
+        assertNull(requests.get(0).getFirst(HttpHeaders.IF_MATCH));
+        assertTrue(requests.stream().skip(1).allMatch(request -> "\"v1\"".equals(request.getFirst(HttpHeaders.IF_MATCH))));
+        verify(fileTransferMetrics).recordTransfer(eq(FileTransferMetrics.Direction.DOWNLOAD), eq("parallel"),
+                eq((long) fileContent.length), anyLong(), eq(true));
+    }
+
+    @Test
+    void downloadFile_parallel_fallsBackToStreamWithoutRangeSupport() {
+        byte[] fileContent = "no ranges here".getBytes();
+        List<HttpHeaders> requests = stubDownload(request -> new MockClientHttpResponse(fileContent, HttpStatus.OK));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        fileTransferService.downloadFile(serverId, sessionToken, remotePath + "/file.txt", null, false, true,
+                (status, headers) -> out);
+
+        assertArrayEquals(fileContent, out.toByteArray());
+        assertEquals(2, requests.size());
+        assertNull(requests.get(1).getFirst(HttpHeaders.RANGE));
+    }
+
     @Test
     void uploadFile_success() throws IOException {
         InputStream inputStream = new ByteArrayInputStream("upload content".getBytes());
@@ -115,8 +229,10 @@ class FileTransferServiceTests {
             eq(Void.class)))
             .thenReturn(responseEntity);
 
-        fileTransferService.uploadFile(serverId, sessionToken, remotePath, inputStream, remoteFileName);
+        fileTransferService.uploadFile(serverId, sessionToken, remotePath, inputStream, remoteFileName, 14);
 
+        verify(fileTransferMetrics).recordTransfer(eq(FileTransferMetrics.Direction.UPLOAD), eq("stream"),
+                anyLong(), anyLong(), eq(true));
         verify(activityLogService).createLog(eq(platformUserId), eq("FILE_UPLOAD_PROXY"), eq(serverId), anyString(), eq("SUCCESS"), eq(null));
     }
 
@@ -131,4 +247,24 @@ class FileTransferServiceTests {
         });
          verify(activityLogService).createLog(eq(platformUserId), eq("FILE_LIST_PROXY_FAILED"), eq(serverId), anyString(), eq("FAILED"), anyString());
     }
+
+    /**
+     * Answers every download request of the RestTemplate with the response built for its headers.
+     *
+     * @return the headers of each request, in the order they were sent
+     */
+    private List<HttpHeaders> stubDownload(Function<HttpHeaders, MockClientHttpResponse> responder) {
+        List<HttpHeaders> requests = Collections.synchronizedList(new ArrayList<>());
+        when(restTemplate.execute(contains("/ops/ssh/" + sessionToken + "/sftp/download"), eq(HttpMethod.GET),
+                any(RequestCallback.class), any(ResponseExtractor.class)))
+            .thenAnswer(invocation -> {
+                MockClientHttpRequest request = new MockClientHttpRequest();
+                invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+                requests.add(request.getHeaders());
+                try (MockClientHttpResponse response = responder.apply(request.getHeaders())) {
+                    return invocation.<ResponseExtractor<?>>getArgument(3).extractData(response);
+                }
+            });
+        return requests;
+    }
 }
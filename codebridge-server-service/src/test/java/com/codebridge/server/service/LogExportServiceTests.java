@@ -0,0 +1,189 @@
+package com.codebridge.server.service;
+
+import com.codebridge.server.model.ServerActivityLog;
+import com.codebridge.server.repository.ServerActivityLogRepository;
+import com.codebridge.server.service.LogExportService.Format;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LogExportServiceTests {
+
+    @Mock private ServerActivityLogRepository activityLogRepository;
+    @Mock private EntityManager entityManager;
+
+    @InjectMocks
+    private LogExportService logExportService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private final LocalDateTime endDate = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(logExportService, "pageSize", 2);
+    }
+
+    @Test
+    void exportLogs_csvStreamsEveryPage() throws IOException {
+        ServerActivityLog first = log("LOGIN", "plain details", LocalDateTime.of(2024, 1, 2, 10, 0, 0));
+        ServerActivityLog second = log("EXEC", "ran \"ls\", then exit", LocalDateTime.of(2024, 1, 2, 10, 0, 1));
+        ServerActivityLog third = log("LOGOUT", null, LocalDateTime.of(2024, 1, 3, 8, 30, 0));
+        when(activityLogRepository.findByTimestampBetweenOrderByTimestampAscIdAsc(
+                eq(startDate), eq(endDate), any(ScrollPosition.class), eq(Limit.of(2))))
+                .thenReturn(page(true, first, second), page(false, third));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = logExportService.exportLogs(Format.CSV, null, null, startDate, endDate, false, out);
+
+        assertEquals(3, exported);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("ID,User ID,Server ID,Action,Status,Details,Error Message,IP Address,User Agent,Timestamp", lines[0]);
+        assertEquals(first.getId() + "," + userId + ",,LOGIN,SUCCESS,plain details,,10.0.0.1,curl/8.0,2024-01-02 10:00:00", lines[1]);
+        assertEquals(second.getId() + "," + userId + ",,EXEC,SUCCESS,\"ran \"\"ls\"\", then exit\",,10.0.0.1,curl/8.0,2024-01-02 10:00:01", lines[2]);
+        assertEquals(third.getId() + "," + userId + ",,LOGOUT,SUCCESS,,,10.0.0.1,curl/8.0,2024-01-03 08:30:00", lines[3]);
+        verify(activityLogRepository, times(2)).findByTimestampBetweenOrderByTimestampAscIdAsc(
+                any(), any(), any(), any());
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void exportLogs_jsonKeepsArrayLayout() throws IOException {
+        ServerActivityLog log = log("LOGIN", "line one\nline \"two\"", LocalDateTime.of(2024, 1, 2, 10, 0, 0));
+        when(activityLogRepository.findByUserIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+                eq(userId), eq(startDate), eq(endDate), any(), any()))
+                .thenReturn(page(false, log));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        logExportService.exportLogs(Format.JSON, userId, null, startDate, endDate, false, out);
+
+        String expected = "[\n"
+                + "  {\n"
+                + "    \"id\": \"" + log.getId() + "\",\n"
+                + "    \"userId\": \"" + userId + "\",\n"
+                + "    \"serverId\": null,\n"
+                + "    \"action\": \"LOGIN\",\n"
+                + "    \"status\": \"SUCCESS\",\n"
+                + "    \"details\": \"line one\\nline \\\"two\\\"\",\n"
+                + "    \"errorMessage\": null,\n"
+                + "    \"ipAddress\": \"10.0.0.1\",\n"
+                + "    \"userAgent\": \"curl/8.0\",\n"
+                + "    \"timestamp\": \"2024-01-02 10:00:00\"\n"
+                + "  }\n"
+                + "]\n";
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void exportLogs_gzippedNdjsonWritesOneObjectPerLine() throws IOException {
+        UUID serverId = UUID.randomUUID();
+        ServerActivityLog first = log("LOGIN", "tab\there", LocalDateTime.of(2024, 1, 2, 10, 0, 0));
+        ServerActivityLog second = log("LOGOUT", "bell\u0007", LocalDateTime.of(2024, 1, 2, 11, 0, 0));
+        second.setServerId(serverId);
+        when(activityLogRepository.findByUserIdAndServerIdAndTimestampBetweenOrderByTimestampAscIdAsc(
+                eq(userId), eq(serverId), eq(startDate), eq(endDate), any(), any()))
+                .thenReturn(page(false, first, second));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        logExportService.exportLogs(Format.NDJSON, userId, serverId, startDate, endDate, true, out);
+
+        String content;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = content.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":\"" + first.getId() + "\",\"userId\":\"" + userId + "\",\"serverId\":null,"
+                + "\"action\":\"LOGIN\",\"status\":\"SUCCESS\",\"details\":\"tab\\there\",\"errorMessage\":null,"
+                + "\"ipAddress\":\"10.0.0.1\",\"userAgent\":\"curl/8.0\",\"timestamp\":\"2024-01-02 10:00:00\"}", lines[0]);
+        assertTrue(lines[1].contains("\"serverId\":\"" + serverId + "\""));
+        assertTrue(lines[1].contains("\"details\":\"bell\\u0007\""));
+    }
+
+    @Test
+    void exportLogs_zipReadsLogsOnce() throws IOException {
+        ServerActivityLog first = log("LOGIN", "details", LocalDateTime.of(2024, 1, 2, 10, 0, 0));
+        ServerActivityLog second = log("EXEC", "more details", LocalDateTime.of(2024, 1, 2, 10, 5, 0));
+        ServerActivityLog third = log("LOGOUT", "done", LocalDateTime.of(2024, 1, 2, 10, 9, 0));
+        when(activityLogRepository.findByTimestampBetweenOrderByTimestampAscIdAsc(any(), any(), any(), any()))
+                .thenReturn(page(true, first, second), page(false, third));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = logExportService.exportLogs(Format.ZIP, null, null, startDate, endDate, true, out);
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertEquals(3, exported);
+        assertEquals(2, entries.size());
+        assertEquals(4, entries.get("logs.csv").split("\n").length);
+        String json = entries.get("logs.json");
+        assertTrue(json.startsWith("[\n  {\n"));
+        assertTrue(json.endsWith("  }\n]\n"));
+        assertEquals(3, json.split("\"action\"").length - 1);
+        verify(activityLogRepository, times(2)).findByTimestampBetweenOrderByTimestampAscIdAsc(
+                any(), any(), any(), any());
+    }
+
+    @Test
+    void exportLogs_emptyJsonIsEmptyArray() throws IOException {
+        when(activityLogRepository.findByTimestampBetweenOrderByTimestampAscIdAsc(any(), any(), any(), any()))
+                .thenReturn(page(false));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = logExportService.exportLogs(Format.JSON, null, null, null, null, false, out);
+
+        assertEquals(0, exported);
+        assertEquals("[\n]\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private ServerActivityLog log(String action, String details, LocalDateTime timestamp) {
+        ServerActivityLog log = new ServerActivityLog();
+        log.setId(UUID.randomUUID());
+        log.setUserId(userId);
+        log.setAction(action);
+        log.setStatus("SUCCESS");
+        log.setDetails(details);
+        log.setIpAddress("10.0.0.1");
+        log.setUserAgent("curl/8.0");
+        log.setTimestamp(timestamp);
+        return log;
+    }
+
+    private static Window<ServerActivityLog> page(boolean hasNext, ServerActivityLog... logs) {
+        return Window.from(List.of(logs), ScrollPosition::offset, hasNext);
+    }
+}
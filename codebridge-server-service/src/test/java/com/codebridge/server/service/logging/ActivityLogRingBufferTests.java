@@ -0,0 +1,86 @@
+package com.codebridge.server.service.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityLogRingBufferTests {
+
+    @Test
+    void capacity_isRoundedUpToPowerOfTwo() {
+        assertEquals(8, new ActivityLogRingBuffer<Integer>(5).capacity());
+        assertEquals(8, new ActivityLogRingBuffer<Integer>(8).capacity());
+    }
+
+    @Test
+    void offer_failsWhenFull_andSucceedsAfterDrain() {
+        ActivityLogRingBuffer<Integer> buffer = new ActivityLogRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertEquals(List.of(0, 1, 2), drained);
+        assertTrue(buffer.offer(4));
+
+        drained.clear();
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertEquals(List.of(3, 4), drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void drainTo_keepsOrderOfEachProducer() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        ActivityLogRingBuffer<long[]> buffer = new ActivityLogRingBuffer<>(256);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        start.countDown();
+
+        long[] next = new long[producers];
+        List<long[]> drained = new ArrayList<>();
+        int total = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (total < producers * perProducer && System.nanoTime() < deadline) {
+            drained.clear();
+            total += buffer.drainTo(drained, 64);
+            for (long[] element : drained) {
+                assertEquals(next[(int) element[0]]++, element[1]);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(producers * perProducer, total);
+        assertEquals(0, buffer.size());
+    }
+}
@@ -2,16 +2,24 @@ package com.codebridge.server.service.logging;
 
 import com.codebridge.server.dto.logging.LogEventMessage;
 import com.codebridge.server.model.ServerActivityLog;
-import com.codebridge.server.repository.ServerActivityLogRepository;
+import com.codebridge.server.repository.ServerActivityLogBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
@@ -19,98 +27,153 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class LogEventConsumerServiceTests {
 
-    @Mock private ServerActivityLogRepository serverActivityLogRepository;
-    @InjectMocks private LogEventConsumerService logEventConsumerService;
+    @Mock private ServerActivityLogBatchRepository batchRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private Channel channel;
+    @Mock private Channel otherChannel;
+
+    @TempDir Path tempDir;
+
+    private LogEventConsumerService logEventConsumerService;
+    private SimpleMeterRegistry meterRegistry;
+    private Path spillPath;
 
     private final int BATCH_SIZE = 5; // Test with a smaller batch size
 
     @BeforeEach
     void setUp() {
-        ReflectionTestUtils.setField(logEventConsumerService, "BATCH_SIZE", BATCH_SIZE);
-        // Ensure logBatch list is clean before each test
-        List<ServerActivityLog> logBatch = new ArrayList<>();
-        ReflectionTestUtils.setField(logEventConsumerService, "logBatch", logBatch);
+        meterRegistry = new SimpleMeterRegistry();
+        logEventConsumerService = new LogEventConsumerService(batchRepository, transactionManager,
+                new ObjectMapper().findAndRegisterModules(), meterRegistry);
+        spillPath = tempDir.resolve("spill.ndjson");
+        ReflectionTestUtils.setField(logEventConsumerService, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(logEventConsumerService, "flushIntervalMs", 1000L);
+        ReflectionTestUtils.setField(logEventConsumerService, "bufferCapacity", 16);
+        ReflectionTestUtils.setField(logEventConsumerService, "spillPath", spillPath.toString());
+        ReflectionTestUtils.setField(logEventConsumerService, "spillMaxBytes", 1024L * 1024);
+        logEventConsumerService.init();
+    }
+
+    @Test
+    void receiveLogEvent_buffersUntilFlushed() {
+        receive(message("SINGLE_ACTION"), channel, 1L);
+
+        verifyNoInteractions(batchRepository);
+        verifyNoInteractions(channel);
+        assertEquals(1.0, meterRegistry.get("codebridge.activitylog.events.consumed").counter().count());
+        assertEquals(1.0, meterRegistry.get("codebridge.activitylog.buffer.size").gauge().value());
     }
 
     @Test
-    void receiveLogEvent_addsToBatch_andFlushesWhenBatchSizeReached() {
-        for (int i = 0; i < BATCH_SIZE; i++) {
-            LogEventMessage message = new LogEventMessage();
-            message.setPlatformUserId(UUID.randomUUID());
-            message.setAction("ACTION_" + i);
-            message.setServerId(UUID.randomUUID());
-            message.setDetails("Details " + i);
-            message.setStatus("SUCCESS");
-            message.setTimestamp(System.currentTimeMillis());
-            
-            logEventConsumerService.receiveLogEvent(message);
+    void flushLogBatch_insertsBatchAndAcknowledgesAfterCommit() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            receive(message("ACTION_" + i), channel, i + 1);
         }
 
+        assertEquals(3, logEventConsumerService.flushLogBatch());
+
         ArgumentCaptor<List<ServerActivityLog>> captor = ArgumentCaptor.forClass(List.class);
-        verify(serverActivityLogRepository).saveAll(captor.capture());
-        assertEquals(BATCH_SIZE, captor.getValue().size());
-        
-        // Get the current logBatch size
-        List<ServerActivityLog> logBatch = (List<ServerActivityLog>) ReflectionTestUtils.getField(logEventConsumerService, "logBatch");
-        assertEquals(0, logBatch.size()); // Batch should be cleared
+        InOrder inOrder = inOrder(batchRepository, transactionManager, channel);
+        inOrder.verify(batchRepository).insertAll(captor.capture());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(channel).basicAck(3L, true);
+        assertEquals(List.of("ACTION_0", "ACTION_1", "ACTION_2"),
+                captor.getValue().stream().map(ServerActivityLog::getAction).toList());
+        assertEquals(1, meterRegistry.get("codebridge.activitylog.flush").timer().count());
     }
 
     @Test
-    void receiveLogEvent_addsToBatch_doesNotFlushIfBatchSizeNotReached() {
-        LogEventMessage message = new LogEventMessage();
-        message.setPlatformUserId(UUID.randomUUID());
-        message.setAction("SINGLE_ACTION");
-        message.setServerId(UUID.randomUUID());
-        message.setDetails("Single Detail");
-        message.setStatus("SUCCESS");
-        message.setTimestamp(System.currentTimeMillis());
-        
-        logEventConsumerService.receiveLogEvent(message);
-
-        verify(serverActivityLogRepository, never()).saveAll(any());
-        
-        // Get the current logBatch size
-        List<ServerActivityLog> logBatch = (List<ServerActivityLog>) ReflectionTestUtils.getField(logEventConsumerService, "logBatch");
-        assertEquals(1, logBatch.size());
+    void flushLogBatch_takesAtMostOneBatch() throws Exception {
+        for (int i = 0; i < BATCH_SIZE + 2; i++) {
+            receive(message("ACTION_" + i), channel, i + 1);
+        }
+
+        assertEquals(BATCH_SIZE, logEventConsumerService.flushLogBatch());
+        verify(channel).basicAck(BATCH_SIZE, true);
+        assertEquals(2, logEventConsumerService.flushLogBatch());
+        verify(channel).basicAck(BATCH_SIZE + 2, true);
+        verify(batchRepository, times(2)).insertAll(anyList());
     }
 
     @Test
-    void scheduledFlush_flushesNonEmptyBatch() {
-        LogEventMessage message = new LogEventMessage();
-        message.setPlatformUserId(UUID.randomUUID());
-        message.setAction("SCHEDULED_ACTION");
-        message.setServerId(UUID.randomUUID());
-        message.setDetails("Scheduled Detail");
-        message.setStatus("SUCCESS");
-        message.setTimestamp(System.currentTimeMillis());
-        
-        logEventConsumerService.receiveLogEvent(message); // Add one item
+    void flushLogBatch_acknowledgesEachChannel() throws Exception {
+        receive(message("A"), channel, 1L);
+        receive(message("B"), otherChannel, 7L);
+        receive(message("C"), channel, 2L);
 
-        // Get the current logBatch size
-        List<ServerActivityLog> logBatch = (List<ServerActivityLog>) ReflectionTestUtils.getField(logEventConsumerService, "logBatch");
-        assertEquals(1, logBatch.size());
+        logEventConsumerService.flushLogBatch();
 
-        logEventConsumerService.scheduledFlush(); // Trigger flush
+        verify(channel).basicAck(2L, true);
+        verify(otherChannel).basicAck(7L, true);
+        verifyNoMoreInteractions(channel, otherChannel);
+    }
 
-        ArgumentCaptor<List<ServerActivityLog>> captor = ArgumentCaptor.forClass(List.class);
-        verify(serverActivityLogRepository).saveAll(captor.capture());
-        assertEquals(1, captor.getValue().size());
-        
-        // Get the updated logBatch size
-        logBatch = (List<ServerActivityLog>) ReflectionTestUtils.getField(logEventConsumerService, "logBatch");
-        assertEquals(0, logBatch.size());
+    @Test
+    void flushLogBatch_spillsFailedBatchAndReplaysItLater() throws Exception {
+        receive(message("A"), channel, 1L);
+        receive(message("B"), channel, 2L);
+        List<List<String>> inserted = new ArrayList<>();
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .doAnswer(invocation -> {
+                    List<ServerActivityLog> logs = invocation.getArgument(0);
+                    inserted.add(logs.stream().map(ServerActivityLog::getAction).toList());
+                    return null;
+                })
+                .when(batchRepository).insertAll(anyList());
+
+        logEventConsumerService.flushLogBatch();
+
+        // Spilled events are durable locally, so the broker can let go of them
+        verify(channel).basicAck(2L, true);
+        assertTrue(Files.exists(spillPath));
+        assertEquals(2.0, meterRegistry.get("codebridge.activitylog.events.spilled").counter().count());
+
+        assertEquals(0, logEventConsumerService.flushLogBatch());
+
+        assertEquals(List.of(List.of("A", "B")), inserted);
+        assertFalse(Files.exists(spillPath));
     }
 
     @Test
-    void scheduledFlush_doesNothingForEmptyBatch() {
-        logEventConsumerService.scheduledFlush();
-        verify(serverActivityLogRepository, never()).saveAll(any());
+    void flushLogBatch_returnsEventsToBrokerWhenSpillFileIsFull() throws Exception {
+        ReflectionTestUtils.setField(logEventConsumerService, "spillMaxBytes", 10L);
+        logEventConsumerService.init();
+        receive(message("A"), channel, 1L);
+        receive(message("B"), channel, 2L);
+        doThrow(new DataAccessResourceFailureException("database down")).when(batchRepository).insertAll(anyList());
+
+        logEventConsumerService.flushLogBatch();
+
+        verify(channel).basicNack(1L, false, true);
+        verify(channel).basicNack(2L, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        assertFalse(Files.exists(spillPath));
+    }
+
+    @Test
+    void receiveLogEvent_flushesInlineWhenBufferIsFull() throws Exception {
+        int capacity = 16;
+        for (int i = 0; i <= capacity; i++) {
+            receive(message("ACTION_" + i), channel, i + 1);
+        }
+
+        verify(batchRepository).insertAll(argThat(logs -> logs.size() == BATCH_SIZE));
+        verify(channel).basicAck(BATCH_SIZE, true);
+    }
+
+    @Test
+    void flushLogBatch_doesNothingForEmptyBuffer() {
+        assertEquals(0, logEventConsumerService.flushLogBatch());
+        verifyNoInteractions(batchRepository);
     }
 
     @Test
@@ -118,7 +181,7 @@ class LogEventConsumerServiceTests {
         long timestampMillis = System.currentTimeMillis();
         UUID platformId = UUID.randomUUID();
         UUID serverId = UUID.randomUUID();
-        
+
         LogEventMessage message = new LogEventMessage();
         message.setPlatformUserId(platformId);
         message.setAction("MAP_TEST");
@@ -130,10 +193,13 @@ class LogEventConsumerServiceTests {
         message.setUserAgent("Mozilla/5.0");
         message.setTimestamp(timestampMillis);
 
-        ServerActivityLog entity = ReflectionTestUtils.invokeMethod(logEventConsumerService, "mapToEntity", message);
+        ServerActivityLog entity = ReflectionTestUtils.invokeMethod(logEventConsumerService, "mapToEntity",
+                message, "message-1");
 
         assertNotNull(entity);
+        assertNotNull(entity.getId());
         assertEquals(platformId, entity.getPlatformUserId());
+        assertEquals(platformId, entity.getUserId());
         assertEquals("MAP_TEST", entity.getAction());
         assertEquals(serverId, entity.getServerId());
         assertEquals("Map Details", entity.getDetails());
@@ -143,5 +209,51 @@ class LogEventConsumerServiceTests {
         assertEquals("Mozilla/5.0", entity.getUserAgent());
         assertEquals(LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(timestampMillis), ZoneOffset.systemDefault()), entity.getTimestamp());
     }
-}
 
+    @Test
+    void mapToEntity_derivesTheIdFromTheMessageId() {
+        LogEventMessage message = message("REDELIVERED");
+
+        ServerActivityLog first = ReflectionTestUtils.invokeMethod(logEventConsumerService, "mapToEntity",
+                message, "message-1");
+        ServerActivityLog redelivered = ReflectionTestUtils.invokeMethod(logEventConsumerService, "mapToEntity",
+                message, "message-1");
+        ServerActivityLog other = ReflectionTestUtils.invokeMethod(logEventConsumerService, "mapToEntity",
+                message, "message-2");
+
+        assertEquals(first.getId(), redelivered.getId());
+        assertNotEquals(first.getId(), other.getId());
+    }
+
+    @Test
+    void drainOnShutdown_acknowledgesBufferedAndLaterDeliveries() throws Exception {
+        receive(message("A"), channel, 1L);
+        receive(message("B"), channel, 2L);
+
+        logEventConsumerService.drainOnShutdown();
+
+        verify(batchRepository).insertAll(argThat(logs -> logs.size() == 2));
+        verify(channel).basicAck(2L, true);
+
+        // Deliveries arriving before the container stops are written and acknowledged right away
+        receive(message("C"), channel, 3L);
+
+        verify(batchRepository, times(2)).insertAll(anyList());
+        verify(channel).basicAck(3L, true);
+    }
+
+    private void receive(LogEventMessage message, Channel channel, long deliveryTag) {
+        logEventConsumerService.receiveLogEvent(message, channel, deliveryTag, UUID.randomUUID().toString());
+    }
+
+    private LogEventMessage message(String action) {
+        LogEventMessage message = new LogEventMessage();
+        message.setPlatformUserId(UUID.randomUUID());
+        message.setAction(action);
+        message.setServerId(UUID.randomUUID());
+        message.setDetails("Details for " + action);
+        message.setStatus("SUCCESS");
+        message.setTimestamp(System.currentTimeMillis());
+        return message;
+    }
+}